@@ -0,0 +1,60 @@
+package com.dedicatedcode.reitti.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes points into the compact binary format accepted by {@code /api/v1/ingest/binary}.
+ *
+ * <pre>
+ * stream  := 'R' 'T' 'B' version(u8 = 1) block*
+ * block   := count(u32) baseMillis(i64) point{count}
+ * point   := deltaMillis(zigzag varint, relative to the previous point or baseMillis)
+ *            lat(i32, degrees * 1e7) lon(i32, degrees * 1e7)
+ *            accuracy(u16, decimeters) elevation(i32, centimeters, Integer.MIN_VALUE if unknown)
+ * </pre>
+ */
+public class CompactPointBatchEncoder {
+    public static final String MEDIA_TYPE = "application/vnd.reitti.points";
+    private static final int VERSION = 1;
+    private static final int NO_ELEVATION = Integer.MIN_VALUE;
+
+    public record Point(long timestampMillis, double latitude, double longitude, double accuracyMeters, Double elevationMeters) {
+    }
+
+    public static byte[] encode(List<Point> points, int blockSize, boolean gzip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(points.size() * 16 + 16);
+        OutputStream target = gzip ? new GZIPOutputStream(bytes) : bytes;
+        try (DataOutputStream out = new DataOutputStream(target)) {
+            out.write(new byte[]{'R', 'T', 'B', VERSION});
+            for (int start = 0; start < points.size(); start += blockSize) {
+                List<Point> block = points.subList(start, Math.min(points.size(), start + blockSize));
+                long previous = block.get(0).timestampMillis();
+                out.writeInt(block.size());
+                out.writeLong(previous);
+                for (Point point : block) {
+                    writeZigZagVarLong(out, point.timestampMillis() - previous);
+                    previous = point.timestampMillis();
+                    out.writeInt((int) Math.round(point.latitude() * 1e7));
+                    out.writeInt((int) Math.round(point.longitude() * 1e7));
+                    out.writeShort((int) Math.min(0xFFFF, Math.round(point.accuracyMeters() * 10)));
+                    out.writeInt(point.elevationMeters() != null ? (int) Math.round(point.elevationMeters() * 100) : NO_ELEVATION);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeZigZagVarLong(DataOutputStream out, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+}
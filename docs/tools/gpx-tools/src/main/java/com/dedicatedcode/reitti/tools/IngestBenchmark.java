@@ -0,0 +1,179 @@
+package com.dedicatedcode.reitti.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends all points of a GPX file as fast as possible through one of the ingestion endpoints and reports the
+ * throughput, to compare the compact binary format with the JSON based ones.
+ */
+public class IngestBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp gpx-tools.jar com.dedicatedcode.reitti.tools.IngestBenchmark <gpx-file> --url <reitti-url> --token <api-token> [--format binary|overland|owntracks] [--batch-size <points>] [--gzip] [--repeat <n>]");
+            System.exit(1);
+        }
+
+        String gpxFile = args[0];
+        String reittiUrl = null;
+        String apiToken = null;
+        String format = "binary";
+        int batchSize = 500;
+        boolean gzip = false;
+        int repeat = 1;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> reittiUrl = args[++i];
+                case "--token" -> apiToken = args[++i];
+                case "--format" -> format = args[++i];
+                case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                case "--gzip" -> gzip = true;
+                case "--repeat" -> repeat = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown parameter: " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        if (reittiUrl == null || apiToken == null) {
+            System.err.println("Both --url and --token parameters are required");
+            System.exit(1);
+        }
+
+        List<CompactPointBatchEncoder.Point> points = parseGpxFile(gpxFile);
+        if (points.isEmpty()) {
+            System.err.println("No track points with timestamps found in GPX file");
+            System.exit(1);
+        }
+        System.out.println("Loaded " + points.size() + " track points from " + gpxFile + ", sending " + repeat + " time(s) as " + format);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        long bytesSent = 0;
+        long pointsSent = 0;
+        long start = System.nanoTime();
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            for (int run = 0; run < repeat; run++) {
+                // every run is shifted by the duration of the track, so repeated points are not dropped as duplicates
+                long shift = run * (points.get(points.size() - 1).timestampMillis() - points.get(0).timestampMillis() + 1000);
+                List<CompactPointBatchEncoder.Point> shifted = points.stream()
+                        .map(p -> new CompactPointBatchEncoder.Point(p.timestampMillis() + shift, p.latitude(), p.longitude(), p.accuracyMeters(), p.elevationMeters()))
+                        .toList();
+                int step = format.equals("owntracks") ? 1 : batchSize;
+                for (int offset = 0; offset < shifted.size(); offset += step) {
+                    List<CompactPointBatchEncoder.Point> batch = shifted.subList(offset, Math.min(shifted.size(), offset + step));
+                    HttpPost post = switch (format) {
+                        case "binary" -> {
+                            HttpPost request = new HttpPost(reittiUrl + "/api/v1/ingest/binary");
+                            request.setEntity(new ByteArrayEntity(CompactPointBatchEncoder.encode(batch, batch.size(), gzip), ContentType.create(CompactPointBatchEncoder.MEDIA_TYPE)));
+                            yield request;
+                        }
+                        case "overland" -> {
+                            HttpPost request = new HttpPost(reittiUrl + "/api/v1/ingest/overland");
+                            request.setEntity(new ByteArrayEntity(objectMapper.writeValueAsBytes(toOverland(batch)), ContentType.APPLICATION_JSON));
+                            yield request;
+                        }
+                        case "owntracks" -> {
+                            HttpPost request = new HttpPost(reittiUrl + "/api/v1/ingest/owntracks");
+                            request.setEntity(new ByteArrayEntity(objectMapper.writeValueAsBytes(toOwntracks(batch.get(0))), ContentType.APPLICATION_JSON));
+                            yield request;
+                        }
+                        default -> throw new IllegalArgumentException("Unknown format: " + format);
+                    };
+                    post.setHeader("Authorization", "Bearer " + apiToken);
+                    bytesSent += post.getEntity().getContentLength();
+                    int status = httpClient.execute(post, response -> response.getCode());
+                    if (status < 200 || status >= 300) {
+                        System.err.println("Request failed with status " + status + " at point " + offset);
+                    }
+                    pointsSent += batch.size();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Sent %d points (%d bytes, %.1f bytes/point) in %.2f s: %.0f points/s%n",
+                          pointsSent, bytesSent, (double) bytesSent / pointsSent, seconds, pointsSent / seconds);
+    }
+
+    private static Map<String, Object> toOverland(List<CompactPointBatchEncoder.Point> batch) {
+        List<Map<String, Object>> locations = new ArrayList<>(batch.size());
+        for (CompactPointBatchEncoder.Point point : batch) {
+            List<Double> coordinates = point.elevationMeters() != null
+                    ? List.of(point.longitude(), point.latitude(), point.elevationMeters())
+                    : List.of(point.longitude(), point.latitude());
+            locations.add(Map.of(
+                    "type", "Feature",
+                    "geometry", Map.of("type", "Point", "coordinates", coordinates),
+                    "properties", Map.of(
+                            "timestamp", Instant.ofEpochMilli(point.timestampMillis()).toString(),
+                            "horizontal_accuracy", point.accuracyMeters())));
+        }
+        return Map.of("locations", locations);
+    }
+
+    private static Map<String, Object> toOwntracks(CompactPointBatchEncoder.Point point) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("_type", "location");
+        message.put("lat", point.latitude());
+        message.put("lon", point.longitude());
+        message.put("acc", point.accuracyMeters());
+        message.put("tst", point.timestampMillis() / 1000);
+        if (point.elevationMeters() != null) {
+            message.put("alt", point.elevationMeters());
+        }
+        return message;
+    }
+
+    private static List<CompactPointBatchEncoder.Point> parseGpxFile(String gpxFile) throws Exception {
+        List<CompactPointBatchEncoder.Point> points = new ArrayList<>();
+        try (InputStream in = new FileInputStream(gpxFile)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            double lat = 0;
+            double lon = 0;
+            Double elevation = null;
+            Instant time = null;
+            String current = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    current = reader.getLocalName();
+                    if (current.equals("trkpt")) {
+                        lat = Double.parseDouble(reader.getAttributeValue(null, "lat"));
+                        lon = Double.parseDouble(reader.getAttributeValue(null, "lon"));
+                        elevation = null;
+                        time = null;
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && current != null && !reader.isWhiteSpace()) {
+                    if (current.equals("ele")) {
+                        elevation = Double.parseDouble(reader.getText().trim());
+                    } else if (current.equals("time")) {
+                        time = Instant.parse(reader.getText().trim());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (reader.getLocalName().equals("trkpt") && time != null) {
+                        points.add(new CompactPointBatchEncoder.Point(time.toEpochMilli(), lat, lon, 10.0, elevation));
+                    }
+                    current = null;
+                }
+            }
+        }
+        return points;
+    }
+}
@@ -1,10 +1,12 @@
 package com.dedicatedcode.reitti.config;
 
+import com.dedicatedcode.reitti.controller.api.ingestion.IngestionAdmissionInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.i18n.CookieLocaleResolver;
 
@@ -15,7 +17,13 @@ import java.util.Locale;
 @Configuration
 @EnableScheduling
 public class WebConfig implements WebMvcConfigurer {
-    
+
+    private final IngestionAdmissionInterceptor ingestionAdmissionInterceptor;
+
+    public WebConfig(IngestionAdmissionInterceptor ingestionAdmissionInterceptor) {
+        this.ingestionAdmissionInterceptor = ingestionAdmissionInterceptor;
+    }
+
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate();
@@ -30,4 +38,11 @@ public class WebConfig implements WebMvcConfigurer {
         return resolver;
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // only live ingestion, file uploads like /api/v2/gpslogger/file are imports with their own partition and job
+        registry.addInterceptor(ingestionAdmissionInterceptor)
+                .addPathPatterns("/api/v1/ingest/owntracks", "/api/v1/ingest/overland", "/api/v1/ingest/gpslogger", "/api/v1/ingest/binary");
+    }
+
 }
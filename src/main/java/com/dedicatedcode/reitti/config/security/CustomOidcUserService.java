@@ -4,6 +4,7 @@ import com.dedicatedcode.reitti.model.security.ExternalUser;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.UserJdbcService;
 import com.dedicatedcode.reitti.service.AvatarService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import com.dedicatedcode.reitti.service.UserService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,6 +30,7 @@ public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest,
     private final UserJdbcService userJdbcService;
     private final UserService userService;
     private final AvatarService avatarService;
+    private final OwntracksFriendsService owntracksFriendsService;
     private final boolean registrationEnabled;
     private final boolean localLoginDisabled;
     private final RestTemplate restTemplate;
@@ -36,12 +38,14 @@ public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest,
     public CustomOidcUserService(UserJdbcService userJdbcService,
                                  UserService userService,
                                  AvatarService avatarService,
+                                 OwntracksFriendsService owntracksFriendsService,
                                  RestTemplate restTemplate,
                                  @Value("${reitti.security.oidc.registration.enabled}") boolean registrationEnabled,
                                  @Value("${reitti.security.local-login.disable:false}") boolean localLoginDisabled) {
         this.userJdbcService = userJdbcService;
         this.userService = userService;
         this.avatarService = avatarService;
+        this.owntracksFriendsService = owntracksFriendsService;
         this.restTemplate = restTemplate;
         this.registrationEnabled = registrationEnabled;
         this.localLoginDisabled = localLoginDisabled;
@@ -110,7 +114,8 @@ public class CustomOidcUserService implements OAuth2UserService<OidcUserRequest,
             if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
                 downloadAndSaveAvatar(user.getId(), avatarUrl);
             }
-            
+            owntracksFriendsService.userChanged(user.getId());
+
             return new ExternalUser(updatedUser, oidcUser);
         } else if (registrationEnabled) {
             User user = this.userService.createNewUser(preferredUsername, displayName, oidcUserId, profileUrl);
@@ -0,0 +1,198 @@
+package com.dedicatedcode.reitti.controller.api;
+
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.DeviceJdbcService;
+import com.dedicatedcode.reitti.service.importer.ChunkedUploadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resumable uploads following the core and creation parts of the tus protocol (https://tus.io/protocols/resumable-upload).
+ * A client creates an upload with its total length, then sends the file in PATCH requests starting at the offset the
+ * server reports. After a broken connection the client asks for the current offset with HEAD and continues there.
+ */
+@RestController
+@RequestMapping("/api/v1/import/uploads")
+public class ChunkedUploadApiController {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadApiController.class);
+    private static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("zip", "gz", "gpx", "fit", "json", "geojson");
+
+    private final ChunkedUploadService chunkedUploadService;
+    private final DeviceJdbcService deviceJdbcService;
+
+    public ChunkedUploadApiController(ChunkedUploadService chunkedUploadService, DeviceJdbcService deviceJdbcService) {
+        this.chunkedUploadService = chunkedUploadService;
+        this.deviceJdbcService = deviceJdbcService;
+    }
+
+    @RequestMapping(method = RequestMethod.OPTIONS)
+    public ResponseEntity<Void> options() {
+        return ResponseEntity.noContent()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Extension", "creation,termination")
+                .build();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@AuthenticationPrincipal User user,
+                                    @RequestHeader(UPLOAD_LENGTH) long length,
+                                    @RequestHeader(name = "Upload-Metadata", required = false) String uploadMetadata) {
+        Map<String, String> metadata = parseMetadata(uploadMetadata);
+        String filename = metadata.get("filename");
+        if (filename == null || filename.isBlank() || length <= 0) {
+            return error(HttpStatus.BAD_REQUEST, "Upload-Length and a filename in Upload-Metadata are required");
+        }
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if (!SUPPORTED_EXTENSIONS.contains(extension)) {
+            return error(HttpStatus.BAD_REQUEST, "Unsupported file type: " + filename);
+        }
+
+        Optional<Device> device = resolveDevice(user, metadata.get("device"));
+        if (device.isEmpty()) {
+            return error(HttpStatus.BAD_REQUEST, "Requested device not found. Please pass a device in Upload-Metadata or use a token with an attached device.");
+        }
+
+        ChunkedUploadService.Upload upload = chunkedUploadService.create(user, device.get(), filename, length);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(upload.getId()).toUri();
+        return ResponseEntity.created(location)
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header(UPLOAD_OFFSET, "0")
+                .build();
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> offset(@AuthenticationPrincipal User user, @PathVariable String id) {
+        return chunkedUploadService.find(user, id)
+                .map(upload -> ResponseEntity.ok()
+                        .header(TUS_RESUMABLE, TUS_VERSION)
+                        .header(UPLOAD_OFFSET, String.valueOf(upload.getOffset()))
+                        .header(UPLOAD_LENGTH, String.valueOf(upload.getLength()))
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                        .<Void>build())
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@AuthenticationPrincipal User user, @PathVariable String id) {
+        Optional<ChunkedUploadService.Upload> upload = chunkedUploadService.find(user, id);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("filename", upload.get().getFilename());
+        response.put("length", upload.get().getLength());
+        response.put("offset", upload.get().getOffset());
+        response.put("state", upload.get().getState().name());
+        upload.get().getImportResult().ifPresent(result -> response.put("import", result));
+        return ResponseEntity.ok(response);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = OFFSET_CONTENT_TYPE)
+    public ResponseEntity<?> append(@AuthenticationPrincipal User user,
+                                    @PathVariable String id,
+                                    @RequestHeader(UPLOAD_OFFSET) long offset,
+                                    @RequestHeader(name = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                    InputStream body) {
+        Optional<ChunkedUploadService.Upload> upload = chunkedUploadService.find(user, id);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (contentLength != null && offset + contentLength > upload.get().getLength()) {
+            return error(HttpStatus.PAYLOAD_TOO_LARGE, "Chunk exceeds the announced Upload-Length");
+        }
+        try {
+            long newOffset = chunkedUploadService.append(upload.get(), offset, body);
+            return ResponseEntity.noContent()
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(UPLOAD_OFFSET, String.valueOf(newOffset))
+                    .build();
+        } catch (ChunkedUploadService.OffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(UPLOAD_OFFSET, String.valueOf(e.getCurrentOffset()))
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.GONE, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Chunk of upload [{}] was interrupted at offset {}: {}", id, upload.get().getOffset(), e.getMessage());
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error storing chunk, resume at offset " + upload.get().getOffset());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> terminate(@AuthenticationPrincipal User user, @PathVariable String id) {
+        Optional<ChunkedUploadService.Upload> upload = chunkedUploadService.find(user, id);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        chunkedUploadService.abort(upload.get());
+        return ResponseEntity.noContent().header(TUS_RESUMABLE, TUS_VERSION).build();
+    }
+
+    private Optional<Device> resolveDevice(User user, String deviceId) {
+        if (deviceId != null) {
+            try {
+                return this.deviceJdbcService.find(user, Long.parseLong(deviceId));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+        if (user instanceof DeviceTokenUser deviceTokenUser) {
+            return deviceTokenUser.getDevice();
+        }
+        return this.deviceJdbcService.getAll(user).stream().filter(Device::defaultDevice).findFirst();
+    }
+
+    /**
+     * Upload-Metadata is a comma separated list of keys with base64 encoded values.
+     */
+    private static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null || header.isBlank()) {
+            return metadata;
+        }
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            try {
+                metadata.put(parts[0], parts.length > 1 ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8) : "");
+            } catch (IllegalArgumentException e) {
+                logger.debug("Ignoring malformed Upload-Metadata entry [{}]", pair);
+            }
+        }
+        return metadata;
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).header(TUS_RESUMABLE, TUS_VERSION).body(Map.of("error", message));
+    }
+}
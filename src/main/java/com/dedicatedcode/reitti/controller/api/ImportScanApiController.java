@@ -0,0 +1,67 @@
+package com.dedicatedcode.reitti.controller.api;
+
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.DeviceJdbcService;
+import com.dedicatedcode.reitti.service.importer.ImportScanService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Summarizes an import file without importing it, so a user can check its time range and the overlap with the data
+ * already stored before starting the real import.
+ */
+@RestController
+@RequestMapping("/api/v1/import/scan")
+public class ImportScanApiController {
+    private static final Logger logger = LoggerFactory.getLogger(ImportScanApiController.class);
+
+    private final ImportScanService importScanService;
+    private final DeviceJdbcService deviceJdbcService;
+
+    public ImportScanApiController(ImportScanService importScanService, DeviceJdbcService deviceJdbcService) {
+        this.importScanService = importScanService;
+        this.deviceJdbcService = deviceJdbcService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> scan(@AuthenticationPrincipal User user,
+                                  @RequestParam(required = false) Long device,
+                                  @RequestParam("file") MultipartFile file) {
+        if (file.isEmpty() || file.getOriginalFilename() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
+        }
+        Device targetDevice = null;
+        if (device != null) {
+            Optional<Device> requested = this.deviceJdbcService.find(user, device);
+            if (requested.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Requested device not found"));
+            }
+            targetDevice = requested.get();
+        } else if (user instanceof DeviceTokenUser deviceTokenUser) {
+            targetDevice = deviceTokenUser.getDevice().orElse(null);
+        }
+
+        try (InputStream inputStream = file.getInputStream()) {
+            return ResponseEntity.ok(importScanService.scan(inputStream, user, targetDevice, file.getOriginalFilename()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.warn("Error reading uploaded file [{}] for scanning", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Error reading file: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dedicatedcode.reitti.controller.api.ingestion;
+
+import com.dedicatedcode.reitti.service.processing.IngestionAdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Answers live ingestion requests with {@code 429 Too Many Requests} and a {@code Retry-After} header while
+ * {@link IngestionAdmissionService} reports that the backend is falling behind. Clients like OwnTracks, Overland and
+ * GPSLogger keep the points and send them again later.
+ */
+@Component
+public class IngestionAdmissionInterceptor implements HandlerInterceptor {
+
+    private final IngestionAdmissionService admissionService;
+
+    public IngestionAdmissionInterceptor(IngestionAdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        IngestionAdmissionService.Decision decision = admissionService.admit(endpoint(request));
+        if (decision == IngestionAdmissionService.Decision.ACCEPTED) {
+            return true;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionService.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Server is busy processing location data, please retry later\"}");
+        return false;
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int lastSlash = uri.lastIndexOf('/');
+        return lastSlash >= 0 ? uri.substring(lastSlash + 1) : uri;
+    }
+}
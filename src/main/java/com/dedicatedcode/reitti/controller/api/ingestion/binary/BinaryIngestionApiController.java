@@ -0,0 +1,54 @@
+package com.dedicatedcode.reitti.controller.api.ingestion.binary;
+
+import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
+import com.dedicatedcode.reitti.service.LocationBatchingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RestController
+@RequestMapping("/api/v1/ingest")
+public class BinaryIngestionApiController {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryIngestionApiController.class);
+    private final LocationBatchingService locationBatchingService;
+
+    public BinaryIngestionApiController(LocationBatchingService locationBatchingService) {
+        this.locationBatchingService = locationBatchingService;
+    }
+
+    @PostMapping(value = "/binary", consumes = {CompactPointBatchDecoder.MEDIA_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> receiveData(@AuthenticationPrincipal DeviceTokenUser user, InputStream body) {
+        if (user.getDevice().isEmpty()) {
+            throw new IllegalArgumentException("Token has no device attached. Please use another token or attach a device to it.");
+        }
+        AtomicInteger accepted = new AtomicInteger();
+        try {
+            int received = CompactPointBatchDecoder.decode(body, block -> accepted.addAndGet(this.locationBatchingService.addLocationPoints(user, user.getDevice().get(), block)));
+            logger.debug("Successfully received [{}] and queued [{}] binary location points for user {}", received, accepted.get(), user.getUsername());
+            return ResponseEntity.ok(Map.of(
+                    "result", "ok",
+                    "received", received,
+                    "accepted", accepted.get()
+            ));
+        } catch (IllegalArgumentException | EOFException e) {
+            logger.warn("Rejecting malformed binary ingestion request for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Malformed binary payload", "accepted", accepted.get()));
+        } catch (Exception e) {
+            logger.error("Error processing binary location data", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error processing binary location data: " + e.getMessage()));
+        }
+    }
+}
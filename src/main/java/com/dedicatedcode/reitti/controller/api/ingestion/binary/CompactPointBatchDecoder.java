@@ -0,0 +1,112 @@
+package com.dedicatedcode.reitti.controller.api.ingestion.binary;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decodes the compact binary point format accepted by {@code /api/v1/ingest/binary}. All numbers are big endian.
+ *
+ * <pre>
+ * stream  := 'R' 'T' 'B' version(u8 = 1) block*
+ * block   := count(u32) baseMillis(i64) point{count}
+ * point   := deltaMillis(zigzag varint, relative to the previous point or baseMillis)
+ *            lat(i32, degrees * 1e7) lon(i32, degrees * 1e7)
+ *            accuracy(u16, decimeters) elevation(i32, centimeters, {@link Integer#MIN_VALUE} if unknown)
+ * </pre>
+ *
+ * The stream may be gzip compressed. Points are decoded straight into {@link LocationPoint}s, each block is handed
+ * to the consumer at once and the list is reused for the next block. Live batches keep and journal the point objects
+ * until they are flushed, so decoding into columns first would only add a conversion at the hand-off.
+ */
+public final class CompactPointBatchDecoder {
+    public static final String MEDIA_TYPE = "application/vnd.reitti.points";
+    public static final int VERSION = 1;
+    static final int NO_ELEVATION = Integer.MIN_VALUE;
+    private static final int MAX_BLOCK_SIZE = 100_000;
+    private static final byte[] MAGIC = {'R', 'T', 'B'};
+
+    private CompactPointBatchDecoder() {
+    }
+
+    /**
+     * @return the number of decoded points
+     * @throws IllegalArgumentException if the stream is not in the expected format
+     */
+    public static int decode(InputStream input, Consumer<List<LocationPoint>> blockConsumer) throws IOException {
+        DataInputStream in = new DataInputStream(unwrap(input));
+        byte[] header = new byte[4];
+        try {
+            in.readFully(header);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Missing header");
+        }
+        if (header[0] != MAGIC[0] || header[1] != MAGIC[1] || header[2] != MAGIC[2]) {
+            throw new IllegalArgumentException("Not a compact point batch");
+        }
+        if (header[3] != VERSION) {
+            throw new IllegalArgumentException("Unsupported version " + header[3]);
+        }
+
+        List<LocationPoint> block = new ArrayList<>();
+        int total = 0;
+        int first;
+        while ((first = in.read()) != -1) {
+            long count = ((long) first << 24) | ((long) in.readUnsignedByte() << 16) | ((long) in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            if (count > MAX_BLOCK_SIZE) {
+                throw new IllegalArgumentException("Block of " + count + " points exceeds the limit of " + MAX_BLOCK_SIZE);
+            }
+            long timestamp = in.readLong();
+            for (int i = 0; i < count; i++) {
+                timestamp += readZigZagVarLong(in);
+                LocationPoint point = new LocationPoint();
+                point.setTimestamp(Instant.ofEpochMilli(timestamp));
+                point.setLatitude(in.readInt() / 1e7);
+                point.setLongitude(in.readInt() / 1e7);
+                point.setAccuracyMeters(in.readUnsignedShort() / 10.0);
+                int elevation = in.readInt();
+                point.setElevationMeters(elevation == NO_ELEVATION ? null : elevation / 100.0);
+                block.add(point);
+            }
+            if (!block.isEmpty()) {
+                blockConsumer.accept(block);
+                total += block.size();
+                block.clear();
+            }
+        }
+        return total;
+    }
+
+    private static InputStream unwrap(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 64 * 1024);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == 0x1f && b2 == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024), 64 * 1024);
+        }
+        return buffered;
+    }
+
+    private static long readZigZagVarLong(DataInputStream in) throws IOException {
+        long raw = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            raw |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (raw >>> 1) ^ -(raw & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -67,10 +67,7 @@ public class OverlandIngestionApiController {
                 ));
             }
             
-            // Add each location point to the batching service
-            for (LocationPoint point : locationPoints) {
-                this.locationBatchingService.addLocationPoint(user, user.getDevice().get(), point);
-            }
+            this.locationBatchingService.addLocationPoints(user, user.getDevice().get(), locationPoints);
             logger.debug("Successfully received and queued {} Overland location points for user {}",
                     locationPoints.size(), user.getUsername());
             
@@ -2,20 +2,9 @@ package com.dedicatedcode.reitti.controller.api.ingestion.owntracks;
 
 import com.dedicatedcode.reitti.dto.LocationPoint;
 import com.dedicatedcode.reitti.dto.OwntracksLocationRequest;
-import com.dedicatedcode.reitti.dto.ReittiRemoteInfo;
-import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
-import com.dedicatedcode.reitti.model.integration.ReittiIntegration;
 import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
-import com.dedicatedcode.reitti.model.security.User;
-import com.dedicatedcode.reitti.model.security.UserSharing;
-import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
-import com.dedicatedcode.reitti.repository.UserJdbcService;
-import com.dedicatedcode.reitti.repository.UserSharingJdbcService;
-import com.dedicatedcode.reitti.service.AvatarService;
 import com.dedicatedcode.reitti.service.LocationBatchingService;
-import com.dedicatedcode.reitti.service.RequestFailedException;
-import com.dedicatedcode.reitti.service.RequestTemporaryFailedException;
-import com.dedicatedcode.reitti.service.integration.ReittiIntegrationService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -29,30 +18,18 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/ingest")
 public class OwntracksIngestionApiController {
     private static final Logger logger = LoggerFactory.getLogger(OwntracksIngestionApiController.class);
-    private final UserJdbcService userJdbcService;
     private final LocationBatchingService locationBatchingService;
-    private final RawLocationPointJdbcService rawLocationPointJdbcService;
-    private final AvatarService avatarService;
-    private final UserSharingJdbcService userSharingJdbcService;
-    private final ReittiIntegrationService reittiIntegrationService;
+    private final OwntracksFriendsService owntracksFriendsService;
 
-    public OwntracksIngestionApiController(UserJdbcService userJdbcService,
-                                           LocationBatchingService locationBatchingService,
-                                           RawLocationPointJdbcService rawLocationPointJdbcService,
-                                           AvatarService avatarService,
-                                           UserSharingJdbcService userSharingJdbcService, ReittiIntegrationService reittiIntegrationService) {
-        this.userJdbcService = userJdbcService;
+    public OwntracksIngestionApiController(LocationBatchingService locationBatchingService,
+                                           OwntracksFriendsService owntracksFriendsService) {
         this.locationBatchingService = locationBatchingService;
-        this.rawLocationPointJdbcService = rawLocationPointJdbcService;
-        this.avatarService = avatarService;
-        this.userSharingJdbcService = userSharingJdbcService;
-        this.reittiIntegrationService = reittiIntegrationService;
+        this.owntracksFriendsService = owntracksFriendsService;
     }
 
     @PostMapping("/owntracks")
@@ -83,7 +60,7 @@ public class OwntracksIngestionApiController {
             logger.debug("Successfully received and queued Owntracks location point for user {}",
                          user.getUsername());
 
-            List<OwntracksFriendResponse> friendsData = buildFriendsData(user);
+            List<OwntracksFriendResponse> friendsData = owntracksFriendsService.getFriends(user);
             return ResponseEntity.ok(friendsData);
 
         } catch (Exception e) {
@@ -92,66 +69,4 @@ public class OwntracksIngestionApiController {
                     .body(Map.of("error", "Error processing Owntracks data: " + e.getMessage()));
         }
     }
-
-    private List<OwntracksFriendResponse> buildFriendsData(User user) {
-        List<OwntracksFriendResponse> friendsData = new ArrayList<>();
-
-        // Local shared users
-        List<UserSharing> sharedUsers = userSharingJdbcService.findBySharedWithUser(user.getId());
-        for (UserSharing sharing : sharedUsers) {
-            Optional<User> sharedUserOpt = userJdbcService.findById(sharing.getSharingUserId());
-            sharedUserOpt.ifPresent(sharedUser -> {
-                String tid = generateTid(sharedUser.getUsername());
-
-                // Get processed avatar thumbnail (192x192)
-                Optional<byte[]> avatarThumbnail = avatarService.getAvatarThumbnail(sharedUser.getId(), 192, 192);
-
-                // Add card with processed avatar
-                friendsData.add(new OwntracksFriendResponse(
-                        tid,
-                        sharedUser.getDisplayName(),
-                        avatarThumbnail.orElse(null),
-                        "image/jpeg" // Default to JPEG for OwnTracks
-                ));
-
-                // Add location if available
-                Optional<RawLocationPoint> latestLocation = rawLocationPointJdbcService.findLatest(sharedUser);
-                latestLocation.ifPresent(location -> {
-                    friendsData.add(new OwntracksFriendResponse(
-                            tid,
-                            sharedUser.getDisplayName(),
-                            location.getLatitude(),
-                            location.getLongitude(),
-                            location.getTimestamp().getEpochSecond()
-                    ));
-                });
-            });
-        }
-
-        // Remote integrations
-        List<ReittiIntegration> integrations = reittiIntegrationService.getActiveIntegrationsForUser(user);
-        for (ReittiIntegration integration : integrations) {
-            try {
-                ReittiRemoteInfo info = reittiIntegrationService.getInfo(integration);
-                String tid = generateTid(info.userInfo().username());
-
-                OwntracksFriendResponse owntracksFriendResponse = reittiIntegrationService.getAvatar(integration.getId())
-                        .map(avatarData -> new OwntracksFriendResponse(tid, info.userInfo().displayName(), avatarData.imageData(), avatarData.mimeType()))
-                        .orElse(new OwntracksFriendResponse(tid, info.userInfo().displayName(), null, null));
-
-                friendsData.add(owntracksFriendResponse);
-                Optional<LocationPoint> latestLocation = reittiIntegrationService.findLatest(user, integration.getId());
-                latestLocation.ifPresent(location -> friendsData.add(new OwntracksFriendResponse(tid, info.userInfo().displayName(), location.getLatitude(), location.getLongitude(), location.getTimestamp().getEpochSecond())));
-                } catch (RequestFailedException | RequestTemporaryFailedException e) {
-                logger.warn("Couldn't fetch info for integration {}", integration.getId(), e);
-            }
-        }
-
-        return friendsData;
-    }
-
-    private String generateTid(String username) {
-        return username != null && username.length() >= 2 ?
-                username.substring(0, 2).toUpperCase() : "UN";
-    }
 }
@@ -7,6 +7,7 @@ import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.DeviceJdbcService;
 import com.dedicatedcode.reitti.service.I18nService;
 import com.dedicatedcode.reitti.service.importer.*;
+import com.dedicatedcode.reitti.service.jobs.JobType;
 import org.apache.logging.log4j.util.Strings;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -20,7 +21,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -34,6 +37,8 @@ public class FileImportController {
     private final GoogleIOSTimelineImporter googleTimelineIOSImporter;
     private final GeoJsonImporter geoJsonImporter;
     private final FitFileImporter fitFileImporter;
+    private final ArchiveImporter archiveImporter;
+    private final MultiFileImportService multiFileImportService;
     private final DeviceJdbcService deviceJdbcService;
     private final I18nService i18n;
     private final boolean dataManagementEnabled;
@@ -44,7 +49,10 @@ public class FileImportController {
                                 GoogleRecordsImporter googleRecordsImporter,
                                 GoogleAndroidTimelineImporter googleAndroidTimelineImporter,
                                 GoogleIOSTimelineImporter googleTimelineIOSImporter,
-                                GeoJsonImporter geoJsonImporter, FitFileImporter fitFileImporter, DeviceJdbcService deviceJdbcService,
+                                GeoJsonImporter geoJsonImporter, FitFileImporter fitFileImporter,
+                                ArchiveImporter archiveImporter,
+                                MultiFileImportService multiFileImportService,
+                                DeviceJdbcService deviceJdbcService,
                                 I18nService i18n,
                                 @Value("${reitti.data-management.enabled:false}") boolean dataManagementEnabled,
                                 @Value("${server.tomcat.max-part-count}") int maxFileSupported,
@@ -55,6 +63,8 @@ public class FileImportController {
         this.googleTimelineIOSImporter = googleTimelineIOSImporter;
         this.geoJsonImporter = geoJsonImporter;
         this.fitFileImporter = fitFileImporter;
+        this.archiveImporter = archiveImporter;
+        this.multiFileImportService = multiFileImportService;
         this.deviceJdbcService = deviceJdbcService;
         this.i18n = i18n;
         this.dataManagementEnabled = dataManagementEnabled;
@@ -82,48 +92,8 @@ public class FileImportController {
                             @RequestParam("device") Long deviceId,
                             Authentication authentication,
                             Model model) {
-        User user = (User) authentication.getPrincipal();
-        Device device = this.deviceJdbcService.find(user, deviceId).orElseThrow(IllegalArgumentException::new);
-        model.addAttribute("devices", this.deviceJdbcService.getAll(user));
-        if (files.length == 0) {
-            model.addAttribute("uploadErrorMessage", "No files selected");
-            return "settings/import-data :: file-upload-content";
-        }
-
-        int totalProcessed = 0;
-        int successCount = 0;
-        StringBuilder errorMessages = new StringBuilder();
-
-        for (MultipartFile file : files) {
-            if (validateFile(file, errorMessages, "gpx")) {
-                try (InputStream inputStream = file.getInputStream()) {
-                    Map<String, Object> result = this.gpxImporter.importGpx(inputStream, user, device, file.getOriginalFilename());
-
-                    if ((Boolean) result.get("success")) {
-                        totalProcessed += (Integer) result.get("pointsReceived");
-                        successCount++;
-                    } else {
-                        errorMessages.append("Error processing ").append(file.getOriginalFilename()).append(": ")
-                                .append(result.get("error")).append(". ");
-                    }
-                } catch (IOException e) {
-                    errorMessages.append("Error processing ").append(file.getOriginalFilename()).append(": ")
-                            .append(e.getMessage()).append(". ");
-                }
-            }
-        }
-
-        if (successCount > 0) {
-            String message = "Successfully processed " + successCount + " file(s) with " + totalProcessed + " location points";
-            if (!errorMessages.isEmpty()) {
-                message += ". Errors: " + errorMessages;
-            }
-            model.addAttribute("uploadSuccessMessage", message);
-        } else {
-            model.addAttribute("uploadErrorMessage", "No files were processed successfully. " + errorMessages);
-        }
-
-        return "settings/import-data :: file-upload-content";
+        return importFilesInParallel(files, deviceId, authentication, model, JobType.GPX_IMPORT, "GPX Import",
+                                     this.gpxImporter::readGpx, "gpx");
     }
 
     @PostMapping("/google-records")
@@ -224,6 +194,24 @@ public class FileImportController {
                                 @RequestParam("device") Long deviceId,
                                 Authentication authentication,
                                 Model model) {
+        return importFilesInParallel(files, deviceId, authentication, model, JobType.GEOJSON_IMPORT, "GeoJson Import",
+                                     this.geoJsonImporter::readGeoJson, "json", "geojson");
+    }
+    @PostMapping("/fit")
+    public String importFitFile(@RequestParam("files") MultipartFile[] files,
+                                @RequestParam("device") Long deviceId,
+                                Authentication authentication,
+                                Model model) {
+        return importFilesInParallel(files, deviceId, authentication, model, JobType.FIT_FILE_IMPORT, "Fit File Import",
+                                     this.fitFileImporter::readFit, "fit");
+    }
+
+
+    @PostMapping("/archive")
+    public String importArchive(@RequestParam("files") MultipartFile[] files,
+                                @RequestParam("device") Long deviceId,
+                                Authentication authentication,
+                                Model model) {
         User user = (User) authentication.getPrincipal();
         Device device = this.deviceJdbcService.find(user, deviceId).orElseThrow(IllegalArgumentException::new);
         model.addAttribute("devices", this.deviceJdbcService.getAll(user));
@@ -235,22 +223,24 @@ public class FileImportController {
 
         int totalProcessed = 0;
         int successCount = 0;
+        long duplicatesSkipped = 0;
         StringBuilder errorMessages = new StringBuilder();
 
         for (MultipartFile file : files) {
-            if (!validateFile(file, errorMessages, "json", "geojson")) {
-                model.addAttribute("uploadErrorMessage", errorMessages.toString());
+            if (!validateFile(file, errorMessages, "zip", "gz")) {
                 continue;
             }
 
             String filename = file.getOriginalFilename();
             try (InputStream inputStream = file.getInputStream()) {
-                Map<String, Object> result = this.geoJsonImporter.importGeoJson(inputStream, user, device, filename);
+                Map<String, Object> result = this.archiveImporter.importArchive(inputStream, user, device, filename);
 
                 if ((Boolean) result.get("success")) {
                     totalProcessed += (Integer) result.get("pointsReceived");
-                    successCount++;
-                } else {
+                    successCount += (Integer) result.get("filesImported");
+                    duplicatesSkipped += ((Number) result.getOrDefault("duplicatesSkipped", 0L)).longValue();
+                }
+                if (result.containsKey("error")) {
                     errorMessages.append("Error processing ").append(filename).append(": ")
                             .append(result.get("error")).append(". ");
                 }
@@ -262,6 +252,9 @@ public class FileImportController {
 
         if (successCount > 0) {
             String message = "Successfully processed " + successCount + " file(s) with " + totalProcessed + " location points.";
+            if (duplicatesSkipped > 0) {
+                message += " Skipped " + duplicatesSkipped + " already imported points.";
+            }
             if (!errorMessages.isEmpty()) {
                 message += " Errors: " + errorMessages;
             }
@@ -272,11 +265,15 @@ public class FileImportController {
 
         return "settings/import-data :: file-upload-content";
     }
-    @PostMapping("/fit")
-    public String importFitFile(@RequestParam("files") MultipartFile[] files,
-                                @RequestParam("device") Long deviceId,
-                                Authentication authentication,
-                                Model model) {
+
+    private String importFilesInParallel(MultipartFile[] files,
+                                         Long deviceId,
+                                         Authentication authentication,
+                                         Model model,
+                                         JobType jobType,
+                                         String friendlyName,
+                                         MultiFileImportService.PointReader reader,
+                                         String... expectedExtensions) {
         User user = (User) authentication.getPrincipal();
         Device device = this.deviceJdbcService.find(user, deviceId).orElseThrow(IllegalArgumentException::new);
         model.addAttribute("devices", this.deviceJdbcService.getAll(user));
@@ -286,35 +283,34 @@ public class FileImportController {
             return "settings/import-data :: file-upload-content";
         }
 
-        int totalProcessed = 0;
-        int successCount = 0;
         StringBuilder errorMessages = new StringBuilder();
-
+        List<MultiFileImportService.ImportFile> importFiles = new ArrayList<>(files.length);
         for (MultipartFile file : files) {
-            if (!validateFile(file, errorMessages, "fit")) {
-                model.addAttribute("uploadErrorMessage", errorMessages.toString());
-                continue;
+            if (validateFile(file, errorMessages, expectedExtensions)) {
+                importFiles.add(new MultiFileImportService.ImportFile(file.getOriginalFilename(), file));
             }
+        }
 
-            String filename = file.getOriginalFilename();
-            try (InputStream inputStream = file.getInputStream()) {
-                Map<String, Object> result = this.fitFileImporter.importFile(inputStream, user, device, filename);
-
-                if ((Boolean) result.get("success")) {
-                    totalProcessed += (Integer) result.get("pointsReceived");
-                    successCount++;
-                } else {
-                    errorMessages.append("Error processing ").append(filename).append(": ")
-                            .append(result.get("error")).append(". ");
-                }
-            } catch (IOException e) {
-                errorMessages.append("Error processing ").append(filename).append(": ")
-                        .append(e.getMessage()).append(". ");
+        int totalProcessed = 0;
+        int successCount = 0;
+        long duplicatesSkipped = 0;
+        if (!importFiles.isEmpty()) {
+            Map<String, Object> result = this.multiFileImportService.importFiles(importFiles, user, device, jobType, friendlyName, reader);
+            totalProcessed = (Integer) result.get("pointsReceived");
+            successCount = (Integer) result.get("filesImported");
+            duplicatesSkipped = ((Number) result.getOrDefault("duplicatesSkipped", 0L)).longValue();
+            @SuppressWarnings("unchecked")
+            List<String> errors = (List<String>) result.get("errors");
+            for (String error : errors) {
+                errorMessages.append("Error processing ").append(error).append(". ");
             }
         }
 
         if (successCount > 0) {
             String message = "Successfully processed " + successCount + " file(s) with " + totalProcessed + " location points.";
+            if (duplicatesSkipped > 0) {
+                message += " Skipped " + duplicatesSkipped + " already imported points.";
+            }
             if (!errorMessages.isEmpty()) {
                 message += " Errors: " + errorMessages;
             }
@@ -326,7 +322,6 @@ public class FileImportController {
         return "settings/import-data :: file-upload-content";
     }
 
-
     private boolean validateFile(MultipartFile file, StringBuilder errorMessages, String... expectedExtension) {
         if (file.isEmpty() || file.getOriginalFilename() == null) {
             errorMessages.append(i18n.translate("upload.error.file.empty", file.getOriginalFilename()));
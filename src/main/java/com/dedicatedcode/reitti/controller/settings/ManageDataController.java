@@ -32,6 +32,7 @@ public class ManageDataController {
     private final I18nService i18n;
     private final JobSchedulingService jobScheduler;
     private final SourceLocationPointJdbcService sourceLocationPointJdbcService;
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
 
     public ManageDataController(@Value("${reitti.data-management.enabled:false}") boolean dataManagementEnabled,
                                 @Value("${reitti.data-management.delete-all.hostname-verification.enabled:true}") boolean deleteAllHostnameVerificationEnabled,
@@ -41,7 +42,8 @@ public class ManageDataController {
                                 RawLocationPointJdbcService rawLocationPointJdbcService,
                                 UserSettingsJdbcService userSettingsJdbcService,
                                 I18nService i18nService,
-                                JobSchedulingService jobScheduler, SourceLocationPointJdbcService sourceLocationPointJdbcService) {
+                                JobSchedulingService jobScheduler, SourceLocationPointJdbcService sourceLocationPointJdbcService,
+                                VisitDetectionStateJdbcService visitDetectionStateJdbcService) {
         this.dataManagementEnabled = dataManagementEnabled;
         this.deleteAllHostnameVerificationEnabled = deleteAllHostnameVerificationEnabled;
         this.tripJdbcService = tripJdbcService;
@@ -52,6 +54,7 @@ public class ManageDataController {
         this.i18n = i18nService;
         this.jobScheduler = jobScheduler;
         this.sourceLocationPointJdbcService = sourceLocationPointJdbcService;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
     }
 
     @GetMapping("/settings/manage-data")
@@ -170,6 +173,7 @@ public class ManageDataController {
     private void clearProcessedDataExceptPlaces(User user) {
         tripJdbcService.deleteAllForUser(user);
         processedVisitJdbcService.deleteAllForUser(user);
+        visitDetectionStateJdbcService.deleteForUser(user);
     }
 
     private void markRawLocationPointsAsUnprocessed(User user) {
@@ -180,6 +184,7 @@ public class ManageDataController {
         this.userSettingsJdbcService.deleteNewestData(user);
         tripJdbcService.deleteAllForUser(user);
         processedVisitJdbcService.deleteAllForUser(user);
+        visitDetectionStateJdbcService.deleteForUser(user);
         rawLocationPointJdbcService.deleteAllForUser(user);
         sourceLocationPointJdbcService.deleteAllForUser(user);
     }
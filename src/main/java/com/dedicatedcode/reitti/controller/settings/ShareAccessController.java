@@ -11,6 +11,7 @@ import com.dedicatedcode.reitti.repository.UserSharingJdbcService;
 import com.dedicatedcode.reitti.service.AvatarService;
 import com.dedicatedcode.reitti.service.I18nService;
 import com.dedicatedcode.reitti.service.MagicLinkTokenService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import com.dedicatedcode.reitti.service.RequestHelper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,6 +26,7 @@ import java.time.ZoneId;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Controller
 @RequestMapping("/settings/share-access")
@@ -35,6 +37,7 @@ public class ShareAccessController {
     private final UserJdbcService userJdbcService;
     private final UserSharingJdbcService userSharingJdbcService;
     private final AvatarService avatarService;
+    private final OwntracksFriendsService owntracksFriendsService;
     private final boolean dataManagementEnabled;
     private final I18nService i18n;
 
@@ -42,12 +45,14 @@ public class ShareAccessController {
                                  UserJdbcService userJdbcService,
                                  UserSharingJdbcService userSharingJdbcService,
                                  AvatarService avatarService,
+                                 OwntracksFriendsService owntracksFriendsService,
                                  @Value("${reitti.data-management.enabled:false}") boolean dataManagementEnabled,
                                  I18nService i18nService) {
         this.magicLinkTokenService = magicLinkTokenService;
         this.userJdbcService = userJdbcService;
         this.userSharingJdbcService = userSharingJdbcService;
         this.avatarService = avatarService;
+        this.owntracksFriendsService = owntracksFriendsService;
         this.dataManagementEnabled = dataManagementEnabled;
         this.i18n = i18nService;
     }
@@ -157,6 +162,9 @@ public class ShareAccessController {
                     .collect(Collectors.toSet());
             this.userSharingJdbcService.delete(toDelete);
             this.userSharingJdbcService.create(user, toCreate);
+            this.owntracksFriendsService.sharingChanged(Stream.concat(toDelete.stream(), toCreate.stream())
+                                                                .map(UserSharing::getSharedWithUserId)
+                                                                .toList());
             model.addAttribute("shareSuccessMessage", i18n.translate("share-with.updated.success"));
         } catch (Exception e) {
             model.addAttribute("shareErrorMessage", i18n.translate("share-with.update.error", e.getMessage()));
@@ -189,6 +197,7 @@ public class ShareAccessController {
                                      Model model) {
         try {
             userSharingJdbcService.dismissSharedAccess(id, user.getId());
+            owntracksFriendsService.sharingChanged(List.of(user.getId()));
             model.addAttribute("shareSuccessMessage", i18n.translate("shared-with-me.dismissed.success"));
         } catch (Exception e) {
             model.addAttribute("shareErrorMessage", i18n.translate("shared-with-me.dismiss.error", e.getMessage()));
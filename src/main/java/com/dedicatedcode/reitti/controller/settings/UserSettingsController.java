@@ -7,6 +7,7 @@ import com.dedicatedcode.reitti.repository.UserJdbcService;
 import com.dedicatedcode.reitti.repository.UserSettingsJdbcService;
 import com.dedicatedcode.reitti.service.AvatarService;
 import com.dedicatedcode.reitti.service.I18nService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import com.dedicatedcode.reitti.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -41,6 +42,7 @@ public class UserSettingsController {
     private final UserSettingsJdbcService userSettingsJdbcService;
     private final LocaleResolver localeResolver;
     private final AvatarService avatarService;
+    private final OwntracksFriendsService owntracksFriendsService;
     private final PasswordEncoder passwordEncoder;
     private final boolean localLoginDisabled;
     private final boolean oidcEnabled;
@@ -67,6 +69,7 @@ public class UserSettingsController {
                                   I18nService i18nService,
                                   LocaleResolver localeResolver,
                                   AvatarService avatarService,
+                                  OwntracksFriendsService owntracksFriendsService,
                                   PasswordEncoder passwordEncoder,
                                   @Value("${reitti.security.local-login.disable}") boolean localLoginDisabled,
                                   @Value("${reitti.security.oidc.enabled:false}") boolean oidcEnabled,
@@ -77,6 +80,7 @@ public class UserSettingsController {
         this.i18nService = i18nService;
         this.localeResolver = localeResolver;
         this.avatarService = avatarService;
+        this.owntracksFriendsService = owntracksFriendsService;
         this.passwordEncoder = passwordEncoder;
         this.localLoginDisabled = localLoginDisabled;
         this.oidcEnabled = oidcEnabled;
@@ -392,6 +396,7 @@ public class UserSettingsController {
             } else if (StringUtils.hasText(defaultAvatar)) {
                 handleDefaultAvatarSelection(defaultAvatar, userId, model);
             }
+            owntracksFriendsService.userChanged(userId);
             
             // If the current user was updated, update the locale
             if (isCurrentUser) {
@@ -12,6 +12,8 @@ public final class GeoUtils {
 
     // Earth radius in meters
     private static final double EARTH_RADIUS = 6371000;
+    // the shortest degree of latitude, used to turn meters into a search envelope that is never too small
+    private static final double MIN_METERS_PER_DEGREE = 110_574;
 
     public static double distanceInMeters(double lat1, double lon1, double lat2, double lon2) {
         // Use precise haversine formula for longer distances
@@ -67,6 +69,26 @@ public final class GeoUtils {
         return meters / (111320.0 * Math.cos(Math.toRadians(latitude)));
     }
 
+    /**
+     * Widens a bounding box by a distance, to prefilter candidates in geometry space before their exact distance is
+     * measured. The box is never too small: degrees of longitude are taken at the edge closest to a pole. A box which
+     * would reach across the antimeridian or a pole spans all longitudes instead.
+     *
+     * @return An array of the minimum latitude, minimum longitude, maximum latitude and maximum longitude
+     */
+    public static double[] expandBoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, double distanceInMeters) {
+        double latitudeDelta = distanceInMeters / MIN_METERS_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.max(Math.abs(minLatitude), Math.abs(maxLatitude)) + latitudeDelta)));
+        double longitudeDelta = cos > latitudeDelta ? latitudeDelta / cos : 180;
+        double west = minLongitude - longitudeDelta;
+        double east = maxLongitude + longitudeDelta;
+        if (west < -180 || east > 180) {
+            west = -180;
+            east = 180;
+        }
+        return new double[]{minLatitude - latitudeDelta, west, maxLatitude + latitudeDelta, east};
+    }
+
     public static double calculateTripDistance(List<RawLocationPoint> points) {
         if (points.size() < 2) {
             return 0.0;
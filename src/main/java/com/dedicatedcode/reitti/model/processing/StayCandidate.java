@@ -0,0 +1,10 @@
+package com.dedicatedcode.reitti.model.processing;
+
+import java.time.Instant;
+
+/**
+ * A stay point that is still being collected: the running centroid of the points within the stay radius, the first and
+ * the last of these points and how many there are.
+ */
+public record StayCandidate(double latitude, double longitude, Instant start, Instant last, int pointCount) {
+}
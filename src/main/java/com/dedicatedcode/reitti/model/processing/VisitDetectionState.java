@@ -0,0 +1,14 @@
+package com.dedicatedcode.reitti.model.processing;
+
+import java.time.Instant;
+
+/**
+ * The state of the incremental visit detection of a user after all points up to {@code processedUntil} were consumed.
+ *
+ * @param parameterId    the detection parameters the candidates were collected with
+ * @param processedUntil the timestamp of the last consumed point
+ * @param current        the open stay candidate, may be {@code null}
+ * @param pending        the candidate collected from the points outside of {@code current}, may be {@code null}
+ */
+public record VisitDetectionState(Long parameterId, Instant processedUntil, StayCandidate current, StayCandidate pending) {
+}
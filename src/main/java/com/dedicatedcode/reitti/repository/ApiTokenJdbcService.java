@@ -14,11 +14,14 @@ import org.springframework.transaction.annotation.Transactional;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ApiTokenJdbcService {
+    private static final int USAGE_UPSERT_CHUNK_SIZE = 500;
 
     private final JdbcTemplate jdbcTemplate;
 
@@ -183,26 +186,48 @@ public class ApiTokenJdbcService {
                 rs.getString("device_name"),
                 rs.getTimestamp("at").toInstant(),
                 rs.getString("endpoint"),
-                rs.getString("ip"));
+                rs.getString("ip"),
+                rs.getLong("request_count"));
     }
 
     public List<ApiTokenUsage> getUsages(User user, int maxRows) {
         return this.jdbcTemplate.query("""
-                                        SELECT t.token, t.name,  t.device_id, au.at, au.endpoint, au.ip, d.name as device_name
-                                        FROM api_token_usages au
+                                        SELECT t.token, t.name,  t.device_id, au.minute as at, au.endpoint, au.ip, au.request_count, d.name as device_name
+                                        FROM api_token_usage_rollups au
                                                  LEFT JOIN api_tokens t ON t.id = au.token_id
                                                  LEFT JOIN devices d ON t.device_id = d.id
                                         WHERE t.user_id = ?
-                                        ORDER BY au.at DESC LIMIT ?;
+                                        ORDER BY au.minute DESC LIMIT ?;
                                         """,
                                        this::mapRowToApiUsage, user.getId(), maxRows);
     }
 
-    public void trackUsage(String token, String requestPath, String remoteIp) {
-        this.jdbcTemplate.update("INSERT INTO api_token_usages(token_id, at, endpoint, ip) SELECT id, now() at time zone 'utc', ?, ? FROM api_tokens WHERE token = ?",
-                requestPath, remoteIp, token);
+    public void upsertUsages(List<ApiTokenUsageCount> usages) {
+        for (int from = 0; from < usages.size(); from += USAGE_UPSERT_CHUNK_SIZE) {
+            List<ApiTokenUsageCount> chunk = usages.subList(from, Math.min(from + USAGE_UPSERT_CHUNK_SIZE, usages.size()));
+            String values = String.join(", ", Collections.nCopies(chunk.size(), "(?, to_timestamp(?) AT TIME ZONE 'utc', ?, ?, ?::bigint)"));
+            Object[] params = new Object[chunk.size() * 5];
+            int i = 0;
+            for (ApiTokenUsageCount usage : chunk) {
+                params[i++] = usage.token();
+                params[i++] = usage.minute().getEpochSecond();
+                params[i++] = usage.endpoint();
+                params[i++] = usage.ip();
+                params[i++] = usage.count();
+            }
+            this.jdbcTemplate.update("""
+                                             INSERT INTO api_token_usage_rollups(token_id, minute, endpoint, ip, request_count)
+                                             SELECT t.id, v.minute, v.endpoint, v.ip, v.request_count
+                                             FROM (VALUES %s) AS v(token, minute, endpoint, ip, request_count)
+                                                      JOIN api_tokens t ON t.token = v.token
+                                             ON CONFLICT (token_id, minute, endpoint, ip)
+                                                 DO UPDATE SET request_count = api_token_usage_rollups.request_count + EXCLUDED.request_count
+                                             """.formatted(values), params);
+        }
     }
 
+    public record ApiTokenUsageCount(String token, Instant minute, String endpoint, String ip, long count) {}
+
     public void deleteForUser(User user) {
         this.jdbcTemplate.update("DELETE FROM api_tokens WHERE user_id = ?", user.getId());
     }
@@ -71,6 +71,9 @@ public class JobMetadataRepository {
     }
 
     public void updateProgress(UUID jobId, long current, long max, String message) {
+        if (jobId == null) {
+            return;
+        }
         this.jdbcTemplate.update("UPDATE job_meta_data SET current_progress = ?, max_progress = ?, progress_message = ? WHERE id = ?", current, max, message, jobId);
     }
 
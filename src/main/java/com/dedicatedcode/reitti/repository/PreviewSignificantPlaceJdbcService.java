@@ -1,5 +1,6 @@
 package com.dedicatedcode.reitti.repository;
 
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
 import com.dedicatedcode.reitti.model.geo.SignificantPlace;
 import com.dedicatedcode.reitti.model.security.User;
 import org.locationtech.jts.geom.Point;
@@ -69,6 +70,46 @@ public class PreviewSignificantPlaceJdbcService {
                                   userId, previewId, point.toString(), distanceInMeters);
     }
 
+    /**
+     * Loads every place a point within the given bounding box could be nearby to, in the sense of
+     * {@code findNearbyPlaces}. Used to answer all nearby lookups of one processing run from memory. The places are
+     * matched against the bounding box widened by the distance in degrees, so the result may contain places a bit
+     * further away, the lookups measure the exact distances.
+     *
+     * @param userId - the user to load the places for.
+     * @param distanceInMeters - the search distance the lookups will use.
+     * @return at least all places within the distance of the bounding box.
+     */
+    public List<SignificantPlace> findPlacesNearArea(Long userId, double minLatitude, double minLongitude,
+                                                     double maxLatitude, double maxLongitude, double distanceInMeters, String previewId) {
+        String sql = """
+                SELECT sp.id,
+                       sp.address,
+                       sp.country_code,
+                       sp.city,
+                       sp.type,
+                       sp.latitude_centroid,
+                       sp.longitude_centroid,
+                       sp.name,
+                       sp.user_id,
+                       ST_AsText(sp.geom) as geom,
+                       ST_AsText(sp.polygon) as polygon,
+                       sp.timezone,
+                       sp.geocoded,
+                       sp.version
+                FROM preview_significant_places sp
+                WHERE sp.user_id = ?
+                 AND sp.preview_id = ?
+                 AND COALESCE(sp.polygon, sp.geom) && ST_MakeEnvelope(?, ?, ?, ?, 4326)
+                ORDER BY sp.id
+                """;
+
+        double[] box = GeoUtils.expandBoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude, distanceInMeters);
+
+        return jdbcTemplate.query(sql, significantPlaceRowMapper,
+                                  userId, previewId, box[1], box[0], box[3], box[2]);
+    }
+
     public SignificantPlace create(User user, String previewId, SignificantPlace place) {
         String sql = "INSERT INTO preview_significant_places (user_id, preview_id, name, latitude_centroid, longitude_centroid, timezone, geom, polygon) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ST_GeomFromText(?, '4326'), " +
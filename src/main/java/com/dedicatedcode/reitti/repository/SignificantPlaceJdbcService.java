@@ -3,6 +3,7 @@ package com.dedicatedcode.reitti.repository;
 import com.dedicatedcode.reitti.model.Page;
 import com.dedicatedcode.reitti.model.PageRequest;
 import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
 import com.dedicatedcode.reitti.model.geo.SignificantPlace;
 import com.dedicatedcode.reitti.model.security.User;
 import org.locationtech.jts.geom.Point;
@@ -154,6 +155,45 @@ public class SignificantPlaceJdbcService {
                                   userId, point.toString(), distanceInMeters);
     }
 
+    /**
+     * Loads every place a point within the given bounding box could be nearby to, in the sense of
+     * {@code findNearbyPlaces}. Used to answer all nearby lookups of one processing run from memory. The places are
+     * matched against the bounding box widened by the distance in degrees, so the result may contain places a bit
+     * further away, the lookups measure the exact distances.
+     *
+     * @param userId - the user to load the places for.
+     * @param distanceInMeters - the search distance the lookups will use.
+     * @return at least all places within the distance of the bounding box.
+     */
+    public List<SignificantPlace> findPlacesNearArea(Long userId, double minLatitude, double minLongitude,
+                                                     double maxLatitude, double maxLongitude, double distanceInMeters) {
+        String sql = """
+                SELECT sp.id,
+                       sp.address,
+                       sp.country_code,
+                       sp.city,
+                       sp.type,
+                       sp.latitude_centroid,
+                       sp.longitude_centroid,
+                       sp.name,
+                       sp.user_id,
+                       ST_AsText(sp.geom) as geom,
+                       ST_AsText(sp.polygon) as polygon,
+                       sp.timezone,
+                       sp.geocoded,
+                       sp.version
+                FROM significant_places sp
+                WHERE sp.user_id = ?
+                 AND COALESCE(sp.polygon, sp.geom) && ST_MakeEnvelope(?, ?, ?, ?, 4326)
+                ORDER BY sp.id
+                """;
+
+        double[] box = GeoUtils.expandBoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude, distanceInMeters);
+
+        return jdbcTemplate.query(sql, significantPlaceRowMapper,
+                                  userId, box[1], box[0], box[3], box[2]);
+    }
+
     public SignificantPlace create(User user, SignificantPlace place) {
 
         String sql = "INSERT INTO significant_places (user_id, name, latitude_centroid, longitude_centroid, timezone, geom, polygon) " +
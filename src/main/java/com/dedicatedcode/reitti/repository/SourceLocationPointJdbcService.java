@@ -6,6 +6,7 @@ import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
 import com.dedicatedcode.reitti.model.geo.SourceLocationPoint;
 import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.processing.DeviceDayCount;
 import com.dedicatedcode.reitti.service.processing.DeviceTimeRange;
 import com.dedicatedcode.reitti.service.processing.TimeRange;
 import org.locationtech.jts.geom.Coordinate;
@@ -19,6 +20,7 @@ import java.sql.Array;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -168,6 +170,23 @@ public class SourceLocationPointJdbcService {
         }, ((rs, rowNum) -> new DeviceTimeRange((Long)rs.getObject("device_id"), TimeRange.of(rs.getTimestamp("min").toInstant(), rs.getTimestamp("max").toInstant()))));
     }
 
+    /**
+     * Counts the stored points per device and UTC day between start and end, both inclusive.
+     */
+    public List<DeviceDayCount> countPerDeviceAndDay(User user, Instant start, Instant end) {
+        String sql = """
+                SELECT device_id, (timestamp AT TIME ZONE 'UTC')::date AS day, COUNT(*) AS count
+                FROM raw_source_points
+                WHERE user_id = ? AND timestamp >= ? AND timestamp <= ?
+                GROUP BY device_id, day
+                ORDER BY day, device_id
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new DeviceDayCount((Long) rs.getObject("device_id"),
+                                                                          rs.getObject("day", LocalDate.class),
+                                                                          rs.getLong("count")),
+                                  user.getId(), Timestamp.from(start), Timestamp.from(end));
+    }
+
     private void updateBulkStatus(User user, List<Long> pointIds, SourceLocationPoint.Status ignoredStatus) {
         if (pointIds.isEmpty()) {
             return;
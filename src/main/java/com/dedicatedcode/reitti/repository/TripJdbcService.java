@@ -125,13 +125,6 @@ public class TripJdbcService {
         return assembleTrips(rawRows);
     }
 
-    public boolean existsByUserAndStartTimeAndEndTime(User user, Instant startTime, Instant endTime) {
-        String sql = "SELECT COUNT(*) FROM trips WHERE user_id = ? AND start_time = ? AND end_time = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, user.getId(),
-                Timestamp.from(startTime), Timestamp.from(endTime));
-        return count != null && count > 0;
-    }
-
     public List<Object[]> findTransportStatisticsByUser(User user) {
         String sql = "SELECT tm.transportation_mode, SUM(tm.distance_meters), SUM(tm.duration_in_seconds), COUNT(*) " +
                 "FROM trip_transport_modes tm " +
@@ -181,11 +174,12 @@ public class TripJdbcService {
     }
 
     public Trip update(Trip trip) {
-        String sql = "UPDATE trips SET start_time = ?, end_time = ?, duration_seconds = ?, travelled_distance_meters = ?, start_visit_id = ?, end_visit_id = ?, metadata = ?::jsonb, version = ? WHERE id = ?";
+        String sql = "UPDATE trips SET start_time = ?, end_time = ?, duration_seconds = ?, estimated_distance_meters = ?, travelled_distance_meters = ?, start_visit_id = ?, end_visit_id = ?, metadata = ?::jsonb, version = ? WHERE id = ?";
         jdbcTemplate.update(sql,
                 Timestamp.from(trip.getStartTime()),
                 Timestamp.from(trip.getEndTime()),
                 trip.getDurationSeconds(),
+                trip.getEstimatedDistanceMeters(),
                 trip.getTravelledDistanceMeters(),
                 trip.getStartVisit() != null ? trip.getStartVisit().getId() : null,
                 trip.getEndVisit() != null ? trip.getEndVisit().getId() : null,
@@ -0,0 +1,98 @@
+package com.dedicatedcode.reitti.repository;
+
+import com.dedicatedcode.reitti.model.processing.StayCandidate;
+import com.dedicatedcode.reitti.model.processing.VisitDetectionState;
+import com.dedicatedcode.reitti.model.security.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+@Service
+public class VisitDetectionStateJdbcService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitDetectionStateJdbcService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<VisitDetectionState> findByUser(User user) {
+        return jdbcTemplate.query("SELECT * FROM visit_detection_state WHERE user_id = ?",
+                                  (rs, _) -> new VisitDetectionState(
+                                          rs.getObject("detection_parameter_id", Long.class),
+                                          rs.getTimestamp("processed_until").toInstant(),
+                                          mapCandidate(rs, "current_"),
+                                          mapCandidate(rs, "pending_")),
+                                  user.getId())
+                .stream()
+                .findFirst();
+    }
+
+    public void save(User user, VisitDetectionState state) {
+        StayCandidate current = state.current();
+        StayCandidate pending = state.pending();
+        jdbcTemplate.update("""
+                INSERT INTO visit_detection_state (user_id, detection_parameter_id, processed_until,
+                    current_latitude, current_longitude, current_start, current_last, current_point_count,
+                    pending_latitude, pending_longitude, pending_start, pending_last, pending_point_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (user_id) DO UPDATE SET
+                    detection_parameter_id = EXCLUDED.detection_parameter_id,
+                    processed_until = EXCLUDED.processed_until,
+                    current_latitude = EXCLUDED.current_latitude,
+                    current_longitude = EXCLUDED.current_longitude,
+                    current_start = EXCLUDED.current_start,
+                    current_last = EXCLUDED.current_last,
+                    current_point_count = EXCLUDED.current_point_count,
+                    pending_latitude = EXCLUDED.pending_latitude,
+                    pending_longitude = EXCLUDED.pending_longitude,
+                    pending_start = EXCLUDED.pending_start,
+                    pending_last = EXCLUDED.pending_last,
+                    pending_point_count = EXCLUDED.pending_point_count,
+                    updated_at = CURRENT_TIMESTAMP
+                """,
+                user.getId(),
+                state.parameterId(),
+                Timestamp.from(state.processedUntil()),
+                current != null ? current.latitude() : null,
+                current != null ? current.longitude() : null,
+                current != null ? Timestamp.from(current.start()) : null,
+                current != null ? Timestamp.from(current.last()) : null,
+                current != null ? current.pointCount() : null,
+                pending != null ? pending.latitude() : null,
+                pending != null ? pending.longitude() : null,
+                pending != null ? Timestamp.from(pending.start()) : null,
+                pending != null ? Timestamp.from(pending.last()) : null,
+                pending != null ? pending.pointCount() : null);
+    }
+
+    public void deleteForUser(User user) {
+        jdbcTemplate.update("DELETE FROM visit_detection_state WHERE user_id = ?", user.getId());
+    }
+
+    /**
+     * Drops the state if raw points it may already contain were changed, i.e. the change starts before the state was
+     * processed until.
+     */
+    public void deleteForUser(User user, Instant changedFrom) {
+        jdbcTemplate.update("DELETE FROM visit_detection_state WHERE user_id = ? AND processed_until >= ?", user.getId(), Timestamp.from(changedFrom));
+    }
+
+    private static StayCandidate mapCandidate(ResultSet rs, String prefix) throws SQLException {
+        Timestamp start = rs.getTimestamp(prefix + "start");
+        if (start == null) {
+            return null;
+        }
+        Instant last = rs.getTimestamp(prefix + "last").toInstant();
+        return new StayCandidate(rs.getDouble(prefix + "latitude"),
+                                 rs.getDouble(prefix + "longitude"),
+                                 start.toInstant(),
+                                 last,
+                                 rs.getInt(prefix + "point_count"));
+    }
+}
@@ -15,10 +15,12 @@ import java.util.Optional;
 public class ApiTokenService {
 
     private final ApiTokenJdbcService apiTokenJdbcService;
+    private final ApiTokenUsageRecorder apiTokenUsageRecorder;
 
     @Autowired
-    public ApiTokenService(ApiTokenJdbcService apiTokenJdbcService) {
+    public ApiTokenService(ApiTokenJdbcService apiTokenJdbcService, ApiTokenUsageRecorder apiTokenUsageRecorder) {
         this.apiTokenJdbcService = apiTokenJdbcService;
+        this.apiTokenUsageRecorder = apiTokenUsageRecorder;
     }
 
 
@@ -56,7 +58,7 @@ public class ApiTokenService {
     }
 
     public void trackUsage(String token, String requestPath, String remoteIp) {
-        this.apiTokenJdbcService.trackUsage(token, requestPath, remoteIp);
+        this.apiTokenUsageRecorder.record(token, requestPath, remoteIp);
     }
 
     public Optional<ApiToken> getTokenById(User user, Long id) {
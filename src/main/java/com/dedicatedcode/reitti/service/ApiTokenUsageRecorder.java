@@ -0,0 +1,87 @@
+package com.dedicatedcode.reitti.service;
+
+import com.dedicatedcode.reitti.repository.ApiTokenJdbcService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts API token usages per (token, endpoint, ip, minute) in memory and periodically writes them as a single
+ * multi-row upsert into {@code api_token_usage_rollups}. Recording a usage never touches the database.
+ */
+@Service
+public class ApiTokenUsageRecorder {
+    private static final Logger log = LoggerFactory.getLogger(ApiTokenUsageRecorder.class);
+
+    private final ApiTokenJdbcService apiTokenJdbcService;
+    private final Map<UsageKey, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public ApiTokenUsageRecorder(ApiTokenJdbcService apiTokenJdbcService) {
+        this.apiTokenJdbcService = apiTokenJdbcService;
+    }
+
+    public void record(String token, String endpoint, String ip) {
+        Instant minute = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        add(new UsageKey(token, minute, endpoint, ip), 1);
+    }
+
+    @Scheduled(fixedDelayString = "${reitti.security.api-token-usage.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        Instant currentMinute = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        Map<UsageKey, LongAdder> drained = new HashMap<>();
+        for (UsageKey key : counters.keySet()) {
+            // increments happen inside compute as well, so nothing is added to the old adder once it is swapped out.
+            // Buckets of finished minutes will not receive any more increments and are removed.
+            counters.computeIfPresent(key, (ignored, adder) -> {
+                drained.put(key, adder);
+                return key.minute().isBefore(currentMinute) ? null : new LongAdder();
+            });
+        }
+        List<ApiTokenJdbcService.ApiTokenUsageCount> usages = new ArrayList<>();
+        drained.forEach((key, adder) -> {
+            long count = adder.sum();
+            if (count > 0) {
+                usages.add(new ApiTokenJdbcService.ApiTokenUsageCount(key.token(), key.minute(), key.endpoint(), key.ip(), count));
+            }
+        });
+        if (usages.isEmpty()) {
+            return;
+        }
+        try {
+            apiTokenJdbcService.upsertUsages(usages);
+            log.trace("Flushed [{}] api token usage buckets", usages.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush [{}] api token usage buckets, keeping them for the next run", usages.size(), e);
+            usages.forEach(usage -> add(new UsageKey(usage.token(), usage.minute(), usage.endpoint(), usage.ip()), usage.count()));
+        }
+    }
+
+    private void add(UsageKey key, long count) {
+        counters.compute(key, (ignored, adder) -> {
+            LongAdder result = adder != null ? adder : new LongAdder();
+            result.add(count);
+            return result;
+        });
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    private record UsageKey(String token, Instant minute, String endpoint, String ip) {}
+}
@@ -7,6 +7,7 @@ import com.dedicatedcode.reitti.repository.ProcessedVisitJdbcService;
 import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
 import com.dedicatedcode.reitti.repository.SignificantPlaceJdbcService;
 import com.dedicatedcode.reitti.repository.TripJdbcService;
+import com.dedicatedcode.reitti.repository.VisitDetectionStateJdbcService;
 import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
 import com.dedicatedcode.reitti.service.processing.ProcessingPipelineTask;
 import org.quartz.*;
@@ -34,7 +35,7 @@ public class DataCleanupService implements Job {
     private final SignificantPlaceJdbcService placeJdbcService;
     private final JobDetail processingPipelineTask;
     private final JobMetadataRepository jobMetadataRepository;
-
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
 
     public DataCleanupService(TripJdbcService tripJdbcService,
                               ProcessedVisitJdbcService processedVisitJdbcService,
@@ -42,7 +43,8 @@ public class DataCleanupService implements Job {
                               RawLocationPointJdbcService rawLocationPointJdbcService,
                               JobSchedulingService jobScheduler, SignificantPlaceJdbcService placeJdbcService,
                               @Qualifier("processingPipelineJob") JobDetail processingPipelineTask,
-                              JobMetadataRepository jobMetadataRepository) {
+                              JobMetadataRepository jobMetadataRepository,
+                              VisitDetectionStateJdbcService visitDetectionStateJdbcService) {
         this.tripJdbcService = tripJdbcService;
         this.processedVisitJdbcService = processedVisitJdbcService;
         this.significantPlaceJdbcService = significantPlaceJdbcService;
@@ -51,6 +53,7 @@ public class DataCleanupService implements Job {
         this.placeJdbcService = placeJdbcService;
         this.processingPipelineTask = processingPipelineTask;
         this.jobMetadataRepository = jobMetadataRepository;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
     }
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
@@ -92,6 +95,8 @@ public class DataCleanupService implements Job {
 
         start = System.nanoTime();
         this.rawLocationPointJdbcService.markAllAsUnprocessedForUser(user, affectedDays);
+        // the removed visits may include the one the incremental visit detection continues
+        this.visitDetectionStateJdbcService.deleteForUser(user);
         log.info("clearing processed points for days [{}] completed in {}ms", affectedDays, (System.nanoTime() - start) / 1000000);
 
         jobScheduler.enqueueTask(processingPipelineTask,
@@ -19,7 +19,7 @@ public class DatabaseJanitorService {
     public void runJanitor() {
         log.info("Running Janitor");
         long start = System.currentTimeMillis();
-        jdbcTemplate.update("DELETE FROM api_token_usages WHERE at < now() - interval '1 week';");
+        jdbcTemplate.update("DELETE FROM api_token_usage_rollups WHERE minute < now() - interval '1 week';");
         log.info("Clearing old api-token-usages in {}ms", System.currentTimeMillis() - start);
         jdbcTemplate.execute("VACUUM ANALYZE;");
     }
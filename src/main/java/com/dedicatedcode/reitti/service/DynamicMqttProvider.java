@@ -1,5 +1,6 @@
 package com.dedicatedcode.reitti.service;
 
+import com.dedicatedcode.reitti.dto.LocationPoint;
 import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.DeviceJdbcService;
@@ -9,44 +10,82 @@ import com.dedicatedcode.reitti.service.integration.mqtt.MqttIntegration;
 import com.dedicatedcode.reitti.service.integration.mqtt.MqttPayloadProcessor;
 import com.dedicatedcode.reitti.service.integration.mqtt.PayloadType;
 import com.hivemq.client.mqtt.MqttClient;
+import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3ClientBuilder;
 import com.hivemq.client.mqtt.mqtt3.message.connect.Mqtt3ConnectBuilder;
 import com.hivemq.client.mqtt.mqtt3.message.connect.connack.Mqtt3ConnAck;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Keeps one MQTT connection per broker and credentials. All integrations pointing at the same broker share that
+ * connection, each of them with its own subscription, incoming messages are routed to the subscriptions by topic and
+ * handed to a bounded worker pool, which parses them and queues the resulting points in batches with the
+ * {@link LocationBatchingService}. The client identifier of the shared connection is derived from the broker and
+ * credentials, the identifiers stored per integration would split the connection again.
+ */
 @Service
-public class DynamicMqttProvider {
+public class DynamicMqttProvider implements SmartLifecycle {
     private static final Logger log = LoggerFactory.getLogger(DynamicMqttProvider.class);
     private final UserJdbcService userJdbcService;
     private final DeviceJdbcService deviceJdbcService;
     private final MqttIntegrationJdbcService repository;
+    private final LocationBatchingService locationBatchingService;
     private final Map<PayloadType, MqttPayloadProcessor> processors;
-    private final ConcurrentHashMap<Long, Mqtt3AsyncClient> activeClients = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<BrokerKey, SharedConnection> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Subscription> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final BlockingQueue<InboundMessage> inbound;
+    private final int workerCount;
+    private final int maxBatchSize;
+    private final long enqueueTimeoutMs;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
 
     public DynamicMqttProvider(UserJdbcService userJdbcService,
                                DeviceJdbcService deviceJdbcService,
                                MqttIntegrationJdbcService repository,
-                               List<MqttPayloadProcessor> processorList) {
+                               LocationBatchingService locationBatchingService,
+                               List<MqttPayloadProcessor> processorList,
+                               @Value("${reitti.mqtt.workers:2}") int workerCount,
+                               @Value("${reitti.mqtt.queue-capacity:10000}") int queueCapacity,
+                               @Value("${reitti.mqtt.max-batch-size:500}") int maxBatchSize,
+                               @Value("${reitti.mqtt.enqueue-timeout-ms:5000}") long enqueueTimeoutMs) {
         this.userJdbcService = userJdbcService;
         this.deviceJdbcService = deviceJdbcService;
         this.repository = repository;
+        this.locationBatchingService = locationBatchingService;
         this.processors = processorList.stream()
             .collect(Collectors.toMap(MqttPayloadProcessor::getSupportedType, p -> p));
+        this.workerCount = Math.max(1, workerCount);
+        this.inbound = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -54,7 +93,7 @@ public class DynamicMqttProvider {
         this.userJdbcService.getAllUsers()
                 .forEach(user -> this.repository.findByUser(user)
                         .filter(MqttIntegration::isEnabled)
-                        .ifPresent(config -> connectClient(user, config)));
+                        .ifPresent(config -> subscribe(user, config)));
     }
 
     public CompletableFuture<MqttTestResult> testConnection(MqttIntegration config) {
@@ -96,77 +135,258 @@ public class DynamicMqttProvider {
             throw new IllegalArgumentException("Reitti requires explicit topics. No wildcards allowed.");
         }
         remove(user);
-        connectClient(user, config);
+        subscribe(user, config);
     }
 
-    private void connectClient(User user, MqttIntegration config) {
-        log.debug("Connecting client [{}] for user {} to {} on {}", config.getIdentifier(), user.getUsername(), config.getTopic(), config.getHost());
+    private synchronized void subscribe(User user, MqttIntegration config) {
+        BrokerKey brokerKey = BrokerKey.of(config);
+        Device device = this.deviceJdbcService.getDefaultDevice(user);
+        Subscription subscription = new Subscription(user, device, brokerKey, config.getTopic(), config.getPayloadType());
+        SharedConnection connection = connections.computeIfAbsent(brokerKey, this::connect);
+        subscriptionsByUser.put(user.getId(), subscription);
+
+        List<Subscription> topicSubscriptions = connection.subscriptionsByTopic.computeIfAbsent(config.getTopic(), _ -> new CopyOnWriteArrayList<>());
+        topicSubscriptions.add(subscription);
+        if (topicSubscriptions.size() > 1) {
+            log.debug("Topic {} on {} is already subscribed, adding user {}", config.getTopic(), config.getHost(), user.getUsername());
+            return;
+        }
+        connection.connected
+                .thenCompose(ack -> connection.client.subscribeWith()
+                        .topicFilter(config.getTopic())
+                        .qos(MqttQos.AT_LEAST_ONCE)
+                        .send())
+                .thenAccept(subAck -> log.info("Subscribed user {} to {} on {}", user.getUsername(), config.getTopic(), config.getHost()))
+                .exceptionally(throwable -> {
+                    log.error("Error subscribing user {} to {} on {}", user.getUsername(), config.getTopic(), config.getHost(), throwable);
+                    return null;
+                });
+    }
+
+    private SharedConnection connect(BrokerKey brokerKey) {
+        String identifier = brokerKey.clientIdentifier();
+        log.debug("Connecting shared client [{}] to {}:{}", identifier, brokerKey.host(), brokerKey.port());
         Mqtt3ClientBuilder mqtt3ClientBuilder = MqttClient.builder()
                 .useMqttVersion3()
-                .identifier(config.getIdentifier())
-                .serverHost(config.getHost())
-                .serverPort(config.getPort())
+                .identifier(identifier)
+                .serverHost(brokerKey.host())
+                .serverPort(brokerKey.port())
                 .automaticReconnectWithDefaultConfig();
-        if (config.isUseTLS()) {
+        if (brokerKey.useTLS()) {
             mqtt3ClientBuilder = mqtt3ClientBuilder.sslWithDefaultConfig();
         }
 
         Mqtt3AsyncClient client = mqtt3ClientBuilder.buildAsync();
+        SharedConnection connection = new SharedConnection(client);
+        // registered before connecting, so messages queued in the persistent session are routed as well
+        client.publishes(MqttGlobalPublishFilter.ALL, publish -> route(connection, publish));
 
         Mqtt3ConnectBuilder.Send<CompletableFuture<Mqtt3ConnAck>> builder = client.connectWith()
                 .cleanSession(false);
-        Device device = this.deviceJdbcService.getDefaultDevice(user);
-        if (StringUtils.hasText(config.getUsername())) {
+        if (StringUtils.hasText(brokerKey.username())) {
             builder.simpleAuth()
-                    .username(config.getUsername())
-                    .password(config.getPassword().getBytes(StandardCharsets.UTF_8))
+                    .username(brokerKey.username())
+                    .password(brokerKey.password().getBytes(StandardCharsets.UTF_8))
                     .applySimpleAuth();
         }
-        builder.send()
-                .thenAccept(ack -> {
-                    log.info("Client [{}] for user {} connected to {} on {}", config.getIdentifier(), user.getUsername(), config.getTopic(), config.getHost());
-                    activeClients.put(user.getId(), client);
-                    client.subscribeWith()
-                            .topicFilter(config.getTopic())
-                            .qos(MqttQos.AT_LEAST_ONCE)
-                            .callback(publish -> dispatch(user, device, config, publish.getPayloadAsBytes()))
-                            .send();
-                }).exceptionally(throwable -> {
-                    log.error("Error connecting client [{}] for user {} to {} on {}", config.getIdentifier(), user.getUsername(), config.getTopic(), config.getHost(), throwable);
-                    return null;
+        connection.connected = builder.send()
+                .whenComplete((ack, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Error connecting shared client [{}] to {}:{}", identifier, brokerKey.host(), brokerKey.port(), throwable);
+                        connectionFailed(brokerKey, connection);
+                    } else {
+                        log.info("Shared client [{}] connected to {}:{}", identifier, brokerKey.host(), brokerKey.port());
+                    }
                 });
+        return connection;
     }
 
-    private void dispatch(User user, Device device, MqttIntegration config, byte[] payload) {
-        MqttPayloadProcessor processor = processors.get(config.getPayloadType());
-        if (processor != null) {
-            processor.process(user, device, payload);
-        } else {
-            log.error("No processor found for type: {}", config.getPayloadType());
+    private synchronized void connectionFailed(BrokerKey brokerKey, SharedConnection connection) {
+        if (connections.remove(brokerKey, connection)) {
+            subscriptionsByUser.values().removeIf(subscription -> subscription.broker().equals(brokerKey));
+            connection.client.disconnect();
         }
     }
 
+    private void route(SharedConnection connection, Mqtt3Publish publish) {
+        List<Subscription> subscriptions = connection.subscriptionsByTopic.get(publish.getTopic().toString());
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            log.trace("Dropping message on unsubscribed topic {}", publish.getTopic());
+            return;
+        }
+        byte[] payload = publish.getPayloadAsBytes();
+        for (Subscription subscription : subscriptions) {
+            InboundMessage message = new InboundMessage(subscription, payload);
+            if (!running) {
+                dispatch(List.of(message));
+                continue;
+            }
+            try {
+                // blocking the client thread for a while pushes back on the broker instead of growing without bound
+                if (!inbound.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("MQTT inbound queue is full, dropping message for user {} on {}", subscription.user().getUsername(), subscription.topic());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        List<InboundMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(inbound.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            inbound.drainTo(batch, maxBatchSize - 1);
+            try {
+                dispatch(batch);
+            } catch (Exception e) {
+                log.error("Error processing [{}] MQTT messages", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void dispatch(List<InboundMessage> messages) {
+        Map<Subscription, List<LocationPoint>> pointsBySubscription = new LinkedHashMap<>();
+        for (InboundMessage message : messages) {
+            Subscription subscription = message.subscription();
+            MqttPayloadProcessor processor = processors.get(subscription.payloadType());
+            if (processor == null) {
+                log.error("No processor found for type: {}", subscription.payloadType());
+                continue;
+            }
+            List<LocationPoint> points = processor.parse(subscription.user(), message.payload());
+            if (!points.isEmpty()) {
+                pointsBySubscription.computeIfAbsent(subscription, _ -> new ArrayList<>()).addAll(points);
+            }
+        }
+        pointsBySubscription.forEach((subscription, points) -> {
+            int accepted = locationBatchingService.addLocationPoints(subscription.user(), subscription.device(), points);
+            log.debug("Queued [{}] MQTT location points for user {}", accepted, subscription.user().getUsername());
+        });
+    }
+
     public MqttStatus isClientConnected(User user) {
-        Mqtt3AsyncClient client = activeClients.get(user.getId());
-        if (client == null) {
+        Subscription subscription = subscriptionsByUser.get(user.getId());
+        SharedConnection connection = subscription != null ? connections.get(subscription.broker()) : null;
+        if (connection == null) {
             return MqttStatus.UNAVAILABLE;
         }
 
-        return client.getState().isConnectedOrReconnect() ? MqttStatus.CONNECTED : MqttStatus.DISCONNECTED;
+        return connection.client.getState().isConnectedOrReconnect() ? MqttStatus.CONNECTED : MqttStatus.DISCONNECTED;
+    }
+
+    /**
+     * @return the number of open broker connections, shared by all integrations on the same broker
+     */
+    int getConnectionCount() {
+        return connections.size();
     }
 
-    public void remove(User user) {
-        Mqtt3AsyncClient client = activeClients.remove(user.getId());
-        if (client != null) {
-            log.info("Disconnecting mqtt client for user {}", user.getUsername());
-            client.disconnect();
+    public synchronized void remove(User user) {
+        Subscription subscription = subscriptionsByUser.remove(user.getId());
+        if (subscription == null) {
+            return;
+        }
+        SharedConnection connection = connections.get(subscription.broker());
+        if (connection == null) {
+            return;
+        }
+        List<Subscription> topicSubscriptions = connection.subscriptionsByTopic.get(subscription.topic());
+        if (topicSubscriptions != null) {
+            topicSubscriptions.remove(subscription);
+            if (topicSubscriptions.isEmpty()) {
+                connection.subscriptionsByTopic.remove(subscription.topic());
+                if (connection.client.getState().isConnected()) {
+                    connection.client.unsubscribeWith().topicFilter(subscription.topic()).send();
+                }
+            }
+        }
+        if (connection.subscriptionsByTopic.isEmpty()) {
+            log.info("Disconnecting shared mqtt client for {}:{}, last user {} removed", subscription.broker().host(), subscription.broker().port(), user.getUsername());
+            connections.remove(subscription.broker());
+            connection.client.disconnect();
+        } else {
+            log.info("Removed mqtt subscription of user {} from {}", user.getUsername(), subscription.topic());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drain, "mqtt-ingest-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
         }
     }
 
+    @Override
+    public void stop() {
+        running = false;
+        connections.values().forEach(connection -> connection.client.disconnect());
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        List<InboundMessage> remaining = new ArrayList<>();
+        inbound.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            dispatch(remaining);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
     public record MqttTestResult(boolean success, String message) {
     }
 
     public enum MqttStatus {
         CONNECTED, DISCONNECTED, UNAVAILABLE
     }
+
+    private record BrokerKey(String host, int port, boolean useTLS, String username, String password) {
+        static BrokerKey of(MqttIntegration config) {
+            return new BrokerKey(config.getHost(), config.getPort(), config.isUseTLS(),
+                                 StringUtils.hasText(config.getUsername()) ? config.getUsername() : null,
+                                 StringUtils.hasText(config.getUsername()) ? config.getPassword() : null);
+        }
+
+        /**
+         * Stable across restarts, so the broker keeps the persistent session of the shared connection.
+         */
+        String clientIdentifier() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] hash = digest.digest((host + ":" + port + ":" + useTLS + ":" + username + ":" + password).getBytes(StandardCharsets.UTF_8));
+                return "reitti-" + HexFormat.of().formatHex(hash, 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record Subscription(User user, Device device, BrokerKey broker, String topic, PayloadType payloadType) {
+    }
+
+    private record InboundMessage(Subscription subscription, byte[] payload) {
+    }
+
+    private static class SharedConnection {
+        private final Mqtt3AsyncClient client;
+        private final Map<String, List<Subscription>> subscriptionsByTopic = new ConcurrentHashMap<>();
+        private volatile CompletableFuture<Mqtt3ConnAck> connected;
+
+        private SharedConnection(Mqtt3AsyncClient client) {
+            this.client = client;
+        }
+    }
 }
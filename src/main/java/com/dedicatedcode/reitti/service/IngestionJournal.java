@@ -0,0 +1,271 @@
+package com.dedicatedcode.reitti.service;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Optional append-only journal for points which are only held in memory by {@link LocationBatchingService}.
+ * Points are appended to a memory-mapped segment file before the request is acknowledged. Every segment keeps a
+ * count of points which have not been staged yet, once that drops to zero for a segment which is no longer written
+ * to, the file is deleted. Segments left over from a previous run are replayed on startup.
+ */
+@Service
+public class IngestionJournal {
+    private static final Logger log = LoggerFactory.getLogger(IngestionJournal.class);
+
+    static final int RECORD_SIZE = 1 + 8 + 8 + 8 + 4 + 8 + 8 + 8 + 8 + 4;
+    private static final byte RECORD_MARKER = 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final boolean enabled;
+    private final boolean forceOnAppend;
+    private final Path directory;
+    private final int segmentSizeBytes;
+    private final Map<Long, AtomicInteger> pendingPerSegment = new ConcurrentHashMap<>();
+    private final List<Path> leftOverSegments = new ArrayList<>();
+
+    private long activeSegmentId;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+
+    public IngestionJournal(@Value("${reitti.batching.journal.enabled:false}") boolean enabled,
+                            @Value("${reitti.storage.path}") String storagePath,
+                            @Value("${reitti.batching.journal.segment-size-mb:16}") int segmentSizeMb,
+                            @Value("${reitti.batching.journal.force-on-append:false}") boolean forceOnAppend) {
+        this.enabled = enabled;
+        this.forceOnAppend = forceOnAppend;
+        this.directory = Paths.get(storagePath, "ingestion-journal");
+        this.segmentSizeBytes = Math.max(1, segmentSizeMb) * 1024 * 1024;
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.filter(IngestionJournal::isSegment).sorted().forEach(leftOverSegments::add);
+                }
+                this.activeSegmentId = leftOverSegments.stream().mapToLong(IngestionJournal::segmentId).max().orElse(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open ingestion journal in '" + directory + "'", e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends all points in one go.
+     *
+     * @return the id of the segment the points were written to or -1 if the journal is disabled
+     */
+    public synchronized long append(long userId, long deviceId, List<LocationPoint> points) {
+        if (!enabled || points.isEmpty()) {
+            return -1;
+        }
+        int needed = points.size() * RECORD_SIZE;
+        if (activeBuffer == null || activeBuffer.remaining() < needed) {
+            roll(Math.max(segmentSizeBytes, needed));
+        }
+        CRC32 crc = new CRC32();
+        for (LocationPoint point : points) {
+            int start = activeBuffer.position();
+            activeBuffer.put((byte) 0);
+            activeBuffer.putLong(userId);
+            activeBuffer.putLong(deviceId);
+            activeBuffer.putLong(point.getTimestamp().getEpochSecond());
+            activeBuffer.putInt(point.getTimestamp().getNano());
+            activeBuffer.putDouble(point.getLatitude());
+            activeBuffer.putDouble(point.getLongitude());
+            activeBuffer.putDouble(point.getAccuracyMeters());
+            activeBuffer.putDouble(point.getElevationMeters() != null ? point.getElevationMeters() : Double.NaN);
+            crc.reset();
+            crc.update(activeBuffer.slice(start + 1, RECORD_SIZE - 5));
+            activeBuffer.putInt((int) crc.getValue());
+            // the marker is written last so a torn record is never replayed
+            activeBuffer.put(start, RECORD_MARKER);
+        }
+        if (forceOnAppend) {
+            activeBuffer.force();
+        }
+        pendingPerSegment.computeIfAbsent(activeSegmentId, _ -> new AtomicInteger()).addAndGet(points.size());
+        return activeSegmentId;
+    }
+
+    /**
+     * Marks points as staged. Segments which are no longer written to and have no pending points left are deleted.
+     */
+    public void release(Map<Long, Integer> stagedPerSegment) {
+        if (!enabled) {
+            return;
+        }
+        stagedPerSegment.forEach((segmentId, count) -> {
+            AtomicInteger pending = pendingPerSegment.get(segmentId);
+            if (pending != null && pending.addAndGet(-count) <= 0) {
+                deleteIfInactive(segmentId);
+            }
+        });
+    }
+
+    /**
+     * Reads all segments which were left behind by a previous run. The segments are removed once the consumer
+     * returned without an exception.
+     */
+    public void replay(RecoveredPointsConsumer consumer) {
+        if (!enabled || leftOverSegments.isEmpty()) {
+            return;
+        }
+        for (Path segment : leftOverSegments) {
+            try {
+                Map<RecoveredKey, List<LocationPoint>> recovered = read(segment);
+                for (Map.Entry<RecoveredKey, List<LocationPoint>> entry : recovered.entrySet()) {
+                    consumer.accept(entry.getKey().userId(), entry.getKey().deviceId(), entry.getValue());
+                }
+                Files.deleteIfExists(segment);
+                log.info("Replayed ingestion journal segment [{}] with points of [{}] devices", segment.getFileName(), recovered.size());
+            } catch (Exception e) {
+                log.error("Failed to replay ingestion journal segment [{}], keeping it for the next start", segment, e);
+            }
+        }
+        leftOverSegments.clear();
+    }
+
+    public synchronized void close() {
+        if (activeChannel == null) {
+            return;
+        }
+        long segmentId = activeSegmentId;
+        closeActive();
+        AtomicInteger pending = pendingPerSegment.get(segmentId);
+        if (pending == null || pending.get() <= 0) {
+            deleteSegment(segmentId);
+        }
+    }
+
+    private void roll(int size) {
+        long previous = activeSegmentId;
+        boolean hadActive = activeChannel != null;
+        closeActive();
+        if (hadActive) {
+            AtomicInteger pending = pendingPerSegment.get(previous);
+            if (pending == null || pending.get() <= 0) {
+                deleteSegment(previous);
+            }
+        }
+        activeSegmentId = previous + 1;
+        Path file = segmentPath(activeSegmentId);
+        try {
+            activeChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create ingestion journal segment '" + file + "'", e);
+        }
+        log.debug("Rolled ingestion journal to segment [{}]", file.getFileName());
+    }
+
+    private void closeActive() {
+        if (activeChannel != null) {
+            try {
+                activeBuffer.force();
+                activeChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close ingestion journal segment [{}]", activeSegmentId, e);
+            }
+            activeChannel = null;
+            activeBuffer = null;
+        }
+    }
+
+    private synchronized void deleteIfInactive(long segmentId) {
+        if (segmentId != activeSegmentId || activeChannel == null) {
+            deleteSegment(segmentId);
+        }
+    }
+
+    private void deleteSegment(long segmentId) {
+        pendingPerSegment.remove(segmentId);
+        try {
+            Files.deleteIfExists(segmentPath(segmentId));
+        } catch (IOException e) {
+            log.warn("Failed to delete ingestion journal segment [{}]", segmentId, e);
+        }
+    }
+
+    private Map<RecoveredKey, List<LocationPoint>> read(Path segment) throws IOException {
+        Map<RecoveredKey, List<LocationPoint>> result = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int start = buffer.position();
+                if (buffer.get(start) != RECORD_MARKER) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(start + 1, RECORD_SIZE - 5));
+                if (buffer.getInt(start + RECORD_SIZE - 4) != (int) crc.getValue()) {
+                    log.warn("Skipping corrupt record in ingestion journal segment [{}] at offset [{}]", segment.getFileName(), start);
+                    buffer.position(start + RECORD_SIZE);
+                    continue;
+                }
+                buffer.position(start + 1);
+                long userId = buffer.getLong();
+                long deviceId = buffer.getLong();
+                long epochSecond = buffer.getLong();
+                int nanos = buffer.getInt();
+                LocationPoint point = new LocationPoint();
+                point.setTimestamp(Instant.ofEpochSecond(epochSecond, nanos));
+                point.setLatitude(buffer.getDouble());
+                point.setLongitude(buffer.getDouble());
+                point.setAccuracyMeters(buffer.getDouble());
+                double elevation = buffer.getDouble();
+                point.setElevationMeters(Double.isNaN(elevation) ? null : elevation);
+                buffer.getInt();
+                result.computeIfAbsent(new RecoveredKey(userId, deviceId), _ -> new ArrayList<>()).add(point);
+            }
+        }
+        return result;
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    public interface RecoveredPointsConsumer {
+        void accept(long userId, long deviceId, List<LocationPoint> points);
+    }
+
+    private record RecoveredKey(long userId, long deviceId) {}
+}
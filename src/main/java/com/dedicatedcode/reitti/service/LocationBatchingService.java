@@ -3,55 +3,73 @@ package com.dedicatedcode.reitti.service;
 import com.dedicatedcode.reitti.dto.LocationPoint;
 import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.security.User;
-import com.dedicatedcode.reitti.service.importer.PromotionJobHandler;
-import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
-import com.dedicatedcode.reitti.service.jobs.JobType;
+import com.dedicatedcode.reitti.repository.DeviceJdbcService;
+import com.dedicatedcode.reitti.repository.UserJdbcService;
+import com.dedicatedcode.reitti.service.processing.LivePromotionQueue;
 import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
 import jakarta.annotation.PreDestroy;
-import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Collects live points per user, device and day and hands them over to the {@link LivePromotionQueue} in batches. On
+ * shutdown the open batches are flushed while the queue is still running, so they are promoted before the application
+ * stops instead of being left to a Quartz job.
+ */
 @Service
-public class LocationBatchingService {
+public class LocationBatchingService implements SmartLifecycle {
     
     private static final Logger logger = LoggerFactory.getLogger(LocationBatchingService.class);
     
     private final Map<String, UserBatch> userBatches = new ConcurrentHashMap<>();
     private final LocationPointStagingService locationPointStagingService;
-    private final JobDetail promotionTask;
-    private final JobSchedulingService jobScheduler;
+    private final LivePromotionQueue livePromotionQueue;
+    private final IngestionJournal journal;
+    private final UserJdbcService userJdbcService;
+    private final DeviceJdbcService deviceJdbcService;
 
     private final int maxBatchSize;
     private final long maxWaitTimeMs;
+    private volatile boolean running;
     
     @Autowired
     public LocationBatchingService(LocationPointStagingService locationPointStagingService,
-                                   @Qualifier("promotionJob") JobDetail promotionTask,
-                                   JobSchedulingService jobScheduler,
+                                   LivePromotionQueue livePromotionQueue,
+                                   IngestionJournal journal,
+                                   UserJdbcService userJdbcService,
+                                   DeviceJdbcService deviceJdbcService,
                                    @Value("${reitti.batching.max-batch-size:100}") int maxBatchSize,
                                    @Value("${reitti.batching.max-wait-time:5}") long maxWaitTime) {
         this.locationPointStagingService = locationPointStagingService;
-        this.promotionTask = promotionTask;
-        this.jobScheduler = jobScheduler;
+        this.livePromotionQueue = livePromotionQueue;
+        this.journal = journal;
+        this.userJdbcService = userJdbcService;
+        this.deviceJdbcService = deviceJdbcService;
         this.maxBatchSize = maxBatchSize;
         this.maxWaitTimeMs = maxWaitTime * 1000;
     }
 
     public void addLocationPoint(User user, Device device, LocationPoint locationPoint) {
         String sessionKey = getSessionKey(user, device);
+        long journalSegment = locationPoint.isValid() && locationPoint.getAccuracyMeters() != null
+                ? journal.append(user.getId(), device.id(), List.of(locationPoint))
+                : -1;
 
         userBatches.compute(sessionKey, (key, existingBatch) -> {
             if (existingBatch == null) {
@@ -59,6 +77,7 @@ public class LocationBatchingService {
             }
 
             existingBatch.addLocationPoint(locationPoint);
+            existingBatch.trackJournalSegment(journalSegment, 1);
 
             if (existingBatch.shouldFlush(maxBatchSize, maxWaitTimeMs)) {
                 executeFlush(existingBatch);
@@ -68,8 +87,42 @@ public class LocationBatchingService {
         });
     }
 
+    /**
+     * Stages a whole payload with a single map operation. Points without timestamp, coordinates or accuracy are
+     * dropped. Payloads reaching the batch size are written to staging in one go together with whatever was
+     * already pending for the device.
+     *
+     * @return the number of accepted points
+     */
+    public int addLocationPoints(User user, Device device, List<LocationPoint> locationPoints) {
+        List<LocationPoint> valid = locationPoints.stream()
+                .filter(point -> point != null && point.isValid() && point.getAccuracyMeters() != null)
+                .toList();
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        String sessionKey = getSessionKey(user, device);
+        long journalSegment = journal.append(user.getId(), device.id(), valid);
+
+        userBatches.compute(sessionKey, (key, existingBatch) -> {
+            if (existingBatch == null) {
+                existingBatch = new UserBatch(user, device, key);
+            }
+
+            existingBatch.addLocationPoints(valid);
+            existingBatch.trackJournalSegment(journalSegment, valid.size());
+
+            if (existingBatch.shouldFlush(maxBatchSize, maxWaitTimeMs)) {
+                executeFlush(existingBatch);
+                return null;
+            }
+            return existingBatch;
+        });
+        return valid.size();
+    }
+
     private String getSessionKey(User user, Device device) {
-        return String.format("stream_%d_%s_%s",
+        return String.format(LocationPointStagingService.LIVE_PARTITION_PREFIX + "%d_%s_%s",
                              user.getId(),
                              device.id(),
                              LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE))
@@ -90,13 +143,9 @@ public class LocationBatchingService {
                                                     batch.getDevice(),
                                                     batch.getLocationPoints()
             );
+            journal.release(batch.getJournalSegments());
             batch.clear();
-            this.jobScheduler.enqueueTask(promotionTask,
-                                          new PromotionJobHandler.TaskData(batch.user, batch.device, pKey, false),
-                                          JobSchedulingService.Metadata.builder()
-                                                  .user(batch.user)
-                                                  .jobType(JobType.GPS_INGESTION)
-                                                  .friendlyName("GPS Data Promotion").build());
+            this.livePromotionQueue.submit(batch.user, batch.device, pKey);
         } catch (Exception e) {
             logger.error("Failed to flush batch for partition {}", batch.getPartitionKey(), e);
         }
@@ -114,10 +163,60 @@ public class LocationBatchingService {
         });
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        journal.replay((userId, deviceId, points) -> {
+            Optional<User> user = userJdbcService.findById(userId);
+            Optional<Device> device = user.flatMap(u -> deviceJdbcService.find(u, deviceId));
+            if (device.isEmpty()) {
+                logger.warn("Dropping [{}] journaled points of unknown user [{}] or device [{}]", points.size(), userId, deviceId);
+                return;
+            }
+            String pKey = getSessionKey(user.get(), device.get());
+            locationPointStagingService.ensurePartitionExists(pKey);
+            locationPointStagingService.insertBatch(pKey, user.get(), device.get(), points);
+            livePromotionQueue.submit(user.get(), device.get(), pKey);
+            logger.info("Recovered [{}] journaled points for user [{}] and device [{}]", points.size(), userId, deviceId);
+        });
+    }
+
+    private void flushAll() {
+        userBatches.keySet().forEach(key -> userBatches.computeIfPresent(key, (ignored, batch) -> {
+            executeFlush(batch);
+            return null;
+        }));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        logger.info("Flushing batches on shutdown...");
+        flushAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops right before the promotion queue, so the last batches are still promoted by it.
+     */
+    @Override
+    public int getPhase() {
+        return LivePromotionQueue.PHASE + 1;
+    }
+
     @PreDestroy
     public void onShutdown() {
-        logger.info("Flushing batches on shutdown...");
-        userBatches.forEach((ignored, batch) -> executeFlush(batch));
+        // points that arrived after the lifecycle stopped are staged here and picked up by the Quartz fallback
+        flushAll();
+        journal.close();
     }
 
     private static class UserBatch {
@@ -125,6 +224,7 @@ public class LocationBatchingService {
         private final Device device;
         private final String partitionKey;
         private final List<LocationPoint> locationPoints = new ArrayList<>();
+        private final Map<Long, Integer> journalSegments = new HashMap<>();
         private final long createdAt = System.currentTimeMillis();
 
         public UserBatch(User user, Device device, String partitionKey) {
@@ -137,6 +237,20 @@ public class LocationBatchingService {
             locationPoints.add(point);
         }
 
+        public void addLocationPoints(List<LocationPoint> points) {
+            locationPoints.addAll(points);
+        }
+
+        public void trackJournalSegment(long segmentId, int count) {
+            if (segmentId >= 0) {
+                journalSegments.merge(segmentId, count, Integer::sum);
+            }
+        }
+
+        public Map<Long, Integer> getJournalSegments() {
+            return journalSegments;
+        }
+
         public boolean shouldFlush(int size, long ms) {
             return locationPoints.size() >= size || (System.currentTimeMillis() - createdAt) >= ms;
         }
@@ -163,6 +277,7 @@ public class LocationBatchingService {
 
         public void clear() {
             this.locationPoints.clear();
+            this.journalSegments.clear();
         }
     }
 }
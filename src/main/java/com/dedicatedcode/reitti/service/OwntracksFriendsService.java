@@ -0,0 +1,232 @@
+package com.dedicatedcode.reitti.service;
+
+import com.dedicatedcode.reitti.controller.api.ingestion.owntracks.OwntracksFriendResponse;
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.dto.ReittiRemoteInfo;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+import com.dedicatedcode.reitti.model.integration.ReittiIntegration;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.model.security.UserSharing;
+import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
+import com.dedicatedcode.reitti.repository.UserJdbcService;
+import com.dedicatedcode.reitti.repository.UserSharingJdbcService;
+import com.dedicatedcode.reitti.service.integration.ReittiIntegrationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps the friends payload returned to OwnTracks clients in memory. Friends' cards are built once, their latest
+ * positions are refreshed whenever new location data for them has been promoted, and remote integrations are
+ * refreshed in the background. The ingestion request itself only assembles already built responses.
+ */
+@Service
+public class OwntracksFriendsService {
+    private static final Logger log = LoggerFactory.getLogger(OwntracksFriendsService.class);
+
+    private final UserSharingJdbcService userSharingJdbcService;
+    private final UserJdbcService userJdbcService;
+    private final AvatarService avatarService;
+    private final RawLocationPointJdbcService rawLocationPointJdbcService;
+    private final ReittiIntegrationService reittiIntegrationService;
+    private final long sharingTtlMs;
+    private final long friendTtlMs;
+    private final long remoteTtlMs;
+
+    private final Map<Long, CachedSharing> sharingByRecipient = new ConcurrentHashMap<>();
+    private final Map<Long, FriendEntry> friends = new ConcurrentHashMap<>();
+    private final Map<Long, CachedRemote> remoteByRecipient = new ConcurrentHashMap<>();
+    private final Set<Long> remoteRefreshesInFlight = ConcurrentHashMap.newKeySet();
+    private final ExecutorService remoteRefreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "owntracks-friends-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OwntracksFriendsService(UserSharingJdbcService userSharingJdbcService,
+                                   UserJdbcService userJdbcService,
+                                   AvatarService avatarService,
+                                   RawLocationPointJdbcService rawLocationPointJdbcService,
+                                   ReittiIntegrationService reittiIntegrationService,
+                                   @Value("${reitti.owntracks.friends.sharing-ttl-seconds:60}") long sharingTtlSeconds,
+                                   @Value("${reitti.owntracks.friends.friend-ttl-seconds:600}") long friendTtlSeconds,
+                                   @Value("${reitti.owntracks.friends.remote-ttl-seconds:60}") long remoteTtlSeconds) {
+        this.userSharingJdbcService = userSharingJdbcService;
+        this.userJdbcService = userJdbcService;
+        this.avatarService = avatarService;
+        this.rawLocationPointJdbcService = rawLocationPointJdbcService;
+        this.reittiIntegrationService = reittiIntegrationService;
+        this.sharingTtlMs = sharingTtlSeconds * 1000;
+        this.friendTtlMs = friendTtlSeconds * 1000;
+        this.remoteTtlMs = remoteTtlSeconds * 1000;
+    }
+
+    public List<OwntracksFriendResponse> getFriends(User user) {
+        long now = System.currentTimeMillis();
+        List<OwntracksFriendResponse> result = new ArrayList<>();
+
+        for (Long friendId : sharedWith(user, now)) {
+            FriendEntry entry = friend(friendId, now);
+            if (entry != null) {
+                result.add(entry.card());
+                if (entry.location() != null) {
+                    result.add(entry.location());
+                }
+            }
+        }
+
+        CachedRemote remote = remoteByRecipient.get(user.getId());
+        if (remote == null || now - remote.loadedAt() > remoteTtlMs) {
+            scheduleRemoteRefresh(user);
+        }
+        if (remote != null) {
+            result.addAll(remote.responses());
+        }
+        return result;
+    }
+
+    /**
+     * Called whenever new location data of a user has been promoted. Only users which are currently part of
+     * somebody's friends payload are refreshed.
+     */
+    public void locationUpdated(User user) {
+        FriendEntry entry = friends.get(user.getId());
+        if (entry == null) {
+            return;
+        }
+        // loaded outside of the map operation, so a slow query does not block other updates of the cache
+        OwntracksFriendResponse location = loadLocation(user, entry.tid());
+        friends.computeIfPresent(user.getId(), (id, current) -> current.withLocation(location));
+    }
+
+    /**
+     * Called when the sharings of the given recipients were created, removed or dismissed.
+     */
+    public void sharingChanged(Collection<Long> recipientIds) {
+        recipientIds.forEach(sharingByRecipient::remove);
+    }
+
+    /**
+     * Called when the profile or avatar of a user changed, their card is rebuilt on the next request.
+     */
+    public void userChanged(Long userId) {
+        friends.remove(userId);
+    }
+
+    private List<Long> sharedWith(User user, long now) {
+        CachedSharing cached = sharingByRecipient.get(user.getId());
+        if (cached == null || now - cached.loadedAt() > sharingTtlMs) {
+            List<Long> friendIds = userSharingJdbcService.findBySharedWithUser(user.getId()).stream()
+                    .map(UserSharing::getSharingUserId)
+                    .toList();
+            cached = new CachedSharing(friendIds, now);
+            sharingByRecipient.put(user.getId(), cached);
+        }
+        return cached.friendIds();
+    }
+
+    private FriendEntry friend(Long friendId, long now) {
+        FriendEntry entry = friends.get(friendId);
+        if (entry == null || now - entry.loadedAt() > friendTtlMs) {
+            entry = userJdbcService.findById(friendId).map(friend -> loadFriend(friend, now)).orElse(null);
+            if (entry != null) {
+                friends.put(friendId, entry);
+            } else {
+                friends.remove(friendId);
+            }
+        }
+        return entry;
+    }
+
+    private FriendEntry loadFriend(User friend, long now) {
+        String tid = generateTid(friend.getUsername());
+        Optional<byte[]> avatarThumbnail = avatarService.getAvatarThumbnail(friend.getId(), 192, 192);
+        OwntracksFriendResponse card = new OwntracksFriendResponse(tid, friend.getDisplayName(), avatarThumbnail.orElse(null), "image/jpeg");
+        return new FriendEntry(tid, card, loadLocation(friend, tid), now);
+    }
+
+    private OwntracksFriendResponse loadLocation(User friend, String tid) {
+        Optional<RawLocationPoint> latestLocation = rawLocationPointJdbcService.findLatest(friend);
+        return latestLocation
+                .map(location -> new OwntracksFriendResponse(tid,
+                                                             friend.getDisplayName(),
+                                                             location.getLatitude(),
+                                                             location.getLongitude(),
+                                                             location.getTimestamp().getEpochSecond()))
+                .orElse(null);
+    }
+
+    private void scheduleRemoteRefresh(User user) {
+        if (!remoteRefreshesInFlight.add(user.getId())) {
+            return;
+        }
+        try {
+            remoteRefreshExecutor.execute(() -> {
+                try {
+                    remoteByRecipient.put(user.getId(), new CachedRemote(loadRemoteFriends(user), System.currentTimeMillis()));
+                } catch (Exception e) {
+                    log.warn("Couldn't refresh remote friends for user [{}]", user.getId(), e);
+                } finally {
+                    remoteRefreshesInFlight.remove(user.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            remoteRefreshesInFlight.remove(user.getId());
+        }
+    }
+
+    private List<OwntracksFriendResponse> loadRemoteFriends(User user) {
+        List<OwntracksFriendResponse> friendsData = new ArrayList<>();
+        List<ReittiIntegration> integrations = reittiIntegrationService.getActiveIntegrationsForUser(user);
+        for (ReittiIntegration integration : integrations) {
+            try {
+                ReittiRemoteInfo info = reittiIntegrationService.getInfo(integration);
+                String tid = generateTid(info.userInfo().username());
+
+                OwntracksFriendResponse owntracksFriendResponse = reittiIntegrationService.getAvatar(integration.getId())
+                        .map(avatarData -> new OwntracksFriendResponse(tid, info.userInfo().displayName(), avatarData.imageData(), avatarData.mimeType()))
+                        .orElse(new OwntracksFriendResponse(tid, info.userInfo().displayName(), null, null));
+
+                friendsData.add(owntracksFriendResponse);
+                Optional<LocationPoint> latestLocation = reittiIntegrationService.findLatest(user, integration.getId());
+                latestLocation.ifPresent(location -> friendsData.add(new OwntracksFriendResponse(tid, info.userInfo().displayName(), location.getLatitude(), location.getLongitude(), location.getTimestamp().getEpochSecond())));
+            } catch (RequestFailedException | RequestTemporaryFailedException e) {
+                log.warn("Couldn't fetch info for integration {}", integration.getId(), e);
+            }
+        }
+        return friendsData;
+    }
+
+    private String generateTid(String username) {
+        return username != null && username.length() >= 2 ?
+                username.substring(0, 2).toUpperCase() : "UN";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        remoteRefreshExecutor.shutdownNow();
+    }
+
+    private record CachedSharing(List<Long> friendIds, long loadedAt) {}
+
+    private record CachedRemote(List<OwntracksFriendResponse> responses, long loadedAt) {}
+
+    private record FriendEntry(String tid, OwntracksFriendResponse card, OwntracksFriendResponse location, long loadedAt) {
+        FriendEntry withLocation(OwntracksFriendResponse location) {
+            return new FriendEntry(tid, card, location, loadedAt);
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +42,50 @@ public class StorageService {
         }
     }
 
+    /**
+     * Appends the content to an item, creating it if needed. The item must have exactly {@code offset} bytes,
+     * otherwise nothing is written. Bytes received before the content stream fails are kept. At most
+     * {@code maxLength} bytes are written, content beyond that is rejected after the allowed bytes were stored.
+     *
+     * @return the size of the item after appending
+     * @throws IllegalArgumentException if the content is longer than {@code maxLength}
+     */
+    public long append(String itemName, InputStream content, long offset, long maxLength) {
+        Path filePath = Paths.get(storagePath, itemName);
+        try {
+            Files.createDirectories(filePath.getParent());
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (channel.size() != offset) {
+                    throw new IllegalStateException("Item '" + itemName + "' has " + channel.size() + " bytes, cannot append at offset " + offset);
+                }
+                channel.position(offset);
+                OutputStream out = Channels.newOutputStream(channel);
+                byte[] buffer = new byte[8192];
+                long remaining = maxLength;
+                int read;
+                while (remaining > 0 && (read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                if (remaining == 0 && content.read() != -1) {
+                    throw new IllegalArgumentException("Content for item '" + itemName + "' exceeds " + maxLength + " bytes");
+                }
+                return channel.size();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to item '" + itemName + "': " + e.getMessage(), e);
+        }
+    }
+
+    public long size(String itemName) {
+        Path filePath = Paths.get(storagePath, itemName);
+        try {
+            return Files.exists(filePath) ? Files.size(filePath) : 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read item '" + itemName + "': " + e.getMessage(), e);
+        }
+    }
+
     public StorageContent read(String itemName) {
         Path filePath = Paths.get(storagePath, itemName);
         try {
@@ -34,15 +34,18 @@ public class UserNotificationService {
     private final UserJdbcService userJdbcService;
     private final UserSharingJdbcService userSharingJdbcService;
     private final UserSseEmitterService userSseEmitterService;
+    private final OwntracksFriendsService owntracksFriendsService;
 
     public UserNotificationService(ReittiSubscriptionService reittiSubscriptionService,
                                    UserJdbcService userJdbcService,
                                    UserSharingJdbcService userSharingJdbcService,
-                                   UserSseEmitterService userSseEmitterService) {
+                                   UserSseEmitterService userSseEmitterService,
+                                   OwntracksFriendsService owntracksFriendsService) {
         this.reittiSubscriptionService = reittiSubscriptionService;
         this.userJdbcService = userJdbcService;
         this.userSharingJdbcService = userSharingJdbcService;
         this.userSseEmitterService = userSseEmitterService;
+        this.owntracksFriendsService = owntracksFriendsService;
     }
 
     public void placeUpdate(User user, SignificantPlace place, String previewId) {
@@ -76,6 +79,7 @@ public class UserNotificationService {
     public void newRawLocationData(User user, List<LocationPoint> filtered) {
         SSEType eventType = SSEType.RAW_DATA;
         log.debug("New RawLocationPoints for user [{}]", user.getId());
+        this.owntracksFriendsService.locationUpdated(user);
         Set<LocalDate> dates = calculateAffectedDates(filtered.stream().map(LocationPoint::getTimestamp).toList());
         sendToQueue(user, dates, eventType, null);
         notifyOtherUsers(user, eventType, dates);
@@ -85,6 +89,7 @@ public class UserNotificationService {
     public void newLocationData(User user, Device device, TimeRange timeRange) {
         SSEType eventType = SSEType.RAW_DATA;
         log.debug("New RawLocationPoints for user [{}] and device [{}]", user.getId(), device.id());
+        this.owntracksFriendsService.locationUpdated(user);
         Set<LocalDate> dates = calculateAffectedDates(timeRange);
         sendToQueue(user, dates, eventType, null);
         notifyOtherUsers(user, eventType, dates);
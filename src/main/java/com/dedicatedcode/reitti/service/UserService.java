@@ -43,6 +43,7 @@ public class UserService {
     private final MemoryJdbcService memoryJdbcService;
     private final SourceLocationPointJdbcService sourceLocationPointJdbcService;
     private final TripJdbcService tripJdbcService;
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
 
     public UserService(UserJdbcService userJdbcService,
                        UserSettingsJdbcService userSettingsJdbcService,
@@ -57,6 +58,7 @@ public class UserService {
                        MemoryJdbcService memoryJdbcService,
                        SourceLocationPointJdbcService sourceLocationPointJdbcService,
                        TripJdbcService tripJdbcService,
+                       VisitDetectionStateJdbcService visitDetectionStateJdbcService,
                        PasswordEncoder passwordEncoder, UserMapStyleJdbcService userMapStyleJdbcService, DeviceJdbcService deviceJdbcService, ApiTokenService apiTokenService,
                        JdbcTemplate jdbcTemplate) {
         this.userJdbcService = userJdbcService;
@@ -73,6 +75,7 @@ public class UserService {
         this.memoryJdbcService = memoryJdbcService;
         this.sourceLocationPointJdbcService = sourceLocationPointJdbcService;
         this.tripJdbcService = tripJdbcService;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
         this.passwordEncoder = passwordEncoder;
         this.userMapStyleJdbcService = userMapStyleJdbcService;
         this.deviceJdbcService = deviceJdbcService;
@@ -232,6 +235,7 @@ public class UserService {
         this.transportModeJdbcService.deleteAllForUser(user);
         this.tripJdbcService.deleteAllForUser(user);
         this.processedVisitJdbcService.deleteAllForUser(user);
+        this.visitDetectionStateJdbcService.deleteForUser(user);
         this.rawLocationPointJdbcService.deleteAllForUser(user);
         this.sourceLocationPointJdbcService.deleteAllForUser(user);
         this.significantPlaceJdbcService.deleteForUser(user);
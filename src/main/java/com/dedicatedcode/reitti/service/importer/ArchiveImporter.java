@@ -0,0 +1,222 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.jobs.JobType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports compressed uploads, a Google Takeout .zip or a single gzip compressed file, without extracting them first.
+ * Every entry is detected by its name or, for JSON files, by its first property and streamed directly into the
+ * matching importer. FIT files of a zip are the exception, they are decoded in parallel by the
+ * {@link MultiFileImportService} and promoted together.
+ */
+@Component
+public class ArchiveImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveImporter.class);
+    private static final int SNIFF_BYTES = 4096;
+    private static final Pattern FIRST_PROPERTY = Pattern.compile("^\\s*\\{\\s*\"([^\"]*)\"");
+
+    enum Format {GPX, FIT, GEOJSON, GOOGLE_RECORDS, GOOGLE_TIMELINE_ANDROID, GOOGLE_TIMELINE_IOS}
+
+    private final GpxImporter gpxImporter;
+    private final GoogleRecordsImporter googleRecordsImporter;
+    private final GoogleAndroidTimelineImporter googleAndroidTimelineImporter;
+    private final GoogleIOSTimelineImporter googleIOSTimelineImporter;
+    private final GeoJsonImporter geoJsonImporter;
+    private final FitFileImporter fitFileImporter;
+    private final MultiFileImportService multiFileImportService;
+
+    public ArchiveImporter(GpxImporter gpxImporter,
+                           GoogleRecordsImporter googleRecordsImporter,
+                           GoogleAndroidTimelineImporter googleAndroidTimelineImporter,
+                           GoogleIOSTimelineImporter googleIOSTimelineImporter,
+                           GeoJsonImporter geoJsonImporter,
+                           FitFileImporter fitFileImporter,
+                           MultiFileImportService multiFileImportService) {
+        this.gpxImporter = gpxImporter;
+        this.googleRecordsImporter = googleRecordsImporter;
+        this.googleAndroidTimelineImporter = googleAndroidTimelineImporter;
+        this.googleIOSTimelineImporter = googleIOSTimelineImporter;
+        this.geoJsonImporter = geoJsonImporter;
+        this.fitFileImporter = fitFileImporter;
+        this.multiFileImportService = multiFileImportService;
+    }
+
+    public Map<String, Object> importArchive(InputStream inputStream, User user, Device device, String originalFilename) {
+        String name = originalFilename != null ? originalFilename : "";
+        List<String> errors = new ArrayList<>();
+        int filesImported = 0;
+        int pointsReceived = 0;
+        long duplicatesSkipped = 0;
+        MultiFileImportService.Session fitFiles = null;
+        try {
+            if (name.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                ZipInputStream zip = new ZipInputStream(inputStream, StandardCharsets.UTF_8);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (entry.getName().toLowerCase(Locale.ROOT).endsWith(".fit")) {
+                        // device exports contain thousands of small FIT files, they are decoded in parallel into one partition
+                        if (fitFiles == null) {
+                            fitFiles = multiFileImportService.openSession(user, device, JobType.FIT_FILE_IMPORT, "Fit File Import - " + name, 0, fitFileImporter::readFit);
+                        }
+                        fitFiles.submit(new MultiFileImportService.ImportFile(entry.getName(), new ByteArrayResource(zip.readAllBytes())));
+                        zip.closeEntry();
+                        continue;
+                    }
+                    Map<String, Object> result = importEntry(zip, entry.getName(), user, device);
+                    if (result != null) {
+                        if (Boolean.TRUE.equals(result.get("success"))) {
+                            filesImported++;
+                            pointsReceived += (Integer) result.getOrDefault("pointsReceived", 0);
+                            duplicatesSkipped += ((Number) result.getOrDefault("duplicatesSkipped", 0L)).longValue();
+                        } else {
+                            errors.add(entry.getName() + ": " + result.get("error"));
+                        }
+                    }
+                    zip.closeEntry();
+                }
+            } else if (name.toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                String innerName = name.substring(0, name.length() - 3);
+                Map<String, Object> result = importEntry(new GZIPInputStream(inputStream), innerName, user, device);
+                if (result == null) {
+                    errors.add(innerName + ": unsupported file format");
+                } else if (Boolean.TRUE.equals(result.get("success"))) {
+                    filesImported++;
+                    pointsReceived += (Integer) result.getOrDefault("pointsReceived", 0);
+                    duplicatesSkipped += ((Number) result.getOrDefault("duplicatesSkipped", 0L)).longValue();
+                } else {
+                    errors.add(innerName + ": " + result.get("error"));
+                }
+            } else {
+                return Map.of("success", false, "error", "Unsupported archive format: " + name);
+            }
+        } catch (IOException e) {
+            logger.error("Error reading archive [{}]", name, e);
+            errors.add(e.getMessage());
+        }
+        if (fitFiles != null) {
+            Map<String, Object> result = fitFiles.finish();
+            filesImported += (Integer) result.get("filesImported");
+            pointsReceived += (Integer) result.get("pointsReceived");
+            duplicatesSkipped += ((Number) result.get("duplicatesSkipped")).longValue();
+            @SuppressWarnings("unchecked")
+            List<String> fitErrors = (List<String>) result.get("errors");
+            errors.addAll(fitErrors);
+        }
+
+        logger.info("Imported {} file(s) with {} location points from archive [{}] for user [{}]", filesImported, pointsReceived, name, user.getUsername());
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", filesImported > 0);
+        result.put("filesImported", filesImported);
+        result.put("pointsReceived", pointsReceived);
+        result.put("duplicatesSkipped", duplicatesSkipped);
+        if (filesImported == 0 && errors.isEmpty()) {
+            result.put("error", "No supported files found in archive");
+        } else if (!errors.isEmpty()) {
+            result.put("error", String.join(". ", errors));
+        }
+        return result;
+    }
+
+    /**
+     * Imports a single file of any supported format. Compressed files are unpacked on the fly, everything else is
+     * detected like an archive entry.
+     */
+    public Map<String, Object> importFile(InputStream inputStream, User user, Device device, String originalFilename) {
+        String lower = originalFilename.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".zip") || lower.endsWith(".gz")) {
+            return importArchive(inputStream, user, device, originalFilename);
+        }
+        try {
+            Map<String, Object> result = importEntry(inputStream, originalFilename, user, device);
+            return result != null ? result : Map.of("success", false, "error", "Unsupported file format: " + originalFilename);
+        } catch (IOException e) {
+            logger.error("Error reading file [{}]", originalFilename, e);
+            return Map.of("success", false, "error", "Error reading file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hands one entry to its importer. The importers close the stream they are given, so they only get a
+     * non-closing view of the archive. Returns null when the entry is not a supported file.
+     */
+    private Map<String, Object> importEntry(InputStream entryStream, String entryName, User user, Device device) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(StreamUtils.nonClosing(entryStream), SNIFF_BYTES * 2);
+        Format format = detectFormat(entryName, in);
+        if (format == null) {
+            logger.debug("Skipping unsupported archive entry [{}]", entryName);
+            return null;
+        }
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        logger.info("Importing archive entry [{}] as {}", entryName, format);
+        return switch (format) {
+            case GPX -> gpxImporter.importGpx(in, user, device, fileName);
+            case FIT -> fitFileImporter.importFile(in, user, device, fileName);
+            case GEOJSON -> geoJsonImporter.importGeoJson(in, user, device, fileName);
+            case GOOGLE_RECORDS -> googleRecordsImporter.importGoogleRecords(in, user, device, fileName);
+            case GOOGLE_TIMELINE_ANDROID -> googleAndroidTimelineImporter.importTimeline(in, user, device, fileName);
+            case GOOGLE_TIMELINE_IOS -> googleIOSTimelineImporter.importTimeline(in, user, device, fileName);
+        };
+    }
+
+    static Format detectFormat(String entryName, BufferedInputStream in) throws IOException {
+        String lower = entryName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gpx")) {
+            return Format.GPX;
+        }
+        if (lower.endsWith(".fit")) {
+            return Format.FIT;
+        }
+        if (lower.endsWith(".geojson")) {
+            return Format.GEOJSON;
+        }
+        if (!lower.endsWith(".json")) {
+            return null;
+        }
+
+        in.mark(SNIFF_BYTES);
+        byte[] head = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+        String start = new String(head, StandardCharsets.UTF_8);
+        if (start.startsWith("\uFEFF")) {
+            start = start.substring(1);
+        }
+        if (start.stripLeading().startsWith("[")) {
+            return Format.GOOGLE_TIMELINE_IOS;
+        }
+        Matcher matcher = FIRST_PROPERTY.matcher(start);
+        if (!matcher.find()) {
+            return null;
+        }
+        return switch (matcher.group(1)) {
+            case "locations" -> Format.GOOGLE_RECORDS;
+            case "semanticSegments", "rawSignals", "userLocationProfile" -> Format.GOOGLE_TIMELINE_ANDROID;
+            case "type", "features" -> Format.GEOJSON;
+            default -> null;
+        };
+    }
+}
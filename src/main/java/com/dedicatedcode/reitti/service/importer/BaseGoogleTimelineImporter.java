@@ -1,8 +1,6 @@
 package com.dedicatedcode.reitti.service.importer;
 
 import com.dedicatedcode.reitti.dto.LocationPoint;
-import com.dedicatedcode.reitti.model.devices.Device;
-import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +9,7 @@ import tools.jackson.databind.ObjectMapper;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public abstract class BaseGoogleTimelineImporter {
     
@@ -25,14 +24,14 @@ public abstract class BaseGoogleTimelineImporter {
         this.stagingService = stagingService;
     }
 
-    protected int handleVisit(String partitionKey, User user, Device device, ZonedDateTime startTime, ZonedDateTime endTime, LatLng latLng, List<LocationPoint> batch) {
+    protected int handleVisit(ZonedDateTime startTime, ZonedDateTime endTime, LatLng latLng, List<LocationPoint> batch, Consumer<List<LocationPoint>> batchConsumer) {
         logger.info("Found visit at [{}] from start [{}] to end [{}].", latLng, startTime, endTime);
-        createAndScheduleLocationPoint(latLng, startTime, partitionKey,  user, device, batch);
-        createAndScheduleLocationPoint(latLng, endTime, partitionKey, user, device, batch);
+        createAndScheduleLocationPoint(latLng, startTime, batch, batchConsumer);
+        createAndScheduleLocationPoint(latLng, endTime, batch, batchConsumer);
         return 2;
     }
 
-    protected void createAndScheduleLocationPoint(LatLng latLng, ZonedDateTime timestamp, String partitionKey, User user, Device device, List<LocationPoint> batch) {
+    protected void createAndScheduleLocationPoint(LatLng latLng, ZonedDateTime timestamp, List<LocationPoint> batch, Consumer<List<LocationPoint>> batchConsumer) {
         LocationPoint point = new LocationPoint();
         point.setLatitude(latLng.latitude);
         point.setLongitude(latLng.longitude);
@@ -41,7 +40,7 @@ public abstract class BaseGoogleTimelineImporter {
         batch.add(point);
         logger.trace("Created location point at [{}]", point);
         if (batch.size() >= stagingService.getBatchSize()) {
-            stagingService.insertBatch(partitionKey, user, device, batch);
+            batchConsumer.accept(batch);
             batch.clear();
         }
     }
@@ -0,0 +1,329 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.StorageService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Receives large import files in chunks which are appended to a file in the storage. The import starts as soon as
+ * the first chunk arrives and reads the file while it grows, waiting for further chunks. An interrupted upload
+ * keeps every byte received so far and continues from that offset. Importers may finish before the last byte, e.g.
+ * a zip file is done at its central directory, the remaining chunks are still accepted until the upload is complete.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String STORAGE_PREFIX = "imports/uploads/";
+
+    public enum State {UPLOADING, COMPLETE, FAILED, ABORTED}
+
+    public static class OffsetMismatchException extends RuntimeException {
+        private final long currentOffset;
+
+        public OffsetMismatchException(long currentOffset) {
+            super("Upload is at offset " + currentOffset);
+            this.currentOffset = currentOffset;
+        }
+
+        public long getCurrentOffset() {
+            return currentOffset;
+        }
+    }
+
+    public static class Upload {
+        private final String id;
+        private final User user;
+        private final Device device;
+        private final String filename;
+        private final long length;
+        private final Object appendLock = new Object();
+        private long offset;
+        private State state = State.UPLOADING;
+        private Instant lastActivity = Instant.now();
+        private boolean importStarted;
+        private Map<String, Object> importResult;
+
+        private Upload(String id, User user, Device device, String filename, long length) {
+            this.id = id;
+            this.user = user;
+            this.device = device;
+            this.filename = filename;
+            this.length = length;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public synchronized long getOffset() {
+            return offset;
+        }
+
+        public synchronized State getState() {
+            return state;
+        }
+
+        public synchronized Optional<Map<String, Object>> getImportResult() {
+            return Optional.ofNullable(importResult);
+        }
+
+        /**
+         * @return true if this completed an upload whose import has already finished, nobody reads the file anymore
+         */
+        private synchronized boolean received(long offset) {
+            this.offset = offset;
+            boolean completed = state == State.UPLOADING && offset == length;
+            if (completed) {
+                state = State.COMPLETE;
+            }
+            lastActivity = Instant.now();
+            notifyAll();
+            return completed && importResult != null;
+        }
+
+        /**
+         * @return true if no import reads the file anymore
+         */
+        private synchronized boolean failed() {
+            state = State.FAILED;
+            lastActivity = Instant.now();
+            notifyAll();
+            return !importStarted || importResult != null;
+        }
+
+        private synchronized void aborted() {
+            state = State.ABORTED;
+            notifyAll();
+        }
+    }
+
+    private final StorageService storageService;
+    private final ArchiveImporter archiveImporter;
+    private final Duration expiry;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final ExecutorService importers;
+
+    public ChunkedUploadService(StorageService storageService,
+                                ArchiveImporter archiveImporter,
+                                @Value("${reitti.import.uploads.expiry-minutes:60}") long expiryMinutes,
+                                @Value("${reitti.import.uploads.max-concurrent-imports:2}") int maxConcurrentImports) {
+        this.storageService = storageService;
+        this.archiveImporter = archiveImporter;
+        this.expiry = Duration.ofMinutes(expiryMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.importers = Executors.newFixedThreadPool(maxConcurrentImports, runnable -> {
+            Thread thread = new Thread(runnable, "chunked-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Upload create(User user, Device device, String filename, long length) {
+        String id = UUID.randomUUID().toString();
+        storageService.store(STORAGE_PREFIX + id, new ByteArrayInputStream(new byte[0]), 0, null);
+        Upload upload = new Upload(id, user, device, filename, length);
+        uploads.put(id, upload);
+        logger.info("Created upload [{}] for file [{}] with {} bytes for user [{}]", id, filename, length, user.getUsername());
+        return upload;
+    }
+
+    public Optional<Upload> find(User user, String id) {
+        return Optional.ofNullable(uploads.get(id)).filter(upload -> Objects.equals(upload.user.getId(), user.getId()));
+    }
+
+    /**
+     * Appends a chunk at the given offset. Concurrent chunks for the same upload are serialized, a chunk which does
+     * not start at the current offset is rejected.
+     *
+     * @return the offset after the chunk
+     * @throws IllegalArgumentException if the chunk exceeds the announced length, the upload fails and a running
+     *                                  import stops without importing anything of it
+     */
+    public long append(Upload upload, long offset, InputStream content) {
+        synchronized (upload.appendLock) {
+            if (upload.getState() != State.UPLOADING) {
+                throw new IllegalStateException("Upload is " + upload.getState().name().toLowerCase());
+            }
+            if (upload.getOffset() != offset) {
+                throw new OffsetMismatchException(upload.getOffset());
+            }
+            String itemName = STORAGE_PREFIX + upload.id;
+            try {
+                storageService.append(itemName, content, offset, upload.length - offset);
+            } catch (IllegalArgumentException e) {
+                // the file is not what the client announced, its first bytes must not be imported as if complete
+                logger.warn("Upload [{}] exceeded its length of {} bytes", upload.id, upload.length);
+                if (upload.failed()) {
+                    storageService.remove(itemName);
+                }
+                throw e;
+            } finally {
+                // whatever reached the disk counts, a broken connection resumes from there
+                if (upload.received(storageService.size(itemName))) {
+                    storageService.remove(itemName);
+                }
+                startImportIfNeeded(upload);
+            }
+            return upload.getOffset();
+        }
+    }
+
+    public void abort(Upload upload) {
+        upload.aborted();
+        uploads.remove(upload.id);
+        storageService.remove(STORAGE_PREFIX + upload.id);
+        logger.info("Aborted upload [{}]", upload.id);
+    }
+
+    @Scheduled(fixedDelayString = "${reitti.import.uploads.cleanup-interval-ms:300000}")
+    public void removeExpired() {
+        Instant cutoff = Instant.now().minus(expiry);
+        uploads.values().forEach(upload -> {
+            boolean expired;
+            synchronized (upload) {
+                // a complete upload without result is still being imported
+                expired = upload.lastActivity.isBefore(cutoff)
+                        && (upload.state != State.COMPLETE || upload.importResult != null);
+            }
+            if (expired) {
+                logger.info("Removing expired upload [{}] at offset {} of {}", upload.id, upload.getOffset(), upload.length);
+                abort(upload);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importers.shutdownNow();
+    }
+
+    private void startImportIfNeeded(Upload upload) {
+        synchronized (upload) {
+            if (upload.importStarted || upload.offset == 0 || upload.state == State.FAILED) {
+                return;
+            }
+            upload.importStarted = true;
+        }
+        importers.submit(() -> {
+            Map<String, Object> result;
+            try (InputStream inputStream = new UploadInputStream(upload, storageService.read(STORAGE_PREFIX + upload.id).getInputStream())) {
+                result = archiveImporter.importFile(inputStream, upload.user, upload.device, upload.filename);
+            } catch (Exception e) {
+                logger.error("Error importing upload [{}]", upload.id, e);
+                result = Map.of("success", false, "error", "Error importing file: " + e.getMessage());
+            }
+            boolean remove;
+            synchronized (upload) {
+                upload.importResult = result;
+                if (upload.state == State.UPLOADING && !Boolean.TRUE.equals(result.get("success"))) {
+                    // the import failed before the upload finished, further chunks are pointless
+                    upload.state = State.FAILED;
+                }
+                // an import which finished early leaves removing the file to the last chunk
+                remove = upload.state != State.UPLOADING;
+                upload.lastActivity = Instant.now();
+            }
+            if (remove) {
+                storageService.remove(STORAGE_PREFIX + upload.id);
+            }
+            logger.info("Finished import of upload [{}]: {}", upload.id, result);
+        });
+    }
+
+    /**
+     * Reads the upload file while it is being written. At the end of the received data it waits for the next chunk
+     * and only reports the end of the stream once the upload is complete.
+     */
+    private class UploadInputStream extends InputStream {
+        private final Upload upload;
+        private final InputStream file;
+        private long position;
+
+        UploadInputStream(Upload upload, InputStream file) {
+            this.upload = upload;
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitData();
+            if (available == 0) {
+                return -1;
+            }
+            int read = file.read(b, off, (int) Math.min(len, available));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        private long awaitData() throws IOException {
+            synchronized (upload) {
+                while (true) {
+                    if (upload.state == State.ABORTED || upload.state == State.FAILED) {
+                        throw new IOException("Upload was " + upload.state.name().toLowerCase());
+                    }
+                    if (upload.offset > position) {
+                        return upload.offset - position;
+                    }
+                    if (upload.state == State.COMPLETE) {
+                        return 0;
+                    }
+                    if (upload.lastActivity.isBefore(Instant.now().minus(expiry))) {
+                        throw new IOException("Upload stalled at offset " + upload.offset);
+                    }
+                    try {
+                        upload.wait(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for upload data", e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+}
@@ -7,8 +7,10 @@ import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
 import com.dedicatedcode.reitti.service.jobs.JobType;
 import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
 import com.garmin.fit.Decode;
-import com.garmin.fit.MesgBroadcaster;
-import com.garmin.fit.RecordMesgListener;
+import com.garmin.fit.Mesg;
+import com.garmin.fit.MesgListener;
+import com.garmin.fit.MesgNum;
+import com.garmin.fit.RecordMesg;
 import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,7 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class FitFileImporter {
@@ -33,6 +35,7 @@ public class FitFileImporter {
     private final JobDetail promotionTask;
     private final JobSchedulingService jobSchedulingService;
     private final int graceTimeSeconds;
+    private final ThreadLocal<RecordReader> recordReaders = ThreadLocal.withInitial(RecordReader::new);
 
     public FitFileImporter(LocationPointStagingService stagingService,
                            @Qualifier("promotionJob") JobDetail promotionTask,
@@ -45,49 +48,12 @@ public class FitFileImporter {
     }
 
     public Map<String, Object> importFile(InputStream inputStream, User user, Device device, String originalFilename) {
-        AtomicInteger processedCount = new AtomicInteger(0);
         try {
             logger.info("Importing Fit file for user {} with device {}", user.getUsername(), device.name());
             String partitionKey = UUID.randomUUID().toString();
             this.stagingService.ensurePartitionExists(partitionKey);
 
-            List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
-
-            Decode decode = new Decode();
-            MesgBroadcaster mesgBroadcaster = new MesgBroadcaster(decode);
-            mesgBroadcaster.addListener((RecordMesgListener) mesg -> {
-                if (mesg.getTimestamp() != null && mesg.getPositionLat() != null) {
-                    double lat = mesg.getPositionLat() * (180.0 / Math.pow(2, 31));
-                    double lon = mesg.getPositionLong() * (180.0 / Math.pow(2, 31));
-                    Float altitude = mesg.getEnhancedAltitude();
-                    if (altitude == null) {
-                        altitude = mesg.getAltitude();
-                    }
-                    Short accuracy = mesg.getGpsAccuracy();
-                    LocationPoint point = new LocationPoint();
-                    point.setTimestamp(mesg.getTimestamp().getInstant());
-                    point.setLatitude(lat);
-                    point.setLongitude(lon);
-                    if (accuracy != null) {
-                        point.setAccuracyMeters(Double.valueOf(accuracy));
-                    } else {
-                        point.setAccuracyMeters(10.0);
-                    }
-                    if (altitude != null) {
-                        point.setElevationMeters(Double.valueOf(altitude));
-                    } else {
-                        point.setElevationMeters(0d);
-                    }
-                    batch.add(point);
-                    processedCount.incrementAndGet();
-                    if (batch.size() >= stagingService.getBatchSize()) {
-                        stagingService.insertBatch(partitionKey, user, device, batch);
-                        batch.clear();
-                    }
-                }
-            });
-
-            mesgBroadcaster.run(inputStream);
+            int processedCount = readFit(inputStream, batch -> stagingService.insertBatch(partitionKey, user, device, batch));
 
             UUID parentJobId = jobSchedulingService.createParentJob(
                     user,
@@ -95,13 +61,7 @@ public class FitFileImporter {
                     "Fit File Import - " + originalFilename
             );
 
-
-            // Process any remaining locations
-            if (!batch.isEmpty()) {
-                stagingService.insertBatch(partitionKey, user, device, batch);
-            }
-
-            logger.info("Imported and queued {} location points from Fit file for user [{}]", processedCount.get(), user.getUsername());
+            logger.info("Imported and queued {} location points from Fit file for user [{}]", processedCount, user.getUsername());
 
             JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
                     .user(user)
@@ -112,20 +72,92 @@ public class FitFileImporter {
                                               new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
                                               Instant.now().plusSeconds(graceTimeSeconds),
                                               metadata);
-            if (processedCount.get() == 0) {
+            if (processedCount == 0) {
                 return Map.of("success", false,
                               "error", "No valid location points found in Fit File",
                               "pointsReceived", 0);
             } else {
-                return Map.of(
-                        "success", true,
-                        "message", "Successfully queued " + processedCount.get() + " location points for processing",
-                        "pointsReceived", processedCount.get()
-                );
+                return ImportResults.queued(processedCount, stagingService.getSkippedDuplicates(partitionKey));
             }
         } catch (Exception e) {
             logger.error("Error processing Fit file", e);
             return Map.of("success", false, "error", "Error processing Fit file: " + e.getMessage());
         }
     }
+
+    /**
+     * Decodes the record messages of a FIT file and hands the positions to the consumer in batches. The batch list
+     * is reused, consumers must not keep a reference to it.
+     *
+     * @return the number of positions read
+     */
+    public int readFit(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) {
+        return recordReaders.get().read(inputStream, batchConsumer);
+    }
+
+    /**
+     * Decoding state of one thread. Bulk imports read thousands of small files on the same workers, so the listener
+     * and its batch are kept per thread instead of setting up a broadcaster with its listener tables for every file.
+     * The {@link Decode} itself holds the message definitions and checksum of the current file and is cheap to create.
+     */
+    private final class RecordReader implements MesgListener {
+        private final List<LocationPoint> batch = new ArrayList<>();
+        private Consumer<List<LocationPoint>> batchConsumer;
+        private int processedCount;
+
+        int read(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) {
+            this.batchConsumer = batchConsumer;
+            this.processedCount = 0;
+            this.batch.clear();
+            try {
+                new Decode().read(inputStream, this);
+
+                // Process any remaining locations
+                if (!batch.isEmpty()) {
+                    batchConsumer.accept(batch);
+                }
+                return processedCount;
+            } finally {
+                this.batch.clear();
+                this.batchConsumer = null;
+            }
+        }
+
+        @Override
+        public void onMesg(Mesg message) {
+            if (message.getNum() != MesgNum.RECORD) {
+                return;
+            }
+            RecordMesg mesg = new RecordMesg(message);
+            if (mesg.getTimestamp() != null && mesg.getPositionLat() != null) {
+                double lat = mesg.getPositionLat() * (180.0 / Math.pow(2, 31));
+                double lon = mesg.getPositionLong() * (180.0 / Math.pow(2, 31));
+                Float altitude = mesg.getEnhancedAltitude();
+                if (altitude == null) {
+                    altitude = mesg.getAltitude();
+                }
+                Short accuracy = mesg.getGpsAccuracy();
+                LocationPoint point = new LocationPoint();
+                point.setTimestamp(mesg.getTimestamp().getInstant());
+                point.setLatitude(lat);
+                point.setLongitude(lon);
+                if (accuracy != null) {
+                    point.setAccuracyMeters(Double.valueOf(accuracy));
+                } else {
+                    point.setAccuracyMeters(10.0);
+                }
+                if (altitude != null) {
+                    point.setElevationMeters(Double.valueOf(altitude));
+                } else {
+                    point.setElevationMeters(0d);
+                }
+                batch.add(point);
+                processedCount++;
+                if (batch.size() >= stagingService.getBatchSize()) {
+                    batchConsumer.accept(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
 }
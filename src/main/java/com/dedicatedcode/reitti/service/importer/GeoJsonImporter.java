@@ -13,8 +13,11 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
 
 import java.io.InputStream;
 import java.time.Instant;
@@ -24,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class GeoJsonImporter {
@@ -49,17 +53,10 @@ public class GeoJsonImporter {
     }
 
     public Map<String, Object> importGeoJson(InputStream inputStream, User user, Device device, String originalFilename) {
-        AtomicInteger processedCount = new AtomicInteger(0);
         UUID parentJobId = null;
         String partitionKey = null;
         try {
             logger.info("Importing GeoJSON file for user {}", user.getUsername());
-            JsonNode rootNode = objectMapper.readTree(inputStream);
-
-            // Check if it's a valid GeoJSON
-            if (!rootNode.has("type")) {
-                return Map.of("success", false, "error", "Invalid GeoJSON: missing 'type' field");
-            }
             partitionKey = UUID.randomUUID().toString();
             this.stagingService.ensurePartitionExists(partitionKey);
             parentJobId = jobSchedulingService.createParentJob(
@@ -67,33 +64,83 @@ public class GeoJsonImporter {
                     JobType.GEOJSON_IMPORT,
                     "GeoJson Import - " + originalFilename
             );
-            String type = rootNode.get("type").asText();
+
+            String finalPartitionKey = partitionKey;
+            int processedCount = readGeoJson(inputStream, batch -> stagingService.insertBatch(finalPartitionKey, user, device, batch));
+
+            logger.info("Imported and queued {} location points from GeoJSON file for user [{}]", processedCount, user.getUsername());
+
+            JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
+                    .user(user)
+                    .jobType(JobType.GEOJSON_IMPORT)
+                    .friendlyName("GeoJson Data Promotion")
+                    .build();
+            jobSchedulingService.scheduleTask(promotionTask,
+                                              new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
+                                              Instant.now().plusSeconds(graceTimeSeconds),
+                                              metadata);
+            if (processedCount == 0) {
+                return Map.of("success", false,
+                              "error", "No valid location points found in GeoJSON",
+                              "pointsReceived", 0);
+            } else {
+                return ImportResults.queued(processedCount, stagingService.getSkippedDuplicates(partitionKey));
+            }
+        } catch (IllegalArgumentException e) {
+            abort(parentJobId, partitionKey);
+            return Map.of("success", false, "error", e.getMessage());
+        } catch (JacksonException e) {
+            logger.error("Error processing GeoJSON file", e);
+            abort(parentJobId, partitionKey);
+            return Map.of("success", false, "error", "Error processing GeoJSON file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the document token by token. Features of a FeatureCollection are read one at a time and handed to the
+     * consumer in batches, so memory usage does not depend on the size of the file. The batch list is reused,
+     * consumers must not keep a reference to it.
+     *
+     * @return the number of points read
+     * @throws IllegalArgumentException if the document is not a supported GeoJSON object
+     */
+    public int readGeoJson(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) {
+        AtomicInteger processedCount = new AtomicInteger(0);
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Invalid GeoJSON: missing 'type' field");
+            }
             List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
 
+            // everything but the features array is small and kept as a tree, it is needed for single Features and Points
+            ObjectNode root = objectMapper.createObjectNode();
+            String type = null;
+            boolean hasFeatures = false;
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String fieldName = parser.currentName();
+                parser.nextToken();
+                if ("type".equals(fieldName)) {
+                    type = parser.getValueAsString();
+                    root.put("type", type);
+                } else if ("features".equals(fieldName) && parser.currentToken() == JsonToken.START_ARRAY
+                        && (type == null || "FeatureCollection".equals(type))) {
+                    hasFeatures = true;
+                    processFeatures(parser, batch, processedCount, batchConsumer);
+                } else {
+                    root.set(fieldName, parser.readValueAsTree());
+                }
+            }
+
             switch (type) {
+                case null -> throw new IllegalArgumentException("Invalid GeoJSON: missing 'type' field");
                 case "FeatureCollection" -> {
-                    // Process FeatureCollection
-                    if (!rootNode.has("features")) {
-                        return Map.of("success", false, "error", "Invalid FeatureCollection: missing 'features' array");
-                    }
-
-                    JsonNode features = rootNode.get("features");
-                    for (JsonNode feature : features) {
-                        LocationPoint point = convertGeoJsonFeature(feature);
-                        if (point != null) {
-                            batch.add(point);
-                            processedCount.incrementAndGet();
-
-                            if (batch.size() >= stagingService.getBatchSize()) {
-                                stagingService.insertBatch(partitionKey, user, device, batch);
-                                batch.clear();
-                            }
-                        }
+                    if (!hasFeatures) {
+                        throw new IllegalArgumentException("Invalid FeatureCollection: missing 'features' array");
                     }
                 }
                 case "Feature" -> {
                     // Process single Feature
-                    LocationPoint point = convertGeoJsonFeature(rootNode);
+                    LocationPoint point = convertGeoJsonFeature(root);
                     if (point != null) {
                         batch.add(point);
                         processedCount.incrementAndGet();
@@ -101,52 +148,48 @@ public class GeoJsonImporter {
                 }
                 case "Point" -> {
                     // Process single Point geometry
-                    LocationPoint point = convertGeoJsonGeometry(rootNode, null);
+                    LocationPoint point = convertGeoJsonGeometry(root, null);
                     if (point != null) {
                         batch.add(point);
                         processedCount.incrementAndGet();
                     }
                 }
-                case null, default -> {
-                    return Map.of("success", false, "error", "Unsupported GeoJSON type: " + type + ". Only FeatureCollection, Feature, and Point are supported.");
-                }
+                default -> throw new IllegalArgumentException("Unsupported GeoJSON type: " + type + ". Only FeatureCollection, Feature, and Point are supported.");
             }
 
             // Process any remaining locations
             if (!batch.isEmpty()) {
-                stagingService.insertBatch(partitionKey, user, device, batch);
+                batchConsumer.accept(batch);
             }
+        }
+        return processedCount.get();
+    }
 
-
-            logger.info("Imported and queued {} location points from GeoJSON file for user [{}]", processedCount.get(), user.getUsername());
-
-            JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
-                    .user(user)
-                    .jobType(JobType.GEOJSON_IMPORT)
-                    .friendlyName("GeoJson Data Promotion")
-                    .build();
-            jobSchedulingService.scheduleTask(promotionTask,
-                                              new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
-                                              Instant.now().plusSeconds(graceTimeSeconds),
-                                              metadata);
-            if (processedCount.get() == 0) {
-                return Map.of("success", false,
-                              "error", "No valid location points found in GeoJSON",
-                              "pointsReceived", 0);
-            } else {
-                return Map.of(
-                        "success", true,
-                        "message", "Successfully queued " + processedCount.get() + " location points for processing",
-                        "pointsReceived", processedCount.get()
-                );
+    private void processFeatures(JsonParser parser, List<LocationPoint> batch, AtomicInteger processedCount, Consumer<List<LocationPoint>> batchConsumer) {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
             }
-        } catch (JacksonException e) {
-            logger.error("Error processing GeoJSON file", e);
-            if (parentJobId != null) {
-                this.jobSchedulingService.cancel(parentJobId);
-                this.stagingService.dropPartition(partitionKey);
+            LocationPoint point = convertGeoJsonFeature(parser.readValueAsTree());
+            if (point != null) {
+                batch.add(point);
+                processedCount.incrementAndGet();
+
+                if (batch.size() >= stagingService.getBatchSize()) {
+                    batchConsumer.accept(batch);
+                    batch.clear();
+                }
             }
-            return Map.of("success", false, "error", "Error processing GeoJSON file: " + e.getMessage());
+        }
+    }
+
+    private void abort(UUID parentJobId, String partitionKey) {
+        if (parentJobId != null) {
+            this.jobSchedulingService.cancel(parentJobId);
+        }
+        if (partitionKey != null) {
+            this.stagingService.dropPartition(partitionKey);
         }
     }
 
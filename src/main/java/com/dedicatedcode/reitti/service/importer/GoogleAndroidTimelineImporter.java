@@ -26,6 +26,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class GoogleAndroidTimelineImporter extends BaseGoogleTimelineImporter {
@@ -47,7 +48,6 @@ public class GoogleAndroidTimelineImporter extends BaseGoogleTimelineImporter {
     }
 
     public Map<String, Object> importTimeline(InputStream inputStream, User user, Device device, String originalFilename) {
-        AtomicInteger processedCount = new AtomicInteger(0);
         UUID parentJobId = null;
         String partitionKey = null;
         try {
@@ -60,40 +60,7 @@ public class GoogleAndroidTimelineImporter extends BaseGoogleTimelineImporter {
                     "Google Timeline Android Import - " + originalFilename
             );
             logger.info("Importing Google Timeline Android file for user {}", user.getUsername());
-            JsonParser parser = objectMapper.createParser(inputStream);
-
-            List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
-
-            GoogleTimelineData timelineData = objectMapper.readValue(parser, GoogleTimelineData.class);
-            List<SemanticSegment> semanticSegments = timelineData.getSemanticSegments();
-            logger.info("Found {} semantic segments", semanticSegments.size());
-            for (SemanticSegment semanticSegment : semanticSegments) {
-                ZonedDateTime start = ZonedDateTime.parse(semanticSegment.getStartTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0);
-                ZonedDateTime end = ZonedDateTime.parse(semanticSegment.getEndTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0);
-                if (semanticSegment.getVisit() != null) {
-                    Visit visit = semanticSegment.getVisit();
-                    Optional<LatLng> latLng = parseLatLng(visit.getTopCandidate().getPlaceLocation().getLatLng());
-                    if (latLng.isPresent()) {
-                        latLng.ifPresent(lng -> processedCount.addAndGet(handleVisit(finalPartitionKey, user, device, start, end, lng, batch)));
-                    }
-                }
-
-                if (semanticSegment.getTimelinePath() != null) {
-                    List<TimelinePathPoint> timelinePath = semanticSegment.getTimelinePath();
-                    logger.info("Found timeline path from start [{}] to end [{}]. Will insert [{}] geo locations based on timeline path.", semanticSegment.getStartTime(), semanticSegment.getEndTime(), timelinePath.size());
-                    for (TimelinePathPoint timelinePathPoint : timelinePath) {
-                        parseLatLng(timelinePathPoint.getPoint()).ifPresent(location -> {
-                            createAndScheduleLocationPoint(location, ZonedDateTime.parse(timelinePathPoint.getTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0), finalPartitionKey, user, device, batch);
-                            processedCount.incrementAndGet();
-                        });
-                    }
-                }
-            }
-
-            // Process any remaining locations
-            if (!batch.isEmpty()) {
-                stagingService.insertBatch(partitionKey, user, device, batch);
-            }
+            int processedCount = readTimeline(inputStream, batch -> stagingService.insertBatch(finalPartitionKey, user, device, batch));
 
             JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
                     .user(user)
@@ -106,13 +73,9 @@ public class GoogleAndroidTimelineImporter extends BaseGoogleTimelineImporter {
                                               metadata);
 
             logger.info("Successfully imported and queued {} location points from Google Timeline for user {}", 
-                    processedCount.get(), user.getUsername());
+                    processedCount, user.getUsername());
             
-            return Map.of(
-                    "success", true,
-                    "message", "Successfully queued " + processedCount.get() + " location points for processing",
-                    "pointsReceived", processedCount.get()
-            );
+            return ImportResults.queued(processedCount, stagingService.getSkippedDuplicates(partitionKey));
             
         } catch (JacksonException e) {
             logger.error("Error processing Google Timeline file", e);
@@ -123,4 +86,47 @@ public class GoogleAndroidTimelineImporter extends BaseGoogleTimelineImporter {
             return Map.of("success", false, "error", "Error processing Google Timeline file: " + e.getMessage());
         }
     }
+
+    /**
+     * Converts the visits and timeline paths of an Android timeline export into location points and hands them to
+     * the consumer in batches. The batch list is reused, consumers must not keep a reference to it.
+     *
+     * @return the number of location points created
+     */
+    public int readTimeline(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) {
+        AtomicInteger processedCount = new AtomicInteger(0);
+        JsonParser parser = objectMapper.createParser(inputStream);
+
+        List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
+
+        GoogleTimelineData timelineData = objectMapper.readValue(parser, GoogleTimelineData.class);
+        List<SemanticSegment> semanticSegments = timelineData.getSemanticSegments();
+        logger.info("Found {} semantic segments", semanticSegments.size());
+        for (SemanticSegment semanticSegment : semanticSegments) {
+            ZonedDateTime start = ZonedDateTime.parse(semanticSegment.getStartTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0);
+            ZonedDateTime end = ZonedDateTime.parse(semanticSegment.getEndTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0);
+            if (semanticSegment.getVisit() != null) {
+                Visit visit = semanticSegment.getVisit();
+                Optional<LatLng> latLng = parseLatLng(visit.getTopCandidate().getPlaceLocation().getLatLng());
+                latLng.ifPresent(lng -> processedCount.addAndGet(handleVisit(start, end, lng, batch, batchConsumer)));
+            }
+
+            if (semanticSegment.getTimelinePath() != null) {
+                List<TimelinePathPoint> timelinePath = semanticSegment.getTimelinePath();
+                logger.info("Found timeline path from start [{}] to end [{}]. Will insert [{}] geo locations based on timeline path.", semanticSegment.getStartTime(), semanticSegment.getEndTime(), timelinePath.size());
+                for (TimelinePathPoint timelinePathPoint : timelinePath) {
+                    parseLatLng(timelinePathPoint.getPoint()).ifPresent(location -> {
+                        createAndScheduleLocationPoint(location, ZonedDateTime.parse(timelinePathPoint.getTime(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).withNano(0), batch, batchConsumer);
+                        processedCount.incrementAndGet();
+                    });
+                }
+            }
+        }
+
+        // Process any remaining locations
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        return processedCount.get();
+    }
 }
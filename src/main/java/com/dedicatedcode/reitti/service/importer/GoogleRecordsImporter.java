@@ -6,14 +6,13 @@ import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
 import com.dedicatedcode.reitti.service.jobs.JobType;
 import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import jakarta.annotation.PreDestroy;
 import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import tools.jackson.core.JsonParser;
-import tools.jackson.core.JsonToken;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
@@ -21,43 +20,65 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class GoogleRecordsImporter {
     
     private static final Logger logger = LoggerFactory.getLogger(GoogleRecordsImporter.class);
     
+    private static final int CHUNK_SIZE = 2000;
+
     private final ObjectMapper objectMapper;
     private final LocationPointStagingService stagingService;
     private final JobDetail promotionTask;
     private final JobSchedulingService jobSchedulingService;
     private final int graceTimeSeconds;
+    private final int workerCount;
+    private final ExecutorService decoders;
 
     public GoogleRecordsImporter(ObjectMapper objectMapper,
                                  LocationPointStagingService stagingService,
                                  @Qualifier("promotionJob") JobDetail promotionTask,
                                  JobSchedulingService jobSchedulingService,
-                                 @Value("${reitti.import.grace-time-seconds:300}") int graceTimeSeconds) {
+                                 @Value("${reitti.import.grace-time-seconds:300}") int graceTimeSeconds,
+                                 @Value("${reitti.import.workers:0}") int workerCount) {
         this.objectMapper = objectMapper;
         this.stagingService = stagingService;
         this.promotionTask = promotionTask;
         this.jobSchedulingService = jobSchedulingService;
         this.graceTimeSeconds = graceTimeSeconds;
+        this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.decoders = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "records-decode-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decoders.shutdownNow();
     }
     
     public Map<String, Object> importGoogleRecords(InputStream inputStream, User user, Device device, String originalFilename) {
-        AtomicInteger processedCount = new AtomicInteger(0);
         UUID parentJobId = null;
         String partitionKey = null;
         try {
             logger.info("Importing Google Records file for user {}", user.getUsername());
 
-            JsonParser parser = objectMapper.createParser(inputStream);
             parentJobId = jobSchedulingService.createParentJob(
                     user,
                     JobType.GOOGLE_TIMELINE_IMPORT,
@@ -66,33 +87,11 @@ public class GoogleRecordsImporter {
             partitionKey = UUID.randomUUID().toString();
             stagingService.ensurePartitionExists(partitionKey);
 
-            List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
-            boolean foundData = false;
-            
-            // Look for "locations" array (old Records.json format)
-            while (parser.nextToken() != null) {
-                if (parser.currentToken() == JsonToken.PROPERTY_NAME) {
-                    String fieldName = parser.currentName();
-                    
-                    if ("locations".equals(fieldName)) {
-                        foundData = true;
-                        processedCount.addAndGet(processLocationsArray(parser, batch, user, device, partitionKey));
-                        break;
-                    }
-                }
-            }
-            
-            if (!foundData) {
-                return Map.of("success", false, "error", "Invalid format: 'locations' array not found in Records.json");
-            }
-            
-            // Process any remaining locations
-            if (!batch.isEmpty()) {
-                stagingService.insertBatch(partitionKey, user, device, batch);
-            }
+            String finalPartitionKey = partitionKey;
+            int processedCount = readRecords(inputStream, batch -> stagingService.insertBatch(finalPartitionKey, user, device, batch));
             
             logger.info("Successfully imported and queued {} location points from Google Records for user {}", 
-                    processedCount.get(), user.getUsername());
+                    processedCount, user.getUsername());
             JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
                     .user(user)
                     .jobType(JobType.GOOGLE_TIMELINE_IMPORT)
@@ -103,12 +102,12 @@ public class GoogleRecordsImporter {
                                               Instant.now().plusSeconds(graceTimeSeconds),
                                               metadata);
 
-            return Map.of(
-                    "success", true,
-                    "message", "Successfully queued " + processedCount.get() + " location points for processing",
-                    "pointsReceived", processedCount.get()
-            );
+            return ImportResults.queued(processedCount, stagingService.getSkippedDuplicates(partitionKey));
             
+        } catch (IllegalArgumentException e) {
+            this.jobSchedulingService.cancel(parentJobId);
+            this.stagingService.dropPartition(partitionKey);
+            return Map.of("success", false, "error", e.getMessage());
         } catch (IOException e) {
             logger.error("Error processing Google Records file", e);
             if (parentJobId != null) {
@@ -118,44 +117,123 @@ public class GoogleRecordsImporter {
             return Map.of("success", false, "error", "Error processing Google Records file: " + e.getMessage());
         }
     }
+
+    /**
+     * Reads the "locations" array of a Records.json file and hands the points to the consumer in batches. The batch
+     * list is reused, consumers must not keep a reference to it.
+     *
+     * @return the number of location points read
+     * @throws IllegalArgumentException if the document has no "locations" array
+     */
+    public int readRecords(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) throws IOException {
+        JsonArraySplitter splitter = new JsonArraySplitter(inputStream);
+
+        // Look for "locations" array (old Records.json format)
+        if (!splitter.findArray("locations")) {
+            throw new IllegalArgumentException("Invalid format: 'locations' array not found in Records.json");
+        }
+        return processLocationsArray(splitter, batchConsumer);
+    }
     
     /**
-     * Processes the Records.json format with "locations" array
+     * Processes the Records.json format with "locations" array. The calling thread only cuts the array into the raw
+     * bytes of its location objects, parsing them and the conversion into points run on the decoder pool. Chunks are
+     * collected in the order they were read, so batches reach the consumer in file order. At most two chunks per
+     * worker are in flight, so memory stays bounded regardless of the file size.
      */
-    private int processLocationsArray(JsonParser parser, List<LocationPoint> batch, User user, Device device, String partitionKey) throws IOException {
-        int processedCount = 0;
-        
-        // Move to the array
-        parser.nextToken(); // Should be START_ARRAY
-        
-        if (parser.currentToken() != JsonToken.START_ARRAY) {
-            throw new IOException("Invalid format: 'locations' is not an array");
+    private int processLocationsArray(JsonArraySplitter splitter, Consumer<List<LocationPoint>> batchConsumer) throws IOException {
+        OrderedBatches batches = new OrderedBatches(batchConsumer);
+        List<byte[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        try {
+            byte[] location;
+            while ((location = splitter.nextObject()) != null) {
+                chunk.add(location);
+                if (chunk.size() >= CHUNK_SIZE) {
+                    batches.submit(chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                batches.submit(chunk);
+            }
+            return batches.finish();
+        } finally {
+            batches.cancel();
         }
-        
-        // Process each location in the array
-        while (parser.nextToken() != JsonToken.END_ARRAY) {
-            if (parser.currentToken() == JsonToken.START_OBJECT) {
-                // Parse the location object
-                JsonNode locationNode = parser.readValueAsTree();
-                
-                try {
-                    LocationPoint point = convertGoogleRecordsLocation(locationNode);
-                    if (point != null) {
-                        batch.add(point);
-                        processedCount++;
-
-                        if (batch.size() >= stagingService.getBatchSize()) {
-                            stagingService.insertBatch(partitionKey, user, device, batch);
-                            batch.clear();
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.warn("Error processing location entry: {}", e.getMessage());
+    }
+
+    private List<LocationPoint> decodeChunk(List<byte[]> chunk) {
+        List<LocationPoint> points = new ArrayList<>(chunk.size());
+        for (byte[] location : chunk) {
+            // a malformed entry is skipped like one without coordinates, it must not fail the whole import
+            try {
+                LocationPoint point = convertGoogleRecordsLocation(objectMapper.readTree(location));
+                if (point != null) {
+                    points.add(point);
+                }
+            } catch (Exception e) {
+                logger.warn("Skipping location entry: {}", e.getMessage());
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Keeps the decoded chunks in submission order and cuts them into staging sized batches.
+     */
+    private class OrderedBatches {
+        private final Consumer<List<LocationPoint>> batchConsumer;
+        private final Deque<Future<List<LocationPoint>>> pending = new ArrayDeque<>();
+        private final List<LocationPoint> batch = new ArrayList<>(stagingService.getBatchSize());
+        private int processedCount;
+
+        private OrderedBatches(Consumer<List<LocationPoint>> batchConsumer) {
+            this.batchConsumer = batchConsumer;
+        }
+
+        private void submit(List<byte[]> chunk) throws IOException {
+            pending.addLast(decoders.submit(() -> decodeChunk(chunk)));
+            if (pending.size() >= workerCount * 2) {
+                collectOldest();
+            }
+        }
+
+        private int finish() throws IOException {
+            while (!pending.isEmpty()) {
+                collectOldest();
+            }
+            // Process any remaining locations
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+                batch.clear();
+            }
+            return processedCount;
+        }
+
+        private void cancel() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+
+        private void collectOldest() throws IOException {
+            List<LocationPoint> points;
+            try {
+                points = pending.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decoding locations", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error decoding locations", e.getCause());
+            }
+            processedCount += points.size();
+            for (LocationPoint point : points) {
+                batch.add(point);
+                if (batch.size() >= stagingService.getBatchSize()) {
+                    batchConsumer.accept(batch);
+                    batch.clear();
                 }
             }
         }
-        
-        return processedCount;
     }
     
     /**
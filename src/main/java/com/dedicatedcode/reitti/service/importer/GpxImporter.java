@@ -6,24 +6,25 @@ import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
 import com.dedicatedcode.reitti.service.jobs.JobType;
 import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import com.dedicatedcode.reitti.service.processing.PointColumns;
 import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class GpxImporter {
@@ -32,6 +33,9 @@ public class GpxImporter {
 
     private static final int BATCH_SIZE = 1000;
 
+    // configured once, creating readers from a shared factory is thread safe
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
     private final LocationPointStagingService stagingService;
     private final JobDetail promotionTask;
     private final JobSchedulingService jobSchedulingService;
@@ -62,28 +66,71 @@ public class GpxImporter {
             partitionKey = UUID.randomUUID().toString();
             stagingService.ensurePartitionExists(partitionKey);
 
-            XMLInputFactory factory = XMLInputFactory.newInstance();
-            // Disable external entity processing for security
-            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
-            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            String finalPartitionKey = partitionKey;
+            processedCount.set(readGpx(inputStream, new PointColumns(BATCH_SIZE),
+                                       batch -> stagingService.insertColumns(finalPartitionKey, user, device, batch)));
 
-            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            logger.info("Successfully imported and queued [{}] location points from GPX file for user [{}]", processedCount.get(), user.getUsername());
+            JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
+                    .user(user)
+                    .jobType(JobType.GPX_IMPORT)
+                    .friendlyName("GPS Data Promotion")
+                    .build();
+            jobSchedulingService.scheduleTask(promotionTask,
+                                              new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
+                                              Instant.now().plusSeconds(graceTimeSeconds),
+                                              metadata);
 
-            List<LocationPoint> batch = new ArrayList<>();
-            LocationPoint currentPoint = null;
-            StringBuilder currentText = new StringBuilder();
+            return ImportResults.queued(processedCount.get(), stagingService.getSkippedDuplicates(partitionKey));
 
-            Double currentAccuracyValue = null;
-            Double currentHdopValue = null;
+        } catch (Exception e) {
+            if (parentJobId != null) {
+                this.jobSchedulingService.cancel(parentJobId);
+                this.stagingService.dropPartition(partitionKey);
+            }
+            logger.error("Error processing GPX file", e);
+            return Map.of("success", false, "error", "Error processing GPX file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the track points of a GPX document and hands them to the consumer in batches of {@value #BATCH_SIZE}.
+     * Consumers must not keep a reference to a batch.
+     *
+     * @return the number of track points read
+     */
+    public int readGpx(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) throws XMLStreamException {
+        return readGpx(inputStream, new PointColumns(BATCH_SIZE), columns -> batchConsumer.accept(columns.toLocationPoints()));
+    }
+
+    /**
+     * Parses the track points of a GPX document into the given column buffer without creating objects per point.
+     * Whenever the buffer is full, and once at the end, it is handed to the consumer and cleared afterwards.
+     *
+     * @return the number of track points read
+     */
+    public int readGpx(InputStream inputStream, PointColumns buffer, Consumer<PointColumns> batchConsumer) throws XMLStreamException {
+        int processedCount = 0;
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
 
+        StringBuilder currentText = new StringBuilder(64);
+        boolean inTrackPoint = false;
+        boolean captureText = false;
+        boolean hasTimestamp = false;
+        double latitude = 0;
+        double longitude = 0;
+        double elevation = Double.NaN;
+        double accuracy = Double.NaN;
+        double hdop = Double.NaN;
+        long timestamp = 0;
+
+        try {
             while (reader.hasNext()) {
                 int event = reader.next();
 
                 switch (event) {
-                    case XMLStreamConstants.START_ELEMENT:
+                    case XMLStreamConstants.START_ELEMENT -> {
                         String elementName = reader.getLocalName();
-                        currentText.setLength(0);
-
                         if ("trkpt".equals(elementName)) {
                             String latAttr = reader.getAttributeValue(null, "lat");
                             String lonAttr = reader.getAttributeValue(null, "lon");
@@ -92,124 +139,118 @@ public class GpxImporter {
                                 logger.warn("Track point missing lat or lon attribute, skipping");
                                 continue;
                             }
-
-                            currentPoint = new LocationPoint();
-                            double latitude = Double.parseDouble(latAttr);
-                            double longitude = Double.parseDouble(lonAttr);
-                            currentPoint.setLatitude(latitude);
-                            currentPoint.setLongitude(longitude);
-
-                            currentAccuracyValue = null;
-                            currentHdopValue = null;
+                            inTrackPoint = true;
+                            hasTimestamp = false;
+                            latitude = Double.parseDouble(latAttr);
+                            longitude = Double.parseDouble(lonAttr);
+                            elevation = Double.NaN;
+                            accuracy = Double.NaN;
+                            hdop = Double.NaN;
+                        } else if (inTrackPoint) {
+                            captureText = "time".equals(elementName) || "ele".equals(elementName)
+                                    || "accuracy".equals(elementName) || "hdop".equals(elementName);
+                            currentText.setLength(0);
                         }
-                        break;
-
-                    case XMLStreamConstants.CHARACTERS:
-                        if (currentPoint != null) {
-                            currentText.append(reader.getText());
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                        if (captureText) {
+                            currentText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (!inTrackPoint) {
+                            continue;
                         }
-                        break;
-
-                    case XMLStreamConstants.END_ELEMENT:
                         String endElementName = reader.getLocalName();
-
-                        if ("trkpt".equals(endElementName) && currentPoint != null) {
-                            // Finished processing this track point
-
-                            if (currentPoint.getTimestamp() != null) {
-                                // Determine accuracy from optional <accuracy> or <hdop>
-                                double finalAccuracy;
-                                if (currentAccuracyValue != null) {
-                                    finalAccuracy = currentAccuracyValue;
-                                } else if (currentHdopValue != null) {
-                                    // Map HDOP to metres. Values above 5 indicate poor accuracy.
-                                    finalAccuracy = currentHdopValue > 5.0 ? 120.0 : 10.0;
-                                } else {
-                                    finalAccuracy = 10.0; // default
-                                }
-                                currentPoint.setAccuracyMeters(finalAccuracy);
-
-                                batch.add(currentPoint);
-                                processedCount.incrementAndGet();
-
-                                // Process in batches to avoid memory issues
-                                if (batch.size() >= BATCH_SIZE) {
-                                    stagingService.insertBatch(partitionKey, user, device, batch);
-                                    batch.clear();
-                                }
-                            } else {
+                        captureText = false;
+                        if ("trkpt".equals(endElementName)) {
+                            inTrackPoint = false;
+                            if (!hasTimestamp) {
                                 logger.warn("Track point missing timestamp, skipping");
+                                continue;
                             }
-                            currentPoint = null;
-                        } else if ("time".equals(endElementName) && currentPoint != null) {
-                            String timeStr = currentText.toString().trim();
-                            if (StringUtils.hasText(timeStr)) {
-                                currentPoint.setTimestamp(Instant.parse(timeStr));
-                            }
-                        } else if ("ele".equals(endElementName) && currentPoint != null) {
-                            String elevationStr = currentText.toString().trim();
-                            if (StringUtils.hasText(elevationStr)) {
-                                try {
-                                    double elevation = Double.parseDouble(elevationStr);
-                                    currentPoint.setElevationMeters(elevation);
-                                } catch (NumberFormatException e) {
-                                    // Ignore invalid elevation values
-                                }
+                            // Determine accuracy from optional <accuracy> or <hdop>
+                            double finalAccuracy;
+                            if (!Double.isNaN(accuracy)) {
+                                finalAccuracy = accuracy;
+                            } else if (!Double.isNaN(hdop)) {
+                                // Map HDOP to metres. Values above 5 indicate poor accuracy.
+                                finalAccuracy = hdop > 5.0 ? 120.0 : 10.0;
+                            } else {
+                                finalAccuracy = 10.0; // default
                             }
-                        } else if ("accuracy".equals(endElementName) && currentPoint != null) {
-                            String accStr = currentText.toString().trim();
-                            if (StringUtils.hasText(accStr)) {
-                                try {
-                                    currentAccuracyValue = Double.parseDouble(accStr);
-                                } catch (NumberFormatException ignored) {
-                                    // invalid accuracy value, keep null
-                                }
+                            buffer.add(timestamp, latitude, longitude, elevation, finalAccuracy);
+                            processedCount++;
+
+                            if (buffer.isFull()) {
+                                batchConsumer.accept(buffer);
+                                buffer.clear();
                             }
-                        } else if ("hdop".equals(endElementName) && currentPoint != null) {
-                            String hdopStr = currentText.toString().trim();
-                            if (StringUtils.hasText(hdopStr)) {
-                                try {
-                                    currentHdopValue = Double.parseDouble(hdopStr);
-                                } catch (NumberFormatException ignored) {
-                                    // invalid hdop value, keep null
-                                }
+                        } else if ("time".equals(endElementName)) {
+                            trim(currentText);
+                            if (!currentText.isEmpty()) {
+                                timestamp = IsoTimestamps.parseEpochMicros(currentText);
+                                hasTimestamp = true;
                             }
+                        } else if ("ele".equals(endElementName)) {
+                            // Ignore invalid elevation values
+                            elevation = parseOrNaN(currentText);
+                        } else if ("accuracy".equals(endElementName)) {
+                            // invalid accuracy value, keep unset
+                            accuracy = parseOrNaN(currentText);
+                        } else if ("hdop".equals(endElementName)) {
+                            // invalid hdop value, keep unset
+                            hdop = parseOrNaN(currentText);
                         }
-                        break;
+                    }
+                    default -> {
+                    }
                 }
             }
-
+        } finally {
             reader.close();
+        }
 
-            // Process any remaining locations
-            if (!batch.isEmpty()) {
-                stagingService.insertBatch(partitionKey, user, device, batch);
-            }
-
-            logger.info("Successfully imported and queued [{}] location points from GPX file for user [{}]", processedCount.get(), user.getUsername());
-            JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
-                    .user(user)
-                    .jobType(JobType.GPX_IMPORT)
-                    .friendlyName("GPS Data Promotion")
-                    .build();
-            jobSchedulingService.scheduleTask(promotionTask,
-                                              new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
-                                              Instant.now().plusSeconds(graceTimeSeconds),
-                                              metadata);
+        // Process any remaining locations
+        if (!buffer.isEmpty()) {
+            batchConsumer.accept(buffer);
+            buffer.clear();
+        }
+        return processedCount;
+    }
 
-            return Map.of(
-                    "success", true,
-                    "message", "Successfully queued " + processedCount.get() + " location points for processing",
-                    "pointsReceived", processedCount.get()
-            );
+    private static double parseOrNaN(StringBuilder text) {
+        trim(text);
+        if (text.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
 
-        } catch (Exception e) {
-            if (parentJobId != null) {
-                this.jobSchedulingService.cancel(parentJobId);
-                this.stagingService.dropPartition(partitionKey);
-            }
-            logger.error("Error processing GPX file", e);
-            return Map.of("success", false, "error", "Error processing GPX file: " + e.getMessage());
+    private static void trim(StringBuilder text) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
         }
+        text.setLength(end);
+        int start = 0;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        if (start > 0) {
+            text.delete(0, start);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Disable external entity processing for security
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
     }
 }
@@ -0,0 +1,28 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import java.util.Map;
+
+/**
+ * Result maps the importers hand back to the upload controllers.
+ */
+final class ImportResults {
+
+    private ImportResults() {
+    }
+
+    /**
+     * The result of a file whose points were staged and are waiting for promotion.
+     *
+     * @param pointsReceived    the number of points read from the file
+     * @param duplicatesSkipped the number of those points which were already stored and have not been staged
+     */
+    static Map<String, Object> queued(int pointsReceived, long duplicatesSkipped) {
+        return Map.of(
+                "success", true,
+                "message", "Successfully queued " + (pointsReceived - duplicatesSkipped) + " location points for processing"
+                        + (duplicatesSkipped > 0 ? ", skipped " + duplicatesSkipped + " already imported points" : ""),
+                "pointsReceived", pointsReceived,
+                "duplicatesSkipped", duplicatesSkipped
+        );
+    }
+}
@@ -0,0 +1,224 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.DeviceJdbcService;
+import com.dedicatedcode.reitti.repository.SourceLocationPointJdbcService;
+import com.dedicatedcode.reitti.service.processing.DeviceDayCount;
+import com.dedicatedcode.reitti.service.processing.DuplicatePointFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads an import file with the parsers of the importers but without staging anything, and summarizes what an import
+ * would add: the covered time range, points per day and the data already stored for the same days. With a target
+ * device it also counts the points which the duplicate filter would skip. Only reads from the database.
+ */
+@Service
+public class ImportScanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportScanService.class);
+    private static final int SNIFF_BYTES = 4096;
+
+    public record DaySummary(LocalDate day, long points, long storedPoints) {
+    }
+
+    public record DeviceSummary(Long deviceId, String name, long storedPoints, LocalDate firstDay, LocalDate lastDay) {
+    }
+
+    public record ScanResult(String filename,
+                             List<String> formats,
+                             long points,
+                             long invalidPoints,
+                             Instant start,
+                             Instant end,
+                             Long alreadyStored,
+                             List<DaySummary> days,
+                             List<DeviceSummary> devices,
+                             List<String> errors) {
+    }
+
+    private final GpxImporter gpxImporter;
+    private final GoogleRecordsImporter googleRecordsImporter;
+    private final GoogleAndroidTimelineImporter googleAndroidTimelineImporter;
+    private final GoogleIOSTimelineImporter googleIOSTimelineImporter;
+    private final GeoJsonImporter geoJsonImporter;
+    private final FitFileImporter fitFileImporter;
+    private final SourceLocationPointJdbcService sourceLocationPointJdbcService;
+    private final DeviceJdbcService deviceJdbcService;
+    private final DuplicatePointFilter duplicatePointFilter;
+
+    public ImportScanService(GpxImporter gpxImporter,
+                             GoogleRecordsImporter googleRecordsImporter,
+                             GoogleAndroidTimelineImporter googleAndroidTimelineImporter,
+                             GoogleIOSTimelineImporter googleIOSTimelineImporter,
+                             GeoJsonImporter geoJsonImporter,
+                             FitFileImporter fitFileImporter,
+                             SourceLocationPointJdbcService sourceLocationPointJdbcService,
+                             DeviceJdbcService deviceJdbcService,
+                             DuplicatePointFilter duplicatePointFilter) {
+        this.gpxImporter = gpxImporter;
+        this.googleRecordsImporter = googleRecordsImporter;
+        this.googleAndroidTimelineImporter = googleAndroidTimelineImporter;
+        this.googleIOSTimelineImporter = googleIOSTimelineImporter;
+        this.geoJsonImporter = geoJsonImporter;
+        this.fitFileImporter = fitFileImporter;
+        this.sourceLocationPointJdbcService = sourceLocationPointJdbcService;
+        this.deviceJdbcService = deviceJdbcService;
+        this.duplicatePointFilter = duplicatePointFilter;
+    }
+
+    /**
+     * @param device the device the file would be imported for, null to skip counting already stored points
+     * @throws IllegalArgumentException if the file is not in a supported format
+     */
+    public ScanResult scan(InputStream inputStream, User user, Device device, String originalFilename) {
+        long startNanos = System.nanoTime();
+        Summary summary = new Summary(user, device);
+        String lower = originalFilename.toLowerCase(Locale.ROOT);
+        try {
+            if (lower.endsWith(".zip")) {
+                ZipInputStream zip = new ZipInputStream(inputStream, StandardCharsets.UTF_8);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        scanEntry(zip, entry.getName(), summary);
+                    }
+                    zip.closeEntry();
+                }
+            } else if (lower.endsWith(".gz")) {
+                scanEntry(new GZIPInputStream(inputStream), originalFilename.substring(0, originalFilename.length() - 3), summary);
+            } else if (!scanEntry(inputStream, originalFilename, summary)) {
+                throw new IllegalArgumentException("Unsupported file format: " + originalFilename);
+            }
+        } catch (IOException e) {
+            logger.warn("Error reading [{}] while scanning", originalFilename, e);
+            summary.errors.add(e.getMessage());
+        }
+        if (summary.formats.isEmpty() && summary.errors.isEmpty()) {
+            throw new IllegalArgumentException("No supported files found in " + originalFilename);
+        }
+
+        ScanResult result = summary.toResult(originalFilename);
+        logger.info("Scanned [{}] for user [{}] in {} ms: {} points from {} to {}", originalFilename, user.getUsername(),
+                    (System.nanoTime() - startNanos) / 1_000_000, result.points(), result.start(), result.end());
+        return result;
+    }
+
+    /**
+     * @return false if the entry is not a supported file
+     */
+    private boolean scanEntry(InputStream entryStream, String entryName, Summary summary) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(StreamUtils.nonClosing(entryStream), SNIFF_BYTES * 2);
+        ArchiveImporter.Format format = ArchiveImporter.detectFormat(entryName, in);
+        if (format == null) {
+            return false;
+        }
+        summary.formats.add(format.name());
+        try {
+            switch (format) {
+                case GPX -> gpxImporter.readGpx(in, summary);
+                case FIT -> fitFileImporter.readFit(in, summary);
+                case GEOJSON -> geoJsonImporter.readGeoJson(in, summary);
+                case GOOGLE_RECORDS -> googleRecordsImporter.readRecords(in, summary);
+                case GOOGLE_TIMELINE_ANDROID -> googleAndroidTimelineImporter.readTimeline(in, summary);
+                case GOOGLE_TIMELINE_IOS -> googleIOSTimelineImporter.readTimeline(in, summary);
+            }
+        } catch (Exception e) {
+            logger.debug("Error scanning [{}] as {}", entryName, format, e);
+            summary.errors.add(entryName + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Folds the batches of the parsers into counters, nothing of the batches is kept.
+     */
+    private class Summary implements Consumer<List<LocationPoint>> {
+        private final User user;
+        private final Device device;
+        private final List<String> formats = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private final TreeMap<LocalDate, Long> pointsPerDay = new TreeMap<>();
+        private long points;
+        private long invalidPoints;
+        private long alreadyStored;
+        private Instant start;
+        private Instant end;
+
+        private Summary(User user, Device device) {
+            this.user = user;
+            this.device = device;
+        }
+
+        @Override
+        public void accept(List<LocationPoint> batch) {
+            List<LocationPoint> valid = new ArrayList<>(batch.size());
+            for (LocationPoint point : batch) {
+                if (!point.isValid()) {
+                    invalidPoints++;
+                    continue;
+                }
+                valid.add(point);
+                Instant timestamp = point.getTimestamp();
+                if (start == null || timestamp.isBefore(start)) {
+                    start = timestamp;
+                }
+                if (end == null || timestamp.isAfter(end)) {
+                    end = timestamp;
+                }
+                pointsPerDay.merge(LocalDate.ofInstant(timestamp, ZoneOffset.UTC), 1L, Long::sum);
+            }
+            points += valid.size();
+            if (device != null && !valid.isEmpty()) {
+                alreadyStored += valid.size() - duplicatePointFilter.removeDuplicates(user, device, valid).size();
+            }
+        }
+
+        private ScanResult toResult(String filename) {
+            List<DaySummary> days = new ArrayList<>(pointsPerDay.size());
+            List<DeviceSummary> devices = new ArrayList<>();
+            if (start != null) {
+                List<DeviceDayCount> stored = sourceLocationPointJdbcService.countPerDeviceAndDay(user, start, end);
+                Map<LocalDate, Long> storedPerDay = new TreeMap<>();
+                Map<Long, DeviceSummary> perDevice = new LinkedHashMap<>();
+                Map<Long, String> deviceNames = new LinkedHashMap<>();
+                deviceJdbcService.getAll(user).forEach(d -> deviceNames.put(d.id(), d.name()));
+                for (DeviceDayCount count : stored) {
+                    if (!pointsPerDay.containsKey(count.day())) {
+                        continue;
+                    }
+                    storedPerDay.merge(count.day(), count.count(), Long::sum);
+                    perDevice.merge(count.deviceId(),
+                                    new DeviceSummary(count.deviceId(), deviceNames.get(count.deviceId()), count.count(), count.day(), count.day()),
+                                    (a, b) -> new DeviceSummary(a.deviceId(), a.name(), a.storedPoints() + b.storedPoints(), a.firstDay(), b.lastDay()));
+                }
+                pointsPerDay.forEach((day, count) -> days.add(new DaySummary(day, count, storedPerDay.getOrDefault(day, 0L))));
+                devices.addAll(perDevice.values());
+            }
+            return new ScanResult(filename, formats, points, invalidPoints, start, end,
+                                  device != null ? alreadyStored : null, days, devices, errors);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import java.time.Instant;
+
+/**
+ * Parses ISO-8601 timestamps like {@code 2025-06-17T21:59:44.876Z} or {@code 2025-06-17T23:59:44+02:00} straight
+ * into epoch microseconds, without the intermediate objects of the {@code java.time} parsers. Fractions beyond
+ * microseconds are truncated like the staging tables do. Anything else is handed to {@link Instant#parse}, so
+ * unusual but valid input keeps working and invalid input fails the same way as before.
+ */
+final class IsoTimestamps {
+
+    private IsoTimestamps() {
+    }
+
+    static long parseEpochMicros(CharSequence text) {
+        int length = text.length();
+        if (length < 20 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return fallback(text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return fallback(text);
+        }
+
+        int pos = 19;
+        long micros = 0;
+        if (text.charAt(pos) == '.') {
+            pos++;
+            int fractionDigits = 0;
+            while (pos < length && isDigit(text.charAt(pos))) {
+                if (fractionDigits < 6) {
+                    micros = micros * 10 + (text.charAt(pos) - '0');
+                }
+                fractionDigits++;
+                pos++;
+            }
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                return fallback(text);
+            }
+            for (int i = fractionDigits; i < 6; i++) {
+                micros *= 10;
+            }
+        }
+
+        if (pos >= length) {
+            return fallback(text);
+        }
+        int offsetSeconds;
+        char zone = text.charAt(pos);
+        if (zone == 'Z' && pos + 1 == length) {
+            offsetSeconds = 0;
+        } else if ((zone == '+' || zone == '-') && (length - pos == 6 && text.charAt(pos + 3) == ':' || length - pos == 5)) {
+            int offsetHours = digits(text, pos + 1, 2);
+            int offsetMinutes = digits(text, length - 2, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return fallback(text);
+            }
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+        } else {
+            return fallback(text);
+        }
+
+        long epochSeconds = daysSinceEpoch(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second - offsetSeconds;
+        return epochSeconds * 1_000_000L + micros;
+    }
+
+    private static long fallback(CharSequence text) {
+        Instant instant = Instant.parse(text);
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, see https://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
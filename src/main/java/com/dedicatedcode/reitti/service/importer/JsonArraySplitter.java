@@ -0,0 +1,179 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds an array in a JSON document and cuts its objects into their raw bytes without parsing them, so they can be
+ * parsed on other threads. Only strings and nesting are tracked, the elements themselves are not validated. The
+ * document has to be UTF-8, where brackets and quotes never occur inside multi-byte characters.
+ */
+final class JsonArraySplitter {
+    private static final int EOF = -1;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    // start of the element being scanned, the buffer keeps everything from here on when it is refilled
+    private int start = -1;
+
+    JsonArraySplitter(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Moves behind the opening bracket of the first array stored under the property name, at any depth.
+     *
+     * @return false if the document has no such property
+     * @throws IOException if the property does not hold an array
+     */
+    boolean findArray(String propertyName) throws IOException {
+        byte[] name = propertyName.getBytes(StandardCharsets.UTF_8);
+        int b;
+        while ((b = next()) != EOF) {
+            if (b == '"' && readString(name) && peek() == ':') {
+                next();
+                if (peek() != '[') {
+                    throw new IOException("Invalid format: '" + propertyName + "' is not an array");
+                }
+                next();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next object of the array found by {@link #findArray}, elements which are no objects are skipped.
+     *
+     * @return the bytes of the object, null at the end of the array
+     */
+    byte[] nextObject() throws IOException {
+        while (true) {
+            int b = peek();
+            if (b == EOF) {
+                throw new IOException("Unexpected end of input inside array");
+            }
+            if (b == ']') {
+                next();
+                return null;
+            }
+            if (b == ',') {
+                next();
+                continue;
+            }
+            start = position;
+            skipValue();
+            byte[] element = b == '{' ? Arrays.copyOfRange(buffer, start, position) : null;
+            start = -1;
+            if (element != null) {
+                return element;
+            }
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int b = next();
+        if (b == '"') {
+            readString(null);
+        } else if (b == '{' || b == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                switch (next()) {
+                    case EOF -> throw new IOException("Unexpected end of input inside array");
+                    case '"' -> readString(null);
+                    case '{', '[' -> depth++;
+                    case '}', ']' -> depth--;
+                    default -> {
+                    }
+                }
+            }
+        } else {
+            // number, boolean or null
+            while ((b = peekRaw()) != EOF && b != ',' && b != ']' && b != '}' && !isWhitespace(b)) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Reads up to and including the closing quote of a string whose opening quote has been read.
+     *
+     * @return true if the string equals the expected bytes
+     */
+    private boolean readString(byte[] expected) throws IOException {
+        boolean matches = expected != null;
+        int length = 0;
+        while (true) {
+            int b = next();
+            if (b == EOF) {
+                throw new IOException("Unexpected end of input inside string");
+            }
+            if (b == '"') {
+                return matches && length == expected.length;
+            }
+            if (b == '\\') {
+                if (next() == EOF) {
+                    throw new IOException("Unexpected end of input inside string");
+                }
+                matches = false;
+            } else if (matches && (length >= expected.length || expected[length] != (byte) b)) {
+                matches = false;
+            }
+            length++;
+        }
+    }
+
+    private int peek() throws IOException {
+        int b;
+        while ((b = peekRaw()) != EOF && isWhitespace(b)) {
+            position++;
+        }
+        return b;
+    }
+
+    private int peekRaw() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int keep = start >= 0 ? start : position;
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            limit -= keep;
+            position -= keep;
+            if (start >= 0) {
+                start = 0;
+            }
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read;
+        do {
+            read = in.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
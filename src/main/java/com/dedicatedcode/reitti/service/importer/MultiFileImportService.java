@@ -0,0 +1,311 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.JobMetadataRepository;
+import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
+import com.dedicatedcode.reitti.service.jobs.JobState;
+import com.dedicatedcode.reitti.service.jobs.JobType;
+import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import jakarta.annotation.PreDestroy;
+import org.quartz.JobDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Imports many files of the same format at once. The files are parsed in parallel on a shared, bounded pool of
+ * workers, all points are staged into a single partition and exactly one promotion job is scheduled when every
+ * file has been read. Progress is reported per file on the parent job.
+ */
+@Component
+public class MultiFileImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiFileImportService.class);
+    private static final Comparator<LocationPoint> BY_TIMESTAMP = Comparator.comparing(LocationPoint::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @FunctionalInterface
+    public interface PointReader {
+        /**
+         * Reads all points of one file and hands them to the consumer in batches.
+         *
+         * @return the number of points read
+         */
+        int read(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) throws Exception;
+    }
+
+    public record ImportFile(String filename, InputStreamSource source) {
+    }
+
+    private final LocationPointStagingService stagingService;
+    private final JobSchedulingService jobSchedulingService;
+    private final JobMetadataRepository jobMetadataRepository;
+    private final JobDetail promotionTask;
+    private final int graceTimeSeconds;
+    private final int threads;
+    private final ExecutorService workers;
+
+    public MultiFileImportService(LocationPointStagingService stagingService,
+                                  JobSchedulingService jobSchedulingService,
+                                  JobMetadataRepository jobMetadataRepository,
+                                  @Qualifier("promotionJob") JobDetail promotionTask,
+                                  @Value("${reitti.import.grace-time-seconds:300}") int graceTimeSeconds,
+                                  @Value("${reitti.import.workers:0}") int workerCount) {
+        this.stagingService = stagingService;
+        this.jobSchedulingService = jobSchedulingService;
+        this.jobMetadataRepository = jobMetadataRepository;
+        this.promotionTask = promotionTask;
+        this.graceTimeSeconds = graceTimeSeconds;
+        this.threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "file-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Using {} worker(s) for multi file imports", threads);
+    }
+
+    /**
+     * Imports all files and blocks until every file was read. A file that fails to parse or whose points could not be
+     * staged is reported in the result, points it produced before the error stay staged together with the other files.
+     */
+    public Map<String, Object> importFiles(List<ImportFile> files, User user, Device device, JobType jobType, String friendlyName, PointReader reader) {
+        Session session = openSession(user, device, jobType, friendlyName + " - " + files.size() + " file(s)", files.size(), reader);
+        for (ImportFile file : files) {
+            session.submit(file);
+        }
+        return session.finish();
+    }
+
+    /**
+     * Starts an import whose files are handed over one by one, for sources like archives where the files only become
+     * available while reading. All files end up in one partition with a single promotion, like {@link #importFiles}.
+     *
+     * @param expectedFiles the number of files for the progress report, 0 if unknown
+     */
+    public Session openSession(User user, Device device, JobType jobType, String jobName, int expectedFiles, PointReader reader) {
+        return new Session(user, device, jobType, jobName, expectedFiles, reader);
+    }
+
+    /**
+     * A running multi file import. Files are parsed on the worker pool as they are submitted, at most two per worker
+     * are queued so callers streaming files out of an archive do not buffer all of them. Not thread safe, one caller
+     * submits the files and finishes the session.
+     */
+    public final class Session {
+        private final User user;
+        private final Device device;
+        private final JobType jobType;
+        private final int expectedFiles;
+        private final PointReader reader;
+        private final String partitionKey;
+        private final UUID parentJobId;
+        private final SharedBatch sharedBatch;
+        private final Semaphore queued = new Semaphore(threads * 2);
+        private final AtomicInteger filesSubmitted = new AtomicInteger();
+        private final AtomicInteger filesDone = new AtomicInteger();
+        private final List<String> filenames = new ArrayList<>();
+        private final List<Future<Integer>> futures = new ArrayList<>();
+
+        private Session(User user, Device device, JobType jobType, String jobName, int expectedFiles, PointReader reader) {
+            this.user = user;
+            this.device = device;
+            this.jobType = jobType;
+            this.expectedFiles = expectedFiles;
+            this.reader = reader;
+            this.partitionKey = UUID.randomUUID().toString();
+            stagingService.ensurePartitionExists(partitionKey);
+            this.parentJobId = jobSchedulingService.createParentJob(user, jobType, jobName);
+            jobMetadataRepository.updateState(parentJobId, JobState.RUNNING, Instant.now());
+            this.sharedBatch = new SharedBatch(partitionKey, user, device);
+        }
+
+        /**
+         * Queues the file for parsing, blocks while enough files are waiting for a worker.
+         */
+        public void submit(ImportFile file) {
+            queued.acquireUninterruptibly();
+            int index = filenames.size();
+            filenames.add(file.filename());
+            filesSubmitted.incrementAndGet();
+            futures.add(workers.submit(() -> {
+                try (InputStream inputStream = file.source().getInputStream()) {
+                    int points = reader.read(inputStream, batch -> sharedBatch.add(index, batch));
+                    logger.debug("Read {} location points from [{}]", points, file.filename());
+                    return points;
+                } finally {
+                    queued.release();
+                    int done = filesDone.incrementAndGet();
+                    jobMetadataRepository.updateProgress(parentJobId, done, Math.max(expectedFiles, filesSubmitted.get()), "Read " + file.filename());
+                }
+            }));
+        }
+
+        /**
+         * Waits for all submitted files, stages the remaining points and schedules the promotion, or drops the
+         * partition if no file contained points.
+         */
+        public Map<String, Object> finish() {
+            int[] pointsRead = new int[futures.size()];
+            Map<Integer, String> fileErrors = new HashMap<>();
+            int filesRead = 0;
+            boolean interrupted = false;
+            for (; filesRead < futures.size(); filesRead++) {
+                try {
+                    pointsRead[filesRead] = futures.get(filesRead).get();
+                } catch (ExecutionException e) {
+                    logger.warn("Error processing [{}] for user [{}]", filenames.get(filesRead), user.getUsername(), e.getCause());
+                    fileErrors.put(filesRead, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(future -> future.cancel(true));
+                    interrupted = true;
+                    break;
+                }
+            }
+
+            try {
+                sharedBatch.flush();
+            } catch (RuntimeException e) {
+                logger.error("Error staging location points of partition [{}]", partitionKey, e);
+            }
+            // a batch which could not be staged fails every file that contributed points to it
+            sharedBatch.failures.forEach((file, e) -> fileErrors.put(file, e.getMessage()));
+
+            int filesImported = 0;
+            int pointsReceived = 0;
+            List<String> errors = new ArrayList<>();
+            for (int i = 0; i < filesRead; i++) {
+                if (fileErrors.containsKey(i)) {
+                    errors.add(filenames.get(i) + ": " + fileErrors.get(i));
+                } else if (pointsRead[i] > 0) {
+                    filesImported++;
+                    pointsReceived += pointsRead[i];
+                } else {
+                    errors.add(filenames.get(i) + ": No valid location points found");
+                }
+            }
+            if (interrupted) {
+                errors.add("Import interrupted");
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("filesImported", filesImported);
+            result.put("pointsReceived", pointsReceived);
+            result.put("duplicatesSkipped", stagingService.getSkippedDuplicates(partitionKey));
+            result.put("errors", errors);
+            if (pointsReceived == 0) {
+                jobSchedulingService.cancel(parentJobId);
+                stagingService.dropPartition(partitionKey);
+                result.put("success", false);
+                return result;
+            }
+
+            logger.info("Imported and queued {} location points from {} of {} file(s) for user [{}]", pointsReceived, filesImported, futures.size(), user.getUsername());
+            JobSchedulingService.Metadata metadata = JobSchedulingService.Metadata.builder()
+                    .user(user)
+                    .jobType(jobType)
+                    .friendlyName("GPS Data Promotion")
+                    .build();
+            jobSchedulingService.scheduleTask(promotionTask,
+                                              new PromotionJobHandler.TaskData(user, device, partitionKey, true).withParentJobId(parentJobId),
+                                              Instant.now().plusSeconds(graceTimeSeconds),
+                                              metadata);
+            result.put("success", true);
+            return result;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Collects the points of all workers and writes them to the staging partition in full batches. Staging happens
+     * outside the lock so parsing threads only wait for each other while copying points. The workers deliver their
+     * points interleaved, so every batch is sorted by time before it is staged. A batch that cannot be staged is
+     * recorded as failure of every file that contributed points to it.
+     */
+    private class SharedBatch {
+        private final String partitionKey;
+        private final User user;
+        private final Device device;
+        private final Map<Integer, RuntimeException> failures = new ConcurrentHashMap<>();
+        private List<LocationPoint> points;
+        private Set<Integer> files = new HashSet<>();
+
+        SharedBatch(String partitionKey, User user, Device device) {
+            this.partitionKey = partitionKey;
+            this.user = user;
+            this.device = device;
+            this.points = new ArrayList<>(stagingService.getBatchSize());
+        }
+
+        void add(int file, List<LocationPoint> batch) {
+            List<LocationPoint> full = null;
+            Set<Integer> contributors = null;
+            synchronized (this) {
+                points.addAll(batch);
+                files.add(file);
+                if (points.size() >= stagingService.getBatchSize()) {
+                    full = points;
+                    contributors = files;
+                    points = new ArrayList<>(stagingService.getBatchSize());
+                    files = new HashSet<>();
+                }
+            }
+            if (full != null) {
+                stage(full, contributors);
+            }
+        }
+
+        void flush() {
+            List<LocationPoint> remaining;
+            Set<Integer> contributors;
+            synchronized (this) {
+                remaining = points;
+                contributors = files;
+                points = new ArrayList<>();
+                files = new HashSet<>();
+            }
+            if (!remaining.isEmpty()) {
+                stage(remaining, contributors);
+            }
+        }
+
+        private void stage(List<LocationPoint> batch, Set<Integer> contributors) {
+            batch.sort(BY_TIMESTAMP);
+            try {
+                stagingService.insertBatch(partitionKey, user, device, batch);
+            } catch (RuntimeException e) {
+                contributors.forEach(file -> failures.putIfAbsent(file, e));
+                throw e;
+            }
+        }
+    }
+}
@@ -59,7 +59,7 @@ public class PromotionJobHandler implements Job {
 
         log.debug("Promoted [{}] points into live table", promote);
         if (data.isManual()) {
-            this.stagingService.dropPartition(partitionKey);
+            this.stagingService.dropIfFullyPromoted(partitionKey);
         }
 
         if (user.getUserType() == UserType.LIVE_DATA_ONLY) {
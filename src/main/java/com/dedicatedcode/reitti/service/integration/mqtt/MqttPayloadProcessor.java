@@ -1,9 +1,17 @@
 package com.dedicatedcode.reitti.service.integration.mqtt;
 
+import com.dedicatedcode.reitti.dto.LocationPoint;
 import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.security.User;
 
+import java.util.List;
+
 public interface MqttPayloadProcessor {
     PayloadType getSupportedType();
     void process(User user, Device device, byte[] payload);
+
+    /**
+     * Converts the payload into location points without queueing them, so callers can batch several messages.
+     */
+    List<LocationPoint> parse(User user, byte[] payload);
 }
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import tools.jackson.databind.ObjectMapper;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Service
 public class OwnTracksProcessor implements MqttPayloadProcessor {
@@ -30,33 +31,39 @@ public class OwnTracksProcessor implements MqttPayloadProcessor {
 
     @Override
     public void process(User user, Device device, byte[] payload) {
+        for (LocationPoint point : parse(user, payload)) {
+            this.locationBatchingService.addLocationPoint(user, device, point);
+            logger.debug("Successfully received and queued Owntracks location point for user {}",
+                         user.getUsername());
+        }
+    }
+
+    @Override
+    public List<LocationPoint> parse(User user, byte[] payload) {
         String json = new String(payload, StandardCharsets.UTF_8);
-        logger.info("Processing OwnTracks data for user {}: {}", user, json);
+        logger.debug("Processing OwnTracks data for user {}: {}", user, json);
         try {
             OwntracksLocationRequest request = this.objectMapper.readValue(json, OwntracksLocationRequest.class);
             if (!request.isLocationUpdate()) {
                 logger.debug("Ignoring non-location Owntracks message of type: {}", request.getType());
-                return;
+                return List.of();
             }
 
             LocationPoint locationPoint = request.toLocationPoint();
 
             if (locationPoint.getTimestamp() == null) {
                 logger.warn("Ignoring location point [{}] because timestamp is null", locationPoint);
-                return;
+                return List.of();
             }
 
             if (locationPoint.getAccuracyMeters() == null) {
                 logger.warn("Ignoring location point [{}] because accuracy is null", locationPoint);
-                return;
+                return List.of();
             }
-
-            this.locationBatchingService.addLocationPoint(user, device, locationPoint);
-            logger.debug("Successfully received and queued Owntracks location point for user {}",
-                         user.getUsername());
-
+            return List.of(locationPoint);
         } catch (Exception e) {
             logger.error("Error processing Owntracks data", e);
+            return List.of();
         }
     }
-}
\ No newline at end of file
+}
@@ -27,6 +27,7 @@ public class VisitSensitivityConfigurationRecalculationTask implements Job {
     private final SignificantPlaceJdbcService significantPlaceJdbcService;
     private final RawLocationPointJdbcService rawLocationPointJdbcService;
     private final UserProcessingLock userProcessingLock;
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
 
     public VisitSensitivityConfigurationRecalculationTask(VisitDetectionParametersJdbcService configurationService,
                                                           JobSchedulingService jobSchedulingService,
@@ -35,7 +36,8 @@ public class VisitSensitivityConfigurationRecalculationTask implements Job {
                                                           TripJdbcService tripJdbcService,
                                                           ProcessedVisitJdbcService processedVisitJdbcService,
                                                           SignificantPlaceJdbcService significantPlaceJdbcService, RawLocationPointJdbcService rawLocationPointJdbcService,
-                                                          UserProcessingLock userProcessingLock) {
+                                                          UserProcessingLock userProcessingLock,
+                                                          VisitDetectionStateJdbcService visitDetectionStateJdbcService) {
         this.configurationService = configurationService;
         this.jobSchedulingService = jobSchedulingService;
         this.jobMetadataRepository = jobMetadataRepository;
@@ -45,6 +47,7 @@ public class VisitSensitivityConfigurationRecalculationTask implements Job {
         this.significantPlaceJdbcService = significantPlaceJdbcService;
         this.rawLocationPointJdbcService = rawLocationPointJdbcService;
         this.userProcessingLock = userProcessingLock;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
     }
 
     @Override
@@ -64,6 +67,7 @@ public class VisitSensitivityConfigurationRecalculationTask implements Job {
                 tripJdbcService.deleteAllForUser(user);
                 this.jobMetadataRepository.updateProgress(taskData.getJobId(), 2, 5, "Deleting Visits ...");
                 processedVisitJdbcService.deleteAllForUser(user);
+                visitDetectionStateJdbcService.deleteForUser(user);
                 this.jobMetadataRepository.updateProgress(taskData.getJobId(), 3, 5, "Deleting Places ...");
                 significantPlaceJdbcService.deleteForUser(user);
                 this.jobMetadataRepository.updateProgress(taskData.getJobId(), 4, 5, "Flag points as unprocessed ...");
@@ -0,0 +1,168 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.SpatialCoverageService;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Streams location points into {@code staging_location_points} using {@code COPY ... FROM STDIN (FORMAT binary)}.
+ * Geometries are written as big endian EWKB with SRID 4326, timestamps as microseconds since the PostgreSQL epoch.
+ */
+class BinaryCopyStagingWriter {
+    private static final String COPY_SQL = """
+            COPY staging_location_points (
+                partition_key, timestamp, user_id, device_id, geom, elevation_meters, accuracy_meters, h3_cell
+            ) FROM STDIN (FORMAT binary)
+            """;
+
+    private static final byte[] HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short FIELD_COUNT = 8;
+    private static final long POSTGRES_EPOCH_SECONDS = 946_684_800L;
+    private static final int EWKB_POINT_WITH_SRID = 0x20000001;
+    private static final int EWKB_POINT_LENGTH = 1 + 4 + 4 + 8 + 8;
+    private static final int FLUSH_THRESHOLD_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SpatialCoverageService spatialCoverageService;
+
+    BinaryCopyStagingWriter(JdbcTemplate jdbcTemplate, SpatialCoverageService spatialCoverageService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.spatialCoverageService = spatialCoverageService;
+    }
+
+    long write(String partitionKey, User user, Device device, List<LocationPoint> points) {
+        byte[] partitionKeyBytes = partitionKey.getBytes(StandardCharsets.UTF_8);
+        return copy((out, flusher) -> {
+            for (LocationPoint point : points) {
+                writeRow(out, partitionKeyBytes, user.getId(), device.id(),
+                         toPostgresMicros(point.getTimestamp()), point.getLatitude(), point.getLongitude(),
+                         point.getElevationMeters() != null ? point.getElevationMeters() : Double.NaN,
+                         point.getAccuracyMeters() != null ? point.getAccuracyMeters() : Double.NaN);
+                flusher.flushIfFull();
+            }
+        });
+    }
+
+    long write(String partitionKey, User user, Device device, PointColumns points) {
+        byte[] partitionKeyBytes = partitionKey.getBytes(StandardCharsets.UTF_8);
+        return copy((out, flusher) -> {
+            for (int i = 0; i < points.size(); i++) {
+                writeRow(out, partitionKeyBytes, user.getId(), device.id(),
+                         points.epochMicros(i) - POSTGRES_EPOCH_SECONDS * 1_000_000L, points.latitude(i), points.longitude(i),
+                         points.elevation(i), points.accuracy(i));
+                flusher.flushIfFull();
+            }
+        });
+    }
+
+    private interface RowWriter {
+        void writeRows(DataOutputStream out, Flusher flusher) throws IOException, SQLException;
+    }
+
+    private interface Flusher {
+        void flushIfFull() throws SQLException;
+    }
+
+    private long copy(RowWriter rows) {
+        Long written = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            CopyManager copyManager = new CopyManager(con.unwrap(BaseConnection.class));
+            CopyIn copyIn = copyManager.copyIn(COPY_SQL);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_THRESHOLD_BYTES + 256);
+                DataOutputStream out = new DataOutputStream(buffer);
+                out.write(HEADER);
+                out.writeInt(0);
+                out.writeInt(0);
+
+                rows.writeRows(out, () -> {
+                    if (buffer.size() >= FLUSH_THRESHOLD_BYTES) {
+                        flush(copyIn, buffer);
+                    }
+                });
+                out.writeShort(-1);
+                flush(copyIn, buffer);
+                return copyIn.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Writes one row, NaN elevation or accuracy values are written as NULL.
+     */
+    private void writeRow(DataOutputStream out, byte[] partitionKey, long userId, long deviceId,
+                          long postgresMicros, double latitude, double longitude, double elevation, double accuracy) throws IOException {
+        out.writeShort(FIELD_COUNT);
+
+        out.writeInt(partitionKey.length);
+        out.write(partitionKey);
+
+        out.writeInt(8);
+        out.writeLong(postgresMicros);
+
+        out.writeInt(8);
+        out.writeLong(userId);
+
+        out.writeInt(8);
+        out.writeLong(deviceId);
+
+        out.writeInt(EWKB_POINT_LENGTH);
+        out.writeByte(0);
+        out.writeInt(EWKB_POINT_WITH_SRID);
+        out.writeInt(4326);
+        out.writeDouble(longitude);
+        out.writeDouble(latitude);
+
+        writeNullableDouble(out, elevation);
+        writeNullableDouble(out, accuracy);
+
+        Long h3Cell = spatialCoverageService.getLevelCellForPoint(latitude, longitude, 12);
+        if (h3Cell != null) {
+            out.writeInt(8);
+            out.writeLong(h3Cell);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+    private static void writeNullableDouble(DataOutputStream out, double value) throws IOException {
+        if (!Double.isNaN(value)) {
+            out.writeInt(8);
+            out.writeDouble(value);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+    private static long toPostgresMicros(Instant timestamp) {
+        return Math.multiplyExact(timestamp.getEpochSecond() - POSTGRES_EPOCH_SECONDS, 1_000_000L) + timestamp.getNano() / 1_000;
+    }
+
+    private static void flush(CopyIn copyIn, ByteArrayOutputStream buffer) throws SQLException {
+        if (buffer.size() > 0) {
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            buffer.reset();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import java.time.LocalDate;
+
+public record DeviceDayCount(Long deviceId, LocalDate day, long count) {
+}
@@ -0,0 +1,272 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.StorageService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops points whose timestamp is already stored for the device before they are staged. Every device has a Bloom
+ * filter over the timestamps in {@code raw_source_points}, kept up to date by reading rows above the highest id it
+ * has seen. Points the filter has never seen are new for sure and need no lookup, the remaining candidates are
+ * checked against the database in one query, so false positives never drop a point. The unique constraint on
+ * {@code raw_source_points} stays the final guard for points staged concurrently. Only imports are filtered, live
+ * points are new almost always and must not wait for a filter to be built.
+ */
+@Service
+public class DuplicatePointFilter {
+    private static final Logger log = LoggerFactory.getLogger(DuplicatePointFilter.class);
+    private static final String STORAGE_PREFIX = "dedup/";
+    private static final long MIN_CAPACITY = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StorageService storageService;
+    private final boolean enabled;
+    private final long maxEntries;
+    private final Duration idleTimeout;
+    private final Map<String, DeviceFilter> filters = new ConcurrentHashMap<>();
+
+    private static final class DeviceFilter {
+        private final long userId;
+        private final long deviceId;
+        private TimestampBloomFilter bloom;
+        private boolean tooLarge;
+        private boolean dirty;
+        private Instant lastUsed = Instant.now();
+
+        private DeviceFilter(long userId, long deviceId) {
+            this.userId = userId;
+            this.deviceId = deviceId;
+        }
+
+        private String itemName() {
+            return STORAGE_PREFIX + userId + "-" + deviceId + ".bloom";
+        }
+    }
+
+    public DuplicatePointFilter(JdbcTemplate jdbcTemplate,
+                                StorageService storageService,
+                                @Value("${reitti.import.dedup.enabled:true}") boolean enabled,
+                                @Value("${reitti.import.dedup.max-entries:20000000}") long maxEntries,
+                                @Value("${reitti.import.dedup.idle-minutes:60}") long idleMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.storageService = storageService;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.idleTimeout = Duration.ofMinutes(idleMinutes);
+    }
+
+    /**
+     * @return the points whose timestamp is not yet stored for the device, in their original order
+     */
+    public List<LocationPoint> removeDuplicates(User user, Device device, List<LocationPoint> points) {
+        if (points.isEmpty()) {
+            return points;
+        }
+        long[] timestamps = points.stream().mapToLong(point -> toMicros(point.getTimestamp())).toArray();
+        Set<Long> existing = findStored(user, device, timestamps);
+        if (existing.isEmpty()) {
+            return points;
+        }
+        return points.stream().filter(point -> !existing.contains(toMicros(point.getTimestamp()))).toList();
+    }
+
+    /**
+     * Removes the points whose timestamp is already stored for the device from the batch.
+     *
+     * @return the number of removed points
+     */
+    public int removeDuplicates(User user, Device device, PointColumns points) {
+        if (points.isEmpty()) {
+            return 0;
+        }
+        long[] timestamps = new long[points.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = points.epochMicros(i);
+        }
+        Set<Long> existing = findStored(user, device, timestamps);
+        return existing.isEmpty() ? 0 : points.removeIf(existing::contains);
+    }
+
+    private Set<Long> findStored(User user, Device device, long[] timestamps) {
+        if (!enabled || device == null || device.id() == null) {
+            return Set.of();
+        }
+        DeviceFilter filter = filters.computeIfAbsent(user.getId() + "-" + device.id(), ignored -> new DeviceFilter(user.getId(), device.id()));
+        long[] candidates;
+        synchronized (filter) {
+            filter.lastUsed = Instant.now();
+            if (!ensureLoaded(filter)) {
+                return Set.of();
+            }
+            catchUp(filter);
+            if (filter.bloom.isSaturated()) {
+                log.debug("Dedup filter for device [{}] is full, rebuilding it", filter.deviceId);
+                // the stored copy is older and at most as large, the new filter is sized from the stored points
+                filter.bloom = null;
+                storageService.remove(filter.itemName());
+                if (!ensureLoaded(filter)) {
+                    return Set.of();
+                }
+                catchUp(filter);
+            }
+            TimestampBloomFilter bloom = filter.bloom;
+            candidates = Arrays.stream(timestamps).filter(bloom::mightContain).toArray();
+        }
+        if (candidates.length == 0) {
+            return Set.of();
+        }
+        return findExisting(filter, candidates);
+    }
+
+    private boolean ensureLoaded(DeviceFilter filter) {
+        if (filter.bloom != null) {
+            return true;
+        }
+        if (filter.tooLarge) {
+            return false;
+        }
+        TimestampBloomFilter stored = load(filter);
+        if (stored != null && !stored.isSaturated() && stored.getCoveredId() <= maxStoredId()) {
+            filter.bloom = stored;
+            return true;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM raw_source_points WHERE user_id = ? AND device_id = ?",
+                                                 Long.class, filter.userId, filter.deviceId);
+        long storedPoints = count != null ? count : 0;
+        if (storedPoints > maxEntries) {
+            log.info("Device [{}] has {} points, more than the dedup filter supports, duplicates are only removed on promotion", filter.deviceId, storedPoints);
+            filter.tooLarge = true;
+            return false;
+        }
+        filter.bloom = new TimestampBloomFilter(Math.max(MIN_CAPACITY, storedPoints * 2));
+        filter.dirty = true;
+        return true;
+    }
+
+    /**
+     * A stored filter which has seen ids above the current maximum belongs to a database which has been replaced
+     * since, it would never pick up the rows of the new one.
+     */
+    private long maxStoredId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM raw_source_points", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    /**
+     * Adds the rows stored since the last catch-up. The covered id moves to the global maximum read up front, so the
+     * next catch-up starts there even if this device got no new rows in the meantime.
+     */
+    private void catchUp(DeviceFilter filter) {
+        TimestampBloomFilter bloom = filter.bloom;
+        long before = bloom.getCoveredId();
+        long maxId = maxStoredId();
+        if (maxId <= before) {
+            return;
+        }
+        jdbcTemplate.query("SELECT timestamp FROM raw_source_points WHERE id > ? AND id <= ? AND user_id = ? AND device_id = ?",
+                           rs -> bloom.put(toMicros(rs.getTimestamp("timestamp").toInstant())),
+                           before, maxId, filter.userId, filter.deviceId);
+        bloom.setCoveredId(maxId);
+        filter.dirty = true;
+    }
+
+    private Set<Long> findExisting(DeviceFilter filter, long[] candidates) {
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT timestamp FROM raw_source_points WHERE user_id = ? AND device_id = ? AND timestamp = ANY(?)", ps -> {
+            Timestamp[] timestamps = Arrays.stream(candidates).mapToObj(DuplicatePointFilter::toTimestamp).toArray(Timestamp[]::new);
+            Array sqlArray = ps.getConnection().createArrayOf("timestamptz", timestamps);
+            ps.setLong(1, filter.userId);
+            ps.setLong(2, filter.deviceId);
+            ps.setArray(3, sqlArray);
+        }, rs -> {
+            existing.add(toMicros(rs.getTimestamp("timestamp").toInstant()));
+        });
+        return existing;
+    }
+
+    private TimestampBloomFilter load(DeviceFilter filter) {
+        if (storageService.size(filter.itemName()) == 0) {
+            return null;
+        }
+        try (InputStream in = storageService.read(filter.itemName()).getInputStream()) {
+            return TimestampBloomFilter.readFrom(new DataInputStream(in));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read dedup filter [{}], rebuilding it", filter.itemName(), e);
+            return null;
+        }
+    }
+
+    private void persist(DeviceFilter filter) {
+        if (!filter.dirty || filter.bloom == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                filter.bloom.writeTo(out);
+            }
+            storageService.store(filter.itemName(), new ByteArrayInputStream(bytes.toByteArray()), bytes.size(), "application/octet-stream");
+            filter.dirty = false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not store dedup filter [{}]", filter.itemName(), e);
+        }
+    }
+
+    /**
+     * Writes changed filters to the storage and releases the memory of filters which have not been used for a while.
+     */
+    @Scheduled(fixedDelayString = "${reitti.import.dedup.persist-interval-ms:600000}")
+    public void persistAndEvict() {
+        Instant idleSince = Instant.now().minus(idleTimeout);
+        filters.forEach((key, filter) -> {
+            synchronized (filter) {
+                persist(filter);
+                if (filter.lastUsed.isBefore(idleSince)) {
+                    filters.remove(key);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        filters.values().forEach(filter -> {
+            synchronized (filter) {
+                persist(filter);
+            }
+        });
+    }
+
+    private static Timestamp toTimestamp(long epochMicros) {
+        return Timestamp.from(Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L), Math.floorMod(epochMicros, 1_000_000L) * 1_000L));
+    }
+
+    private static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+}
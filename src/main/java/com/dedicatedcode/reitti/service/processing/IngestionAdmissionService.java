@@ -0,0 +1,158 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether live ingestion requests are accepted. Requests are rejected while the number of staged but not yet
+ * promoted live points or the saturation of the connection pool is above the configured limits. The pending count is
+ * kept in memory by {@link LocationPointStagingService} and periodically reconciled with the database. Only live
+ * partitions are counted: imports are promoted by their own jobs, and a large, stale or failed import must not keep
+ * devices from sending their points.
+ */
+@Service
+public class IngestionAdmissionService {
+    private static final Logger log = LoggerFactory.getLogger(IngestionAdmissionService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final HikariDataSource hikariDataSource;
+    private final boolean enabled;
+    private final long maxPendingPoints;
+    private final double maxPoolSaturation;
+    private final long retryAfterSeconds;
+    private final AtomicLong pendingPoints = new AtomicLong();
+
+    public IngestionAdmissionService(JdbcTemplate jdbcTemplate,
+                                     DataSource dataSource,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${reitti.ingestion.admission.enabled:true}") boolean enabled,
+                                     @Value("${reitti.ingestion.admission.max-pending-points:2000000}") long maxPendingPoints,
+                                     @Value("${reitti.ingestion.admission.max-pool-saturation:0.9}") double maxPoolSaturation,
+                                     @Value("${reitti.ingestion.admission.retry-after-seconds:60}") long retryAfterSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.hikariDataSource = resolveHikari(dataSource);
+        this.enabled = enabled;
+        this.maxPendingPoints = maxPendingPoints;
+        this.maxPoolSaturation = maxPoolSaturation;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("reitti.ingestion.pending.points", pendingPoints, AtomicLong::get)
+                .description("Points which are staged but not yet promoted")
+                .register(meterRegistry);
+        Gauge.builder("reitti.ingestion.pool.saturation", this, IngestionAdmissionService::getPoolSaturation)
+                .description("Share of database connections in use, including threads waiting for one")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks if an ingestion request for the given endpoint should be accepted. Rejections are counted per endpoint
+     * and reason.
+     */
+    public Decision admit(String endpoint) {
+        if (!enabled) {
+            return Decision.ACCEPTED;
+        }
+        Decision decision;
+        if (pendingPoints.get() > maxPendingPoints) {
+            decision = Decision.BACKLOG;
+        } else if (getPoolSaturation() > maxPoolSaturation) {
+            decision = Decision.POOL_SATURATED;
+        } else {
+            return Decision.ACCEPTED;
+        }
+        Counter.builder("reitti.ingestion.rejected")
+                .description("Ingestion requests rejected by admission control")
+                .tag("endpoint", endpoint)
+                .tag("reason", decision.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        log.debug("Rejecting ingestion request to [{}]: {}", endpoint, decision);
+        return decision;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public long getPendingPoints() {
+        return pendingPoints.get();
+    }
+
+    void staged(String partitionKey, long count) {
+        if (LocationPointStagingService.isLivePartition(partitionKey)) {
+            pendingPoints.addAndGet(count);
+        }
+    }
+
+    void promoted(String partitionKey, long count) {
+        if (LocationPointStagingService.isLivePartition(partitionKey)) {
+            pendingPoints.accumulateAndGet(count, (current, promoted) -> Math.max(0, current - promoted));
+        }
+    }
+
+    double getPoolSaturation() {
+        // the pool is only created with the first connection, so the bean has to be looked up every time
+        HikariPoolMXBean pool = hikariDataSource != null ? hikariDataSource.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return 0;
+        }
+        int maximum = hikariDataSource.getMaximumPoolSize();
+        if (maximum <= 0) {
+            return 0;
+        }
+        return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection()) / maximum;
+    }
+
+    @Scheduled(fixedDelayString = "${reitti.ingestion.admission.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // counted per registered live partition, so only those partitions are scanned and only above their watermark
+            Long count = jdbcTemplate.queryForObject("""
+                    SELECT COALESCE(sum(p.pending), 0) FROM partition_registry r
+                    CROSS JOIN LATERAL (
+                        SELECT count(*) AS pending FROM staging_location_points s
+                        WHERE s.partition_key = r.partition_name AND s.id > r.promoted_up_to
+                    ) p
+                    WHERE starts_with(r.partition_name, ?)
+                    """, Long.class, LocationPointStagingService.LIVE_PARTITION_PREFIX);
+            pendingPoints.set(count != null ? count : 0);
+        } catch (Exception e) {
+            log.warn("Failed to reconcile pending staged points", e);
+        }
+    }
+
+    private static HikariDataSource resolveHikari(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.warn("Unable to access the connection pool, pool saturation will not be considered", e);
+        }
+        return null;
+    }
+
+    public enum Decision {
+        ACCEPTED,
+        BACKLOG,
+        POOL_SATURATED
+    }
+}
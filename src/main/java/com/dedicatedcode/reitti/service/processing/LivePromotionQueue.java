@@ -0,0 +1,207 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.UserType;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.UserNotificationService;
+import com.dedicatedcode.reitti.service.importer.PromotionJobHandler;
+import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
+import com.dedicatedcode.reitti.service.jobs.JobType;
+import org.quartz.JobDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process promotion pipeline for live ingestion. Flushed stream partitions are handed to one of a fixed number of
+ * worker partitions (selected by user id, so work for a single user is always serialized), promoted and cleaned up
+ * directly on the worker thread. Repeated flushes of the same staging partition are coalesced while they wait in the
+ * queue. Quartz is only used as a fallback when a worker queue is full or the pipeline is not running.
+ * <p>
+ * Promotion and cleanup run under the {@link UserProcessingLock}, the same lock the scheduled cleanup takes, so both
+ * never work on the data of one user at the same time. The pipeline stops after the web server and before the
+ * batching service hands over its last batches, see {@link #PHASE}.
+ */
+@Service
+public class LivePromotionQueue implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(LivePromotionQueue.class);
+
+    /**
+     * Below the phase of the web server, so no requests arrive anymore when the pipeline stops. Services that submit
+     * work on shutdown use a higher phase to stop before this one.
+     */
+    public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final LocationPointStagingService stagingService;
+    private final LocationDataCleanupTask locationDataCleanupTask;
+    private final LiveModeOnlyUpdateTask liveModeOnlyUpdateTask;
+    private final UserNotificationService userNotificationService;
+    private final JobSchedulingService jobSchedulingService;
+    private final UserProcessingLock userProcessingLock;
+    private final JobDetail promotionTask;
+    private final int workerCount;
+    private final List<LinkedBlockingQueue<String>> queues;
+    private final Map<String, PromotionRequest> pending = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public LivePromotionQueue(LocationPointStagingService stagingService,
+                              LocationDataCleanupTask locationDataCleanupTask,
+                              LiveModeOnlyUpdateTask liveModeOnlyUpdateTask,
+                              UserNotificationService userNotificationService,
+                              JobSchedulingService jobSchedulingService,
+                              UserProcessingLock userProcessingLock,
+                              @Qualifier("promotionJob") JobDetail promotionTask,
+                              @Value("${reitti.batching.promotion.workers:4}") int workerCount,
+                              @Value("${reitti.batching.promotion.queue-capacity:1000}") int queueCapacity) {
+        this.stagingService = stagingService;
+        this.locationDataCleanupTask = locationDataCleanupTask;
+        this.liveModeOnlyUpdateTask = liveModeOnlyUpdateTask;
+        this.userNotificationService = userNotificationService;
+        this.jobSchedulingService = jobSchedulingService;
+        this.userProcessingLock = userProcessingLock;
+        this.promotionTask = promotionTask;
+        this.workerCount = Math.max(1, workerCount);
+        this.queues = new ArrayList<>(this.workerCount);
+        for (int i = 0; i < this.workerCount; i++) {
+            this.queues.add(new LinkedBlockingQueue<>(Math.max(1, queueCapacity)));
+        }
+    }
+
+    public void submit(User user, Device device, String partitionKey) {
+        if (!running) {
+            enqueueFallback(new PromotionRequest(user, device, partitionKey));
+            return;
+        }
+        PromotionRequest request = new PromotionRequest(user, device, partitionKey);
+        if (pending.putIfAbsent(partitionKey, request) != null) {
+            log.trace("Promotion for partition [{}] already queued, coalescing", partitionKey);
+            return;
+        }
+        if (!queues.get(queueIndex(user)).offer(partitionKey)) {
+            pending.remove(partitionKey);
+            log.warn("Live promotion queue is full, falling back to scheduled promotion for partition [{}]", partitionKey);
+            enqueueFallback(request);
+        }
+    }
+
+    public int getQueuedCount() {
+        return pending.size();
+    }
+
+    private int queueIndex(User user) {
+        return Math.floorMod(Long.hashCode(user.getId()), workerCount);
+    }
+
+    private void drain(LinkedBlockingQueue<String> queue) {
+        while (running) {
+            try {
+                String partitionKey = queue.poll(1, TimeUnit.SECONDS);
+                if (partitionKey != null) {
+                    process(partitionKey);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void process(String partitionKey) {
+        PromotionRequest request = pending.remove(partitionKey);
+        if (request == null) {
+            return;
+        }
+        try {
+            userProcessingLock.locked(request.user(), () -> promote(request));
+        } catch (Exception e) {
+            log.error("Failed to promote live partition [{}]", partitionKey, e);
+        }
+    }
+
+    private void promote(PromotionRequest request) {
+        User user = request.user();
+        Device device = request.device();
+        TimeRange timeRange = stagingService.getTimeRange(request.partitionKey());
+        if (timeRange == null) {
+            log.trace("Nothing left to promote in partition [{}]", request.partitionKey());
+            return;
+        }
+        int promoted = stagingService.promote(user, request.partitionKey());
+        log.debug("Promoted [{}] live points from partition [{}]", promoted, request.partitionKey());
+
+        if (user.getUserType() == UserType.LIVE_DATA_ONLY) {
+            liveModeOnlyUpdateTask.execute(new LiveModeOnlyUpdateTask.TaskData(user, device, timeRange.start(), timeRange.end()));
+        } else if (promoted > 0) {
+            userNotificationService.newLocationData(user, device, timeRange);
+            locationDataCleanupTask.execute(new LocationDataCleanupTask.TaskData(user, device, timeRange.start(), timeRange.end()));
+        }
+    }
+
+    private void enqueueFallback(PromotionRequest request) {
+        jobSchedulingService.enqueueTask(promotionTask,
+                                         new PromotionJobHandler.TaskData(request.user(), request.device(), request.partitionKey(), false),
+                                         JobSchedulingService.Metadata.builder()
+                                                 .user(request.user())
+                                                 .jobType(JobType.GPS_INGESTION)
+                                                 .friendlyName("GPS Data Promotion").build());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            LinkedBlockingQueue<String> queue = queues.get(i);
+            Thread worker = new Thread(() -> drain(queue), "live-promotion-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Started live promotion pipeline with [{}] workers", workerCount);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        // workers are not interrupted, that would abort a promotion in the middle of its database work. They finish
+        // what they are doing and notice the stop on their next poll.
+        for (Thread worker : workers) {
+            try {
+                worker.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+        // whatever is still queued is promoted on the calling thread, nothing stays behind in staging
+        for (LinkedBlockingQueue<String> queue : queues) {
+            List<String> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            remaining.forEach(this::process);
+        }
+        log.info("Live promotion pipeline stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private record PromotionRequest(User user, Device device, String partitionKey) {}
+}
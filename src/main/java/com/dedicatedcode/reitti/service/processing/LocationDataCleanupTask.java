@@ -29,6 +29,7 @@ public class LocationDataCleanupTask implements Job {
     private final JobSchedulingService jobScheduler;
     private final JobDetail updateCuratedTimelineTask;
     private final JobMetadataRepository metadataRepository;
+    private final UserProcessingLock userProcessingLock;
 
     public LocationDataCleanupTask(ExcessDensityHandler excessDensityHandler,
                                    AnomalyProcessingService anomalyProcessingService,
@@ -36,7 +37,8 @@ public class LocationDataCleanupTask implements Job {
                                    UserJdbcService userJdbcService,
                                    JobSchedulingService jobScheduler,
                                    @Qualifier("updateCuratedTimelineJob") JobDetail updateCuratedTimelineTask,
-                                   JobMetadataRepository metadataRepository) {
+                                   JobMetadataRepository metadataRepository,
+                                   UserProcessingLock userProcessingLock) {
         this.excessDensityHandler = excessDensityHandler;
         this.anomalyProcessingService = anomalyProcessingService;
         this.userSettingsJdbcService = userSettingsJdbcService;
@@ -44,6 +46,7 @@ public class LocationDataCleanupTask implements Job {
         this.jobScheduler = jobScheduler;
         this.updateCuratedTimelineTask = updateCuratedTimelineTask;
         this.metadataRepository = metadataRepository;
+        this.userProcessingLock = userProcessingLock;
     }
 
     @Override
@@ -54,6 +57,11 @@ public class LocationDataCleanupTask implements Job {
     }
 
     public void execute(TaskData data) {
+        // scheduled runs and the live promotion pipeline both call this, only one of them may clean up a user at a time
+        userProcessingLock.locked(data.getUser(), () -> cleanup(data));
+    }
+
+    private void cleanup(TaskData data) {
         UUID jobId = data.getJobId();
         User user = data.getUser();
         Device device = data.getDevice();
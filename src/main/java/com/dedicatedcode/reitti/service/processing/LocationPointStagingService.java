@@ -5,36 +5,79 @@ import com.dedicatedcode.reitti.model.UserType;
 import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.service.SpatialCoverageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.*;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Stages points into per import or stream partitions of {@code staging_location_points} and promotes them into
+ * {@code raw_source_points}. Promotion is tracked by a per partition watermark in {@code partition_registry}: every
+ * staged row with an id above it still has to be promoted. Inserts into a partition and its promotion are mutually
+ * exclusive, so a promotion can never skip rows of an insert which is committed later with lower ids. The exclusion is
+ * a PostgreSQL advisory lock on the partition key, so it holds across all nodes writing into the same database: inserts
+ * take it shared, promotion and dropping take it exclusively.
+ */
 @Service
 public class LocationPointStagingService {
+    /**
+     * Partitions of live ingestion start with this prefix, imports use a random partition key.
+     */
+    public static final String LIVE_PARTITION_PREFIX = "stream_";
     private static final Logger log = LoggerFactory.getLogger(LocationPointStagingService.class);
+    private static final long COPY_RETRY_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
     private final Set<String> initializedPartitions = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> skippedDuplicates = new ConcurrentHashMap<>();
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final SpatialCoverageService spatialCoverageService;
+    private final BinaryCopyStagingWriter copyWriter;
+    private final IngestionAdmissionService admissionService;
+    private final DuplicatePointFilter duplicatePointFilter;
+    private final Timer stagingTimer;
     private final int batchSize;
+    private final boolean copyEnabled;
+    private volatile long copySuspendedUntilNanos;
+    private volatile boolean copySuspended;
 
     public LocationPointStagingService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
                                        SpatialCoverageService spatialCoverageService,
-                                       @Value("${reitti.import.batch-size:1000}") int batchSize) {
+                                       IngestionAdmissionService admissionService,
+                                       DuplicatePointFilter duplicatePointFilter,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${reitti.import.batch-size:1000}") int batchSize,
+                                       @Value("${reitti.import.staging.binary-copy.enabled:true}") boolean copyEnabled) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.spatialCoverageService = spatialCoverageService;
+        this.copyWriter = new BinaryCopyStagingWriter(jdbcTemplate, spatialCoverageService);
+        this.admissionService = admissionService;
+        this.duplicatePointFilter = duplicatePointFilter;
         this.batchSize = batchSize;
+        this.copyEnabled = copyEnabled;
+        this.stagingTimer = Timer.builder("reitti.staging.batches")
+                .description("Time spent staging batches of points, including the duplicate check")
+                .register(meterRegistry);
     }
 
     public void ensurePartitionExists(String partitionKey) {
@@ -57,10 +100,50 @@ public class LocationPointStagingService {
         this.jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName);
         this.jdbcTemplate.update("DELETE FROM partition_registry WHERE partition_name = ?", partitionKey);
         this.initializedPartitions.remove(partitionKey);
+        this.skippedDuplicates.remove(partitionKey);
 
         log.debug("Dropped partition [{}]", tableName);
     }
 
+    /**
+     * Detaches and drops the partition right away if all of its rows have been promoted.
+     *
+     * @return true if the partition has been dropped
+     */
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    public boolean dropIfFullyPromoted(String partitionKey) {
+        String tableName = getTableName(partitionKey);
+        try {
+            // lock, check and drop share the connection of one transaction, the lock is released with the commit
+            Boolean dropped = transactionTemplate.execute(status -> {
+                jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, partitionKey);
+                Boolean pending = jdbcTemplate.queryForObject(
+                        "SELECT EXISTS(SELECT 1 FROM staging_location_points WHERE partition_key = ? AND id > ?)",
+                        Boolean.class, partitionKey, getWatermark(partitionKey));
+                if (Boolean.TRUE.equals(pending)) {
+                    return false;
+                }
+                // a concurrent detach is not possible inside a transaction, the timeout keeps other partitions from
+                // waiting long for the lock on the parent table
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName);
+                jdbcTemplate.update("DELETE FROM partition_registry WHERE partition_name = ?", partitionKey);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(dropped)) {
+                log.warn("Partition [{}] still has unpromoted points, leaving it for the janitor", partitionKey);
+                return false;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not drop partition [{}], leaving it for the janitor", partitionKey, e);
+            return false;
+        }
+        this.initializedPartitions.remove(partitionKey);
+        this.skippedDuplicates.remove(partitionKey);
+        log.debug("Dropped fully promoted partition [{}]", tableName);
+        return true;
+    }
+
     public int getBatchSize() {
         return batchSize;
     }
@@ -70,7 +153,121 @@ public class LocationPointStagingService {
 
     }
 
+    /**
+     * Live partitions are not checked for duplicates, their points are new almost always.
+     */
+    public static boolean isLivePartition(String partitionKey) {
+        return partitionKey.startsWith(LIVE_PARTITION_PREFIX);
+    }
+
+    /**
+     * The number of points dropped by the {@link DuplicatePointFilter} for this partition since it was created.
+     */
+    public long getSkippedDuplicates(String partitionKey) {
+        LongAdder skipped = skippedDuplicates.get(partitionKey);
+        return skipped != null ? skipped.sum() : 0;
+    }
+
     public void insertBatch(String partitionKey, User user, Device device, List<LocationPoint> batch) {
+        stagingTimer.record(() -> stageBatch(partitionKey, user, device, batch));
+    }
+
+    /**
+     * Stages a column wise batch without creating objects per point. Invalid points and points which are already
+     * stored are removed from the batch itself, callers should clear and refill it afterwards.
+     */
+    public void insertColumns(String partitionKey, User user, Device device, PointColumns points) {
+        stagingTimer.record(() -> stageColumns(partitionKey, user, device, points));
+    }
+
+    private void stageBatch(String partitionKey, User user, Device device, List<LocationPoint> batch) {
+        List<LocationPoint> valid = batch.stream().filter(LocationPoint::isValid).toList();
+        List<LocationPoint> filtered = isLivePartition(partitionKey) ? valid : duplicatePointFilter.removeDuplicates(user, device, valid);
+        skipped(partitionKey, valid.size() - filtered.size());
+        if (filtered.isEmpty()) {
+            return;
+        }
+        write(partitionKey, filtered.size(),
+              () -> insertWithCopy(partitionKey, user, device, filtered),
+              () -> insertWithStatements(partitionKey, user, device, filtered));
+    }
+
+    private void stageColumns(String partitionKey, User user, Device device, PointColumns points) {
+        points.removeInvalid();
+        skipped(partitionKey, isLivePartition(partitionKey) ? 0 : duplicatePointFilter.removeDuplicates(user, device, points));
+        if (points.isEmpty()) {
+            return;
+        }
+        write(partitionKey, points.size(),
+              () -> insertWithCopy(partitionKey, user, device, points),
+              () -> insertWithStatements(partitionKey, user, device, points.toLocationPoints()));
+    }
+
+    private void skipped(String partitionKey, int duplicates) {
+        if (duplicates > 0) {
+            skippedDuplicates.computeIfAbsent(partitionKey, ignored -> new LongAdder()).add(duplicates);
+        }
+    }
+
+    /**
+     * Writes with COPY unless it is suspended, falling back to batched inserts if COPY fails.
+     */
+    private void write(String partitionKey, int count, Runnable copy, Runnable statements) {
+        if (useCopy()) {
+            try {
+                lockedWrite(partitionKey, copy);
+                admissionService.staged(partitionKey, count);
+                return;
+            } catch (Exception e) {
+                suspendCopy(e);
+            }
+        }
+        lockedWrite(partitionKey, statements);
+        admissionService.staged(partitionKey, count);
+    }
+
+    /**
+     * Runs the write in its own transaction holding the partition lock shared, so writes into the same partition do not
+     * wait for each other, only for a running promotion.
+     */
+    private void lockedWrite(String partitionKey, Runnable write) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(hashtext(?))", rs -> null, partitionKey);
+            write.run();
+        });
+    }
+
+    private boolean useCopy() {
+        return copyEnabled && (!copySuspended || System.nanoTime() - copySuspendedUntilNanos >= 0);
+    }
+
+    /**
+     * The failed batch falls back to batched inserts. COPY is not tried again for a while, so a broken COPY path does
+     * not cost every batch a failed attempt, but it is used again once the cause, e.g. a restarted database, is gone.
+     */
+    private void suspendCopy(Exception e) {
+        log.warn("Binary COPY into staging failed, using batched inserts for the next {} seconds",
+                 TimeUnit.NANOSECONDS.toSeconds(COPY_RETRY_BACKOFF_NANOS), e);
+        copySuspendedUntilNanos = System.nanoTime() + COPY_RETRY_BACKOFF_NANOS;
+        copySuspended = true;
+    }
+
+    long insertWithCopy(String partitionKey, User user, Device device, List<LocationPoint> points) {
+        long start = System.nanoTime();
+        long written = copyWriter.write(partitionKey, user, device, points);
+        logThroughput("binary COPY", partitionKey, written, start);
+        return written;
+    }
+
+    long insertWithCopy(String partitionKey, User user, Device device, PointColumns points) {
+        long start = System.nanoTime();
+        long written = copyWriter.write(partitionKey, user, device, points);
+        logThroughput("binary COPY", partitionKey, written, start);
+        return written;
+    }
+
+    void insertWithStatements(String partitionKey, User user, Device device, List<LocationPoint> filtered) {
+        long start = System.nanoTime();
         String sql = """
             INSERT INTO staging_location_points (
                 partition_key,
@@ -84,8 +281,6 @@ public class LocationPointStagingService {
             ) VALUES (?, ?, ?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?)
         """;
 
-        List<LocationPoint> filtered = batch.stream().filter(LocationPoint::isValid).toList();
-
         jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
 
             @Override
@@ -112,10 +307,30 @@ public class LocationPointStagingService {
                 return filtered.size();
             }
         });
+        logThroughput("batched inserts", partitionKey, filtered.size(), start);
+    }
+
+    private void logThroughput(String method, String partitionKey, long rows, long startNanos) {
+        if (log.isDebugEnabled()) {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+            log.debug("Staged [{}] points into partition [{}] via {} in {} ms ({} rows/s)",
+                      rows, partitionKey, method, elapsedNanos / 1_000_000, rows * 1_000_000_000L / elapsedNanos);
+        }
     }
 
     @Transactional
     public int promote(User user, String partitionKey) {
+        // released with the commit, inserts of this partition wait until the new watermark is visible
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, partitionKey);
+        long watermark = getWatermarkForUpdate(partitionKey);
+        PendingRange pending = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) AS max_id, COUNT(*) AS count FROM staging_location_points WHERE partition_key = ? AND id > ?",
+                (rs, rowNum) -> new PendingRange(rs.getLong("max_id"), rs.getLong("count")),
+                partitionKey, watermark);
+        if (pending == null || pending.count() == 0) {
+            return 0;
+        }
+
         String sql = """
             INSERT INTO raw_source_points (
                 user_id, device_id, timestamp, accuracy_meters, elevation_meters,
@@ -125,21 +340,25 @@ public class LocationPointStagingService {
                 user_id, device_id, timestamp, accuracy_meters, elevation_meters,
                 geom, false, 0, h3_cell
             FROM staging_location_points
-                    WHERE partition_key = ? AND promoted = FALSE
+                    WHERE partition_key = ? AND id > ? AND id <= ?
             ON CONFLICT (user_id, device_id, timestamp) DO NOTHING
             RETURNING id;
         """;
 
-        List<Long> insertedIds = jdbcTemplate.queryForList(sql, Long.class, partitionKey);
+        List<Long> insertedIds = jdbcTemplate.queryForList(sql, Long.class, partitionKey, watermark, pending.maxId());
         if (user.getUserType() == UserType.NORMAL) {
             spatialCoverageService.postPromotion(insertedIds);
         }
-        this.jdbcTemplate.update("UPDATE staging_location_points SET promoted = TRUE WHERE partition_key = ? AND promoted = FALSE", partitionKey);
+        this.jdbcTemplate.update("""
+            INSERT INTO partition_registry(partition_name, promoted_up_to) VALUES (?, ?)
+            ON CONFLICT (partition_name) DO UPDATE SET promoted_up_to = EXCLUDED.promoted_up_to
+        """, partitionKey, pending.maxId());
+        admissionService.promoted(partitionKey, pending.count());
         return insertedIds.size();
     }
 
     public TimeRange getTimeRange(String partitionKey) {
-        String sql = "SELECT MIN(timestamp) as start_time, MAX(timestamp) as end_time FROM staging_location_points WHERE partition_key = ? AND promoted = FALSE";
+        String sql = "SELECT MIN(timestamp) as start_time, MAX(timestamp) as end_time FROM staging_location_points WHERE partition_key = ? AND id > ?";
         return this.jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
             Timestamp start = rs.getTimestamp("start_time");
             Timestamp end = rs.getTimestamp("end_time");
@@ -149,7 +368,17 @@ public class LocationPointStagingService {
             }
 
             return new TimeRange(start.toInstant(), end.toInstant());
-        }, partitionKey);
+        }, partitionKey, getWatermark(partitionKey));
+    }
+
+    private long getWatermark(String partitionKey) {
+        List<Long> watermark = jdbcTemplate.queryForList("SELECT promoted_up_to FROM partition_registry WHERE partition_name = ?", Long.class, partitionKey);
+        return watermark.isEmpty() ? 0 : watermark.getFirst();
+    }
+
+    private long getWatermarkForUpdate(String partitionKey) {
+        List<Long> watermark = jdbcTemplate.queryForList("SELECT promoted_up_to FROM partition_registry WHERE partition_name = ? FOR UPDATE", Long.class, partitionKey);
+        return watermark.isEmpty() ? 0 : watermark.getFirst();
     }
 
     @Scheduled(cron = "${reitti.import.staging.cleanup.cron}")
@@ -171,6 +400,7 @@ public class LocationPointStagingService {
                 // 3. Remove from registry
                 this.jdbcTemplate.update("DELETE FROM partition_registry WHERE partition_name = ?", part);
                 this.initializedPartitions.remove(part);
+                this.skippedDuplicates.remove(part);
             } catch (Exception e) {
                 log.error("Janitor: Failed to drop partition [{}]", part, e);
             }
@@ -188,4 +418,5 @@ public class LocationPointStagingService {
         });
     }
 
+    private record PendingRange(long maxId, long count) {}
 }
@@ -0,0 +1,128 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * A reusable batch of location points stored column wise in primitive arrays, for importers which produce a lot of
+ * points and should not allocate objects per point. Missing elevations are stored as {@link Double#NaN}.
+ * Not thread safe, a batch belongs to the importer filling it until it is handed to the staging service.
+ */
+public final class PointColumns {
+    private final long[] epochMicros;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] elevations;
+    private final double[] accuracies;
+    private int size;
+
+    public PointColumns(int capacity) {
+        this.epochMicros = new long[capacity];
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.elevations = new double[capacity];
+        this.accuracies = new double[capacity];
+    }
+
+    public void add(long epochMicros, double latitude, double longitude, double elevation, double accuracy) {
+        int i = size++;
+        this.epochMicros[i] = epochMicros;
+        this.latitudes[i] = latitude;
+        this.longitudes[i] = longitude;
+        this.elevations[i] = elevation;
+        this.accuracies[i] = accuracy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == epochMicros.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long epochMicros(int index) {
+        return epochMicros[index];
+    }
+
+    public double latitude(int index) {
+        return latitudes[index];
+    }
+
+    public double longitude(int index) {
+        return longitudes[index];
+    }
+
+    public double elevation(int index) {
+        return elevations[index];
+    }
+
+    public double accuracy(int index) {
+        return accuracies[index];
+    }
+
+    /**
+     * Removes every point whose timestamp matches the predicate, keeping the order of the others.
+     *
+     * @return the number of removed points
+     */
+    int removeIf(LongPredicate timestampFilter) {
+        return removeWhere(i -> timestampFilter.test(epochMicros[i]));
+    }
+
+    /**
+     * Removes the points without coordinates, like {@link LocationPoint#isValid()} does for single points.
+     *
+     * @return the number of removed points
+     */
+    int removeInvalid() {
+        return removeWhere(i -> Double.isNaN(latitudes[i]) || Double.isNaN(longitudes[i]));
+    }
+
+    private int removeWhere(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(i)) {
+                continue;
+            }
+            if (kept != i) {
+                epochMicros[kept] = epochMicros[i];
+                latitudes[kept] = latitudes[i];
+                longitudes[kept] = longitudes[i];
+                elevations[kept] = elevations[i];
+                accuracies[kept] = accuracies[i];
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    public List<LocationPoint> toLocationPoints() {
+        List<LocationPoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocationPoint point = new LocationPoint();
+            point.setTimestamp(Instant.ofEpochSecond(Math.floorDiv(epochMicros[i], 1_000_000L), Math.floorMod(epochMicros[i], 1_000_000L) * 1_000L));
+            point.setLatitude(latitudes[i]);
+            point.setLongitude(longitudes[i]);
+            point.setElevationMeters(Double.isNaN(elevations[i]) ? null : elevations[i]);
+            point.setAccuracyMeters(accuracies[i]);
+            points.add(point);
+        }
+        return points;
+    }
+}
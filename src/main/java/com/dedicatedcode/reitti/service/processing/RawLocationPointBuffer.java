@@ -0,0 +1,114 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The raw points of one time range, loaded once per processing step and kept sorted by timestamp. Timestamps and
+ * coordinates are held as primitive columns, so the points between two visits are found by binary search and measured
+ * without touching the point objects. A slice is a view on the loaded points and copies nothing.
+ */
+final class RawLocationPointBuffer {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final List<RawLocationPoint> points;
+    private final long[] epochNanos;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long fromNanos;
+    private final long toNanos;
+
+    /**
+     * @param points the points of {@code [from, to)} as returned by the query, ordered by timestamp
+     */
+    RawLocationPointBuffer(List<RawLocationPoint> points, Instant from, Instant to) {
+        this.points = points;
+        this.fromNanos = toNanos(from);
+        this.toNanos = toNanos(to);
+        int size = points.size();
+        this.epochNanos = new long[size];
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            RawLocationPoint point = points.get(i);
+            epochNanos[i] = toNanos(point.getTimestamp());
+            latitudes[i] = point.getLatitude();
+            longitudes[i] = point.getLongitude();
+        }
+    }
+
+    /**
+     * @return true if every point of {@code [start, end)} was loaded into this buffer
+     */
+    boolean covers(Instant start, Instant end) {
+        return toNanos(start) >= fromNanos && toNanos(end) <= toNanos;
+    }
+
+    /**
+     * @return the points of {@code [start, end)}, the range has to be covered by this buffer
+     */
+    Slice slice(Instant start, Instant end) {
+        if (!covers(start, end)) {
+            throw new IllegalArgumentException("Range [" + start + ", " + end + ") is not loaded, buffer covers [" + toInstant(fromNanos) + ", " + toInstant(toNanos) + ")");
+        }
+        int from = lowerBound(toNanos(start));
+        int to = Math.max(from, lowerBound(toNanos(end)));
+        return new Slice(from, to);
+    }
+
+    private int lowerBound(long nanos) {
+        int low = 0;
+        int high = epochNanos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochNanos[mid] < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toNanos(Instant instant) {
+        return instant.getEpochSecond() * NANOS_PER_SECOND + instant.getNano();
+    }
+
+    private static Instant toInstant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), Math.floorMod(nanos, NANOS_PER_SECOND));
+    }
+
+    final class Slice {
+        private final int from;
+        private final int to;
+
+        private Slice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        List<RawLocationPoint> points() {
+            return points.subList(from, to);
+        }
+
+        /**
+         * Sum of the distances between consecutive points, the same value {@link GeoUtils#calculateTripDistance} returns
+         * for {@link #points()}.
+         */
+        double travelledDistanceMeters() {
+            double totalDistance = 0.0;
+            for (int i = from; i < to - 1; i++) {
+                totalDistance += GeoUtils.distanceInMeters(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            }
+            return totalDistance;
+        }
+    }
+}
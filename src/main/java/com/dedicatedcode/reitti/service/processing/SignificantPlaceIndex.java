@@ -0,0 +1,90 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.geo.SignificantPlace;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.operation.distance.DistanceOp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory spatial index over the significant places of one user, used for the duration of a single processing run.
+ * It is filled with one query for the area of the run and answers the nearby lookups of visit merging without going
+ * to the database. Places created during the run are added, so later visits of the same run find them.
+ * <p>
+ * Nearby has the meaning of {@code findNearbyPlaces}: the centroid is within the distance, or, for places with a
+ * polygon, the polygon is. Distances are haversine distances, the database measures on the spheroid, so places right
+ * at the edge of the radius can be decided differently by a few decimeters.
+ */
+final class SignificantPlaceIndex {
+
+    private record Entry(SignificantPlace place, Polygon polygon) {
+    }
+
+    private final GeometryFactory geometryFactory;
+    private final Quadtree tree = new Quadtree();
+
+    SignificantPlaceIndex(GeometryFactory geometryFactory, List<SignificantPlace> places) {
+        this.geometryFactory = geometryFactory;
+        places.forEach(this::add);
+    }
+
+    void add(SignificantPlace place) {
+        Polygon polygon = toPolygon(place.getPolygon());
+        Envelope envelope = polygon != null
+                ? polygon.getEnvelopeInternal()
+                : new Envelope(place.getLongitudeCentroid(), place.getLongitudeCentroid(), place.getLatitudeCentroid(), place.getLatitudeCentroid());
+        tree.insert(envelope, new Entry(place, polygon));
+    }
+
+    List<SignificantPlace> findNearby(double latitude, double longitude, double distanceInMeters) {
+        double[] box = GeoUtils.expandBoundingBox(latitude, longitude, latitude, longitude, distanceInMeters);
+        Envelope search = new Envelope(box[1], box[3], box[0], box[2]);
+
+        List<SignificantPlace> result = new ArrayList<>();
+        Point point = null;
+        for (Object candidate : tree.query(search)) {
+            Entry entry = (Entry) candidate;
+            double distance;
+            if (entry.polygon() == null) {
+                distance = GeoUtils.distanceInMeters(latitude, longitude, entry.place().getLatitudeCentroid(), entry.place().getLongitudeCentroid());
+            } else {
+                if (point == null) {
+                    point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+                }
+                if (entry.polygon().covers(point)) {
+                    distance = 0;
+                } else {
+                    Coordinate nearest = DistanceOp.nearestPoints(entry.polygon(), point)[0];
+                    distance = GeoUtils.distanceInMeters(latitude, longitude, nearest.y, nearest.x);
+                }
+            }
+            if (distance <= distanceInMeters) {
+                result.add(entry.place());
+            }
+        }
+        return result;
+    }
+
+    private Polygon toPolygon(List<GeoPoint> polygon) {
+        if (polygon == null || polygon.size() < 3) {
+            return null;
+        }
+        List<Coordinate> coordinates = new ArrayList<>(polygon.size() + 1);
+        polygon.forEach(point -> coordinates.add(new Coordinate(point.longitude(), point.latitude())));
+        if (!coordinates.getFirst().equals2D(coordinates.getLast())) {
+            coordinates.add(coordinates.getFirst());
+        }
+        if (coordinates.size() < 4) {
+            return null;
+        }
+        return geometryFactory.createPolygon(coordinates.toArray(Coordinate[]::new));
+    }
+}
@@ -0,0 +1,338 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+import com.dedicatedcode.reitti.model.geo.StayPoint;
+import com.dedicatedcode.reitti.model.processing.DetectionParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects stay points by walking forward through time-ordered points.
+ * <p>
+ * For each anchor, scans forward including points within stayRadiusMeters of
+ * the running centroid. Points outside the radius are skipped (GPS noise,
+ * transit). If no in-radius point appears within maxGapSeconds of the last
+ * included point, the stay ends.
+ * <p>
+ * Output is chronologically ordered and non-overlapping by construction:
+ * after a valid stay, the scan resumes from the point after the last
+ * included one, guaranteeing the next stay starts strictly later.
+ * <p>
+ * The scan runs over primitive columns instead of the point objects: epoch nanoseconds, latitude and longitude in
+ * radians and the cosine of the latitude. Most radius checks are decided by an equirectangular estimate, only points
+ * close to the radius get the exact haversine distance. The estimate is bounded tightly enough that it never decides
+ * differently than the haversine, so the stay points are identical to a scan with the haversine alone.
+ */
+final class SlidingWindowStayPointDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlidingWindowStayPointDetector.class);
+
+    private static final double EARTH_RADIUS = 6371000;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Up to this difference in radians the estimate stays within 0.03% of the haversine distance.
+    private static final double MAX_ESTIMATE_DELTA = 0.05;
+    private static final double ESTIMATE_TOLERANCE = 1e-3;
+
+    private SlidingWindowStayPointDetector() {
+    }
+
+    static List<StayPoint> detect(List<RawLocationPoint> timeOrderedPoints, DetectionParameter parameter) {
+        if (timeOrderedPoints.size() < 2) {
+            return List.of();
+        }
+
+        final double stayRadiusMeters = parameter.getVisitMerging().getPlaceRadiusMeters();
+        final long minStaySeconds = parameter.getVisitDetection().getMinimumStayTimeInSeconds();
+        final long maxGapSeconds = parameter.getVisitDetection().getMaxMergeTimeBetweenSameStayPoints();
+        // Require enough points that the centroid is meaningful.
+        // At 1 point/15s, 4 points ≈ 1 minute of data.
+        final int minPointsPerStay = Math.max(2, (int) (minStaySeconds / 60));
+
+        Columns columns = new Columns(timeOrderedPoints);
+        int size = columns.size;
+        int[] cluster = new int[size];
+        List<StayPoint> stayPoints = new ArrayList<>();
+
+        int i = 0;
+        while (i < size) {
+            cluster[0] = i;
+            int clusterSize = 1;
+
+            double centroidLat = columns.latitude[i];
+            double centroidLon = columns.longitude[i];
+            double centroidLatRad = columns.latitudeRad[i];
+            double centroidLonRad = columns.longitudeRad[i];
+            double centroidCos = columns.cosLatitude[i];
+
+            int lastIncludedIdx = i;
+            int j = i + 1;
+
+            while (j < size) {
+                // Time since last point that was actually part of this stay
+                long gapSeconds = Math.floorDiv(columns.epochNanos[j] - columns.epochNanos[lastIncludedIdx], NANOS_PER_SECOND);
+
+                if (gapSeconds > maxGapSeconds) {
+                    break;
+                }
+
+                if (isWithinRadius(columns, j, centroidLat, centroidLon, centroidLatRad, centroidLonRad, centroidCos, stayRadiusMeters)) {
+                    cluster[clusterSize++] = j;
+                    centroidLat += (columns.latitude[j] - centroidLat) / clusterSize;
+                    centroidLon += (columns.longitude[j] - centroidLon) / clusterSize;
+                    centroidLatRad = Math.toRadians(centroidLat);
+                    centroidLonRad = Math.toRadians(centroidLon);
+                    centroidCos = Math.cos(centroidLatRad);
+                    lastIncludedIdx = j;
+                }
+                // Outside radius: skip silently. The gap timer runs from
+                // lastIncludedIdx, so transit points just tick the clock
+                // until maxGapSeconds is exceeded.
+                j++;
+            }
+
+            long durationSeconds = Math.floorDiv(columns.epochNanos[cluster[clusterSize - 1]] - columns.epochNanos[cluster[0]], NANOS_PER_SECOND);
+
+            if (durationSeconds >= minStaySeconds && clusterSize >= minPointsPerStay) {
+                List<RawLocationPoint> clusterPoints = new ArrayList<>(clusterSize);
+                for (int k = 0; k < clusterSize; k++) {
+                    clusterPoints.add(timeOrderedPoints.get(cluster[k]));
+                }
+                stayPoints.add(createStayPoint(clusterPoints));
+                i = lastIncludedIdx + 1;
+            } else {
+                i++;
+            }
+        }
+
+        logger.debug("Sliding window: {} stay points from {} points", stayPoints.size(), size);
+        return stayPoints;
+    }
+
+    /**
+     * Decides {@code GeoUtils.distanceInMeters(centroid, point) <= radius}. The haversine distance is
+     * 2R·asin(sqrt(sin²(Δφ/2) + cosφ₁·cosφ₂·sin²(Δλ/2))) and the estimate R·sqrt(Δφ² + cosφ₁·cosφ₂·Δλ²) only drops the
+     * sin and asin terms, which for differences below {@link #MAX_ESTIMATE_DELTA} stay well within
+     * {@link #ESTIMATE_TOLERANCE}. For points further apart the latitude difference alone is a lower bound.
+     */
+    private static boolean isWithinRadius(Columns columns, int index,
+                                          double centroidLat, double centroidLon,
+                                          double centroidLatRad, double centroidLonRad, double centroidCos,
+                                          double radiusMeters) {
+        double deltaLat = columns.latitudeRad[index] - centroidLatRad;
+        double deltaLon = columns.longitudeRad[index] - centroidLonRad;
+        if (Math.abs(deltaLat) <= MAX_ESTIMATE_DELTA && Math.abs(deltaLon) <= MAX_ESTIMATE_DELTA) {
+            double estimate = EARTH_RADIUS * Math.sqrt(deltaLat * deltaLat + centroidCos * columns.cosLatitude[index] * deltaLon * deltaLon);
+            if (estimate > radiusMeters * (1 + ESTIMATE_TOLERANCE)) {
+                return false;
+            }
+            if (estimate < radiusMeters * (1 - ESTIMATE_TOLERANCE)) {
+                return true;
+            }
+        } else if (EARTH_RADIUS * Math.abs(deltaLat) > radiusMeters) {
+            return false;
+        }
+        return GeoUtils.distanceInMeters(centroidLat, centroidLon, columns.latitude[index], columns.longitude[index]) <= radiusMeters;
+    }
+
+    /**
+     * The points as struct of arrays. The timestamps are kept in nanoseconds, so gaps in whole seconds come out exactly
+     * as {@code Duration.between(...).getSeconds()} would compute them.
+     */
+    private static final class Columns {
+        private final int size;
+        private final long[] epochNanos;
+        private final double[] latitude;
+        private final double[] longitude;
+        private final double[] latitudeRad;
+        private final double[] longitudeRad;
+        private final double[] cosLatitude;
+
+        private Columns(List<RawLocationPoint> points) {
+            this.size = points.size();
+            this.epochNanos = new long[size];
+            this.latitude = new double[size];
+            this.longitude = new double[size];
+            this.latitudeRad = new double[size];
+            this.longitudeRad = new double[size];
+            this.cosLatitude = new double[size];
+            for (int i = 0; i < size; i++) {
+                RawLocationPoint point = points.get(i);
+                Instant timestamp = point.getTimestamp();
+                epochNanos[i] = timestamp.getEpochSecond() * NANOS_PER_SECOND + timestamp.getNano();
+                latitude[i] = point.getLatitude();
+                longitude[i] = point.getLongitude();
+                latitudeRad[i] = Math.toRadians(latitude[i]);
+                longitudeRad[i] = Math.toRadians(longitude[i]);
+                cosLatitude[i] = Math.cos(latitudeRad[i]);
+            }
+        }
+    }
+
+    private static StayPoint createStayPoint(List<RawLocationPoint> clusterPoints) {
+        GeoPoint result = weightedCenter(clusterPoints);
+
+        // Get the time range
+        Instant arrivalTime = clusterPoints.getFirst().getTimestamp();
+        Instant departureTime = clusterPoints.getLast().getTimestamp();
+
+        logger.trace("Creating stay point at [{}] with arrival time [{}] and departure time [{}]", result, arrivalTime, departureTime);
+        return new StayPoint(result.latitude(), result.longitude(), arrivalTime, departureTime, clusterPoints);
+    }
+
+    private static GeoPoint weightedCenter(List<RawLocationPoint> clusterPoints) {
+
+        long start = System.currentTimeMillis();
+
+        GeoPoint result;
+        // For small clusters, use the original algorithm
+        if (clusterPoints.size() <= 100) {
+            result = weightedCenterSimple(clusterPoints);
+        } else {
+            // For large clusters, use spatial partitioning for better performance
+            result = weightedCenterOptimized(clusterPoints);
+        }
+        logger.trace("Weighted center calculation took {}ms for [{}] number of points", System.currentTimeMillis() - start, clusterPoints.size());
+        return result;
+    }
+
+    private static GeoPoint weightedCenterSimple(List<RawLocationPoint> clusterPoints) {
+        RawLocationPoint bestPoint = null;
+        double maxDensityScore = 0;
+
+        // For each point, calculate a density score based on nearby points and accuracy
+        for (RawLocationPoint candidate : clusterPoints) {
+            double densityScore = 0;
+
+            for (RawLocationPoint neighbor : clusterPoints) {
+                if (candidate == neighbor) continue;
+
+                double distance = GeoUtils.distanceInMeters(candidate, neighbor);
+                double accuracy = candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
+                        ? candidate.getAccuracyMeters()
+                        : 50.0; // default accuracy if null
+
+                // Points within accuracy radius contribute to density
+                // Closer points and better accuracy contribute more
+                if (distance <= accuracy * 2) {
+                    double proximityWeight = Math.max(0, 1.0 - (distance / (accuracy * 2)));
+                    double accuracyWeight = 1.0 / accuracy;
+                    densityScore += proximityWeight * accuracyWeight;
+                }
+            }
+
+            // Add self-contribution based on accuracy
+            densityScore += 1.0 / (candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
+                    ? candidate.getAccuracyMeters()
+                    : 50.0);
+
+            if (densityScore > maxDensityScore) {
+                maxDensityScore = densityScore;
+                bestPoint = candidate;
+            }
+        }
+
+        // Fallback to first point if no best point found
+        if (bestPoint == null) {
+            bestPoint = clusterPoints.getFirst();
+        }
+
+        return new GeoPoint(bestPoint.getLatitude(), bestPoint.getLongitude());
+    }
+
+    private static GeoPoint weightedCenterOptimized(List<RawLocationPoint> clusterPoints) {
+        // Sample a subset of points for density calculation to improve performance
+        // Use every nth point or random sampling for very large clusters
+        int sampleSize = Math.min(200, clusterPoints.size());
+        List<RawLocationPoint> samplePoints = new ArrayList<>();
+
+        if (clusterPoints.size() <= sampleSize) {
+            samplePoints = clusterPoints;
+        } else {
+            // Take evenly distributed samples
+            int step = clusterPoints.size() / sampleSize;
+            for (int i = 0; i < clusterPoints.size(); i += step) {
+                samplePoints.add(clusterPoints.get(i));
+            }
+        }
+
+        // Use spatial grid approach to avoid distance calculations
+        // Create a grid based on the bounding box of all points
+        double minLat = clusterPoints.stream().mapToDouble(RawLocationPoint::getLatitude).min().orElse(0);
+        double minLon = clusterPoints.stream().mapToDouble(RawLocationPoint::getLongitude).min().orElse(0);
+
+        // Grid cell size approximately 10 meters (rough approximation)
+        double cellSizeLat = 0.0001; // ~11 meters
+        double cellSizeLon = 0.0001; // varies by latitude but roughly 11 meters
+
+        // Create grid map for fast neighbor lookup
+        Map<String, List<RawLocationPoint>> grid = new HashMap<>();
+        for (RawLocationPoint point : clusterPoints) {
+            int gridLat = (int) ((point.getLatitude() - minLat) / cellSizeLat);
+            int gridLon = (int) ((point.getLongitude() - minLon) / cellSizeLon);
+            String gridKey = gridLat + "," + gridLon;
+            grid.computeIfAbsent(gridKey, _ -> new ArrayList<>()).add(point);
+        }
+
+        RawLocationPoint bestPoint = null;
+        double maxDensityScore = 0;
+
+        // Calculate density scores for sample points using grid lookup
+        for (RawLocationPoint candidate : samplePoints) {
+            double accuracy = candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
+                    ? candidate.getAccuracyMeters()
+                    : 50.0;
+
+            // Calculate grid coordinates for candidate
+            int candidateGridLat = (int) ((candidate.getLatitude() - minLat) / cellSizeLat);
+            int candidateGridLon = (int) ((candidate.getLongitude() - minLon) / cellSizeLon);
+
+            // Search radius in grid cells (conservative estimate)
+            int searchRadiusInCells = Math.max(1, (int) (accuracy / 100000)); // rough conversion
+
+            double densityScore = 0;
+
+            // Check neighboring grid cells
+            for (int latOffset = -searchRadiusInCells; latOffset <= searchRadiusInCells; latOffset++) {
+                for (int lonOffset = -searchRadiusInCells; lonOffset <= searchRadiusInCells; lonOffset++) {
+                    String neighborKey = (candidateGridLat + latOffset) + "," + (candidateGridLon + lonOffset);
+                    List<RawLocationPoint> neighbors = grid.get(neighborKey);
+
+                    if (neighbors != null) {
+                        for (RawLocationPoint neighbor : neighbors) {
+                            if (candidate != neighbor) {
+                                // Simple proximity weight based on grid distance
+                                double gridDistance = Math.sqrt(latOffset * latOffset + lonOffset * lonOffset);
+                                double proximityWeight = Math.max(0, 1.0 - (gridDistance / searchRadiusInCells));
+                                densityScore += proximityWeight;
+                            }
+                        }
+                    }
+                }
+            }
+
+            // Combine density with accuracy weight
+            double accuracyWeight = 1.0 / accuracy;
+            densityScore = (densityScore * accuracyWeight) + accuracyWeight;
+
+            if (densityScore > maxDensityScore) {
+                maxDensityScore = densityScore;
+                bestPoint = candidate;
+            }
+        }
+
+        // Fallback to first point if no best point found
+        if (bestPoint == null) {
+            bestPoint = clusterPoints.getFirst();
+        }
+
+        return new GeoPoint(bestPoint.getLatitude(), bestPoint.getLongitude());
+    }
+}
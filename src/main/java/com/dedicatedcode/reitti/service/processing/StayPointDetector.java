@@ -0,0 +1,119 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.processing.DetectionParameter;
+import com.dedicatedcode.reitti.model.processing.StayCandidate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming variant of the sliding window stay point detection, used for live data. Instead of scanning a window of
+ * points again on every run, it keeps the open stay candidate and advances it point by point in constant time and
+ * memory. Its state can be persisted and picked up by the next run, which then only needs the new points.
+ * <p>
+ * A point within the stay radius of the candidate's running centroid is added to it. Points outside are collected into
+ * a pending candidate, which takes over once no in-radius point arrived within the maximum gap. A candidate counts as a
+ * stay when it spans the minimum stay time with enough points, the same thresholds the sliding window uses.
+ */
+final class StayPointDetector {
+
+    record Stay(double latitude, double longitude, Instant start, Instant end) {
+        long durationSeconds() {
+            return Duration.between(start, end).getSeconds();
+        }
+    }
+
+    private final double stayRadiusMeters;
+    private final long minStaySeconds;
+    private final long maxGapSeconds;
+    private final int minPointsPerStay;
+    private final List<Stay> closedStays = new ArrayList<>();
+
+    private StayCandidate current;
+    private StayCandidate pending;
+
+    StayPointDetector(DetectionParameter parameter, StayCandidate current, StayCandidate pending) {
+        this.stayRadiusMeters = parameter.getVisitMerging().getPlaceRadiusMeters();
+        this.minStaySeconds = parameter.getVisitDetection().getMinimumStayTimeInSeconds();
+        this.maxGapSeconds = parameter.getVisitDetection().getMaxMergeTimeBetweenSameStayPoints();
+        this.minPointsPerStay = Math.max(2, (int) (minStaySeconds / 60));
+        this.current = current;
+        this.pending = pending;
+    }
+
+    /**
+     * Consumes the next point, which must not be older than the points before.
+     */
+    void advance(Instant timestamp, double latitude, double longitude) {
+        while (current != null && gapSeconds(current, timestamp) > maxGapSeconds) {
+            if (isStay(current)) {
+                closedStays.add(toStay(current));
+            }
+            current = pending;
+            pending = null;
+        }
+
+        if (current == null) {
+            current = new StayCandidate(latitude, longitude, timestamp, timestamp, 1);
+        } else if (isWithinRadius(current, latitude, longitude)) {
+            current = include(current, timestamp, latitude, longitude);
+        } else if (pending != null && isWithinRadius(pending, latitude, longitude)) {
+            pending = include(pending, timestamp, latitude, longitude);
+        } else if (pending == null || !isStay(pending)) {
+            // the pending candidate moves along with transit points until a stay starts to form
+            pending = new StayCandidate(latitude, longitude, timestamp, timestamp, 1);
+        }
+        // else: noise around an already established pending stay
+    }
+
+    /**
+     * The stays closed so far, followed by the open candidates which already qualify as a stay.
+     */
+    List<Stay> stays() {
+        List<Stay> result = new ArrayList<>(closedStays);
+        if (current != null && isStay(current)) {
+            result.add(toStay(current));
+        }
+        if (pending != null && isStay(pending)) {
+            result.add(toStay(pending));
+        }
+        return result;
+    }
+
+    StayCandidate current() {
+        return current;
+    }
+
+    StayCandidate pending() {
+        return pending;
+    }
+
+    private boolean isStay(StayCandidate candidate) {
+        return Duration.between(candidate.start(), candidate.last()).getSeconds() >= minStaySeconds
+                && candidate.pointCount() >= minPointsPerStay;
+    }
+
+    private boolean isWithinRadius(StayCandidate candidate, double latitude, double longitude) {
+        return GeoUtils.distanceInMeters(candidate.latitude(), candidate.longitude(), latitude, longitude) <= stayRadiusMeters;
+    }
+
+    private static long gapSeconds(StayCandidate candidate, Instant timestamp) {
+        return Duration.between(candidate.last(), timestamp).getSeconds();
+    }
+
+    private static StayCandidate include(StayCandidate candidate, Instant timestamp, double latitude, double longitude) {
+        int n = candidate.pointCount() + 1;
+        return new StayCandidate(candidate.latitude() + (latitude - candidate.latitude()) / n,
+                                 candidate.longitude() + (longitude - candidate.longitude()) / n,
+                                 candidate.start(),
+                                 timestamp,
+                                 n);
+    }
+
+    private static Stay toStay(StayCandidate candidate) {
+        return new Stay(candidate.latitude(), candidate.longitude(), candidate.start(), candidate.last());
+    }
+}
@@ -0,0 +1,153 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.ProcessedVisit;
+import com.dedicatedcode.reitti.model.geo.Trip;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Compares the visits or trips computed by a processing run with the stored ones of the same window and decides which
+ * rows have to be inserted, updated or deleted. A computed entry takes over the stored entry it overlaps the most, as
+ * long as both describe the same thing, e.g. a visit at the same place. Taking over keeps the id, so everything that
+ * references the row, like memories, stays attached.
+ */
+final class TimelineReconciliation {
+
+    record Update<T>(T stored, T computed) {
+    }
+
+    record Plan<T>(List<T> unchanged, List<Update<T>> updated, List<T> inserted, List<T> deleted) {
+
+        /**
+         * Every entry whose row is touched by this plan, updated ones with their stored and their computed state.
+         */
+        List<T> changes() {
+            List<T> result = new ArrayList<>(deleted);
+            updated.forEach(update -> {
+                result.add(update.stored());
+                result.add(update.computed());
+            });
+            result.addAll(inserted);
+            return result;
+        }
+    }
+
+    private TimelineReconciliation() {
+    }
+
+    static Plan<ProcessedVisit> planVisits(List<ProcessedVisit> stored, List<ProcessedVisit> computed) {
+        return plan(stored, computed, ProcessedVisit::getStartTime, ProcessedVisit::getEndTime,
+                    TimelineReconciliation::isSameVisit, TimelineReconciliation::isUnchangedVisit);
+    }
+
+    static Plan<Trip> planTrips(List<Trip> stored, List<Trip> computed) {
+        return plan(stored, computed, Trip::getStartTime, Trip::getEndTime,
+                    TimelineReconciliation::isSameTrip, TimelineReconciliation::isUnchangedTrip);
+    }
+
+    /**
+     * A visit stays the same visit as long as it is at the same place.
+     */
+    static boolean isSameVisit(ProcessedVisit stored, ProcessedVisit computed) {
+        return stored.getPlace().getId().equals(computed.getPlace().getId());
+    }
+
+    static boolean isUnchangedVisit(ProcessedVisit stored, ProcessedVisit computed) {
+        return stored.getStartTime().equals(computed.getStartTime())
+                && stored.getEndTime().equals(computed.getEndTime())
+                && Objects.equals(stored.getMetadata(), computed.getMetadata());
+    }
+
+    /**
+     * A trip stays the same trip as long as it connects the same places, stored trips whose visits are gone are not.
+     */
+    static boolean isSameTrip(Trip stored, Trip computed) {
+        return stored.getStartVisit() != null && stored.getEndVisit() != null
+                && stored.getStartVisit().getPlace().getId().equals(computed.getStartVisit().getPlace().getId())
+                && stored.getEndVisit().getPlace().getId().equals(computed.getEndVisit().getPlace().getId());
+    }
+
+    static boolean isUnchangedTrip(Trip stored, Trip computed) {
+        return stored.getStartTime().equals(computed.getStartTime())
+                && stored.getEndTime().equals(computed.getEndTime())
+                && stored.getStartVisit().getId().equals(computed.getStartVisit().getId())
+                && stored.getEndVisit().getId().equals(computed.getEndVisit().getId())
+                && Objects.equals(stored.getEstimatedDistanceMeters(), computed.getEstimatedDistanceMeters())
+                && Objects.equals(stored.getTravelledDistanceMeters(), computed.getTravelledDistanceMeters())
+                && Objects.equals(stored.getSegments(), computed.getSegments())
+                && Objects.equals(stored.getMetadata(), computed.getMetadata());
+    }
+
+    /**
+     * @param sameEntity decides if a stored entry may be taken over by a computed one, both overlap in time already
+     * @param unchanged  decides if a taken over entry can stay as it is stored
+     */
+    static <T> Plan<T> plan(List<T> stored, List<T> computed,
+                            Function<T, Instant> start, Function<T, Instant> end,
+                            BiPredicate<T, T> sameEntity, BiPredicate<T, T> unchanged) {
+        List<T> storedByStart = new ArrayList<>(stored);
+        storedByStart.sort(Comparator.comparing(start));
+        List<T> computedByStart = new ArrayList<>(computed);
+        computedByStart.sort(Comparator.comparing(start));
+
+        boolean[] taken = new boolean[storedByStart.size()];
+        List<T> unchangedEntries = new ArrayList<>();
+        List<Update<T>> updated = new ArrayList<>();
+        List<T> inserted = new ArrayList<>();
+
+        // entries of one timeline do not overlap each other, so the stored entries ending before the current computed
+        // one can be skipped for all following ones. If they did overlap, a match could be missed, which only turns an
+        // update into a delete and an insert.
+        int from = 0;
+        for (T candidate : computedByStart) {
+            Instant candidateStart = start.apply(candidate);
+            Instant candidateEnd = end.apply(candidate);
+            while (from < storedByStart.size() && end.apply(storedByStart.get(from)).isBefore(candidateStart)) {
+                from++;
+            }
+
+            int best = -1;
+            Duration bestOverlap = null;
+            for (int i = from; i < storedByStart.size() && !start.apply(storedByStart.get(i)).isAfter(candidateEnd); i++) {
+                T entry = storedByStart.get(i);
+                if (taken[i] || end.apply(entry).isBefore(candidateStart) || !sameEntity.test(entry, candidate)) {
+                    continue;
+                }
+                Instant overlapStart = start.apply(entry).isAfter(candidateStart) ? start.apply(entry) : candidateStart;
+                Instant overlapEnd = end.apply(entry).isBefore(candidateEnd) ? end.apply(entry) : candidateEnd;
+                Duration overlap = Duration.between(overlapStart, overlapEnd);
+                if (bestOverlap == null || overlap.compareTo(bestOverlap) > 0) {
+                    best = i;
+                    bestOverlap = overlap;
+                }
+            }
+
+            if (best < 0) {
+                inserted.add(candidate);
+            } else {
+                taken[best] = true;
+                T entry = storedByStart.get(best);
+                if (unchanged.test(entry, candidate)) {
+                    unchangedEntries.add(entry);
+                } else {
+                    updated.add(new Update<>(entry, candidate));
+                }
+            }
+        }
+
+        List<T> deleted = new ArrayList<>();
+        for (int i = 0; i < storedByStart.size(); i++) {
+            if (!taken[i]) {
+                deleted.add(storedByStart.get(i));
+            }
+        }
+        return new Plan<>(unchangedEntries, updated, inserted, deleted);
+    }
+}
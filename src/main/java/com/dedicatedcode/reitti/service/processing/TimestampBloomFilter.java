@@ -0,0 +1,106 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Bloom filter over point timestamps in epoch microseconds. Sized with ten bits and seven hash functions per entry,
+ * which keeps the false positive rate at about one percent up to the configured capacity.
+ */
+final class TimestampBloomFilter {
+    private static final int FORMAT_VERSION = 1;
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final long capacity;
+    private long entries;
+    private long coveredId;
+
+    TimestampBloomFilter(long capacity) {
+        this(capacity, new long[(int) ((capacity * BITS_PER_ENTRY + 63) / 64)], 0, 0);
+    }
+
+    private TimestampBloomFilter(long capacity, long[] bits, long entries, long coveredId) {
+        this.capacity = capacity;
+        this.bits = bits;
+        this.bitCount = (long) bits.length * 64;
+        this.entries = entries;
+        this.coveredId = coveredId;
+    }
+
+    void put(long timestampMicros) {
+        long h1 = mix(timestampMicros);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        entries++;
+    }
+
+    boolean mightContain(long timestampMicros) {
+        long h1 = mix(timestampMicros);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isSaturated() {
+        return entries > capacity;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The highest {@code raw_source_points} id whose timestamp has been added.
+     */
+    long getCoveredId() {
+        return coveredId;
+    }
+
+    void setCoveredId(long coveredId) {
+        this.coveredId = coveredId;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(capacity);
+        out.writeLong(entries);
+        out.writeLong(coveredId);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    static TimestampBloomFilter readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported bloom filter format");
+        }
+        long capacity = in.readLong();
+        long entries = in.readLong();
+        long coveredId = in.readLong();
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new TimestampBloomFilter(capacity, bits, entries, coveredId);
+    }
+
+    private static long mix(long value) {
+        // splitmix64 finalizer, consecutive timestamps end up in unrelated bits
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
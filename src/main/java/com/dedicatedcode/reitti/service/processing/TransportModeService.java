@@ -38,8 +38,15 @@ public class TransportModeService {
     }
 
     public List<TransportModeSegment> segmentTrip(User user, List<RawLocationPoint> points, Instant tripStart, Instant tripEnd) {
+        return segmentTrip(user, points, tripStart, tripEnd, GeoUtils.calculateTripDistance(points));
+    }
+
+    /**
+     * Same as {@link #segmentTrip(User, List, Instant, Instant)} for callers that already know the travelled distance
+     * of the points.
+     */
+    public List<TransportModeSegment> segmentTrip(User user, List<RawLocationPoint> points, Instant tripStart, Instant tripEnd, double totalDistanceMeters) {
         List<TransportModeConfig> configs = transportModeJdbcService.getTransportModeConfigs(user);
-        double totalDistanceMeters = GeoUtils.calculateTripDistance(points);
         return segmentTrip(user, points, tripStart, tripEnd, configs, totalDistanceMeters);
     }
 
@@ -5,6 +5,8 @@ import com.dedicatedcode.reitti.model.PlaceInformationOverride;
 import com.dedicatedcode.reitti.model.geo.*;
 import com.dedicatedcode.reitti.model.metadata.MemoryMetadata;
 import com.dedicatedcode.reitti.model.processing.DetectionParameter;
+import com.dedicatedcode.reitti.model.processing.StayCandidate;
+import com.dedicatedcode.reitti.model.processing.VisitDetectionState;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.*;
 import com.dedicatedcode.reitti.service.GeoLocationTimezoneService;
@@ -13,13 +15,12 @@ import com.dedicatedcode.reitti.service.UserNotificationService;
 import com.dedicatedcode.reitti.service.VisitDetectionParametersService;
 import com.dedicatedcode.reitti.service.geocoding.ReverseGeocodingListener;
 import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
 import org.quartz.JobDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -60,6 +61,9 @@ public class UnifiedLocationProcessingService {
     private final MetadataOverrideService metadataOverrideService;
     private final JobSchedulingService jobScheduler;
     private final JobDetail reverseGeocodingTask;
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
+    private final boolean incrementalDetectionEnabled;
+    private final Duration incrementalDetectionMaxAge;
 
     public UnifiedLocationProcessingService(
             UserJdbcService userJdbcService,
@@ -79,7 +83,10 @@ public class UnifiedLocationProcessingService {
             GeoLocationTimezoneService timezoneService,
             GeometryFactory geometryFactory, MetadataOverrideService metadataOverrideService,
             JobSchedulingService jobScheduler,
-            @Qualifier("reverseGeocodingJob") JobDetail reverseGeocodingTask) {
+            @Qualifier("reverseGeocodingJob") JobDetail reverseGeocodingTask,
+            VisitDetectionStateJdbcService visitDetectionStateJdbcService,
+            @Value("${reitti.processing.incremental-detection.enabled:true}") boolean incrementalDetectionEnabled,
+            @Value("${reitti.processing.incremental-detection.max-age-minutes:360}") long incrementalDetectionMaxAgeMinutes) {
         this.userJdbcService = userJdbcService;
         this.rawLocationPointJdbcService = rawLocationPointJdbcService;
         this.previewRawLocationPointJdbcService = previewRawLocationPointJdbcService;
@@ -99,6 +106,9 @@ public class UnifiedLocationProcessingService {
         this.metadataOverrideService = metadataOverrideService;
         this.jobScheduler = jobScheduler;
         this.reverseGeocodingTask = reverseGeocodingTask;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
+        this.incrementalDetectionEnabled = incrementalDetectionEnabled;
+        this.incrementalDetectionMaxAge = Duration.ofMinutes(incrementalDetectionMaxAgeMinutes);
     }
 
     /**
@@ -117,39 +127,61 @@ public class UnifiedLocationProcessingService {
 
         // STEP 1: Visit Detection
         // ----------------------
-        VisitDetectionResult detectionResult = detectVisits(user, event);
-        logger.debug("Detection: {} visits created", detectionResult.visits.size());
+        VisitDetectionResult detectionResult = previewId == null ? detectVisitsIncrementally(user, event) : null;
+        boolean incremental = detectionResult != null;
+        if (!incremental) {
+            detectionResult = detectVisits(user, event);
+        }
+        logger.debug("Detection: {} visits created, incremental: {}", detectionResult.visits.size(), incremental);
+
+        VisitMergingResult mergingResult;
+        TripDetectionResult tripResult;
+        if (incremental && detectionResult.visits.isEmpty()) {
+            // the new points neither closed nor extended a stay, so the stored visits and trips stay untouched
+            mergingResult = new VisitMergingResult(List.of(), new ArrayList<>(), List.of(), detectionResult.searchStart, detectionResult.searchEnd, 0);
+            tripResult = new TripDetectionResult(List.of(), List.of(), 0);
+        } else {
+            // STEP 2: Visit Merging
+            // ---------------------
+            mergingResult = mergeVisits(
+                    user,
+                    previewId,
+                    event.getTraceId(),
+                    detectionResult.searchStart,
+                    detectionResult.searchEnd,
+                    detectionResult.visits,
+                    detectionResult.pointBuffer,
+                    event.getParentJobId());
+            logger.debug("Merging: {} visits merged into {} processed visits",
+                    mergingResult.inputVisits.size(),
+                    mergingResult.processedVisits.size());
+
+            // STEP 3: Trip Detection
+            // ----------------------
+            tripResult = detectTrips(
+                    user,
+                    previewId,
+                    mergingResult.searchStart,
+                    mergingResult.searchEnd,
+                    mergingResult.processedVisits
+            );
+            logger.debug("Trip detection: {} trips created", tripResult.trips.size());
+        }
 
-        // STEP 2: Visit Merging
-        // ---------------------
-        VisitMergingResult mergingResult = mergeVisits(
-                user,
-                previewId,
-                event.getTraceId(),
-                detectionResult.searchStart,
-                detectionResult.searchEnd,
-                detectionResult.visits,
-                event.getParentJobId());
-        logger.debug("Merging: {} visits merged into {} processed visits",
-                mergingResult.inputVisits.size(),
-                mergingResult.processedVisits.size());
-
-        // STEP 3: Trip Detection
-        // ----------------------
-        TripDetectionResult tripResult = detectTrips(
-                user,
-                previewId,
-                mergingResult.searchStart,
-                mergingResult.searchEnd,
-                mergingResult.processedVisits
-        );
-        logger.debug("Trip detection: {} trips created", tripResult.trips.size());
+        if (previewId == null) {
+            updateDetectionState(user, event, detectionResult);
+        }
 
         // STEP 4: Notifications
         // ---------------------
+        // only the days of rows that were actually written are announced
         if (previewId == null) {
-            userNotificationService.newVisits(user, mergingResult.processedVisits);
-            userNotificationService.newTrips(user, tripResult.trips);
+            if (!mergingResult.changedVisits.isEmpty()) {
+                userNotificationService.newVisits(user, mergingResult.changedVisits);
+            }
+            if (!tripResult.changedTrips.isEmpty()) {
+                userNotificationService.newTrips(user, tripResult.changedTrips);
+            }
         } else {
             userNotificationService.newTrips(user, tripResult.trips, previewId);
         }
@@ -270,7 +302,7 @@ public class UnifiedLocationProcessingService {
 
         logger.debug("Loaded {} valid points in [{}, {}]", timeOrderedPoints.size(), windowStart, windowEnd);
 
-        List<StayPoint> stayPoints = detectStayPointsSlidingWindow(timeOrderedPoints, currentConfiguration);
+        List<StayPoint> stayPoints = SlidingWindowStayPointDetector.detect(timeOrderedPoints, currentConfiguration);
 
         List<Visit> visits = stayPoints.stream()
                 .map(sp -> new Visit(
@@ -279,14 +311,127 @@ public class UnifiedLocationProcessingService {
                         sp.getDurationSeconds(), false))
                 .toList();
 
-        return new VisitDetectionResult(visits, windowStart, windowEnd, System.currentTimeMillis() - start);
+        return new VisitDetectionResult(visits, windowStart, windowEnd, System.currentTimeMillis() - start, timeOrderedPoints,
+                                        new RawLocationPointBuffer(timeOrderedPoints, windowStart, windowEnd), null);
+    }
+
+    /**
+     * STEP 1, incremental variant for live data.
+     * Continues the persisted stay candidate with the points after the last run instead of detecting the visits of
+     * the surrounding days again. Only the latest processed visit is handed to merging again, so the tail visit and
+     * the trip into it are the only things that get rewritten.
+     *
+     * @return {@code null} if the event cannot be continued incrementally and needs the full detection
+     */
+    private VisitDetectionResult detectVisitsIncrementally(User user, LocationProcessEvent event) {
+        if (!incrementalDetectionEnabled || !isLive(event)) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        VisitDetectionState state = visitDetectionStateJdbcService.findByUser(user).orElse(null);
+        if (state == null || !event.getEarliest().isAfter(state.processedUntil())) {
+            return null;
+        }
+        DetectionParameter parameter = visitDetectionParametersService.getCurrentConfiguration(user, event.getEarliest());
+        if (!Objects.equals(parameter.getId(), state.parameterId())) {
+            return null;
+        }
+
+        Instant pointsFrom = state.processedUntil().plus(1, ChronoUnit.MICROS);
+        Instant pointsTo = event.getLatest().plusMillis(1);
+        List<RawLocationPoint> points = rawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(
+                user, pointsFrom, pointsTo, true, false);
+        StayPointDetector detector = new StayPointDetector(parameter, state.current(), state.pending());
+        for (RawLocationPoint point : points) {
+            detector.advance(point.getTimestamp(), point.getLatitude(), point.getLongitude());
+        }
+        Instant processedUntil = points.isEmpty() ? state.processedUntil() : points.getLast().getTimestamp();
+        VisitDetectionState nextState = new VisitDetectionState(parameter.getId(), processedUntil, detector.current(), detector.pending());
+        logger.debug("Advanced stay point detection by {} points until [{}]", points.size(), processedUntil);
+
+        List<StayPointDetector.Stay> stays = detector.stays();
+        if (stays.isEmpty()) {
+            return new VisitDetectionResult(List.of(), state.processedUntil(), processedUntil, System.currentTimeMillis() - start, points, null, nextState);
+        }
+
+        List<Visit> visits = new ArrayList<>();
+        Optional<ProcessedVisit> tail = processedVisitJdbcService.findFirstProcessedVisitBefore(user, processedUntil.plusMillis(1));
+        int firstStay = 0;
+        if (tail.isPresent() && Duration.between(tail.get().getEndTime(), stays.getFirst().start()).compareTo(Duration.ofHours(24)) <= 0) {
+            // the tail visit takes part in merging again, the first stay either continues it or may be merged into it
+            ProcessedVisit tailVisit = tail.get();
+            Instant tailStart = tailVisit.getStartTime();
+            Instant tailEnd = tailVisit.getEndTime();
+            if (!stays.getFirst().start().isAfter(tailEnd)) {
+                tailStart = tailStart.isBefore(stays.getFirst().start()) ? tailStart : stays.getFirst().start();
+                tailEnd = tailEnd.isAfter(stays.getFirst().end()) ? tailEnd : stays.getFirst().end();
+                firstStay = 1;
+            }
+            visits.add(new Visit(tailVisit.getPlace().getLongitudeCentroid(), tailVisit.getPlace().getLatitudeCentroid(),
+                                 tailStart, tailEnd, Duration.between(tailStart, tailEnd).getSeconds(), false));
+        }
+        for (StayPointDetector.Stay stay : stays.subList(firstStay, stays.size())) {
+            visits.add(new Visit(stay.longitude(), stay.latitude(), stay.start(), stay.end(), stay.durationSeconds(), false));
+        }
+        return new VisitDetectionResult(visits, visits.getFirst().getStartTime(), processedUntil, System.currentTimeMillis() - start, points,
+                                        new RawLocationPointBuffer(points, pointsFrom, pointsTo), nextState);
+    }
+
+    /**
+     * Persists the stay candidate for the next incremental run. After a full detection of live data the candidate is
+     * seeded from the latest processed visit and the points that followed it.
+     */
+    private void updateDetectionState(User user, LocationProcessEvent event, VisitDetectionResult detectionResult) {
+        if (!incrementalDetectionEnabled) {
+            return;
+        }
+        if (detectionResult.detectorState != null) {
+            visitDetectionStateJdbcService.save(user, detectionResult.detectorState);
+            return;
+        }
+        if (!isLive(event)) {
+            return;
+        }
+        List<RawLocationPoint> points = detectionResult.points;
+        if (points.isEmpty()) {
+            visitDetectionStateJdbcService.deleteForUser(user);
+            return;
+        }
+        Instant processedUntil = points.getLast().getTimestamp();
+        DetectionParameter parameter = visitDetectionParametersService.getCurrentConfiguration(user, processedUntil);
+        Optional<ProcessedVisit> tail = processedVisitJdbcService.findFirstProcessedVisitBefore(user, processedUntil.plusMillis(1));
+
+        Instant replayAfter = tail.map(ProcessedVisit::getEndTime).orElse(Instant.MIN);
+        StayCandidate seed = null;
+        if (tail.isPresent()) {
+            ProcessedVisit tailVisit = tail.get();
+            int pointCount = (int) points.stream()
+                    .filter(point -> !point.getTimestamp().isBefore(tailVisit.getStartTime()) && !point.getTimestamp().isAfter(tailVisit.getEndTime()))
+                    .count();
+            if (pointCount > 0) {
+                seed = new StayCandidate(tailVisit.getPlace().getLatitudeCentroid(), tailVisit.getPlace().getLongitudeCentroid(),
+                                         tailVisit.getStartTime(), tailVisit.getEndTime(), pointCount);
+            }
+        }
+        StayPointDetector detector = new StayPointDetector(parameter, seed, null);
+        for (RawLocationPoint point : points) {
+            if (point.getTimestamp().isAfter(replayAfter)) {
+                detector.advance(point.getTimestamp(), point.getLatitude(), point.getLongitude());
+            }
+        }
+        visitDetectionStateJdbcService.save(user, new VisitDetectionState(parameter.getId(), processedUntil, detector.current(), detector.pending()));
+    }
+
+    private boolean isLive(LocationProcessEvent event) {
+        return event.getLatest().isAfter(Instant.now().minus(incrementalDetectionMaxAge));
     }
 
     /**
      * STEP 2: Visit Merging
      * Merges nearby visits into ProcessedVisit entities with SignificantPlaces.
      */
-    private VisitMergingResult mergeVisits(User user, String previewId, String traceId, Instant initialStart, Instant initialEnd, List<Visit> allVisits, UUID parentJobId) {
+    private VisitMergingResult mergeVisits(User user, String previewId, String traceId, Instant initialStart, Instant initialEnd, List<Visit> allVisits,
+                                           RawLocationPointBuffer pointBuffer, UUID parentJobId) {
         long start = System.currentTimeMillis();
 
         // Get merging parameters
@@ -305,19 +450,18 @@ public class UnifiedLocationProcessingService {
         Instant searchStart = initialStart;
         Instant searchEnd = initialEnd;
 
-        // Delete existing processed visits in range
+        // Live visits are reconciled with the stored ones, preview visits are replaced
         List<ProcessedVisit> existingProcessedVisits;
         if (previewId == null) {
             existingProcessedVisits = processedVisitJdbcService
                     .findByUserAndStartTimeBeforeEqualAndEndTimeAfterEqual(user, searchEnd, searchStart);
-            processedVisitJdbcService.deleteAll(existingProcessedVisits);
         } else {
             existingProcessedVisits = previewProcessedVisitJdbcService
                     .findByUserAndStartTimeBeforeEqualAndEndTimeAfterEqual(user, previewId, searchEnd, searchStart);
             previewProcessedVisitJdbcService.deleteAll(existingProcessedVisits);
         }
 
-        // Expand the window based on deleted processed visits
+        // Expand the window based on existing processed visits
         if (!existingProcessedVisits.isEmpty()) {
             if (existingProcessedVisits.getFirst().getStartTime().isBefore(searchStart)) {
                 searchStart = existingProcessedVisits.getFirst().getStartTime();
@@ -327,21 +471,31 @@ public class UnifiedLocationProcessingService {
             }
         }
 
-        if (allVisits.isEmpty()) {
-            return new VisitMergingResult(new ArrayList<>(), new ArrayList<>(), searchStart, searchEnd, System.currentTimeMillis() - start);
-        }
-
         // Merge visits chronologically
-        List<ProcessedVisit> processedVisits = mergeVisitsChronologically(user, previewId, traceId, allVisits, mergeConfig, parentJobId);
+        List<ProcessedVisit> processedVisits = mergeVisitsChronologically(user, previewId, traceId, allVisits, pointBuffer, mergeConfig, parentJobId);
 
         // Save processed visits
+        List<ProcessedVisit> changedVisits;
         if (previewId == null) {
-            processedVisits = processedVisitJdbcService.bulkInsert(user, processedVisits);
+            TimelineReconciliation.Plan<ProcessedVisit> plan = TimelineReconciliation.planVisits(existingProcessedVisits, processedVisits);
+            logger.debug("Reconciling processed visits: {} unchanged, {} updated, {} inserted, {} deleted",
+                    plan.unchanged().size(), plan.updated().size(), plan.inserted().size(), plan.deleted().size());
+
+            // deletes first, an updated or inserted visit may take the place and time of a deleted one
+            processedVisitJdbcService.deleteAll(plan.deleted());
+            processedVisits = new ArrayList<>(plan.unchanged());
+            for (TimelineReconciliation.Update<ProcessedVisit> update : plan.updated()) {
+                processedVisits.add(processedVisitJdbcService.update(update.computed().withId(update.stored().getId()).withVersion(update.stored().getVersion())));
+            }
+            processedVisits.addAll(processedVisitJdbcService.bulkInsert(user, plan.inserted()));
+            processedVisits.sort(Comparator.comparing(ProcessedVisit::getStartTime));
+            changedVisits = plan.changes();
         } else {
             processedVisits = previewProcessedVisitJdbcService.bulkInsert(user, previewId, processedVisits);
+            changedVisits = processedVisits;
         }
 
-        return new VisitMergingResult(allVisits, processedVisits, searchStart, searchEnd, System.currentTimeMillis() - start);
+        return new VisitMergingResult(allVisits, processedVisits, changedVisits, searchStart, searchEnd, System.currentTimeMillis() - start);
     }
 
     /**
@@ -353,146 +507,77 @@ public class UnifiedLocationProcessingService {
         long start = System.currentTimeMillis();
         processedVisits.sort(Comparator.comparing(ProcessedVisit::getStartTime));
 
-        // Delete existing trips in range
-        if (previewId == null) {
-            List<Trip> existingTrips = tripJdbcService.findByUserAndTimeOverlap(
-                    user, searchStart, searchEnd);
-            tripJdbcService.deleteAll(existingTrips);
-        } else {
+        // Live trips are reconciled with the stored ones after creating them, preview trips are replaced
+        if (previewId != null) {
             List<Trip> existingTrips = previewTripJdbcService.findByUserAndTimeOverlap(
                     user, previewId, searchStart, searchEnd);
             previewTripJdbcService.deleteAll(existingTrips);
         }
 
-        // Create trips between consecutive visits
-        List<Trip> trips = new ArrayList<>();
-        for (int i = 0; i < processedVisits.size() - 1; i++) {
-            ProcessedVisit startVisit = processedVisits.get(i);
-            ProcessedVisit endVisit = processedVisits.get(i + 1);
-
-            Trip trip = createTripBetweenVisits(user, previewId, startVisit, endVisit);
-            if (trip != null) {
-                trips.add(trip);
-            }
-        }
-
+        // Consecutive visits of this run, on live data together with the processed visits right before and after it
+        List<ProcessedVisit> tripVisits = new ArrayList<>();
+        Optional<ProcessedVisit> processedVisitAfter = Optional.empty();
         if (previewId == null && !processedVisits.isEmpty()) {
-            //recreate the trip between this run's first visit and the processed visit before. We deleted that when we cleared the processed visits in the search range. But only if it is max 24h apart
+            //create the trip between this run's first visit and the processed visit before, it is part of the reconciled range. But only if it is max 24h apart
             Optional<ProcessedVisit> firstProcessedVisitBefore = this.processedVisitJdbcService.findFirstProcessedVisitBefore(user, searchStart);
             if (firstProcessedVisitBefore.isPresent() && Duration.between(firstProcessedVisitBefore.get().getEndTime(), processedVisits.getFirst().getStartTime()).compareTo(Duration.ofHours(24)) <= 0) {
-                Trip tripBefore = createTripBetweenVisits(user, null, firstProcessedVisitBefore.get(), processedVisits.getFirst());
-                if (tripBefore != null) {
-                    trips.add(tripBefore);
-                }
+                tripVisits.add(firstProcessedVisitBefore.get());
             }
+            processedVisitAfter = this.processedVisitJdbcService.findFirstProcessedVisitAfter(user, searchEnd)
+                    .filter(visit -> Duration.between(processedVisits.getLast().getEndTime(), visit.getStartTime()).compareTo(Duration.ofHours(24)) <= 0);
+        }
+        tripVisits.addAll(processedVisits);
+        processedVisitAfter.ifPresent(tripVisits::add);
+
+        // The points of all trips are loaded at once and sliced per trip
+        Instant pointsFrom = null;
+        Instant pointsTo = null;
+        for (int i = 0; i < tripVisits.size() - 1; i++) {
+            Instant tripStartTime = tripVisits.get(i).getEndTime();
+            Instant tripEndTime = tripVisits.get(i + 1).getStartTime();
+            if (tripEndTime.isAfter(tripStartTime)) {
+                pointsFrom = pointsFrom == null || tripStartTime.isBefore(pointsFrom) ? tripStartTime : pointsFrom;
+                pointsTo = pointsTo == null || tripEndTime.isAfter(pointsTo) ? tripEndTime : pointsTo;
+            }
+        }
+        RawLocationPointBuffer pointBuffer = pointsFrom != null ? loadPointBuffer(user, previewId, pointsFrom, pointsTo.plusMillis(1), true) : null;
 
-            Optional<ProcessedVisit> processedVisitAfter = this.processedVisitJdbcService.findFirstProcessedVisitAfter(user, searchEnd);
-            if (processedVisitAfter.isPresent() && Duration.between(processedVisits.getLast().getEndTime(), processedVisitAfter.get().getStartTime()).compareTo(Duration.ofHours(24)) <= 0) {
-                Trip tripAfter = createTripBetweenVisits(user, null, processedVisits.getLast(), processedVisitAfter.get());
-                if (tripAfter != null) {
-                    trips.add(tripAfter);
-                }
+        // Create trips between consecutive visits
+        List<Trip> trips = new ArrayList<>();
+        for (int i = 0; i < tripVisits.size() - 1; i++) {
+            Trip trip = createTripBetweenVisits(user, previewId, tripVisits.get(i), tripVisits.get(i + 1), pointBuffer);
+            if (trip != null) {
+                trips.add(trip);
             }
         }
         trips.sort(Comparator.comparing(Trip::getStartTime));
         // Save trips
+        List<Trip> changedTrips;
         if (previewId == null) {
-            trips = tripJdbcService.bulkInsert(user, trips);
+            // loaded only now, trips of deleted visits are already gone with them
+            List<Trip> existingTrips = tripJdbcService.findByUserAndTimeOverlap(user, searchStart, searchEnd);
+            TimelineReconciliation.Plan<Trip> plan = TimelineReconciliation.planTrips(existingTrips, trips);
+            logger.debug("Reconciling trips: {} unchanged, {} updated, {} inserted, {} deleted",
+                    plan.unchanged().size(), plan.updated().size(), plan.inserted().size(), plan.deleted().size());
+
+            tripJdbcService.deleteAll(plan.deleted());
+            trips = new ArrayList<>(plan.unchanged());
+            for (TimelineReconciliation.Update<Trip> update : plan.updated()) {
+                trips.add(tripJdbcService.update(update.computed().withId(update.stored().getId()).withVersion(update.stored().getVersion())));
+            }
+            trips.addAll(tripJdbcService.bulkInsert(user, plan.inserted()));
+            trips.sort(Comparator.comparing(Trip::getStartTime));
+            changedTrips = plan.changes();
         } else {
             trips = previewTripJdbcService.bulkInsert(user, previewId, trips);
+            changedTrips = trips;
         }
 
-        return new TripDetectionResult(trips, System.currentTimeMillis() - start);
-    }
-
-    /**
-     * Detects stay points by walking forward through time-ordered points.
-     * <p>
-     * For each anchor, scans forward including points within stayRadiusMeters of
-     * the running centroid. Points outside the radius are skipped (GPS noise,
-     * transit). If no in-radius point appears within maxGapSeconds of the last
-     * included point, the stay ends.
-     * <p>
-     * Output is chronologically ordered and non-overlapping by construction:
-     * after a valid stay, the scan resumes from the point after the last
-     * included one, guaranteeing the next stay starts strictly later.
-     */
-    private List<StayPoint> detectStayPointsSlidingWindow(
-            List<RawLocationPoint> timeOrderedPoints,
-            DetectionParameter parameter) {
-
-        if (timeOrderedPoints.size() < 2) {
-            return List.of();
-        }
-
-        final double stayRadiusMeters = parameter.getVisitMerging().getPlaceRadiusMeters();
-        final long minStaySeconds = parameter.getVisitDetection().getMinimumStayTimeInSeconds();
-        final long maxGapSeconds = parameter.getVisitDetection().getMaxMergeTimeBetweenSameStayPoints();
-        // Require enough points that the centroid is meaningful.
-        // At 1 point/15s, 4 points ≈ 1 minute of data.
-        final int minPointsPerStay = Math.max(2, (int) (minStaySeconds / 60));
-
-        List<StayPoint> stayPoints = new ArrayList<>();
-
-        int i = 0;
-        while (i < timeOrderedPoints.size()) {
-            RawLocationPoint anchor = timeOrderedPoints.get(i);
-            List<RawLocationPoint> cluster = new ArrayList<>();
-            cluster.add(anchor);
-
-            double centroidLat = anchor.getLatitude();
-            double centroidLon = anchor.getLongitude();
-
-            int lastIncludedIdx = i;
-            int j = i + 1;
-
-            while (j < timeOrderedPoints.size()) {
-                RawLocationPoint candidate = timeOrderedPoints.get(j);
-
-                // Time since last point that was actually part of this stay
-                long gapSeconds = Duration.between(
-                        timeOrderedPoints.get(lastIncludedIdx).getTimestamp(),
-                        candidate.getTimestamp()).getSeconds();
-
-                if (gapSeconds > maxGapSeconds) {
-                    break;
-                }
-
-                double distMeters = GeoUtils.distanceInMeters(
-                        centroidLat, centroidLon,
-                        candidate.getLatitude(), candidate.getLongitude());
-
-                if (distMeters <= stayRadiusMeters) {
-                    cluster.add(candidate);
-                    int n = cluster.size();
-                    centroidLat += (candidate.getLatitude() - centroidLat) / n;
-                    centroidLon += (candidate.getLongitude() - centroidLon) / n;
-                    lastIncludedIdx = j;
-                }
-                // Outside radius: skip silently. The gap timer runs from
-                // lastIncludedIdx, so transit points just tick the clock
-                // until maxGapSeconds is exceeded.
-                j++;
-            }
-
-            long durationSeconds = Duration.between(
-                    cluster.getFirst().getTimestamp(),
-                    cluster.getLast().getTimestamp()).getSeconds();
-
-            if (durationSeconds >= minStaySeconds && cluster.size() >= minPointsPerStay) {
-                stayPoints.add(createStayPoint(cluster));
-                i = lastIncludedIdx + 1;
-            } else {
-                i++;
-            }
-        }
-
-        logger.debug("Sliding window: {} stay points from {} points", stayPoints.size(), timeOrderedPoints.size());
-        return stayPoints;
+        return new TripDetectionResult(trips, changedTrips, System.currentTimeMillis() - start);
     }
 
     private List<ProcessedVisit> mergeVisitsChronologically(
-            User user, String previewId, String traceId, List<Visit> visits,
+            User user, String previewId, String traceId, List<Visit> visits, RawLocationPointBuffer pointBuffer,
             DetectionParameter.VisitMerging mergeConfiguration, UUID parentJobId) {
         if (visits.isEmpty()) {
             return new ArrayList<>();
@@ -501,12 +586,13 @@ public class UnifiedLocationProcessingService {
             logger.debug("Merging [{}] visits between [{}] and [{}]", visits.size(), visits.getFirst().getStartTime(), visits.getLast().getEndTime());
         }
         List<ProcessedVisit> result = new ArrayList<>();
+        SignificantPlaceIndex placeIndex = loadPlaceIndex(user, previewId, visits, mergeConfiguration);
 
         // Start with the first visit
         Visit currentVisit = visits.getFirst();
         Instant currentStartTime = currentVisit.getStartTime();
         Instant currentEndTime = currentVisit.getEndTime();
-        SignificantPlace currentPlace = findOrCreateSignificantPlace(user, previewId, currentVisit.getLatitude(), currentVisit.getLongitude(), mergeConfiguration, traceId, parentJobId);
+        SignificantPlace currentPlace = findOrCreateSignificantPlace(user, previewId, placeIndex, currentVisit.getLatitude(), currentVisit.getLongitude(), mergeConfiguration, traceId, parentJobId);
 
         for (int i = 1; i < visits.size(); i++) {
             Visit nextVisit = visits.get(i);
@@ -519,7 +605,7 @@ public class UnifiedLocationProcessingService {
                 continue;
             }
 
-            SignificantPlace nextPlace = findOrCreateSignificantPlace(user, previewId, nextVisit.getLatitude(), nextVisit.getLongitude(), mergeConfiguration, traceId, parentJobId);
+            SignificantPlace nextPlace = findOrCreateSignificantPlace(user, previewId, placeIndex, nextVisit.getLatitude(), nextVisit.getLongitude(), mergeConfiguration, traceId, parentJobId);
 
             boolean samePlace = nextPlace.getId().equals(currentPlace.getId());
             boolean withinTimeThreshold = Duration.between(currentEndTime, nextVisit.getStartTime()).getSeconds() <= mergeConfiguration.getMaxMergeTimeBetweenSameVisits();
@@ -527,14 +613,13 @@ public class UnifiedLocationProcessingService {
             boolean shouldMergeWithNextVisit = samePlace && withinTimeThreshold;
 
             if (samePlace && !withinTimeThreshold) {
-                List<RawLocationPoint> pointsBetweenVisits;
-                if (previewId == null) {
-                    pointsBetweenVisits = this.rawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, currentEndTime, nextVisit.getStartTime(), true, false);
-                } else {
-                    pointsBetweenVisits = this.previewRawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, previewId, currentEndTime, nextVisit.getStartTime());
+                if (pointBuffer == null || !pointBuffer.covers(currentEndTime, nextVisit.getStartTime())) {
+                    // the points of the detection do not reach back far enough, load the rest of this run at once
+                    pointBuffer = loadPointBuffer(user, previewId, currentEndTime, visits.getLast().getEndTime(), false);
                 }
+                RawLocationPointBuffer.Slice pointsBetweenVisits = pointBuffer.slice(currentEndTime, nextVisit.getStartTime());
                 if (pointsBetweenVisits.size() > 2) {
-                    double travelledDistanceInMeters = GeoUtils.calculateTripDistance(pointsBetweenVisits);
+                    double travelledDistanceInMeters = pointsBetweenVisits.travelledDistanceMeters();
                     shouldMergeWithNextVisit = travelledDistanceInMeters <= mergeConfiguration.getPlaceRadiusMeters();
                 } else {
                     logger.debug("There are no points tracked between {} and {}. Will merge consecutive visits because they are on the same place", currentEndTime, nextVisit.getStartTime());
@@ -578,168 +663,8 @@ public class UnifiedLocationProcessingService {
         return new ProcessedVisit(place, startTime, endTime, endTime.getEpochSecond() - startTime.getEpochSecond(), metadata);
     }
 
-    private StayPoint createStayPoint(List<RawLocationPoint> clusterPoints) {
-        GeoPoint result = weightedCenter(clusterPoints);
-
-        // Get the time range
-        Instant arrivalTime = clusterPoints.getFirst().getTimestamp();
-        Instant departureTime = clusterPoints.getLast().getTimestamp();
-
-        logger.trace("Creating stay point at [{}] with arrival time [{}] and departure time [{}]", result, arrivalTime, departureTime);
-        return new StayPoint(result.latitude(), result.longitude(), arrivalTime, departureTime, clusterPoints);
-    }
-
-    private GeoPoint weightedCenter(List<RawLocationPoint> clusterPoints) {
-
-        long start = System.currentTimeMillis();
-
-        GeoPoint result;
-        // For small clusters, use the original algorithm
-        if (clusterPoints.size() <= 100) {
-            result = weightedCenterSimple(clusterPoints);
-        } else {
-            // For large clusters, use spatial partitioning for better performance
-            result = weightedCenterOptimized(clusterPoints);
-        }
-        logger.trace("Weighted center calculation took {}ms for [{}] number of points", System.currentTimeMillis() - start, clusterPoints.size());
-        return result;
-    }
-
-    private GeoPoint weightedCenterSimple(List<RawLocationPoint> clusterPoints) {
-        RawLocationPoint bestPoint = null;
-        double maxDensityScore = 0;
-
-        // For each point, calculate a density score based on nearby points and accuracy
-        for (RawLocationPoint candidate : clusterPoints) {
-            double densityScore = 0;
-
-            for (RawLocationPoint neighbor : clusterPoints) {
-                if (candidate == neighbor) continue;
-
-                double distance = GeoUtils.distanceInMeters(candidate, neighbor);
-                double accuracy = candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
-                        ? candidate.getAccuracyMeters()
-                        : 50.0; // default accuracy if null
-
-                // Points within accuracy radius contribute to density
-                // Closer points and better accuracy contribute more
-                if (distance <= accuracy * 2) {
-                    double proximityWeight = Math.max(0, 1.0 - (distance / (accuracy * 2)));
-                    double accuracyWeight = 1.0 / accuracy;
-                    densityScore += proximityWeight * accuracyWeight;
-                }
-            }
-
-            // Add self-contribution based on accuracy
-            densityScore += 1.0 / (candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
-                    ? candidate.getAccuracyMeters()
-                    : 50.0);
-
-            if (densityScore > maxDensityScore) {
-                maxDensityScore = densityScore;
-                bestPoint = candidate;
-            }
-        }
-
-        // Fallback to first point if no best point found
-        if (bestPoint == null) {
-            bestPoint = clusterPoints.getFirst();
-        }
-
-        return new GeoPoint(bestPoint.getLatitude(), bestPoint.getLongitude());
-    }
-
-    private GeoPoint weightedCenterOptimized(List<RawLocationPoint> clusterPoints) {
-        // Sample a subset of points for density calculation to improve performance
-        // Use every nth point or random sampling for very large clusters
-        int sampleSize = Math.min(200, clusterPoints.size());
-        List<RawLocationPoint> samplePoints = new ArrayList<>();
-
-        if (clusterPoints.size() <= sampleSize) {
-            samplePoints = clusterPoints;
-        } else {
-            // Take evenly distributed samples
-            int step = clusterPoints.size() / sampleSize;
-            for (int i = 0; i < clusterPoints.size(); i += step) {
-                samplePoints.add(clusterPoints.get(i));
-            }
-        }
-
-        // Use spatial grid approach to avoid distance calculations
-        // Create a grid based on the bounding box of all points
-        double minLat = clusterPoints.stream().mapToDouble(RawLocationPoint::getLatitude).min().orElse(0);
-        double minLon = clusterPoints.stream().mapToDouble(RawLocationPoint::getLongitude).min().orElse(0);
-
-        // Grid cell size approximately 10 meters (rough approximation)
-        double cellSizeLat = 0.0001; // ~11 meters
-        double cellSizeLon = 0.0001; // varies by latitude but roughly 11 meters
-
-        // Create grid map for fast neighbor lookup
-        Map<String, List<RawLocationPoint>> grid = new HashMap<>();
-        for (RawLocationPoint point : clusterPoints) {
-            int gridLat = (int) ((point.getLatitude() - minLat) / cellSizeLat);
-            int gridLon = (int) ((point.getLongitude() - minLon) / cellSizeLon);
-            String gridKey = gridLat + "," + gridLon;
-            grid.computeIfAbsent(gridKey, _ -> new ArrayList<>()).add(point);
-        }
-
-        RawLocationPoint bestPoint = null;
-        double maxDensityScore = 0;
-
-        // Calculate density scores for sample points using grid lookup
-        for (RawLocationPoint candidate : samplePoints) {
-            double accuracy = candidate.getAccuracyMeters() != null && candidate.getAccuracyMeters() > 0
-                    ? candidate.getAccuracyMeters()
-                    : 50.0;
-
-            // Calculate grid coordinates for candidate
-            int candidateGridLat = (int) ((candidate.getLatitude() - minLat) / cellSizeLat);
-            int candidateGridLon = (int) ((candidate.getLongitude() - minLon) / cellSizeLon);
-
-            // Search radius in grid cells (conservative estimate)
-            int searchRadiusInCells = Math.max(1, (int) (accuracy / 100000)); // rough conversion
-
-            double densityScore = 0;
-
-            // Check neighboring grid cells
-            for (int latOffset = -searchRadiusInCells; latOffset <= searchRadiusInCells; latOffset++) {
-                for (int lonOffset = -searchRadiusInCells; lonOffset <= searchRadiusInCells; lonOffset++) {
-                    String neighborKey = (candidateGridLat + latOffset) + "," + (candidateGridLon + lonOffset);
-                    List<RawLocationPoint> neighbors = grid.get(neighborKey);
-
-                    if (neighbors != null) {
-                        for (RawLocationPoint neighbor : neighbors) {
-                            if (candidate != neighbor) {
-                                // Simple proximity weight based on grid distance
-                                double gridDistance = Math.sqrt(latOffset * latOffset + lonOffset * lonOffset);
-                                double proximityWeight = Math.max(0, 1.0 - (gridDistance / searchRadiusInCells));
-                                densityScore += proximityWeight;
-                            }
-                        }
-                    }
-                }
-            }
-
-            // Combine density with accuracy weight
-            double accuracyWeight = 1.0 / accuracy;
-            densityScore = (densityScore * accuracyWeight) + accuracyWeight;
-
-            if (densityScore > maxDensityScore) {
-                maxDensityScore = densityScore;
-                bestPoint = candidate;
-            }
-        }
-
-        // Fallback to first point if no best point found
-        if (bestPoint == null) {
-            bestPoint = clusterPoints.getFirst();
-        }
-
-        return new GeoPoint(bestPoint.getLatitude(), bestPoint.getLongitude());
-    }
-
     private Trip createTripBetweenVisits(User user, String previewId,
-                                         ProcessedVisit startVisit, ProcessedVisit endVisit) {
+                                         ProcessedVisit startVisit, ProcessedVisit endVisit, RawLocationPointBuffer pointBuffer) {
         // Trip starts when the first visit ends
         Instant tripStartTime = startVisit.getEndTime();
 
@@ -765,22 +690,8 @@ public class UnifiedLocationProcessingService {
         }
 
 
-        if (previewId == null) {
-            // Check if a trip already exists with the same start and end times
-            if (tripJdbcService.existsByUserAndStartTimeAndEndTime(user, tripStartTime, tripEndTime)) {
-                logger.debug("Trip already exists for user {} from {} to {}",
-                        user.getUsername(), tripStartTime, tripEndTime);
-                return null;
-            }
-        }
-
         // Get location points between the two visits
-        List<RawLocationPoint> tripPoints;
-        if (previewId == null) {
-            tripPoints = rawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, tripStartTime, tripEndTime.plusMillis(1));
-        } else {
-            tripPoints = previewRawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, previewId, tripStartTime, tripEndTime.plusMillis(1));
-        }
+        RawLocationPointBuffer.Slice tripPoints = pointBuffer.slice(tripStartTime, tripEndTime.plusMillis(1));
 
         if (tripPoints.size() < 2) {
             logger.warn("Unable to create Trip for user [{}] between [{}] and [{}]: only [{}] point(s) available",
@@ -788,9 +699,9 @@ public class UnifiedLocationProcessingService {
             return null;
         }
         double estimatedDistanceInMeters = calculateDistanceBetweenPlaces(startVisit.getPlace(), endVisit.getPlace());
-        double travelledDistanceMeters = GeoUtils.calculateTripDistance(tripPoints);
+        double travelledDistanceMeters = tripPoints.travelledDistanceMeters();
         // Create a new trip
-        List<TransportModeSegment> segments = this.transportModeService.segmentTrip(user, tripPoints, tripStartTime, tripEndTime);
+        List<TransportModeSegment> segments = this.transportModeService.segmentTrip(user, tripPoints.points(), tripStartTime, tripEndTime, travelledDistanceMeters);
         Map<String, Object> metadata = this.metadataOverrideService.findOverlappingMetadata(user, tripStartTime, tripEndTime).map(MemoryMetadata::getProperties).orElse(null);
 
         Trip trip = new Trip(
@@ -813,23 +724,65 @@ public class UnifiedLocationProcessingService {
         return trip;
     }
 
-    private List<SignificantPlace> findNearbyPlaces(User user, String previewId, double latitude, double longitude, DetectionParameter.VisitMerging mergeConfiguration) {
-        // Create a point geometry
-        Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
-        // Find places within the merge distance
+    /**
+     * Loads the raw points of {@code [from, to)} with a single query. Merging leaves out ignored points, trips use all
+     * points, the same as the queries they used before.
+     */
+    private RawLocationPointBuffer loadPointBuffer(User user, String previewId, Instant from, Instant to, boolean includeIgnored) {
+        List<RawLocationPoint> points;
+        if (previewId != null) {
+            points = previewRawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, previewId, from, to);
+        } else if (includeIgnored) {
+            points = rawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, from, to);
+        } else {
+            points = rawLocationPointJdbcService.findByUserAndTimestampBetweenOrderByTimestampAsc(user, from, to, true, false);
+        }
+        logger.debug("Loaded {} points in [{}, {}) for slicing", points.size(), from, to);
+        return new RawLocationPointBuffer(points, from, to);
+    }
+
+    /**
+     * Loads the places around all visits of this run with a single query. Every nearby lookup of the run is answered
+     * by the returned index, places created along the way are added to it.
+     */
+    private SignificantPlaceIndex loadPlaceIndex(User user, String previewId, List<Visit> visits, DetectionParameter.VisitMerging mergeConfiguration) {
+        double minLatitude = Double.MAX_VALUE;
+        double minLongitude = Double.MAX_VALUE;
+        double maxLatitude = -Double.MAX_VALUE;
+        double maxLongitude = -Double.MAX_VALUE;
+        for (Visit visit : visits) {
+            minLatitude = Math.min(minLatitude, visit.getLatitude());
+            minLongitude = Math.min(minLongitude, visit.getLongitude());
+            maxLatitude = Math.max(maxLatitude, visit.getLatitude());
+            maxLongitude = Math.max(maxLongitude, visit.getLongitude());
+        }
+        // widen a little, so a single visit does not result in an envelope without area
+        minLatitude -= 0.00001;
+        minLongitude -= 0.00001;
+        maxLatitude += 0.00001;
+        maxLongitude += 0.00001;
+
+        List<SignificantPlace> places;
         if (previewId == null) {
-            return significantPlaceJdbcService.findNearbyPlaces(user.getId(), point, mergeConfiguration.getPlaceRadiusMeters());
+            places = significantPlaceJdbcService.findPlacesNearArea(user.getId(), minLatitude, minLongitude, maxLatitude, maxLongitude, mergeConfiguration.getPlaceRadiusMeters());
         } else {
-            return previewSignificantPlaceJdbcService.findNearbyPlaces(user.getId(), point, mergeConfiguration.getPlaceRadiusMeters(), previewId);
+            places = previewSignificantPlaceJdbcService.findPlacesNearArea(user.getId(), minLatitude, minLongitude, maxLatitude, maxLongitude, mergeConfiguration.getPlaceRadiusMeters(), previewId);
         }
+        logger.debug("Loaded [{}] places around [{}] visits into the place index", places.size(), visits.size());
+        return new SignificantPlaceIndex(geometryFactory, places);
     }
 
-    private SignificantPlace findOrCreateSignificantPlace(User user, String previewId,
+    private SignificantPlace findOrCreateSignificantPlace(User user, String previewId, SignificantPlaceIndex placeIndex,
                                                           double latitude, double longitude,
                                                           DetectionParameter.VisitMerging mergeConfig,
                                                           String traceId, UUID parentJobId) {
-        List<SignificantPlace> nearbyPlaces = findNearbyPlaces(user, previewId, latitude, longitude, mergeConfig);
-        return nearbyPlaces.isEmpty() ? createSignificantPlace(user, latitude, longitude, previewId, traceId, parentJobId) : findClosestPlace(latitude, longitude, nearbyPlaces);
+        List<SignificantPlace> nearbyPlaces = placeIndex.findNearby(latitude, longitude, mergeConfig.getPlaceRadiusMeters());
+        if (nearbyPlaces.isEmpty()) {
+            SignificantPlace created = createSignificantPlace(user, latitude, longitude, previewId, traceId, parentJobId);
+            placeIndex.add(created);
+            return created;
+        }
+        return findClosestPlace(latitude, longitude, nearbyPlaces);
     }
 
 
@@ -892,13 +845,14 @@ public class UnifiedLocationProcessingService {
 
     // ==================== Result Classes ====================
 
-    private record VisitDetectionResult(List<Visit> visits, Instant searchStart, Instant searchEnd, long durationInMillis) {
+    private record VisitDetectionResult(List<Visit> visits, Instant searchStart, Instant searchEnd, long durationInMillis,
+                                        List<RawLocationPoint> points, RawLocationPointBuffer pointBuffer, VisitDetectionState detectorState) {
     }
 
-    private record VisitMergingResult(List<Visit> inputVisits, List<ProcessedVisit> processedVisits,
+    private record VisitMergingResult(List<Visit> inputVisits, List<ProcessedVisit> processedVisits, List<ProcessedVisit> changedVisits,
                                       Instant searchStart, Instant searchEnd, long durationInMillis) {
     }
 
-    private record TripDetectionResult(List<Trip> trips, long durationInMillis) {
+    private record TripDetectionResult(List<Trip> trips, List<Trip> changedTrips, long durationInMillis) {
     }
 }
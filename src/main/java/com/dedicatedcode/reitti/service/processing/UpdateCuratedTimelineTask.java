@@ -4,6 +4,7 @@ import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.JobMetadataRepository;
 import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
+import com.dedicatedcode.reitti.repository.VisitDetectionStateJdbcService;
 import com.dedicatedcode.reitti.service.JobContext;
 import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
 import org.quartz.*;
@@ -27,19 +28,22 @@ public class UpdateCuratedTimelineTask implements Job {
     private final JobDetail processingPipelineTask;
     private final UserProcessingLock userProcessingLock;
     private final JobMetadataRepository jobMetadataRepository;
+    private final VisitDetectionStateJdbcService visitDetectionStateJdbcService;
 
     public UpdateCuratedTimelineTask(RawLocationPointJdbcService rawLocationPointJdbcService,
                                      SyntheticPointInserter syntheticPointInserter,
                                      JobSchedulingService jobSchedulingService,
                                      @Qualifier("processingPipelineJob") JobDetail processingPipelineTask,
                                      UserProcessingLock userProcessingLock,
-                                     JobMetadataRepository jobMetadataRepository) {
+                                     JobMetadataRepository jobMetadataRepository,
+                                     VisitDetectionStateJdbcService visitDetectionStateJdbcService) {
         this.rawLocationPointJdbcService = rawLocationPointJdbcService;
         this.syntheticPointInserter = syntheticPointInserter;
         this.jobSchedulingService = jobSchedulingService;
         this.processingPipelineTask = processingPipelineTask;
         this.userProcessingLock = userProcessingLock;
         this.jobMetadataRepository = jobMetadataRepository;
+        this.visitDetectionStateJdbcService = visitDetectionStateJdbcService;
     }
 
     @Override
@@ -56,6 +60,8 @@ public class UpdateCuratedTimelineTask implements Job {
             //1. clear main timeline
             this.jobMetadataRepository.updateProgress(jobId, 0, 4, "Clearing main timeline ...");
             this.rawLocationPointJdbcService.dropForReSeeding(data.user, data.timeRange);
+            // points the incremental visit detection already consumed may have been deleted, ignored or moved
+            this.visitDetectionStateJdbcService.deleteForUser(data.user, data.timeRange.start());
             //2. update main timeline from view
             this.jobMetadataRepository.updateProgress(jobId, 1, 4, "Updating main timeline ...");
             int updatedCount = this.rawLocationPointJdbcService.updateFromDevices(data.user, data.timeRange);
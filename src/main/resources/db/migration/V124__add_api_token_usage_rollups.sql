@@ -0,0 +1,19 @@
+CREATE TABLE api_token_usage_rollups
+(
+    token_id      BIGINT        NOT NULL REFERENCES api_tokens (id) ON DELETE CASCADE,
+    minute        TIMESTAMP     NOT NULL,
+    endpoint      VARCHAR(2048) NOT NULL,
+    ip            VARCHAR(255)  NOT NULL,
+    request_count BIGINT        NOT NULL DEFAULT 0,
+    PRIMARY KEY (token_id, minute, endpoint, ip)
+);
+
+CREATE INDEX api_token_usage_rollups_minute_index ON api_token_usage_rollups (minute DESC);
+
+INSERT INTO api_token_usage_rollups (token_id, minute, endpoint, ip, request_count)
+SELECT token_id, date_trunc('minute', at), endpoint, ip, count(*)
+FROM api_token_usages
+WHERE token_id IS NOT NULL
+GROUP BY token_id, date_trunc('minute', at), endpoint, ip;
+
+DROP TABLE api_token_usages;
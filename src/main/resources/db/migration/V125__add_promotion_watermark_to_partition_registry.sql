@@ -0,0 +1,10 @@
+ALTER TABLE partition_registry ADD COLUMN promoted_up_to BIGINT NOT NULL DEFAULT 0;
+
+-- Everything below the first unpromoted row of a partition has been promoted already. Rows above it which were
+-- promoted before are promoted again, which is harmless as promotion ignores points that already exist.
+UPDATE partition_registry r
+SET promoted_up_to = COALESCE((SELECT MIN(s.id) - 1 FROM staging_location_points s WHERE s.partition_key = r.partition_name AND s.promoted = FALSE),
+                              (SELECT MAX(s.id) FROM staging_location_points s WHERE s.partition_key = r.partition_name),
+                              0);
+
+ALTER TABLE staging_location_points DROP COLUMN promoted;
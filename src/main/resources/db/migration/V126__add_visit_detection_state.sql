@@ -0,0 +1,17 @@
+CREATE TABLE visit_detection_state
+(
+    user_id                BIGINT                   NOT NULL PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    detection_parameter_id BIGINT,
+    processed_until        TIMESTAMP WITH TIME ZONE NOT NULL,
+    current_latitude       DOUBLE PRECISION,
+    current_longitude      DOUBLE PRECISION,
+    current_start          TIMESTAMP WITH TIME ZONE,
+    current_last           TIMESTAMP WITH TIME ZONE,
+    current_point_count    INTEGER,
+    pending_latitude       DOUBLE PRECISION,
+    pending_longitude      DOUBLE PRECISION,
+    pending_start          TIMESTAMP WITH TIME ZONE,
+    pending_last           TIMESTAMP WITH TIME ZONE,
+    pending_point_count    INTEGER,
+    updated_at             TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
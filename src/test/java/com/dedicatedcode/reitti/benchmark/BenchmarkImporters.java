@@ -0,0 +1,89 @@
+package com.dedicatedcode.reitti.benchmark;
+
+import com.dedicatedcode.reitti.benchmark.SyntheticImportFiles.Format;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.importer.FitFileImporter;
+import com.dedicatedcode.reitti.service.importer.GeoJsonImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleAndroidTimelineImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleIOSTimelineImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleRecordsImporter;
+import com.dedicatedcode.reitti.service.importer.GpxImporter;
+import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
+import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import com.dedicatedcode.reitti.service.processing.PointColumns;
+import org.quartz.JobDetail;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The importers of every benchmarked format, either the Spring beans for the end-to-end runs or instances without any
+ * backing services for the parser benchmarks.
+ */
+record BenchmarkImporters(GoogleRecordsImporter googleRecordsImporter,
+                          GoogleAndroidTimelineImporter googleAndroidTimelineImporter,
+                          GoogleIOSTimelineImporter googleIOSTimelineImporter,
+                          GpxImporter gpxImporter,
+                          GeoJsonImporter geoJsonImporter,
+                          FitFileImporter fitFileImporter) {
+
+    private static final int GPX_BUFFER_SIZE = 1000;
+
+    /**
+     * Creates importers whose staging service only answers the batch size, enough for the read methods.
+     */
+    static BenchmarkImporters standalone(int batchSize, int workers) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        LocationPointStagingService stagingService = mock(LocationPointStagingService.class);
+        when(stagingService.getBatchSize()).thenReturn(batchSize);
+        JobDetail promotionJob = mock(JobDetail.class);
+        JobSchedulingService jobSchedulingService = mock(JobSchedulingService.class);
+        return new BenchmarkImporters(
+                new GoogleRecordsImporter(objectMapper, stagingService, promotionJob, jobSchedulingService, 0, workers),
+                new GoogleAndroidTimelineImporter(objectMapper, stagingService, promotionJob, jobSchedulingService, 0),
+                new GoogleIOSTimelineImporter(objectMapper, stagingService, promotionJob, jobSchedulingService, 0),
+                new GpxImporter(stagingService, promotionJob, 0, jobSchedulingService),
+                new GeoJsonImporter(objectMapper, stagingService, promotionJob, jobSchedulingService, 0),
+                new FitFileImporter(stagingService, promotionJob, jobSchedulingService, 0));
+    }
+
+    /**
+     * Only parses the file, the points are dropped right away.
+     *
+     * @return the number of points read
+     */
+    int parse(Format format, InputStream inputStream) throws Exception {
+        return switch (format) {
+            case GOOGLE_RECORDS -> googleRecordsImporter.readRecords(inputStream, batch -> {});
+            case GOOGLE_TIMELINE_ANDROID -> googleAndroidTimelineImporter.readTimeline(inputStream, batch -> {});
+            case GOOGLE_TIMELINE_IOS -> googleIOSTimelineImporter.readTimeline(inputStream, batch -> {});
+            case GPX -> gpxImporter.readGpx(inputStream, new PointColumns(GPX_BUFFER_SIZE), batch -> {});
+            case GEOJSON -> geoJsonImporter.readGeoJson(inputStream, batch -> {});
+            case FIT -> fitFileImporter.readFit(inputStream, batch -> {});
+        };
+    }
+
+    /**
+     * Runs the regular import, which stages the points and schedules their promotion.
+     */
+    Map<String, Object> importFile(Format format, InputStream inputStream, User user, Device device) {
+        String fileName = format.getFileName();
+        return switch (format) {
+            case GOOGLE_RECORDS -> googleRecordsImporter.importGoogleRecords(inputStream, user, device, fileName);
+            case GOOGLE_TIMELINE_ANDROID -> googleAndroidTimelineImporter.importTimeline(inputStream, user, device, fileName);
+            case GOOGLE_TIMELINE_IOS -> googleIOSTimelineImporter.importTimeline(inputStream, user, device, fileName);
+            case GPX -> gpxImporter.importGpx(inputStream, user, device, fileName);
+            case GEOJSON -> geoJsonImporter.importGeoJson(inputStream, user, device, fileName);
+            case FIT -> fitFileImporter.importFile(inputStream, user, device, fileName);
+        };
+    }
+
+    void shutdown() {
+        googleRecordsImporter.shutdown();
+    }
+}
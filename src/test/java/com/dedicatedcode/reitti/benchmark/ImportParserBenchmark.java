@@ -0,0 +1,125 @@
+package com.dedicatedcode.reitti.benchmark;
+
+import com.dedicatedcode.reitti.benchmark.SyntheticImportFiles.Format;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmarks of the parsing part of every importer, without any database involved. The files are generated by
+ * {@link SyntheticImportFiles} and kept in memory, the reported {@code points} counter is the parse rate in points per
+ * second and the GC profiler adds the allocated bytes per file. Importers which decode on a worker pool run once with
+ * a single worker and once with one worker per core ({@code 0}), which shows how far parsing scales.
+ * <p>
+ * Runs with the {@code benchmark} profile, which also enables the JMH annotation processor:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ImportParserBenchmark -Dreitti.benchmark.points=200000
+ * </pre>
+ * The results are written to {@code target/benchmark/import-parsers.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:+EnableDynamicAgentLoading"})
+public class ImportParserBenchmark {
+
+    static final Path RESULT_DIRECTORY = Path.of("target", "benchmark");
+
+    @Param({"GOOGLE_RECORDS", "GOOGLE_TIMELINE_ANDROID", "GOOGLE_TIMELINE_IOS", "GPX", "GEOJSON", "FIT"})
+    public Format format;
+
+    @Param({"100000"})
+    public int points;
+
+    @Param({"1", "0"})
+    public int workers;
+
+    private BenchmarkImporters importers;
+    private byte[] content;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ParsedPoints {
+        public long points;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            points = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("reitti-benchmark");
+        try {
+            content = Files.readAllBytes(SyntheticImportFiles.write(format, points, directory));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        importers = BenchmarkImporters.standalone(10_000, workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        importers.shutdown();
+    }
+
+    @Benchmark
+    public int parse(ParsedPoints parsed) throws Exception {
+        int read = importers.parse(format, new ByteArrayInputStream(content));
+        parsed.points += read;
+        return read;
+    }
+
+    @Test
+    void runParserBenchmarks() throws Exception {
+        Files.createDirectories(RESULT_DIRECTORY);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(ImportParserBenchmark.class.getName() + ".parse")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_DIRECTORY.resolve("import-parsers.json").toString());
+        String points = System.getProperty("reitti.benchmark.points");
+        if (points != null) {
+            options.param("points", points);
+        }
+        String formats = System.getProperty("reitti.benchmark.formats");
+        if (formats != null) {
+            options.param("format", formats.split(","));
+        }
+        String workers = System.getProperty("reitti.benchmark.workers");
+        if (workers != null) {
+            options.param("workers", workers.split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,249 @@
+package com.dedicatedcode.reitti.benchmark;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.benchmark.SyntheticImportFiles.Format;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.importer.FitFileImporter;
+import com.dedicatedcode.reitti.service.importer.GeoJsonImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleAndroidTimelineImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleIOSTimelineImporter;
+import com.dedicatedcode.reitti.service.importer.GoogleRecordsImporter;
+import com.dedicatedcode.reitti.service.importer.GpxImporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs every importer end to end against the Testcontainers database: the synthetic file is parsed, staged with COPY
+ * and promoted by the regular Quartz job into {@code raw_source_points}. Per format it reports
+ * <ul>
+ *     <li>the time to only parse the file, without any database involved</li>
+ *     <li>the time of the import call, which parses and stages the points</li>
+ *     <li>the time spent in the staging service, recorded by its {@code reitti.staging.batches} timer</li>
+ *     <li>the time from the end of the import until the staging partition is promoted and dropped</li>
+ *     <li>the overall rate in points per second and the peak heap usage during import and promotion</li>
+ * </ul>
+ * Not part of the regular test run, it runs with the {@code benchmark} profile:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ImportPipelineBenchmark -Dreitti.benchmark.points=200000
+ * </pre>
+ * The results are written to {@code target/benchmark/import-pipeline.csv} and {@code import-pipeline.md}. With
+ * {@code -Dreitti.benchmark.baseline=<csv of an earlier run>} the benchmark fails if a format imported with the same
+ * number of points is slower than the baseline by more than {@code reitti.benchmark.max-regression}, 25% by default.
+ * With {@code -Dreitti.benchmark.fail-on-regression=false} regressions are only written to
+ * {@code import-pipeline-regressions.md}, the baseline of a shared runner is too noisy to fail a build on.
+ */
+@IntegrationTest
+class ImportPipelineBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(ImportPipelineBenchmark.class);
+
+    @Autowired
+    private TestingService testingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private GoogleRecordsImporter googleRecordsImporter;
+    @Autowired
+    private GoogleAndroidTimelineImporter googleAndroidTimelineImporter;
+    @Autowired
+    private GoogleIOSTimelineImporter googleIOSTimelineImporter;
+    @Autowired
+    private GpxImporter gpxImporter;
+    @Autowired
+    private GeoJsonImporter geoJsonImporter;
+    @Autowired
+    private FitFileImporter fitFileImporter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${reitti.benchmark.points:100000}")
+    private int points;
+
+    @Value("${reitti.benchmark.formats:GOOGLE_RECORDS,GOOGLE_TIMELINE_ANDROID,GOOGLE_TIMELINE_IOS,GPX,GEOJSON,FIT}")
+    private Format[] formats;
+
+    @Value("${reitti.benchmark.promotion-timeout-seconds:600}")
+    private int promotionTimeoutSeconds;
+
+    @Value("${reitti.benchmark.baseline:}")
+    private String baseline;
+
+    @Value("${reitti.benchmark.max-regression:0.25}")
+    private double maxRegression;
+
+    @Value("${reitti.benchmark.fail-on-regression:true}")
+    private boolean failOnRegression;
+
+    @TempDir
+    private Path directory;
+
+    private record Result(Format format, int points, long fileBytes, long parseMillis, long stageMillis,
+                          long stagingServiceMillis, long promotionMillis, long peakHeapBytes) {
+
+        double pointsPerSecond() {
+            return points * 1000.0 / Math.max(1, stageMillis + promotionMillis);
+        }
+    }
+
+    @Test
+    void importAllFormats() throws Exception {
+        BenchmarkImporters importers = new BenchmarkImporters(googleRecordsImporter, googleAndroidTimelineImporter,
+                                                              googleIOSTimelineImporter, gpxImporter, geoJsonImporter, fitFileImporter);
+        List<Result> results = new ArrayList<>();
+        for (Format format : formats) {
+            results.add(run(importers, format));
+        }
+        report(results);
+        compareWithBaseline(results);
+    }
+
+    private Result run(BenchmarkImporters importers, Format format) throws Exception {
+        Path file = SyntheticImportFiles.write(format, points, directory);
+        User user = testingService.randomUser();
+        Device device = testingService.findDefaultDevice(user);
+
+        // the first parse also warms up the importer, so it is done twice
+        long parseMillis = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                importers.parse(format, in);
+            }
+            parseMillis = Math.min(parseMillis, elapsedMillis(start));
+        }
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        double stagingBefore = stagingMillis();
+        long start = System.nanoTime();
+        Map<String, Object> result;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            result = importers.importFile(format, in, user, device);
+        }
+        long stageMillis = elapsedMillis(start);
+        long stagingServiceMillis = Math.round(stagingMillis() - stagingBefore);
+        assertEquals(true, result.get("success"), () -> "Import of " + format + " failed: " + result);
+        int received = ((Number) result.get("pointsReceived")).intValue();
+
+        start = System.nanoTime();
+        Awaitility.await()
+                .pollInterval(Duration.ofMillis(100))
+                .atMost(Duration.ofSeconds(promotionTimeoutSeconds))
+                .alias("Wait for promotion of " + format)
+                .until(() -> countStagedPoints(user) == 0 && countPromotedPoints(user) > 0);
+        long promotionMillis = elapsedMillis(start);
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        assertTrue(countPromotedPoints(user) <= received);
+        Result measured = new Result(format, received, Files.size(file), parseMillis, stageMillis, stagingServiceMillis, promotionMillis, peakHeap);
+        log.info("Benchmarked {}: {}", format, measured);
+        Files.delete(file);
+        return measured;
+    }
+
+    private long countStagedPoints(User user) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Long.class, user.getId());
+    }
+
+    private long countPromotedPoints(User user) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM raw_source_points WHERE user_id = ?", Long.class, user.getId());
+    }
+
+    /**
+     * Total time the staging service spent in its batch calls so far, only this benchmark stages points meanwhile.
+     */
+    private double stagingMillis() {
+        return meterRegistry.get("reitti.staging.batches").timer().totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private void report(List<Result> results) throws Exception {
+        List<String> csv = new ArrayList<>();
+        csv.add("format,points,file_bytes,parse_ms,stage_ms,staging_ms,promotion_ms,points_per_second,peak_heap_mb");
+        List<String> markdown = new ArrayList<>(Arrays.asList(
+                "| Format | Points | File MB | Parse ms | Stage ms | Staging ms | Promotion ms | Points/s | Peak heap MB |",
+                "|---|---:|---:|---:|---:|---:|---:|---:|---:|"));
+        for (Result result : results) {
+            csv.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%.0f,%d",
+                                  result.format(), result.points(), result.fileBytes(), result.parseMillis(), result.stageMillis(),
+                                  result.stagingServiceMillis(), result.promotionMillis(), result.pointsPerSecond(), result.peakHeapBytes() >> 20));
+            markdown.add(String.format(Locale.ROOT, "| %s | %d | %.1f | %d | %d | %d | %d | %.0f | %d |",
+                                       result.format(), result.points(), result.fileBytes() / 1048576.0, result.parseMillis(), result.stageMillis(),
+                                       result.stagingServiceMillis(), result.promotionMillis(), result.pointsPerSecond(), result.peakHeapBytes() >> 20));
+        }
+        Files.createDirectories(ImportParserBenchmark.RESULT_DIRECTORY);
+        Files.write(ImportParserBenchmark.RESULT_DIRECTORY.resolve("import-pipeline.csv"), csv);
+        Files.write(ImportParserBenchmark.RESULT_DIRECTORY.resolve("import-pipeline.md"), markdown);
+        log.info("Import pipeline benchmark\n{}", String.join("\n", markdown));
+    }
+
+    /**
+     * Compares the points per second with the csv of an earlier run, formats benchmarked with a different number of
+     * points or missing in the baseline are skipped.
+     */
+    private void compareWithBaseline(List<Result> results) throws Exception {
+        if (baseline.isBlank()) {
+            return;
+        }
+        Path baselineFile = Path.of(baseline);
+        if (!Files.exists(baselineFile)) {
+            log.warn("Baseline {} does not exist, skipping the comparison", baselineFile);
+            return;
+        }
+        List<String> regressions = new ArrayList<>();
+        for (String line : Files.readAllLines(baselineFile).stream().skip(1).toList()) {
+            String[] columns = line.split(",");
+            Format format = Format.valueOf(columns[0]);
+            int baselinePoints = Integer.parseInt(columns[1]);
+            double baselineRate = Double.parseDouble(columns[7]);
+            results.stream()
+                    .filter(result -> result.format() == format && result.points() == baselinePoints)
+                    .filter(result -> result.pointsPerSecond() < baselineRate * (1 - maxRegression))
+                    .forEach(result -> regressions.add(String.format(Locale.ROOT, "%s: %.0f points/s, baseline %.0f points/s",
+                                                                     format, result.pointsPerSecond(), baselineRate)));
+        }
+        if (regressions.isEmpty()) {
+            return;
+        }
+        String message = "Import throughput regressed by more than " + Math.round(maxRegression * 100) + "%:\n" + String.join("\n", regressions);
+        Files.write(ImportParserBenchmark.RESULT_DIRECTORY.resolve("import-pipeline-regressions.md"), List.of(message));
+        if (failOnRegression) {
+            fail(message);
+        }
+        log.warn(message);
+    }
+}
@@ -0,0 +1,249 @@
+package com.dedicatedcode.reitti.benchmark;
+
+import com.garmin.fit.DateTime;
+import com.garmin.fit.FileEncoder;
+import com.garmin.fit.FileIdMesg;
+import com.garmin.fit.Fit;
+import com.garmin.fit.Manufacturer;
+import com.garmin.fit.RecordMesg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes synthetic import files of a given size in every format the importers understand. The points follow a seeded
+ * random walk, so two files generated with the same arguments are identical and benchmark runs stay comparable.
+ * <p>
+ * Can also be started on its own to create files for manual testing:
+ * <pre>
+ * SyntheticImportFiles &lt;format|all&gt; &lt;points&gt; &lt;target-directory&gt;
+ * </pre>
+ */
+public final class SyntheticImportFiles {
+
+    public enum Format {
+        GOOGLE_RECORDS("Records.json"),
+        GOOGLE_TIMELINE_ANDROID("timeline_android.json"),
+        GOOGLE_TIMELINE_IOS("timeline_ios.json"),
+        GPX("track.gpx"),
+        GEOJSON("track.geojson"),
+        FIT("track.fit");
+
+        private final String fileName;
+
+        Format(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    private static final Instant START = Instant.parse("2024-01-01T06:00:00Z");
+    private static final ZoneOffset OFFSET = ZoneOffset.ofHours(1);
+    private static final int TRACK_INTERVAL_SECONDS = 10;
+    private static final int POINTS_PER_PATH = 30;
+
+    private SyntheticImportFiles() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SyntheticImportFiles <format|all> <points> <target-directory>");
+            System.exit(1);
+        }
+        int points = Integer.parseInt(args[1]);
+        Path directory = Files.createDirectories(Path.of(args[2]));
+        Format[] formats = "all".equalsIgnoreCase(args[0]) ? Format.values() : new Format[]{Format.valueOf(args[0].toUpperCase(Locale.ROOT))};
+        for (Format format : formats) {
+            Path file = write(format, points, directory);
+            System.out.printf("%s: %s (%d bytes)%n", format, file, Files.size(file));
+        }
+    }
+
+    /**
+     * Writes a file with {@code points} track points into the directory. The Google timeline formats get
+     * {@code points} path points, the importer adds synthetic points for the visits in between on top.
+     */
+    public static Path write(Format format, int points, Path directory) throws IOException {
+        Path file = directory.resolve(format.getFileName());
+        if (format == Format.FIT) {
+            writeFit(points, file);
+            return file;
+        }
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            switch (format) {
+                case GOOGLE_RECORDS -> writeRecords(points, writer);
+                case GOOGLE_TIMELINE_ANDROID -> writeAndroidTimeline(points, writer);
+                case GOOGLE_TIMELINE_IOS -> writeIOSTimeline(points, writer);
+                case GPX -> writeGpx(points, writer);
+                case GEOJSON -> writeGeoJson(points, writer);
+                default -> throw new IllegalArgumentException("Unsupported format " + format);
+            }
+        }
+        return file;
+    }
+
+    private static void writeRecords(int points, Writer writer) throws IOException {
+        RandomWalk walk = new RandomWalk();
+        writer.write("{\"locations\": [");
+        for (int i = 0; i < points; i++) {
+            walk.step();
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write(String.format(Locale.ROOT,
+                                       "{\"latitudeE7\": %d, \"longitudeE7\": %d, \"accuracy\": %d, \"source\": \"GPS\", \"timestamp\": \"%s\"}",
+                                       Math.round(walk.latitude * 1e7), Math.round(walk.longitude * 1e7), walk.accuracy(),
+                                       trackTime(i)));
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static void writeGpx(int points, Writer writer) throws IOException {
+        RandomWalk walk = new RandomWalk();
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<gpx version=\"1.1\" creator=\"reitti-benchmark\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n<trk><trkseg>\n");
+        for (int i = 0; i < points; i++) {
+            walk.step();
+            writer.write(String.format(Locale.ROOT, "<trkpt lat=\"%.7f\" lon=\"%.7f\"><ele>%.1f</ele><time>%s</time></trkpt>\n",
+                                       walk.latitude, walk.longitude, walk.elevation, trackTime(i)));
+        }
+        writer.write("</trkseg></trk>\n</gpx>\n");
+    }
+
+    private static void writeGeoJson(int points, Writer writer) throws IOException {
+        RandomWalk walk = new RandomWalk();
+        writer.write("{\"type\": \"FeatureCollection\", \"features\": [");
+        for (int i = 0; i < points; i++) {
+            walk.step();
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write(String.format(Locale.ROOT,
+                                       "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [%.7f, %.7f, %.1f]}, \"properties\": {\"timestamp\": \"%s\", \"accuracy\": %d}}",
+                                       walk.longitude, walk.latitude, walk.elevation, trackTime(i), walk.accuracy()));
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static void writeFit(int points, Path file) {
+        RandomWalk walk = new RandomWalk();
+        FileEncoder encoder = new FileEncoder(file.toFile(), Fit.ProtocolVersion.V2_0);
+        FileIdMesg fileId = new FileIdMesg();
+        fileId.setType(com.garmin.fit.File.ACTIVITY);
+        fileId.setManufacturer(Manufacturer.DEVELOPMENT);
+        fileId.setProduct(0);
+        fileId.setSerialNumber(1L);
+        fileId.setTimeCreated(new DateTime(Date.from(START)));
+        encoder.write(fileId);
+        for (int i = 0; i < points; i++) {
+            walk.step();
+            RecordMesg record = new RecordMesg();
+            record.setTimestamp(new DateTime(Date.from(START.plusSeconds((long) i * TRACK_INTERVAL_SECONDS))));
+            record.setPositionLat(toSemicircles(walk.latitude));
+            record.setPositionLong(toSemicircles(walk.longitude));
+            record.setEnhancedAltitude((float) walk.elevation);
+            record.setGpsAccuracy((short) walk.accuracy());
+            encoder.write(record);
+        }
+        encoder.close();
+    }
+
+    /**
+     * Alternates visits of 30 to 120 minutes with paths of {@link #POINTS_PER_PATH} points, one point per minute.
+     */
+    private static void writeAndroidTimeline(int points, Writer writer) throws IOException {
+        RandomWalk walk = new RandomWalk();
+        Instant time = START;
+        writer.write("{\"semanticSegments\": [");
+        boolean first = true;
+        for (int written = 0; written < points; ) {
+            Instant visitEnd = time.plusSeconds(60L * (30 + walk.random.nextInt(91)));
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write(String.format(Locale.ROOT,
+                                       "{\"startTime\": \"%s\", \"endTime\": \"%s\", \"visit\": {\"hierarchyLevel\": 0, \"probability\": 0.9, \"topCandidate\": {\"placeId\": \"place-%d\", \"semanticType\": \"UNKNOWN\", \"probability\": 0.8, \"placeLocation\": {\"latLng\": \"%.7f°, %.7f°\"}}}}",
+                                       zoned(time), zoned(visitEnd), written, walk.latitude, walk.longitude));
+            time = visitEnd;
+
+            int pathPoints = Math.min(POINTS_PER_PATH, points - written);
+            Instant pathEnd = time.plusSeconds(60L * (pathPoints + 1));
+            writer.write(String.format(Locale.ROOT, ",\n{\"startTime\": \"%s\", \"endTime\": \"%s\", \"timelinePath\": [", zoned(time), zoned(pathEnd)));
+            for (int i = 0; i < pathPoints; i++) {
+                walk.step();
+                writer.write(String.format(Locale.ROOT, "%s{\"point\": \"%.7f°, %.7f°\", \"time\": \"%s\"}",
+                                           i == 0 ? "" : ", ", walk.latitude, walk.longitude, zoned(time.plusSeconds(60L * (i + 1)))));
+            }
+            writer.write("]}");
+            written += pathPoints;
+            time = pathEnd;
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static void writeIOSTimeline(int points, Writer writer) throws IOException {
+        RandomWalk walk = new RandomWalk();
+        Instant time = START;
+        writer.write("[");
+        boolean first = true;
+        for (int written = 0; written < points; ) {
+            Instant visitEnd = time.plusSeconds(60L * (30 + walk.random.nextInt(91)));
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write(String.format(Locale.ROOT,
+                                       "{\"startTime\": \"%s\", \"endTime\": \"%s\", \"visit\": {\"hierarchyLevel\": \"0\", \"probability\": \"0.900000\", \"topCandidate\": {\"probability\": \"0.800000\", \"semanticType\": \"Unknown\", \"placeID\": \"place-%d\", \"placeLocation\": \"geo:%.7f,%.7f\"}}}",
+                                       zoned(time), zoned(visitEnd), written, walk.latitude, walk.longitude));
+            time = visitEnd;
+
+            int pathPoints = Math.min(POINTS_PER_PATH, points - written);
+            Instant pathEnd = time.plusSeconds(60L * (pathPoints + 1));
+            writer.write(String.format(Locale.ROOT, ",\n{\"startTime\": \"%s\", \"endTime\": \"%s\", \"timelinePath\": [", zoned(time), zoned(pathEnd)));
+            for (int i = 0; i < pathPoints; i++) {
+                walk.step();
+                writer.write(String.format(Locale.ROOT, "%s{\"point\": \"geo:%.7f,%.7f\", \"durationMinutesOffsetFromStartTime\": \"%d\"}",
+                                           i == 0 ? "" : ", ", walk.latitude, walk.longitude, i + 1));
+            }
+            writer.write("]}");
+            written += pathPoints;
+            time = pathEnd;
+        }
+        writer.write("\n]\n");
+    }
+
+    private static String trackTime(int index) {
+        return START.plusSeconds((long) index * TRACK_INTERVAL_SECONDS).toString();
+    }
+
+    private static String zoned(Instant instant) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(instant.atOffset(OFFSET));
+    }
+
+    private static int toSemicircles(double degrees) {
+        return (int) Math.round(degrees * (Math.pow(2, 31) / 180.0));
+    }
+
+    private static final class RandomWalk {
+        private final Random random = new Random(42);
+        private double latitude = 53.5511;
+        private double longitude = 9.9937;
+        private double elevation = 20;
+
+        void step() {
+            latitude += (random.nextDouble() - 0.5) * 0.0004;
+            longitude += (random.nextDouble() - 0.5) * 0.0006;
+            elevation = Math.max(0, elevation + (random.nextDouble() - 0.5) * 2);
+        }
+
+        int accuracy() {
+            return 3 + random.nextInt(20);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.dedicatedcode.reitti.model.security.ExternalUser;
 import com.dedicatedcode.reitti.model.security.User;
 import com.dedicatedcode.reitti.repository.UserJdbcService;
 import com.dedicatedcode.reitti.service.AvatarService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import com.dedicatedcode.reitti.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -44,6 +45,9 @@ public class CustomOidcUserServiceTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private OwntracksFriendsService owntracksFriendsService;
+
     @MockitoBean
     private AvatarService avatarService;
 
@@ -74,7 +78,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_NewUser_RegistrationEnabled() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, false));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, false));
         OidcUserRequest oidcUserRequest = createOidcUserRequest();
         OidcUser mockOidcUser = createMockOidcUser();
         
@@ -109,7 +113,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_NewUser_RegistrationDisabled() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, false, false));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, false, false));
         OidcUserRequest oidcUserRequest = createOidcUserRequest();
         OidcUser mockOidcUser = createMockOidcUser();
         
@@ -124,7 +128,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_ExistingUserByOidcId_LocalLoginDisabled() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, true));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, true));
         
         // Create existing user with password
         userJdbcService.createUser(new User()
@@ -160,7 +164,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_ExistingUserByPreferredUsername_LocalLoginDisabled() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, true));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, true));
         
         // Create existing user with preferred username and password
         userJdbcService.createUser(new User()
@@ -194,7 +198,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_ExistingUser_LocalLoginEnabled() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, false));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, false));
         
         // Create existing user with password
         userJdbcService.createUser(new User()
@@ -229,7 +233,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_AvatarDownloadFailure() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, false));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, false));
         OidcUserRequest oidcUserRequest = createOidcUserRequest();
         OidcUser mockOidcUser = createMockOidcUser();
         
@@ -253,7 +257,7 @@ public class CustomOidcUserServiceTest {
     @Test
     void testLoadUser_NoAvatarUrl() throws MalformedURLException {
         // Given
-        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, restTemplate, true, false));
+        customOidcUserService = spy(new CustomOidcUserService(userJdbcService, userService, avatarService, owntracksFriendsService, restTemplate, true, false));
         OidcUserRequest oidcUserRequest = createOidcUserRequestWithoutAvatar();
         OidcUser mockOidcUser = createMockOidcUserWithoutAvatar();
         
@@ -0,0 +1,220 @@
+package com.dedicatedcode.reitti.controller.api;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.StorageService;
+import com.dedicatedcode.reitti.service.importer.ChunkedUploadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@IntegrationTest
+@AutoConfigureWebMvc
+class ChunkedUploadApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestingService testingService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private StorageService storageService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = testingService.randomUser();
+    }
+
+    @Test
+    void shouldImportFileUploadedInChunks() throws Exception {
+        byte[] content;
+        try (InputStream in = getClass().getResourceAsStream("/data/gpx/20250617.gpx")) {
+            content = in.readAllBytes();
+        }
+        int half = content.length / 2;
+
+        MvcResult created = mockMvc.perform(post("/api/v1/import/uploads")
+                                                    .with(user(testUser))
+                                                    .header("Tus-Resumable", "1.0.0")
+                                                    .header("Upload-Length", content.length)
+                                                    .header("Upload-Metadata", "filename " + Base64.getEncoder().encodeToString("20250617.gpx".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Upload-Offset", "0"))
+                .andReturn();
+        String location = created.getResponse().getHeader("Location");
+
+        mockMvc.perform(patch(location)
+                                .with(user(testUser))
+                                .contentType("application/offset+octet-stream")
+                                .header("Upload-Offset", 0)
+                                .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", String.valueOf(half)));
+
+        // a client which lost the response retries the first chunk and is told where to continue
+        mockMvc.perform(patch(location)
+                                .with(user(testUser))
+                                .contentType("application/offset+octet-stream")
+                                .header("Upload-Offset", 0)
+                                .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Upload-Offset", String.valueOf(half)));
+
+        mockMvc.perform(head(location).with(user(testUser)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", String.valueOf(half)))
+                .andExpect(header().string("Upload-Length", String.valueOf(content.length)));
+
+        mockMvc.perform(patch(location)
+                                .with(user(testUser))
+                                .contentType("application/offset+octet-stream")
+                                .header("Upload-Offset", half)
+                                .content(Arrays.copyOfRange(content, half, content.length)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", String.valueOf(content.length)));
+
+        awaitImport(location);
+        mockMvc.perform(get(location).with(user(testUser)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETE"))
+                .andExpect(jsonPath("$.import.success").value(true));
+
+        testingService.awaitDataImport(30);
+        assertFalse(testingService.loadPoints(testUser, testingService.findDefaultDevice(testUser)).isEmpty());
+    }
+
+    @Test
+    void shouldAcceptTheRestOfAnUploadWhoseImportFinishedEarly() throws Exception {
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipped);
+             InputStream in = getClass().getResourceAsStream("/data/gpx/20250617.gpx")) {
+            zip.putNextEntry(new ZipEntry("20250617.gpx"));
+            in.transferTo(zip);
+            zip.closeEntry();
+        }
+        byte[] content = zipped.toByteArray();
+        // the importer stops at the central directory, the end of it is still missing
+        int withheld = 10;
+
+        String location = create("export.zip", content.length);
+        mockMvc.perform(patch(location)
+                                .with(user(testUser))
+                                .contentType("application/offset+octet-stream")
+                                .header("Upload-Offset", 0)
+                                .content(Arrays.copyOfRange(content, 0, content.length - withheld)))
+                .andExpect(status().isNoContent());
+
+        awaitImport(location);
+        mockMvc.perform(get(location).with(user(testUser)))
+                .andExpect(jsonPath("$.state").value("UPLOADING"))
+                .andExpect(jsonPath("$.import.success").value(true));
+
+        mockMvc.perform(patch(location)
+                                .with(user(testUser))
+                                .contentType("application/offset+octet-stream")
+                                .header("Upload-Offset", content.length - withheld)
+                                .content(Arrays.copyOfRange(content, content.length - withheld, content.length)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", String.valueOf(content.length)));
+        mockMvc.perform(get(location).with(user(testUser)))
+                .andExpect(jsonPath("$.state").value("COMPLETE"))
+                .andExpect(jsonPath("$.import.success").value(true));
+        assertFalse(storageService.exists("imports/uploads/" + uploadId(location)));
+    }
+
+    @Test
+    void shouldFailAnUploadExceedingTheAnnouncedLength() {
+        ChunkedUploadService.Upload upload = chunkedUploadService.create(testUser, testingService.findDefaultDevice(testUser), "track.gpx", 10);
+
+        // no Content-Length to check up front, e.g. a chunked request body
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.append(upload, 0, new ByteArrayInputStream(new byte[25])));
+
+        assertEquals(ChunkedUploadService.State.FAILED, upload.getState());
+        assertTrue(upload.getImportResult().isEmpty());
+        assertFalse(storageService.exists("imports/uploads/" + upload.getId()));
+        assertThrows(IllegalStateException.class, () -> chunkedUploadService.append(upload, 0, new ByteArrayInputStream(new byte[10])));
+    }
+
+    @Test
+    void shouldNotImportARunningUploadWhichExceedsTheAnnouncedLength() throws Exception {
+        byte[] content;
+        try (InputStream in = getClass().getResourceAsStream("/data/gpx/20250617.gpx")) {
+            content = in.readAllBytes();
+        }
+        int firstChunk = content.length / 2;
+        ChunkedUploadService.Upload upload = chunkedUploadService.create(testUser, testingService.findDefaultDevice(testUser), "20250617.gpx", content.length);
+        chunkedUploadService.append(upload, 0, new ByteArrayInputStream(content, 0, firstChunk));
+
+        byte[] tooLong = Arrays.copyOf(Arrays.copyOfRange(content, firstChunk, content.length), content.length - firstChunk + 100);
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.append(upload, firstChunk, new ByteArrayInputStream(tooLong)));
+
+        await().atMost(30, TimeUnit.SECONDS).until(() -> upload.getImportResult().isPresent());
+        assertEquals(ChunkedUploadService.State.FAILED, upload.getState());
+        assertEquals(false, upload.getImportResult().orElseThrow().get("success"));
+        testingService.awaitDataImport(30);
+        assertTrue(testingService.loadPoints(testUser, testingService.findDefaultDevice(testUser)).isEmpty());
+        assertFalse(storageService.exists("imports/uploads/" + upload.getId()));
+    }
+
+    @Test
+    void shouldRejectUnknownUploadsAndUnsupportedFiles() throws Exception {
+        mockMvc.perform(head("/api/v1/import/uploads/does-not-exist").with(user(testUser)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/v1/import/uploads")
+                                .with(user(testUser))
+                                .header("Upload-Length", 10)
+                                .header("Upload-Metadata", "filename " + Base64.getEncoder().encodeToString("notes.txt".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String create(String filename, long length) throws Exception {
+        return mockMvc.perform(post("/api/v1/import/uploads")
+                                       .with(user(testUser))
+                                       .header("Tus-Resumable", "1.0.0")
+                                       .header("Upload-Length", length)
+                                       .header("Upload-Metadata", "filename " + Base64.getEncoder().encodeToString(filename.getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+    }
+
+    private void awaitImport(String location) {
+        ChunkedUploadService.Upload upload = chunkedUploadService.find(testUser, uploadId(location)).orElseThrow();
+        await().atMost(30, TimeUnit.SECONDS).until(() -> upload.getImportResult().isPresent());
+    }
+
+    private static String uploadId(String location) {
+        return location.substring(location.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dedicatedcode.reitti.controller.api;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@AutoConfigureWebMvc
+class ImportScanApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestingService testingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User testUser;
+    private Device device;
+    private MockMultipartFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testUser = testingService.randomUser();
+        device = testingService.findDefaultDevice(testUser);
+        try (InputStream in = getClass().getResourceAsStream("/data/gpx/20250617.gpx")) {
+            file = new MockMultipartFile("file", "20250617.gpx", "application/gpx+xml", in.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldSummarizeFileWithoutStagingIt() throws Exception {
+        mockMvc.perform(multipart("/api/v1/import/scan").file(file).param("device", device.id().toString()).with(user(testUser)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.formats[0]").value("GPX"))
+                .andExpect(jsonPath("$.points").value(2289))
+                .andExpect(jsonPath("$.start").value("2025-06-16T22:00:09.154Z"))
+                .andExpect(jsonPath("$.end").value("2025-06-17T21:59:44.876Z"))
+                .andExpect(jsonPath("$.alreadyStored").value(0))
+                .andExpect(jsonPath("$.days.length()").value(2))
+                .andExpect(jsonPath("$.days[0].storedPoints").value(0))
+                .andExpect(jsonPath("$.devices.length()").value(0));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Integer.class, testUser.getId()));
+        assertEquals(0, testingService.loadPoints(testUser, device).size());
+    }
+
+    @Test
+    void shouldReportOverlapWithStoredData() throws Exception {
+        testingService.importData(testUser, device, "/data/gpx/20250617.gpx");
+        testingService.awaitDataImport(30);
+
+        mockMvc.perform(multipart("/api/v1/import/scan").file(file).param("device", device.id().toString()).with(user(testUser)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alreadyStored").value(2289))
+                .andExpect(jsonPath("$.devices.length()").value(1))
+                .andExpect(jsonPath("$.devices[0].deviceId").value(device.id()));
+    }
+
+    @Test
+    void shouldRejectUnsupportedFiles() throws Exception {
+        MockMultipartFile text = new MockMultipartFile("file", "notes.txt", "text/plain", "hello".getBytes());
+        mockMvc.perform(multipart("/api/v1/import/scan").file(text).with(user(testUser)))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,100 @@
+package com.dedicatedcode.reitti.controller.api.ingestion.binary;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
+import com.dedicatedcode.reitti.model.security.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@AutoConfigureWebMvc
+class BinaryIngestionApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestingService testingService;
+    private User testUser;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        testUser = testingService.randomUser();
+        device = testingService.findDefaultDevice(testUser);
+    }
+
+    @Test
+    void testBinaryIngest() throws Exception {
+        mockMvc.perform(post("/api/v1/ingest/binary")
+                                .with(user(new DeviceTokenUser(testUser, device)))
+                                .contentType(CompactPointBatchDecoder.MEDIA_TYPE)
+                                .content(encodeTwoPoints()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("ok"))
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(2));
+    }
+
+    @Test
+    void testGzipCompressedBinaryIngest() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encodeTwoPoints());
+        }
+
+        mockMvc.perform(post("/api/v1/ingest/binary")
+                                .with(user(new DeviceTokenUser(testUser, device)))
+                                .contentType(CompactPointBatchDecoder.MEDIA_TYPE)
+                                .content(compressed.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2));
+    }
+
+    @Test
+    void testMalformedBinaryIngest() throws Exception {
+        mockMvc.perform(post("/api/v1/ingest/binary")
+                                .with(user(new DeviceTokenUser(testUser, device)))
+                                .contentType(CompactPointBatchDecoder.MEDIA_TYPE)
+                                .content("{\"lat\": 53.8}".getBytes()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static byte[] encodeTwoPoints() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[]{'R', 'T', 'B', CompactPointBatchDecoder.VERSION});
+        out.writeInt(2);
+        out.writeLong(1699531200000L);
+        // first point at the base timestamp
+        out.writeByte(0);
+        out.writeInt(538631490);
+        out.writeInt(107009270);
+        out.writeShort(105);
+        out.writeInt(4250);
+        // second point 10 seconds later, zigzag(10000) = 20000 as varint
+        out.writeByte(0xA0);
+        out.writeByte(0x9C);
+        out.writeByte(0x01);
+        out.writeInt(538632000);
+        out.writeInt(107009000);
+        out.writeShort(80);
+        out.writeInt(CompactPointBatchDecoder.NO_ELEVATION);
+        return bytes.toByteArray();
+    }
+}
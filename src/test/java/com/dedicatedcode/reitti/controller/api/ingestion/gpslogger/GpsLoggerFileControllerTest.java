@@ -0,0 +1,78 @@
+package com.dedicatedcode.reitti.controller.api.ingestion.gpslogger;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.DeviceTokenUser;
+import com.dedicatedcode.reitti.model.security.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@AutoConfigureWebMvc
+class GpsLoggerFileControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestingService testingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User testUser;
+    private Device device;
+    private MockMultipartFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testUser = testingService.randomUser();
+        device = testingService.findDefaultDevice(testUser);
+        try (InputStream in = getClass().getResourceAsStream("/data/gpx/20250617.gpx")) {
+            file = new MockMultipartFile("file", "20250617.gpx", "application/gpx+xml", in.readAllBytes());
+        }
+    }
+
+    @Test
+    void uploadedFileShouldBeImportedAsJob() throws Exception {
+        mockMvc.perform(multipart("/api/v2/gpslogger/file").file(file).with(user(new DeviceTokenUser(testUser, device))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.pointsScheduled").value(2289));
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM job_meta_data WHERE user_id = ? AND type = 'GPX_IMPORT' AND parent_job_id IS NULL",
+                                                    Integer.class, testUser.getId()));
+        await().atMost(30, TimeUnit.SECONDS).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM raw_location_points WHERE user_id = ?", Integer.class, testUser.getId()) == 2289);
+        // past days must not end up in the live partition of today
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM partition_registry WHERE partition_name LIKE ?",
+                                                    Integer.class, "stream_" + testUser.getId() + "_%"));
+    }
+
+    @Test
+    void testFileShouldOnlyBeAcknowledged() throws Exception {
+        MockMultipartFile testFile = new MockMultipartFile("file", "gpslogger_test.xml", "text/xml", "<test/>".getBytes());
+
+        mockMvc.perform(multipart("/api/v2/gpslogger/file").file(testFile).with(user(new DeviceTokenUser(testUser, device))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM job_meta_data WHERE user_id = ?", Integer.class, testUser.getId()));
+    }
+}
@@ -10,8 +10,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureWebMvc;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -26,6 +30,9 @@ class OverlandIngestionApiControllerTest {
 
     @Autowired
     private TestingService testingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     private User testUser;
     private Device device;
 
@@ -110,4 +117,40 @@ class OverlandIngestionApiControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result").value("ok"));
     }
+
+    @Test
+    void testOverlandIngestStagesWholePayloadWithoutPointsMissingAccuracy() throws Exception {
+        String overlandPayload = """
+                {
+                    "locations": [
+                        {
+                            "type": "Feature",
+                            "geometry": { "type": "Point", "coordinates": [10.700927, 53.863149] },
+                            "properties": { "timestamp": "2023-11-09T12:00:00Z", "horizontal_accuracy": 10.5 }
+                        },
+                        {
+                            "type": "Feature",
+                            "geometry": { "type": "Point", "coordinates": [10.701027, 53.863249] },
+                            "properties": { "timestamp": "2023-11-09T12:00:10Z", "horizontal_accuracy": 8.0 }
+                        },
+                        {
+                            "type": "Feature",
+                            "geometry": { "type": "Point", "coordinates": [10.701127, 53.863349] },
+                            "properties": { "timestamp": "2023-11-09T12:00:20Z" }
+                        }
+                    ]
+                }
+                """;
+
+        mockMvc.perform(post("/api/v1/ingest/overland")
+                                .with(user(new DeviceTokenUser(testUser, device)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(overlandPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("ok"));
+
+        // the point without accuracy is not staged
+        await().atMost(30, TimeUnit.SECONDS).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM raw_location_points WHERE user_id = ?", Integer.class, testUser.getId()) == 2);
+    }
 }
@@ -12,6 +12,7 @@ import com.dedicatedcode.reitti.model.security.UserSharing;
 import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
 import com.dedicatedcode.reitti.repository.UserSharingJdbcService;
 import com.dedicatedcode.reitti.service.LocationBatchingService;
+import com.dedicatedcode.reitti.service.OwntracksFriendsService;
 import com.dedicatedcode.reitti.service.integration.ReittiIntegrationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,6 +48,9 @@ class OwntracksIngestionApiControllerIntegrationTest {
     @Autowired
     private RawLocationPointJdbcService rawLocationPointJdbcService;
 
+    @Autowired
+    private OwntracksFriendsService owntracksFriendsService;
+
     @MockitoBean
     private LocationBatchingService locationBatchingService;
 
@@ -177,6 +181,37 @@ class OwntracksIngestionApiControllerIntegrationTest {
         verify(locationBatchingService, times(1)).addLocationPoint(any(User.class), nullable(Device.class), any(LocationPoint.class));
     }
 
+    @Test
+    void testOwntracksIngestReturnsUpdatedSharedUserLocation() throws Exception {
+        String owntracksPayload = """
+                {
+                    "_type": "location",
+                    "lat": 53.863149,
+                    "lon": 10.700927,
+                    "tst": 1699545600,
+                    "acc": 10.5
+                }
+                """;
+
+        mockMvc.perform(post("/api/v1/ingest/owntracks")
+                        .with(user(new DeviceTokenUser(testUser, device)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(owntracksPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].lat").value(60.1699));
+
+        rawLocationPointJdbcService.create(sharedUser, new RawLocationPoint(Instant.now().plusSeconds(60), new GeoPoint(60.2000, 24.9500), 10.0));
+        owntracksFriendsService.locationUpdated(sharedUser);
+
+        mockMvc.perform(post("/api/v1/ingest/owntracks")
+                        .with(user(new DeviceTokenUser(testUser, device)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(owntracksPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].lat").value(60.2000))
+                .andExpect(jsonPath("$[1].lon").value(24.9500));
+    }
+
     @Test
     void testOwntracksIngestWithInvalidPayload() throws Exception {
         String invalidPayload = """
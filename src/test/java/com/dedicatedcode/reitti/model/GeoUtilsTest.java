@@ -48,4 +48,22 @@ class GeoUtilsTest {
         distance = GeoUtils.distanceInMeters(53.86311997086828, 10.697632182858786,53.863101456971975, 10.701659658003141);
         assertEquals(264.103574, distance, 0.001);
     }
+
+    @Test
+    void shouldExpandBoundingBoxByAtLeastTheDistance() {
+        double[] box = GeoUtils.expandBoundingBox(53.86, 10.70, 53.87, 10.71, 1000);
+
+        assertTrue(GeoUtils.distanceInMeters(53.86, 10.70, box[0], 10.70) >= 1000);
+        assertTrue(GeoUtils.distanceInMeters(53.87, 10.71, box[2], 10.71) >= 1000);
+        assertTrue(GeoUtils.distanceInMeters(53.87, 10.70, 53.87, box[1]) >= 1000);
+        assertTrue(GeoUtils.distanceInMeters(53.87, 10.71, 53.87, box[3]) >= 1000);
+    }
+
+    @Test
+    void shouldSpanAllLongitudesWhenTheBoxReachesAcrossTheAntimeridian() {
+        double[] box = GeoUtils.expandBoundingBox(-17.0, 179.9995, -17.0, 179.9995, 200);
+
+        assertEquals(-180, box[1]);
+        assertEquals(180, box[3]);
+    }
 }
@@ -21,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @IntegrationTest
 class ApiTokenJdbcServiceTest {
+    private static final Instant MINUTE = Instant.parse("2025-06-01T10:15:00Z");
 
     @Autowired
     private ApiTokenJdbcService apiTokenJdbcService;
@@ -170,19 +171,34 @@ class ApiTokenJdbcServiceTest {
     }
 
     @Test
-    void trackUsage_AndGetUsages_ShouldRecordUsage() {
+    void upsertUsages_AndGetUsages_ShouldRecordUsage() {
         ApiToken token = testingService.createApiToken(testUser, "Usage token", null);
 
-        apiTokenJdbcService.trackUsage(token.getToken(), "/api/test-endpoint", "127.0.0.1");
+        apiTokenJdbcService.upsertUsages(List.of(usage(token, MINUTE, "/api/test-endpoint", "127.0.0.1", 3)));
 
         List<ApiTokenUsage> usages = apiTokenJdbcService.getUsages(testUser, 10);
         assertTrue(usages.size() > 0);
         ApiTokenUsage usage = usages.get(0);
         assertEquals("/api/test-endpoint", usage.endpoint());
         assertEquals("127.0.0.1", usage.ip());
+        assertEquals(3, usage.count());
         assertNotNull(usage.at());
     }
 
+    @Test
+    void upsertUsages_ShouldAddToExistingBucket() {
+        ApiToken token = testingService.createApiToken(testUser, "Bucket token", null);
+
+        apiTokenJdbcService.upsertUsages(List.of(usage(token, MINUTE, "/a", "1.2.3.4", 2)));
+        apiTokenJdbcService.upsertUsages(List.of(usage(token, MINUTE, "/a", "1.2.3.4", 5),
+                                                 usage(token, MINUTE.plusSeconds(60), "/a", "1.2.3.4", 1)));
+
+        List<ApiTokenUsage> usages = apiTokenJdbcService.getUsages(testUser, 10);
+        assertEquals(2, usages.size());
+        assertEquals(1, usages.get(0).count());
+        assertEquals(7, usages.get(1).count());
+    }
+
     @Test
     void getUsages_WithNoUsages_ShouldReturnEmptyList() {
         List<ApiTokenUsage> usages = apiTokenJdbcService.getUsages(testUser, 10);
@@ -192,14 +208,18 @@ class ApiTokenJdbcServiceTest {
     @Test
     void getUsages_ShouldRespectMaxRows() {
         ApiToken token = testingService.createApiToken(testUser, "Max rows token", null);
-        apiTokenJdbcService.trackUsage(token.getToken(), "/a", "1.2.3.4");
-        apiTokenJdbcService.trackUsage(token.getToken(), "/b", "1.2.3.5");
-        apiTokenJdbcService.trackUsage(token.getToken(), "/c", "1.2.3.6");
+        apiTokenJdbcService.upsertUsages(List.of(usage(token, MINUTE, "/a", "1.2.3.4", 1),
+                                                 usage(token, MINUTE, "/b", "1.2.3.5", 1),
+                                                 usage(token, MINUTE, "/c", "1.2.3.6", 1)));
 
         List<ApiTokenUsage> usages = apiTokenJdbcService.getUsages(testUser, 2);
         assertEquals(2, usages.size());
     }
 
+    private static ApiTokenJdbcService.ApiTokenUsageCount usage(ApiToken token, Instant minute, String endpoint, String ip, long count) {
+        return new ApiTokenJdbcService.ApiTokenUsageCount(token.getToken(), minute, endpoint, ip, count);
+    }
+
     private Device createTestDevice(User user) {
         String name = "test-device-" + UUID.randomUUID();
         Instant now = Instant.now();
@@ -103,6 +103,26 @@ class SignificantPlaceJdbcServiceTest {
         assertThat(nearbyPlaces.get(0).getName()).isEqualTo("Near Place");
     }
 
+    @Test
+    void findPlacesNearArea_shouldFindPlacesAlongTheEdgesOfAWideArea() {
+        // the southern edge of the area, which a geodesic between its corners would bow away from
+        significantPlaceJdbcService.create(testUser, createTestPlace("Edge Place", 10.2, 15.0));
+        significantPlaceJdbcService.create(testUser, createTestPlace("Outside Place", 9.9, 15.0));
+
+        List<SignificantPlace> places = significantPlaceJdbcService.findPlacesNearArea(testUser.getId(), 10.0, -10.0, 60.0, 40.0, 100);
+
+        assertThat(places).extracting(SignificantPlace::getName).containsExactly("Edge Place");
+    }
+
+    @Test
+    void findPlacesNearArea_shouldFindPlacesAcrossTheAntimeridian() {
+        significantPlaceJdbcService.create(testUser, createTestPlace("East Place", -17.0, 179.9995));
+
+        List<SignificantPlace> places = significantPlaceJdbcService.findPlacesNearArea(testUser.getId(), -17.00001, -179.99951, -16.99999, -179.99949, 200);
+
+        assertThat(places).extracting(SignificantPlace::getName).containsExactly("East Place");
+    }
+
     @Test
     void create_shouldPersistNewPlace() {
         // Given
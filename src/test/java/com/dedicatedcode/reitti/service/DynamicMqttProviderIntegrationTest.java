@@ -323,4 +323,74 @@ class DynamicMqttProviderIntegrationTest {
 
         assertTrue(points.isEmpty(), "Should not have any location points for unsupported message types");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRouteMessagesOfUsersSharingABroker() {
+        // Given
+        User otherUser = testingService.randomUser();
+        Device otherDevice = testingService.findDefaultDevice(otherUser);
+        MqttIntegration otherIntegration = mqttIntegration
+                .withTopic("owntracks/" + otherUser.getUsername() + "/testdevice")
+                .withDeviceId(otherDevice.id());
+
+        String payload = "{\"tst\":1672574400,\"_type\":\"location\",\"lat\":53.863149,\"lon\":10.700927,\"acc\":10.0}";
+        String otherPayload = "{\"tst\":1672574400,\"_type\":\"location\",\"lat\":60.169856,\"lon\":24.938379,\"acc\":10.0}";
+
+        // When
+        dynamicMqttProvider.register(testUser, mqttIntegration);
+        dynamicMqttProvider.register(otherUser, otherIntegration);
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> dynamicMqttProvider.isClientConnected(testUser) == DynamicMqttProvider.MqttStatus.CONNECTED
+                        && dynamicMqttProvider.isClientConnected(otherUser) == DynamicMqttProvider.MqttStatus.CONNECTED);
+        publisherClient.publishWith()
+                .topic(mqttIntegration.getTopic())
+                .payload(payload.getBytes())
+                .send()
+                .join();
+        publisherClient.publishWith()
+                .topic(otherIntegration.getTopic())
+                .payload(otherPayload.getBytes())
+                .send()
+                .join();
+
+        // Then
+        await()
+                .atMost(15, TimeUnit.SECONDS)
+                .until(() -> rawLocationPointJdbcService.findLatest(testUser).isPresent()
+                        && rawLocationPointJdbcService.findLatest(otherUser).isPresent());
+
+        assertEquals(53.863149, rawLocationPointJdbcService.findLatest(testUser).orElseThrow().getLatitude(), 0.0001);
+        assertEquals(60.169856, rawLocationPointJdbcService.findLatest(otherUser).orElseThrow().getLatitude(), 0.0001);
+
+        dynamicMqttProvider.remove(otherUser);
+        assertEquals(DynamicMqttProvider.MqttStatus.UNAVAILABLE, dynamicMqttProvider.isClientConnected(otherUser));
+        assertEquals(DynamicMqttProvider.MqttStatus.CONNECTED, dynamicMqttProvider.isClientConnected(testUser));
+    }
+
+    @Test
+    void shouldShareOneConnectionBetweenIntegrationsOnTheSameBroker() {
+        // Given
+        User otherUser = testingService.randomUser();
+        MqttIntegration otherIntegration = mqttIntegration
+                .withIdentifier("other-client-" + System.currentTimeMillis())
+                .withTopic("owntracks/" + otherUser.getUsername() + "/testdevice")
+                .withDeviceId(testingService.findDefaultDevice(otherUser).id());
+
+        // When
+        dynamicMqttProvider.register(testUser, mqttIntegration);
+        int connections = dynamicMqttProvider.getConnectionCount();
+        dynamicMqttProvider.register(otherUser, otherIntegration);
+
+        // Then
+        assertEquals(connections, dynamicMqttProvider.getConnectionCount());
+        await()
+                .atMost(5, TimeUnit.SECONDS)
+                .until(() -> dynamicMqttProvider.isClientConnected(testUser) == DynamicMqttProvider.MqttStatus.CONNECTED
+                        && dynamicMqttProvider.isClientConnected(otherUser) == DynamicMqttProvider.MqttStatus.CONNECTED);
+
+        dynamicMqttProvider.remove(otherUser);
+        assertEquals(connections, dynamicMqttProvider.getConnectionCount());
+        assertEquals(DynamicMqttProvider.MqttStatus.CONNECTED, dynamicMqttProvider.isClientConnected(testUser));
+    }
+}
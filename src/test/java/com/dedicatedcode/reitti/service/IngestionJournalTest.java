@@ -0,0 +1,78 @@
+package com.dedicatedcode.reitti.service;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionJournalTest {
+
+    @TempDir
+    Path storage;
+
+    @Test
+    void shouldReplayPointsWhichWereNeverStaged() {
+        IngestionJournal journal = new IngestionJournal(true, storage.toString(), 1, false);
+        journal.append(1, 2, List.of(point(0, 12.5), point(1, null)));
+        journal.append(3, 4, List.of(point(2, 1.0)));
+        // simulate a crash, the journal is never closed
+
+        List<Recovered> recovered = new ArrayList<>();
+        IngestionJournal restarted = new IngestionJournal(true, storage.toString(), 1, false);
+        restarted.replay((userId, deviceId, points) -> recovered.add(new Recovered(userId, deviceId, points)));
+
+        assertEquals(2, recovered.size());
+        assertEquals(1, recovered.getFirst().userId());
+        assertEquals(2, recovered.getFirst().deviceId());
+        assertEquals(2, recovered.getFirst().points().size());
+        LocationPoint first = recovered.getFirst().points().getFirst();
+        assertEquals(Instant.parse("2025-01-01T10:00:00.123456789Z"), first.getTimestamp());
+        assertEquals(60.1699, first.getLatitude());
+        assertEquals(24.9384, first.getLongitude());
+        assertEquals(5.0, first.getAccuracyMeters());
+        assertEquals(12.5, first.getElevationMeters());
+        assertNull(recovered.getFirst().points().get(1).getElevationMeters());
+        assertEquals(3, recovered.get(1).userId());
+    }
+
+    @Test
+    void shouldDeleteSegmentsOnceAllPointsAreStaged() throws IOException {
+        IngestionJournal journal = new IngestionJournal(true, storage.toString(), 1, false);
+        long segment = journal.append(1, 2, List.of(point(0, null), point(1, null)));
+        journal.release(Map.of(segment, 2));
+        journal.close();
+
+        try (Stream<Path> files = Files.list(storage.resolve("ingestion-journal"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        IngestionJournal journal = new IngestionJournal(false, storage.toString(), 1, false);
+        assertEquals(-1, journal.append(1, 2, List.of(point(0, null))));
+        assertFalse(Files.exists(storage.resolve("ingestion-journal")));
+    }
+
+    private static LocationPoint point(int offsetSeconds, Double elevation) {
+        LocationPoint point = new LocationPoint();
+        point.setTimestamp(Instant.parse("2025-01-01T10:00:00.123456789Z").plusSeconds(offsetSeconds));
+        point.setLatitude(60.1699);
+        point.setLongitude(24.9384);
+        point.setAccuracyMeters(5.0);
+        point.setElevationMeters(elevation);
+        return point;
+    }
+
+    private record Recovered(long userId, long deviceId, List<LocationPoint> points) {}
+}
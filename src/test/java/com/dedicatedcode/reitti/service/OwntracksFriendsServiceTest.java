@@ -0,0 +1,79 @@
+package com.dedicatedcode.reitti.service;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.controller.api.ingestion.owntracks.OwntracksFriendResponse;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.model.security.UserSharing;
+import com.dedicatedcode.reitti.repository.UserJdbcService;
+import com.dedicatedcode.reitti.repository.UserSharingJdbcService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class OwntracksFriendsServiceTest {
+
+    @Autowired
+    private OwntracksFriendsService owntracksFriendsService;
+    @Autowired
+    private UserSharingJdbcService userSharingJdbcService;
+    @Autowired
+    private UserJdbcService userJdbcService;
+    @Autowired
+    private TestingService testingService;
+
+    private User friend;
+    private User recipient;
+    private User otherRecipient;
+
+    @BeforeEach
+    void setUp() {
+        friend = testingService.randomUser();
+        recipient = testingService.randomUser();
+        otherRecipient = testingService.randomUser();
+        userSharingJdbcService.create(friend, Set.of(sharing(recipient), sharing(otherRecipient)));
+    }
+
+    @Test
+    void shouldOnlyReloadSharingsOfAffectedRecipients() {
+        assertEquals(List.of(friend.getDisplayName()), cardNames(recipient));
+        assertEquals(List.of(friend.getDisplayName()), cardNames(otherRecipient));
+
+        userSharingJdbcService.delete(new HashSet<>(userSharingJdbcService.findBySharingUser(friend.getId())));
+        owntracksFriendsService.sharingChanged(List.of(recipient.getId()));
+
+        assertTrue(cardNames(recipient).isEmpty());
+        // still served from the cache until its sharings change or expire
+        assertEquals(List.of(friend.getDisplayName()), cardNames(otherRecipient));
+    }
+
+    @Test
+    void shouldRebuildTheCardOfAChangedUser() {
+        assertEquals(List.of(friend.getDisplayName()), cardNames(recipient));
+
+        User renamed = userJdbcService.updateUser(friend.withDisplayName("Renamed " + friend.getUsername()));
+        assertEquals(List.of(friend.getDisplayName()), cardNames(recipient));
+
+        owntracksFriendsService.userChanged(friend.getId());
+        assertEquals(List.of(renamed.getDisplayName()), cardNames(recipient));
+    }
+
+    private List<String> cardNames(User user) {
+        return owntracksFriendsService.getFriends(user).stream()
+                .filter(response -> "card".equals(response.getType()))
+                .map(OwntracksFriendResponse::getName)
+                .toList();
+    }
+
+    private static UserSharing sharing(User sharedWith) {
+        return new UserSharing(null, null, sharedWith.getId(), null, "#f1ba63", null);
+    }
+}
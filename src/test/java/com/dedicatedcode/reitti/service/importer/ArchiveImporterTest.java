@@ -0,0 +1,195 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.jobs.JobType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveImporterTest {
+    @Mock
+    private User user;
+    @Mock
+    private Device device;
+    @Mock
+    private GpxImporter gpxImporter;
+    @Mock
+    private GoogleRecordsImporter googleRecordsImporter;
+    @Mock
+    private GoogleAndroidTimelineImporter googleAndroidTimelineImporter;
+    @Mock
+    private GoogleIOSTimelineImporter googleIOSTimelineImporter;
+    @Mock
+    private GeoJsonImporter geoJsonImporter;
+    @Mock
+    private FitFileImporter fitFileImporter;
+    @Mock
+    private MultiFileImportService multiFileImportService;
+    @Mock
+    private MultiFileImportService.Session fitSession;
+
+    private ArchiveImporter archiveImporter;
+
+    @BeforeEach
+    void setUp() {
+        this.archiveImporter = new ArchiveImporter(gpxImporter, googleRecordsImporter, googleAndroidTimelineImporter,
+                                                   googleIOSTimelineImporter, geoJsonImporter, fitFileImporter, multiFileImportService);
+    }
+
+    @Test
+    void shouldDispatchEveryEntryOfATakeoutArchive() throws IOException {
+        when(googleRecordsImporter.importGoogleRecords(any(), eq(user), eq(device), eq("Records.json")))
+                .thenAnswer(invocation -> {
+                    // the importer closes its stream, the following entries must still be readable
+                    String content = readAndClose(invocation.getArgument(0));
+                    assertTrue(content.contains("\"latitudeE7\""));
+                    return Map.of("success", true, "pointsReceived", 2);
+                });
+        when(gpxImporter.importGpx(any(), eq(user), eq(device), eq("track.gpx")))
+                .thenAnswer(invocation -> {
+                    assertTrue(readAndClose(invocation.getArgument(0)).startsWith("<?xml"));
+                    return Map.of("success", true, "pointsReceived", 3);
+                });
+        when(googleAndroidTimelineImporter.importTimeline(any(), eq(user), eq(device), eq("Timeline.json")))
+                .thenReturn(Map.of("success", true, "pointsReceived", 5));
+
+        byte[] zip = zip(Map.of(
+                "Takeout/Location History (Timeline)/Records.json", "{\"locations\": [{\"latitudeE7\": 1}, {\"latitudeE7\": 2}]}",
+                "Takeout/Location History (Timeline)/Settings.json", "{\"createdTime\": \"2024-01-01T00:00:00Z\"}",
+                "Takeout/Fit/track.gpx", "<?xml version=\"1.0\"?><gpx></gpx>",
+                "Takeout/Timeline.json", "\n  {\"semanticSegments\": []}",
+                "Takeout/archive_browser.html", "<html></html>"
+        ));
+
+        Map<String, Object> result = archiveImporter.importArchive(new ByteArrayInputStream(zip), user, device, "takeout-20240101.zip");
+
+        assertEquals(true, result.get("success"));
+        assertEquals(3, result.get("filesImported"));
+        assertEquals(10, result.get("pointsReceived"));
+        assertFalse(result.containsKey("error"));
+        verifyNoInteractions(googleIOSTimelineImporter, geoJsonImporter, fitFileImporter);
+    }
+
+    @Test
+    void shouldDecodeAllFitEntriesInOneSession() throws IOException {
+        when(multiFileImportService.openSession(eq(user), eq(device), eq(JobType.FIT_FILE_IMPORT), anyString(), eq(0), any()))
+                .thenReturn(fitSession);
+        when(fitSession.finish()).thenReturn(Map.of("success", true, "filesImported", 2, "pointsReceived", 7,
+                                                    "duplicatesSkipped", 1L, "errors", List.of("empty.fit: No valid location points found")));
+        when(gpxImporter.importGpx(any(), eq(user), eq(device), eq("track.gpx")))
+                .thenReturn(Map.of("success", true, "pointsReceived", 3));
+
+        byte[] zip = zip(Map.of(
+                "Garmin/Activities/1.fit", "first",
+                "Garmin/Activities/2.FIT", "second",
+                "Garmin/Activities/empty.fit", "",
+                "Garmin/track.gpx", "<?xml version=\"1.0\"?><gpx></gpx>"
+        ));
+
+        Map<String, Object> result = archiveImporter.importArchive(new ByteArrayInputStream(zip), user, device, "garmin-export.zip");
+
+        ArgumentCaptor<MultiFileImportService.ImportFile> files = ArgumentCaptor.forClass(MultiFileImportService.ImportFile.class);
+        verify(fitSession, times(3)).submit(files.capture());
+        verify(fitSession).finish();
+        MultiFileImportService.ImportFile first = files.getAllValues().stream()
+                .filter(file -> file.filename().equals("Garmin/Activities/1.fit"))
+                .findFirst().orElseThrow();
+        assertEquals("first", readAndClose(first.source().getInputStream()));
+
+        assertEquals(true, result.get("success"));
+        assertEquals(3, result.get("filesImported"));
+        assertEquals(10, result.get("pointsReceived"));
+        assertEquals(1L, result.get("duplicatesSkipped"));
+        assertEquals("empty.fit: No valid location points found", result.get("error"));
+        verifyNoInteractions(fitFileImporter);
+    }
+
+    @Test
+    void shouldImportGzipCompressedFile() throws IOException {
+        when(googleIOSTimelineImporter.importTimeline(any(), eq(user), eq(device), eq("location-history.json")))
+                .thenAnswer(invocation -> {
+                    assertEquals("[{\"startTime\": \"2024-01-01T00:00:00Z\"}]", readAndClose(invocation.getArgument(0)));
+                    return Map.of("success", true, "pointsReceived", 1);
+                });
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("[{\"startTime\": \"2024-01-01T00:00:00Z\"}]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, Object> result = archiveImporter.importArchive(new ByteArrayInputStream(compressed.toByteArray()), user, device, "location-history.json.gz");
+
+        assertEquals(true, result.get("success"));
+        assertEquals(1, result.get("pointsReceived"));
+    }
+
+    @Test
+    void shouldReportFailedEntriesAndArchivesWithoutSupportedFiles() throws IOException {
+        when(geoJsonImporter.importGeoJson(any(), eq(user), eq(device), eq("points.geojson")))
+                .thenReturn(Map.of("success", false, "error", "No valid location points found in GeoJSON"));
+
+        Map<String, Object> failed = archiveImporter.importArchive(new ByteArrayInputStream(zip(Map.of("points.geojson", "{}"))), user, device, "export.zip");
+        assertEquals(false, failed.get("success"));
+        assertEquals("points.geojson: No valid location points found in GeoJSON", failed.get("error"));
+
+        Map<String, Object> empty = archiveImporter.importArchive(new ByteArrayInputStream(zip(Map.of("readme.txt", "hello"))), user, device, "export.zip");
+        assertEquals(false, empty.get("success"));
+        assertEquals("No supported files found in archive", empty.get("error"));
+    }
+
+    @Test
+    void shouldDetectJsonFormatsByTheirFirstProperty() throws IOException {
+        assertEquals(ArchiveImporter.Format.GOOGLE_RECORDS, detect("Records.json", "{\"locations\": []}"));
+        assertEquals(ArchiveImporter.Format.GOOGLE_TIMELINE_ANDROID, detect("Timeline.json", "\uFEFF{ \"semanticSegments\": []}"));
+        assertEquals(ArchiveImporter.Format.GOOGLE_TIMELINE_IOS, detect("export.json", "  [ ]"));
+        assertEquals(ArchiveImporter.Format.GEOJSON, detect("export.json", "{\"type\": \"FeatureCollection\"}"));
+        assertEquals(ArchiveImporter.Format.FIT, detect("activity.FIT", ""));
+        assertNull(detect("Settings.json", "{\"createdTime\": \"2024-01-01T00:00:00Z\"}"));
+        assertNull(detect("notes.txt", "{\"locations\": []}"));
+    }
+
+    private static ArchiveImporter.Format detect(String name, String content) throws IOException {
+        return ArchiveImporter.detectFormat(name, new BufferedInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String readAndClose(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -165,6 +165,41 @@ class GeoJsonImporterTest {
         assertEquals(15.0, point2.getAccuracyMeters());
     }
 
+    @Test
+    void shouldStreamFeaturesInBatchesRegardlessOfFieldOrder() {
+        when(this.stagingService.getBatchSize()).thenReturn(1);
+
+        String geoJson = """
+            {
+              "features": [
+                {
+                  "type": "Feature",
+                  "geometry": { "type": "Point", "coordinates": [13.4050, 52.5200] },
+                  "properties": { "timestamp": "2023-10-15T10:30:00Z" }
+                },
+                {
+                  "type": "Feature",
+                  "geometry": { "type": "LineString", "coordinates": [[13.4050, 52.5200], [13.4060, 52.5210]] },
+                  "properties": { "timestamp": "2023-10-15T10:30:30Z" }
+                },
+                {
+                  "type": "Feature",
+                  "geometry": { "type": "Point", "coordinates": [13.4060, 52.5210] },
+                  "properties": { "timestamp": "2023-10-15T10:31:00Z" }
+                }
+              ],
+              "type": "FeatureCollection"
+            }
+            """;
+
+        InputStream inputStream = new ByteArrayInputStream(geoJson.getBytes());
+        Map<String, Object> result = geoJsonImporter.importGeoJson(inputStream, user, null, "test");
+
+        assertTrue((Boolean) result.get("success"));
+        assertEquals(2, result.get("pointsReceived"));
+        verify(stagingService, times(2)).insertBatch(any(), eq(user), any(), any());
+    }
+
     @Test
     void shouldImportSingleFeature() {
         when(this.stagingService.getBatchSize()).thenReturn(100);
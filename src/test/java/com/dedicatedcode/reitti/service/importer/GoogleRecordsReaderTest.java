@@ -0,0 +1,119 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
+import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDetail;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GoogleRecordsReaderTest {
+
+    private static final Instant START = Instant.parse("2015-01-01T00:00:00Z");
+
+    private GoogleRecordsImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        LocationPointStagingService stagingService = mock(LocationPointStagingService.class);
+        when(stagingService.getBatchSize()).thenReturn(777);
+        importer = new GoogleRecordsImporter(new ObjectMapper(), stagingService, mock(JobDetail.class), mock(JobSchedulingService.class), 0, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+    }
+
+    @Test
+    void shouldKeepRecordOrderAcrossWorkers() throws Exception {
+        int count = 25_000;
+        StringBuilder json = new StringBuilder("{\"locations\": [");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (i % 1000 == 999) {
+                // entries without coordinates are dropped
+                json.append("{\"timestamp\": \"").append(START.plusSeconds(i)).append("\"}");
+            } else {
+                json.append("{\"latitudeE7\": ").append(535000000 + i)
+                        .append(", \"longitudeE7\": 100000000, \"accuracy\": 12, \"activity\": [{\"type\": \"STILL\"}], \"timestamp\": \"")
+                        .append(START.plusSeconds(i)).append("\"}");
+            }
+        }
+        json.append("]}");
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Instant> timestamps = new ArrayList<>();
+        int read = importer.readRecords(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)), batch -> {
+            batchSizes.add(batch.size());
+            batch.stream().map(LocationPoint::getTimestamp).forEach(timestamps::add);
+        });
+
+        assertEquals(count - 25, read);
+        assertEquals(read, timestamps.size());
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i - 1).isBefore(timestamps.get(i)), "out of order at " + i);
+        }
+        for (int i = 0; i < batchSizes.size() - 1; i++) {
+            assertEquals(777, batchSizes.get(i));
+        }
+    }
+
+    @Test
+    void shouldSplitEntriesWithStructuralCharactersInStrings() throws Exception {
+        String json = """
+                {"deviceTag": "{\\"locations\\": [", "locations" : [
+                  {"latitudeE7": 535000000, "longitudeE7": 100000000, "source": "wifi ]}", "timestamp": "2015-01-01T00:00:00Z"},
+                  null, 42, [{"latitudeE7": 1}],
+                  {"latitudeE7": 535000001, "longitudeE7": 100000000, "note": "say \\"}\\" \\\\", "timestamp": "2015-01-01T00:00:01Z"}
+                ], "other": {"locations": []}}
+                """;
+
+        List<Instant> timestamps = new ArrayList<>();
+        int read = importer.readRecords(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                                        batch -> batch.stream().map(LocationPoint::getTimestamp).forEach(timestamps::add));
+
+        assertEquals(2, read);
+        assertEquals(List.of(START, START.plusSeconds(1)), timestamps);
+    }
+
+    @Test
+    void shouldSkipMalformedEntries() throws Exception {
+        String json = """
+                {"locations": [
+                  {"latitudeE7": 535000000, "longitudeE7": 100000000, "timestamp": "2015-01-01T00:00:00Z"},
+                  {"latitudeE7": 53x, "longitudeE7": 100000000, "timestamp": "2015-01-01T00:00:01Z"},
+                  {"latitudeE7": 535000002, "longitudeE7": 100000000, "timestamp": "2015-01-01T00:00:02Z"}
+                ]}
+                """;
+
+        List<Instant> timestamps = new ArrayList<>();
+        int read = importer.readRecords(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                                        batch -> batch.stream().map(LocationPoint::getTimestamp).forEach(timestamps::add));
+
+        assertEquals(2, read);
+        assertEquals(List.of(START, START.plusSeconds(2)), timestamps);
+    }
+
+    @Test
+    void shouldRejectDocumentsWithoutLocations() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> importer.readRecords(new ByteArrayInputStream("{\"other\": []}".getBytes(StandardCharsets.UTF_8)), batch -> {}));
+    }
+}
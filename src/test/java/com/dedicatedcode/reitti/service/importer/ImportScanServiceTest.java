@@ -0,0 +1,76 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@IntegrationTest
+class ImportScanServiceTest {
+
+    private static final String GPX_FILE = "/data/gpx/20250617.gpx";
+
+    @Autowired
+    private ImportScanService importScanService;
+    @Autowired
+    private TestingService testingService;
+
+    private User user;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        user = testingService.randomUser();
+        device = testingService.findDefaultDevice(user);
+    }
+
+    @Test
+    void shouldSummarizeAGpxFileWithoutStagingIt() throws Exception {
+        ImportScanService.ScanResult result = scan(null);
+
+        assertEquals(List.of("GPX"), result.formats());
+        assertEquals(2289, result.points());
+        assertEquals(0, result.invalidPoints());
+        assertEquals(Instant.parse("2025-06-16T22:00:09.154Z"), result.start());
+        assertEquals(Instant.parse("2025-06-17T21:59:44.876Z"), result.end());
+        assertNull(result.alreadyStored());
+        assertEquals(List.of(LocalDate.parse("2025-06-16"), LocalDate.parse("2025-06-17")),
+                     result.days().stream().map(ImportScanService.DaySummary::day).toList());
+        assertEquals(result.points(), result.days().stream().mapToLong(ImportScanService.DaySummary::points).sum());
+        assertEquals(0, result.days().stream().mapToLong(ImportScanService.DaySummary::storedPoints).sum());
+        assertEquals(List.of(), result.devices());
+        assertEquals(List.of(), result.errors());
+        assertEquals(0, testingService.loadPoints(user, device).size());
+    }
+
+    @Test
+    void shouldCountThePointsOfAnAlreadyImportedGpxFile() throws Exception {
+        testingService.importAndProcess(user, device, GPX_FILE);
+        int stored = testingService.loadPoints(user, device).size();
+
+        ImportScanService.ScanResult result = scan(device);
+
+        assertEquals(result.points(), result.alreadyStored());
+        assertEquals(stored, result.days().stream().mapToLong(ImportScanService.DaySummary::storedPoints).sum());
+        assertEquals(1, result.devices().size());
+        assertEquals(device.id(), result.devices().getFirst().deviceId());
+        assertEquals(stored, result.devices().getFirst().storedPoints());
+    }
+
+    private ImportScanService.ScanResult scan(Device device) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(GPX_FILE)) {
+            return importScanService.scan(in, user, device, "20250617.gpx");
+        }
+    }
+}
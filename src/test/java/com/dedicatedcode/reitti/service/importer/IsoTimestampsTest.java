@@ -0,0 +1,51 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IsoTimestampsTest {
+
+    @Test
+    void shouldMatchJavaTime() {
+        String[] samples = {
+            "2025-06-17T21:59:44.876Z",
+            "2025-06-17T21:59:44Z",
+            "2025-06-17T21:59:44.123456789Z",
+            "2025-06-17T23:59:44.8+02:00",
+            "2025-06-17T23:59:44.8+0200",
+            "2025-06-17T16:29:44-05:30",
+            "2024-02-29T00:00:00Z",
+            "1969-12-31T23:59:59.999999Z",
+            "2025-06-17t21:59:44Z"
+        };
+        for (String text : samples) {
+            Instant expected = OffsetDateTime.parse(text.replace('t', 'T').replaceAll("([+-]\\d{2})(\\d{2})$", "$1:$2")).toInstant();
+            assertEquals(expected.getEpochSecond() * 1_000_000L + expected.getNano() / 1_000, IsoTimestamps.parseEpochMicros(text), text);
+        }
+    }
+
+    @Test
+    void shouldMatchJavaTimeForRandomInstants() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            Instant instant = Instant.ofEpochSecond(random.nextLong(4_000_000_000L), random.nextInt(1_000_000_000));
+            String text = OffsetDateTime.ofInstant(instant, ZoneOffset.ofHours(random.nextInt(25) - 12)).toString();
+            assertEquals(instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000, IsoTimestamps.parseEpochMicros(text), text);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidTimestamps() {
+        for (String text : new String[]{"2025-02-30T00:00:00Z", "2025-06-17 21:59:44", "not a timestamp"}) {
+            assertThrows(DateTimeParseException.class, () -> IsoTimestamps.parseEpochMicros(text), text);
+        }
+    }
+}
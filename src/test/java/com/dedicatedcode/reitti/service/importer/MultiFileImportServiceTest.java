@@ -0,0 +1,235 @@
+package com.dedicatedcode.reitti.service.importer;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.JobMetadataRepository;
+import com.dedicatedcode.reitti.service.jobs.JobSchedulingService;
+import com.dedicatedcode.reitti.service.jobs.JobType;
+import com.dedicatedcode.reitti.service.processing.LocationPointStagingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDetail;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class MultiFileImportServiceTest {
+
+    private static final AtomicLong NEXT_TIMESTAMP = new AtomicLong(1_700_000_000L);
+
+    @Autowired
+    private LocationPointStagingService stagingService;
+    @Autowired
+    private JobSchedulingService jobSchedulingService;
+    @Autowired
+    private JobMetadataRepository jobMetadataRepository;
+    @Autowired
+    @Qualifier("promotionJob")
+    private JobDetail promotionJob;
+    @Autowired
+    private GpxImporter gpxImporter;
+    @Autowired
+    private TestingService testingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Device device;
+    private MultiFileImportService service;
+
+    @BeforeEach
+    void setUp() {
+        user = testingService.randomUser();
+        device = testingService.findDefaultDevice(user);
+        service = service(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        parentJobs().forEach(jobSchedulingService::cancel);
+        jdbcTemplate.queryForList("SELECT DISTINCT partition_key FROM staging_location_points WHERE user_id = ?", String.class, user.getId())
+                .forEach(stagingService::dropPartition);
+    }
+
+    @Test
+    void shouldStageAllFilesIntoOnePartitionAndScheduleOnePromotion() {
+        List<MultiFileImportService.ImportFile> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(file("track-" + i + ".gpx", "3"));
+        }
+
+        Map<String, Object> result = service.importFiles(files, user, device, JobType.GPX_IMPORT, "GPX Import", MultiFileImportServiceTest::readPoints);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(20, result.get("filesImported"));
+        assertEquals(60, result.get("pointsReceived"));
+        assertEquals(List.of(), result.get("errors"));
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(DISTINCT partition_key) FROM staging_location_points WHERE user_id = ?", Integer.class, user.getId()));
+        assertEquals(60, jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Integer.class, user.getId()));
+
+        UUID parentJobId = parentJobs().getFirst();
+        JobMetadataRepository.JobMetadata parentJob = jobMetadataRepository.findById(parentJobId).orElseThrow();
+        assertEquals(20L, parentJob.getCurrentProgress());
+        assertEquals(20L, parentJob.getMaxProgress());
+        assertEquals(1, jobMetadataRepository.findByParentJobId(parentJobId).size());
+    }
+
+    @Test
+    void shouldStageGpxFilesReadByTheGpxImporter() {
+        List<MultiFileImportService.ImportFile> files = List.of(
+                new MultiFileImportService.ImportFile("20250617.gpx", new ClassPathResource("data/gpx/20250617.gpx")),
+                new MultiFileImportService.ImportFile("20250618.gpx", new ClassPathResource("data/gpx/20250618.gpx")));
+
+        Map<String, Object> result = service.importFiles(files, user, device, JobType.GPX_IMPORT, "GPX Import", gpxImporter::readGpx);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(2, result.get("filesImported"));
+        assertEquals(2289 + 2213, result.get("pointsReceived"));
+        assertEquals(List.of(), result.get("errors"));
+        assertEquals(2289 + 2213, jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Integer.class, user.getId()));
+        assertEquals(1, jobMetadataRepository.findByParentJobId(parentJobs().getFirst()).size());
+    }
+
+    @Test
+    void shouldReportFailingFilesAndKeepTheOthers() {
+        List<MultiFileImportService.ImportFile> files = List.of(
+                file("good.gpx", "2"),
+                file("broken.gpx", "not a number"),
+                file("empty.gpx", "0"));
+
+        Map<String, Object> result = service.importFiles(files, user, device, JobType.GPX_IMPORT, "GPX Import", MultiFileImportServiceTest::readPoints);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(1, result.get("filesImported"));
+        assertEquals(2, result.get("pointsReceived"));
+        assertEquals(List.of("broken.gpx: For input string: \"not a number\"", "empty.gpx: No valid location points found"), result.get("errors"));
+        assertEquals(1, jobMetadataRepository.findByParentJobId(parentJobs().getFirst()).size());
+    }
+
+    @Test
+    void shouldFailEveryFileOfABatchThatCouldNotBeStaged() {
+        // one worker reads the files in order, the first one fills a batch of its own, the others share the last one
+        service.shutdown();
+        service = service(1);
+        List<MultiFileImportService.ImportFile> files = List.of(
+                file("large.gpx", String.valueOf(stagingService.getBatchSize())),
+                file("broken.gpx", "5 out-of-range"),
+                file("other.gpx", "5"));
+
+        Map<String, Object> result = service.importFiles(files, user, device, JobType.GPX_IMPORT, "GPX Import", MultiFileImportServiceTest::readPoints);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(1, result.get("filesImported"));
+        assertEquals(stagingService.getBatchSize(), result.get("pointsReceived"));
+        @SuppressWarnings("unchecked")
+        List<String> errors = (List<String>) result.get("errors");
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0).startsWith("broken.gpx: "));
+        assertTrue(errors.get(1).startsWith("other.gpx: "));
+        assertEquals(stagingService.getBatchSize(), jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Integer.class, user.getId()));
+    }
+
+    @Test
+    void shouldDropThePartitionWhenNoFileContainedPoints() {
+        Map<String, Object> result = service.importFiles(List.of(file("empty.gpx", "0")), user, device, JobType.GPX_IMPORT, "GPX Import", MultiFileImportServiceTest::readPoints);
+
+        assertEquals(false, result.get("success"));
+        assertTrue(parentJobs().isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM staging_location_points WHERE user_id = ?", Integer.class, user.getId()));
+    }
+
+    @Test
+    void shouldStageTimeOrderedBatchesOfFilesSubmittedOneByOne() {
+        MultiFileImportService.Session session = service.openSession(user, device, JobType.GPX_IMPORT, "GPX Import - export.zip", 0,
+                                                                     MultiFileImportServiceTest::readPoints);
+        int pointsPerFile = 7;
+        int fileCount = stagingService.getBatchSize() / pointsPerFile + 50;
+        for (int i = 0; i < fileCount; i++) {
+            session.submit(file("track-" + i + ".gpx", String.valueOf(pointsPerFile)));
+        }
+        Map<String, Object> result = session.finish();
+
+        assertEquals(true, result.get("success"));
+        assertEquals(fileCount, result.get("filesImported"));
+        assertEquals(fileCount * pointsPerFile, result.get("pointsReceived"));
+
+        // rows are numbered in the order they were staged, every batch has to be ordered by time
+        List<Instant> staged = jdbcTemplate.queryForList("SELECT timestamp FROM staging_location_points WHERE user_id = ? ORDER BY id", Timestamp.class, user.getId())
+                .stream()
+                .map(Timestamp::toInstant)
+                .toList();
+        assertEquals(fileCount * pointsPerFile, staged.size());
+        for (int i = 1; i < staged.size(); i++) {
+            if (i % stagingService.getBatchSize() != 0) {
+                assertFalse(staged.get(i).isBefore(staged.get(i - 1)));
+            }
+        }
+
+        JobMetadataRepository.JobMetadata parentJob = jobMetadataRepository.findById(parentJobs().getFirst()).orElseThrow();
+        assertEquals((long) fileCount, parentJob.getCurrentProgress());
+        assertEquals((long) fileCount, parentJob.getMaxProgress());
+    }
+
+    /**
+     * Promotion is scheduled an hour ahead, so the staged points can be inspected.
+     */
+    private MultiFileImportService service(int workers) {
+        return new MultiFileImportService(stagingService, jobSchedulingService, jobMetadataRepository, promotionJob, 3600, workers);
+    }
+
+    private List<UUID> parentJobs() {
+        return jdbcTemplate.queryForList("SELECT id FROM job_meta_data WHERE user_id = ? AND parent_job_id IS NULL", UUID.class, user.getId());
+    }
+
+    private static MultiFileImportService.ImportFile file(String name, String content) {
+        return new MultiFileImportService.ImportFile(name, new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Test format: the file contains the number of points to emit, which are handed over one at a time through a
+     * reused list like the real readers do. Every file gets its own time range, read backwards. With
+     * {@code out-of-range} the first point lies before the range the database can store.
+     */
+    private static int readPoints(InputStream inputStream, Consumer<List<LocationPoint>> batchConsumer) throws Exception {
+        String[] content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim().split(" ");
+        int count = Integer.parseInt(content[0]);
+        boolean outOfRange = content.length > 1 && content[1].equals("out-of-range");
+        long first = NEXT_TIMESTAMP.getAndAdd(count);
+        List<LocationPoint> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocationPoint point = new LocationPoint();
+            point.setTimestamp(outOfRange && i == 0 ? Instant.parse("-5000-01-01T00:00:00Z") : Instant.ofEpochSecond(first + count - 1 - i));
+            point.setLatitude(53.86);
+            point.setLongitude(10.7);
+            point.setAccuracyMeters(10.0);
+            batch.add(point);
+            batchConsumer.accept(batch);
+            batch.clear();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,158 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.event.LocationProcessEvent;
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.geo.ProcessedVisit;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+import com.dedicatedcode.reitti.model.geo.Trip;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.ProcessedVisitJdbcService;
+import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
+import com.dedicatedcode.reitti.repository.TripJdbcService;
+import com.dedicatedcode.reitti.repository.VisitDetectionStateJdbcService;
+import com.dedicatedcode.reitti.service.VisitDetectionParametersService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class IncrementalVisitDetectionTest {
+
+    private static final GeoPoint HOME = new GeoPoint(53.863300, 10.701100);
+    private static final GeoPoint WORK = new GeoPoint(53.870000, 10.690000);
+    private static final GeoPoint BAKERY = new GeoPoint(53.866000, 10.711000);
+
+    @Autowired
+    private UnifiedLocationProcessingService processingService;
+    @Autowired
+    private RawLocationPointJdbcService rawLocationPointJdbcService;
+    @Autowired
+    private ProcessedVisitJdbcService processedVisitJdbcService;
+    @Autowired
+    private TripJdbcService tripJdbcService;
+    @Autowired
+    private VisitDetectionStateJdbcService visitDetectionStateJdbcService;
+    @Autowired
+    private VisitDetectionParametersService visitDetectionParametersService;
+    @Autowired
+    private TestingService testingService;
+
+    private List<RawLocationPoint> points;
+
+    @BeforeEach
+    void setUp() {
+        points = livePoints();
+    }
+
+    @Test
+    void liveBatchesShouldResultInTheSameTimelineAsAFullRecalculation() {
+        User incremental = testingService.randomUser();
+        for (int from = 0; from < points.size(); from += 23) {
+            process(incremental, points.subList(from, Math.min(points.size(), from + 23)));
+        }
+        assertEquals(points.getLast().getTimestamp(), visitDetectionStateJdbcService.findByUser(incremental).orElseThrow().processedUntil());
+
+        User full = testingService.randomUser();
+        process(full, points);
+
+        List<ProcessedVisit> expectedVisits = processedVisitJdbcService.findByUser(full);
+        List<ProcessedVisit> visits = processedVisitJdbcService.findByUser(incremental);
+        assertEquals(3, expectedVisits.size());
+        assertEquals(expectedVisits.size(), visits.size());
+        // incremental stays are positioned at the running centroid instead of the density-weighted center, both lie
+        // within the place radius of each other
+        double placeRadius = visitDetectionParametersService.getCurrentConfiguration(full, points.getFirst().getTimestamp())
+                .getVisitMerging()
+                .getPlaceRadiusMeters();
+        for (int i = 0; i < expectedVisits.size(); i++) {
+            assertEquals(expectedVisits.get(i).getStartTime(), visits.get(i).getStartTime());
+            assertEquals(expectedVisits.get(i).getEndTime(), visits.get(i).getEndTime());
+            assertTrue(distance(expectedVisits.get(i), visits.get(i)) <= placeRadius);
+        }
+
+        List<Trip> expectedTrips = tripJdbcService.findByUser(full);
+        List<Trip> trips = tripJdbcService.findByUser(incremental);
+        assertEquals(2, expectedTrips.size());
+        assertEquals(expectedTrips.size(), trips.size());
+        for (int i = 0; i < expectedTrips.size(); i++) {
+            assertEquals(expectedTrips.get(i).getStartTime(), trips.get(i).getStartTime());
+            assertEquals(expectedTrips.get(i).getEndTime(), trips.get(i).getEndTime());
+            assertTrue(distance(expectedTrips.get(i).getStartVisit(), trips.get(i).getStartVisit()) <= placeRadius);
+            assertTrue(distance(expectedTrips.get(i).getEndVisit(), trips.get(i).getEndVisit()) <= placeRadius);
+        }
+    }
+
+    @Test
+    void stateShouldOnlyBeDroppedWhenConsumedPointsChange() {
+        User user = testingService.randomUser();
+        process(user, points);
+        Instant processedUntil = visitDetectionStateJdbcService.findByUser(user).orElseThrow().processedUntil();
+
+        visitDetectionStateJdbcService.deleteForUser(user, processedUntil.plusSeconds(1));
+        assertTrue(visitDetectionStateJdbcService.findByUser(user).isPresent());
+
+        visitDetectionStateJdbcService.deleteForUser(user, processedUntil.minus(1, ChronoUnit.HOURS));
+        assertTrue(visitDetectionStateJdbcService.findByUser(user).isEmpty());
+    }
+
+    private void process(User user, List<RawLocationPoint> batch) {
+        batch.forEach(point -> rawLocationPointJdbcService.create(user, point));
+        processingService.processLocationEvent(new LocationProcessEvent(user.getUsername(), batch.getFirst().getTimestamp(),
+                                                                        batch.getLast().getTimestamp(), null, null, null));
+    }
+
+    private static double distance(ProcessedVisit expected, ProcessedVisit actual) {
+        return GeoUtils.distanceInMeters(expected.getPlace().getLatitudeCentroid(), expected.getPlace().getLongitudeCentroid(),
+                                         actual.getPlace().getLatitudeCentroid(), actual.getPlace().getLongitudeCentroid());
+    }
+
+    /**
+     * An hour at home, a stay at work and the ongoing one at the bakery, recorded every minute and ending now, so the
+     * batches count as live. The walks in between are recorded every two minutes.
+     */
+    private static List<RawLocationPoint> livePoints() {
+        Random random = new Random(42);
+        List<RawLocationPoint> points = new ArrayList<>();
+        Instant time = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(3, ChronoUnit.HOURS);
+        time = stay(points, random, HOME, time, 60);
+        time = walk(points, HOME, WORK, time);
+        time = stay(points, random, WORK, time, 60);
+        time = walk(points, WORK, BAKERY, time);
+        stay(points, random, BAKERY, time, 30);
+        return points;
+    }
+
+    private static Instant stay(List<RawLocationPoint> points, Random random, GeoPoint place, Instant start, int minutes) {
+        Instant time = start;
+        for (int i = 0; i <= minutes; i++) {
+            GeoPoint jittered = new GeoPoint(place.latitude() + (random.nextDouble() - 0.5) * 0.00004,
+                                             place.longitude() + (random.nextDouble() - 0.5) * 0.00004);
+            points.add(new RawLocationPoint(time, jittered, 5.0));
+            time = time.plusSeconds(60);
+        }
+        return time.plusSeconds(60);
+    }
+
+    private static Instant walk(List<RawLocationPoint> points, GeoPoint from, GeoPoint to, Instant start) {
+        Instant time = start;
+        for (int step = 1; step <= 5; step++) {
+            double fraction = step / 6.0;
+            points.add(new RawLocationPoint(time, new GeoPoint(from.latitude() + (to.latitude() - from.latitude()) * fraction,
+                                                               from.longitude() + (to.longitude() - from.longitude()) * fraction), 10.0));
+            time = time.plusSeconds(120);
+        }
+        return time;
+    }
+}
@@ -0,0 +1,110 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@IntegrationTest
+class IngestionAdmissionServiceTest {
+
+    @Autowired
+    private LocationPointStagingService stagingService;
+    @Autowired
+    private TestingService testingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+    private Device device;
+    private final List<String> partitions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = testingService.randomUser();
+        device = testingService.findDefaultDevice(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        partitions.forEach(stagingService::dropPartition);
+    }
+
+    @Test
+    void shouldAcceptWhileBelowTheLimits() {
+        IngestionAdmissionService admissionService = admissionService(Long.MAX_VALUE);
+
+        assertEquals(IngestionAdmissionService.Decision.ACCEPTED, admissionService.admit("owntracks"));
+    }
+
+    @Test
+    void shouldRejectWhileLivePointsAreBacklogged() {
+        String live = stage(LocationPointStagingService.LIVE_PARTITION_PREFIX + user.getId() + "_" + device.id() + "_20990101", 20);
+
+        IngestionAdmissionService admissionService = admissionService(baseline() + 10);
+        admissionService.reconcile();
+        assertEquals(IngestionAdmissionService.Decision.BACKLOG, admissionService.admit("owntracks"));
+
+        stagingService.promote(user, live);
+        admissionService.reconcile();
+        assertEquals(IngestionAdmissionService.Decision.ACCEPTED, admissionService.admit("owntracks"));
+    }
+
+    @Test
+    void importPartitionsShouldNotBlockLiveIngestion() {
+        IngestionAdmissionService admissionService = admissionService(baseline() + 10);
+
+        // a large import which is never promoted, e.g. because its job failed
+        stage(UUID.randomUUID().toString(), 20);
+        admissionService.reconcile();
+
+        assertEquals(IngestionAdmissionService.Decision.ACCEPTED, admissionService.admit("owntracks"));
+    }
+
+    /**
+     * Live points other tests left behind, the limits of the tests are relative to them.
+     */
+    private long baseline() {
+        IngestionAdmissionService admissionService = admissionService(Long.MAX_VALUE);
+        admissionService.reconcile();
+        return admissionService.getPendingPoints();
+    }
+
+    private IngestionAdmissionService admissionService(long maxPendingPoints) {
+        return new IngestionAdmissionService(jdbcTemplate, dataSource, new SimpleMeterRegistry(), true, maxPendingPoints, 1.0, 60);
+    }
+
+    private String stage(String partitionKey, int count) {
+        stagingService.ensurePartitionExists(partitionKey);
+        partitions.add(partitionKey);
+        List<LocationPoint> points = new ArrayList<>(count);
+        Instant start = Instant.parse("2099-01-01T10:00:00Z");
+        for (int i = 0; i < count; i++) {
+            LocationPoint point = new LocationPoint();
+            point.setTimestamp(start.plusSeconds(i * 10L));
+            point.setLatitude(60.1699 + i * 0.00001);
+            point.setLongitude(24.9384);
+            point.setAccuracyMeters(5.0);
+            points.add(point);
+        }
+        stagingService.insertBatch(partitionKey, user, device, points);
+        return partitionKey;
+    }
+}
@@ -0,0 +1,129 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.service.LocationBatchingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@IntegrationTest
+class LivePromotionQueueTest {
+
+    @Autowired
+    private LivePromotionQueue livePromotionQueue;
+    @Autowired
+    private LocationBatchingService locationBatchingService;
+    @Autowired
+    private LocationPointStagingService stagingService;
+    @Autowired
+    private UserProcessingLock userProcessingLock;
+    @Autowired
+    private TestingService testingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        user = testingService.randomUser();
+        device = testingService.findDefaultDevice(user);
+    }
+
+    @Test
+    void shouldPromoteSubmittedPartitions() {
+        String partition = stage(createPoints(20));
+
+        livePromotionQueue.submit(user, device, partition);
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> countRawPoints() == 20);
+    }
+
+    @Test
+    void shouldWaitForTheProcessingLockOfTheUser() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> userProcessingLock.locked(user, () -> {
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await();
+
+        try {
+            livePromotionQueue.submit(user, device, stage(createPoints(20)));
+
+            await().during(2, TimeUnit.SECONDS).atMost(3, TimeUnit.SECONDS).until(() -> countRawPoints() == 0);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> countRawPoints() == 20);
+    }
+
+    @Test
+    void shouldPromoteOpenBatchesWhenStopping() {
+        createPoints(10).forEach(point -> locationBatchingService.addLocationPoint(user, device, point));
+
+        try {
+            // same order as the application context uses on shutdown
+            locationBatchingService.stop();
+            livePromotionQueue.stop();
+
+            assertEquals(10, countRawPoints());
+        } finally {
+            livePromotionQueue.start();
+            locationBatchingService.start();
+        }
+    }
+
+    private String stage(List<LocationPoint> points) {
+        String partition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(partition);
+        stagingService.insertBatch(partition, user, device, points);
+        return partition;
+    }
+
+    private int countRawPoints() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM raw_location_points WHERE user_id = ?", Integer.class, user.getId());
+    }
+
+    /**
+     * Live points of the last minutes, one every ten seconds.
+     */
+    private static List<LocationPoint> createPoints(int count) {
+        List<LocationPoint> points = new ArrayList<>(count);
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(count * 10L);
+        for (int i = 0; i < count; i++) {
+            LocationPoint point = new LocationPoint();
+            point.setTimestamp(start.plusSeconds(i * 10L));
+            point.setLatitude(60.1699 + i * 0.00001);
+            point.setLongitude(24.9384 - i * 0.00001);
+            point.setAccuracyMeters(5.0);
+            points.add(point);
+        }
+        return points;
+    }
+}
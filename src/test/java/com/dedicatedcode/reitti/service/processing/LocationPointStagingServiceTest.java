@@ -0,0 +1,225 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.IntegrationTest;
+import com.dedicatedcode.reitti.TestingService;
+import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.model.devices.Device;
+import com.dedicatedcode.reitti.model.security.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@IntegrationTest
+class LocationPointStagingServiceTest {
+
+    @Autowired
+    private LocationPointStagingService stagingService;
+    @Autowired
+    private TestingService testingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+    private Device device;
+
+    @BeforeEach
+    void setUp() {
+        user = testingService.randomUser();
+        device = testingService.findDefaultDevice(user);
+    }
+
+    @Test
+    void binaryCopyShouldStageTheSameRowsAsBatchedInserts() {
+        List<LocationPoint> points = createPoints(5_000);
+
+        String copyPartition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(copyPartition);
+        long written = stagingService.insertWithCopy(copyPartition, user, device, points);
+
+        String insertPartition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(insertPartition);
+        stagingService.insertWithStatements(insertPartition, user, device, points);
+
+        assertEquals(points.size(), written);
+        assertEquals(readStaged(insertPartition), readStaged(copyPartition));
+
+        stagingService.dropPartition(copyPartition);
+        stagingService.dropPartition(insertPartition);
+    }
+
+    @Test
+    void promotionShouldOnlyPromoteRowsAboveTheWatermark() {
+        List<LocationPoint> points = createPoints(20);
+        String partition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(partition);
+
+        stagingService.insertBatch(partition, user, device, points.subList(0, 10));
+        assertEquals(10, stagingService.promote(user, partition));
+        assertEquals(0, stagingService.promote(user, partition));
+        assertNull(stagingService.getTimeRange(partition));
+
+        stagingService.insertBatch(partition, user, device, points.subList(10, 20));
+        TimeRange timeRange = stagingService.getTimeRange(partition);
+        assertEquals(points.get(10).getTimestamp(), timeRange.start());
+        assertEquals(points.get(19).getTimestamp(), timeRange.end());
+        assertEquals(10, stagingService.promote(user, partition));
+
+        assertTrue(stagingService.dropIfFullyPromoted(partition));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM partition_registry WHERE partition_name = ?", Integer.class, partition));
+    }
+
+    @Test
+    void partitionsWithUnpromotedRowsShouldNotBeDropped() {
+        String partition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(partition);
+        stagingService.insertBatch(partition, user, device, createPoints(5));
+
+        assertFalse(stagingService.dropIfFullyPromoted(partition));
+
+        stagingService.dropPartition(partition);
+    }
+
+    @Test
+    void reimportShouldSkipPointsWhichAreAlreadyStored() {
+        List<LocationPoint> points = createPoints(30);
+        String first = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(first);
+        stagingService.insertBatch(first, user, device, points.subList(0, 20));
+        assertEquals(20, stagingService.promote(user, first));
+        assertEquals(0, stagingService.getSkippedDuplicates(first));
+
+        String second = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(second);
+        stagingService.insertBatch(second, user, device, points.subList(10, 30));
+
+        assertEquals(10, stagingService.getSkippedDuplicates(second));
+        assertEquals(10, readStaged(second).size());
+        assertEquals(10, stagingService.promote(user, second));
+
+        stagingService.dropPartition(first);
+        stagingService.dropPartition(second);
+        assertEquals(0, stagingService.getSkippedDuplicates(second));
+    }
+
+    @Test
+    void columnsShouldBeStagedLikeSinglePoints() {
+        List<LocationPoint> points = createPoints(50);
+        PointColumns columns = new PointColumns(60);
+        for (LocationPoint point : points) {
+            Instant timestamp = point.getTimestamp();
+            columns.add(timestamp.getEpochSecond() * 1_000_000L + timestamp.getNano() / 1_000, point.getLatitude(), point.getLongitude(),
+                        point.getElevationMeters() != null ? point.getElevationMeters() : Double.NaN, point.getAccuracyMeters());
+        }
+        // without coordinates, dropped like LocationPoint#isValid drops it
+        columns.add(0, Double.NaN, Double.NaN, Double.NaN, 10.0);
+
+        String columnPartition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(columnPartition);
+        stagingService.insertColumns(columnPartition, user, device, columns);
+
+        String pointPartition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(pointPartition);
+        stagingService.insertBatch(pointPartition, user, device, points);
+
+        assertEquals(50, readStaged(columnPartition).size());
+        assertEquals(readStaged(pointPartition), readStaged(columnPartition));
+
+        stagingService.dropPartition(columnPartition);
+        stagingService.dropPartition(pointPartition);
+    }
+
+    @Test
+    void livePartitionsShouldNotBeCheckedForDuplicates() {
+        List<LocationPoint> points = createPoints(20);
+        String imported = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(imported);
+        stagingService.insertBatch(imported, user, device, points);
+        assertEquals(20, stagingService.promote(user, imported));
+
+        String live = LocationPointStagingService.LIVE_PARTITION_PREFIX + user.getId() + "_" + device.id() + "_20250301";
+        stagingService.ensurePartitionExists(live);
+        stagingService.insertBatch(live, user, device, points);
+
+        // left to the unique constraint on promotion
+        assertEquals(0, stagingService.getSkippedDuplicates(live));
+        assertEquals(20, readStaged(live).size());
+        assertEquals(0, stagingService.promote(user, live));
+
+        stagingService.dropPartition(imported);
+        stagingService.dropPartition(live);
+    }
+
+    @Test
+    void promotionShouldWaitForInsertsOfOtherNodes() throws Exception {
+        String partition = UUID.randomUUID().toString();
+        stagingService.ensurePartitionExists(partition);
+        stagingService.insertBatch(partition, user, device, createPoints(10).subList(0, 5));
+
+        // another node staging into the same partition, its transaction is still open
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_xact_lock_shared(hashtext(?))");
+                 PreparedStatement insert = connection.prepareStatement("""
+                         INSERT INTO staging_location_points (partition_key, timestamp, user_id, device_id, geom, accuracy_meters)
+                         VALUES (?, now(), ?, ?, ST_SetSRID(ST_MakePoint(24.9384, 60.1699), 4326), 5.0)
+                         """)) {
+                lock.setString(1, partition);
+                lock.execute();
+                insert.setString(1, partition);
+                insert.setLong(2, user.getId());
+                insert.setLong(3, device.id());
+                insert.execute();
+            }
+
+            CompletableFuture<Integer> promotion = CompletableFuture.supplyAsync(() -> stagingService.promote(user, partition));
+            await().during(1, TimeUnit.SECONDS).atMost(2, TimeUnit.SECONDS).until(() -> !promotion.isDone());
+
+            connection.commit();
+            assertEquals(6, promotion.get(10, TimeUnit.SECONDS));
+        }
+        stagingService.dropPartition(partition);
+    }
+
+    private List<Map<String, Object>> readStaged(String partitionKey) {
+        return jdbcTemplate.queryForList("""
+                SELECT timestamp, user_id, device_id, ST_AsEWKT(geom) AS geom, elevation_meters, accuracy_meters, h3_cell
+                FROM staging_location_points WHERE partition_key = ? ORDER BY timestamp
+                """, partitionKey);
+    }
+
+    private static List<LocationPoint> createPoints(int count) {
+        List<LocationPoint> points = new ArrayList<>(count);
+        Instant start = Instant.parse("2025-03-01T10:15:30.123456Z");
+        for (int i = 0; i < count; i++) {
+            LocationPoint point = new LocationPoint();
+            point.setTimestamp(start.plusSeconds(i));
+            point.setLatitude(60.1699 + i * 0.00001);
+            point.setLongitude(24.9384 - i * 0.00001);
+            point.setAccuracyMeters(5.0 + (i % 10));
+            point.setElevationMeters(i % 3 == 0 ? null : 12.5 + i);
+            points.add(point);
+        }
+        return points;
+    }
+}
@@ -3,13 +3,24 @@ package com.dedicatedcode.reitti.service.processing;
 import com.dedicatedcode.reitti.IntegrationTest;
 import com.dedicatedcode.reitti.TestingService;
 import com.dedicatedcode.reitti.dto.LocationPoint;
+import com.dedicatedcode.reitti.event.LocationProcessEvent;
 import com.dedicatedcode.reitti.model.UserType;
 import com.dedicatedcode.reitti.model.devices.Device;
 import com.dedicatedcode.reitti.model.geo.ProcessedVisit;
 import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
 import com.dedicatedcode.reitti.model.geo.SourceLocationPoint;
 import com.dedicatedcode.reitti.model.geo.Trip;
+import com.dedicatedcode.reitti.model.memory.BlockType;
+import com.dedicatedcode.reitti.model.memory.HeaderType;
+import com.dedicatedcode.reitti.model.memory.Memory;
+import com.dedicatedcode.reitti.model.memory.MemoryBlock;
+import com.dedicatedcode.reitti.model.memory.MemoryTrip;
+import com.dedicatedcode.reitti.model.memory.MemoryVisit;
 import com.dedicatedcode.reitti.model.security.User;
+import com.dedicatedcode.reitti.repository.MemoryBlockJdbcService;
+import com.dedicatedcode.reitti.repository.MemoryJdbcService;
+import com.dedicatedcode.reitti.repository.MemoryTripJdbcService;
+import com.dedicatedcode.reitti.repository.MemoryVisitJdbcService;
 import com.dedicatedcode.reitti.repository.ProcessedVisitJdbcService;
 import com.dedicatedcode.reitti.repository.RawLocationPointJdbcService;
 import com.dedicatedcode.reitti.repository.SourceLocationPointJdbcService;
@@ -20,6 +31,7 @@ import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.Instant;
 import java.util.List;
@@ -49,6 +61,18 @@ public class ProcessingPipelineTest {
     private LocationBatchingService locationBatchingService;
     @Autowired
     private SourceLocationPointJdbcService sourceLocationPointJdbcService;
+    @Autowired
+    private UnifiedLocationProcessingService unifiedLocationProcessingService;
+    @Autowired
+    private MemoryJdbcService memoryJdbcService;
+    @Autowired
+    private MemoryBlockJdbcService memoryBlockJdbcService;
+    @Autowired
+    private MemoryVisitJdbcService memoryVisitJdbcService;
+    @Autowired
+    private MemoryTripJdbcService memoryTripJdbcService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     private User user;
 
@@ -148,6 +172,31 @@ public class ProcessingPipelineTest {
         assertVisit(processedVisits.get(5), "2025-06-18T16:05:49.301Z", "2025-06-18T21:59:29.055Z" , MOLTKESTR);
     }
 
+    @Test
+    void shouldKeepIdsAndMemoriesWhenReprocessingAnUnchangedDay() {
+        testingService.importAndProcess(user, "/data/gpx/20250618.gpx");
+        List<ProcessedVisit> visits = currentVisits();
+        List<Trip> trips = currenTrips();
+        assertEquals(6, visits.size());
+        assertEquals(5, trips.size());
+
+        Memory memory = memoryJdbcService.create(user, new Memory("Garden", null, visits.getFirst().getStartTime(), visits.getLast().getEndTime(), HeaderType.MAP, null));
+        MemoryBlock block = memoryBlockJdbcService.create(new MemoryBlock(memory.getId(), BlockType.CLUSTER_TRIP, 0));
+        Trip trip = trips.get(3);
+        MemoryVisit startVisit = memoryVisitJdbcService.save(user, MemoryVisit.create(trip.getStartVisit()), block.getId(), trip.getStartVisit().getId());
+        MemoryVisit endVisit = memoryVisitJdbcService.save(user, MemoryVisit.create(trip.getEndVisit()), block.getId(), trip.getEndVisit().getId());
+        MemoryTrip memoryTrip = memoryTripJdbcService.save(user, MemoryTrip.create(trip, startVisit, endVisit), block.getId(), trip.getId());
+
+        unifiedLocationProcessingService.processLocationEvent(new LocationProcessEvent(user.getUsername(), Instant.parse("2025-06-18T00:00:00Z"),
+                                                                                       Instant.parse("2025-06-18T23:59:59Z"), null, null, null));
+
+        assertEquals(visits.stream().map(ProcessedVisit::getId).toList(), currentVisits().stream().map(ProcessedVisit::getId).toList());
+        assertEquals(trips.stream().map(Trip::getId).toList(), currenTrips().stream().map(Trip::getId).toList());
+        assertEquals(trip.getStartVisit().getId(), originalId("memory_visits", startVisit.getId()));
+        assertEquals(trip.getEndVisit().getId(), originalId("memory_visits", endVisit.getId()));
+        assertEquals(trip.getId(), originalId("memory_trips", memoryTrip.getId()));
+    }
+
     @Test
     void shouldCalculateIncludingGapsUnordered() {
         this.testingService.importAndProcess(user, "/data/gpx/overnight-visit-with-gaps/track_1_2025-12-06_081704.gpx");
@@ -282,6 +331,10 @@ public class ProcessingPipelineTest {
 
     }
 
+    private Long originalId(String table, Long id) {
+        return jdbcTemplate.queryForObject("SELECT original_id FROM " + table + " WHERE id = ?", Long.class, id);
+    }
+
     private List<ProcessedVisit> currentVisits() {
         return this.processedVisitJdbcService.findByUser(this.user);
     }
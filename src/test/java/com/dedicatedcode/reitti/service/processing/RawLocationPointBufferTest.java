@@ -0,0 +1,66 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.GeoUtils;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RawLocationPointBufferTest {
+
+    private static final Instant START = Instant.parse("2025-06-02T07:00:00Z");
+
+    @Test
+    void shouldSliceHalfOpenRanges() {
+        List<RawLocationPoint> points = points(20);
+        RawLocationPointBuffer buffer = new RawLocationPointBuffer(points, START, START.plusSeconds(20 * 30));
+
+        RawLocationPointBuffer.Slice slice = buffer.slice(START.plusSeconds(60), START.plusSeconds(150));
+        assertEquals(3, slice.size());
+        assertEquals(points.subList(2, 5), slice.points());
+
+        // bounds between two points
+        assertEquals(points.subList(3, 5), buffer.slice(START.plusSeconds(61), START.plusSeconds(121)).points());
+        assertEquals(0, buffer.slice(START.plusSeconds(61), START.plusSeconds(61)).size());
+        assertEquals(points, buffer.slice(START, START.plusSeconds(20 * 30)).points());
+    }
+
+    @Test
+    void shouldMeasureLikeTripDistance() {
+        List<RawLocationPoint> points = points(50);
+        RawLocationPointBuffer buffer = new RawLocationPointBuffer(points, START, START.plusSeconds(50 * 30));
+
+        RawLocationPointBuffer.Slice slice = buffer.slice(START.plusSeconds(300), START.plusSeconds(1200));
+        assertEquals(GeoUtils.calculateTripDistance(slice.points()), slice.travelledDistanceMeters());
+        assertEquals(0.0, buffer.slice(START.plusSeconds(300), START.plusSeconds(301)).travelledDistanceMeters());
+    }
+
+    @Test
+    void shouldRejectRangesThatWereNotLoaded() {
+        RawLocationPointBuffer buffer = new RawLocationPointBuffer(points(10), START.plusSeconds(60), START.plusSeconds(240));
+
+        assertTrue(buffer.covers(START.plusSeconds(60), START.plusSeconds(240)));
+        assertFalse(buffer.covers(START, START.plusSeconds(120)));
+        assertFalse(buffer.covers(START.plusSeconds(120), START.plusSeconds(241)));
+        assertThrows(IllegalArgumentException.class, () -> buffer.slice(START, START.plusSeconds(120)));
+    }
+
+    /**
+     * One point every 30 seconds, heading north-east.
+     */
+    private static List<RawLocationPoint> points(int count) {
+        List<RawLocationPoint> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new RawLocationPoint(START.plusSeconds(i * 30L), new GeoPoint(53.55 + i * 0.0007, 9.99 + i * 0.0011), 10.0));
+        }
+        return points;
+    }
+}
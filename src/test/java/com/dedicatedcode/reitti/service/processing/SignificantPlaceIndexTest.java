@@ -0,0 +1,56 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.SignificantPlace;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignificantPlaceIndexTest {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    @Test
+    void shouldFindPlacesByCentroidDistance() {
+        SignificantPlace home = SignificantPlace.create(53.863319, 10.701122).withId(1L);
+        SignificantPlace bakery = SignificantPlace.create(53.866000, 10.701122).withId(2L);
+        SignificantPlaceIndex index = new SignificantPlaceIndex(geometryFactory, List.of(home, bakery));
+
+        // 98m north of home, 200m south of the bakery
+        assertEquals(List.of(1L), ids(index.findNearby(53.864200, 10.701122, 100)));
+        assertEquals(List.of(1L, 2L), ids(index.findNearby(53.864200, 10.701122, 250)).stream().sorted().toList());
+        assertTrue(index.findNearby(53.870000, 10.701122, 100).isEmpty());
+    }
+
+    @Test
+    void shouldFindPlacesByPolygonDistance() {
+        // a park of roughly 650m x 650m
+        List<GeoPoint> polygon = List.of(new GeoPoint(53.860, 10.690), new GeoPoint(53.860, 10.700),
+                                         new GeoPoint(53.866, 10.700), new GeoPoint(53.866, 10.690));
+        SignificantPlace park = SignificantPlace.create(53.863, 10.695).withId(3L).withPolygon(polygon);
+        SignificantPlaceIndex index = new SignificantPlaceIndex(geometryFactory, List.of(park));
+
+        assertEquals(List.of(3L), ids(index.findNearby(53.8655, 10.6995, 50)));
+        // about 66m east of the polygon edge
+        assertEquals(List.of(3L), ids(index.findNearby(53.863, 10.701, 100)));
+        assertTrue(index.findNearby(53.863, 10.701, 50).isEmpty());
+    }
+
+    @Test
+    void shouldFindPlacesAddedAfterLoading() {
+        SignificantPlaceIndex index = new SignificantPlaceIndex(geometryFactory, List.of());
+        assertTrue(index.findNearby(53.863319, 10.701122, 50).isEmpty());
+
+        index.add(SignificantPlace.create(53.863319, 10.701122).withId(4L));
+        assertEquals(List.of(4L), ids(index.findNearby(53.863400, 10.701122, 50)));
+    }
+
+    private static List<Long> ids(List<SignificantPlace> places) {
+        return places.stream().map(SignificantPlace::getId).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.GeoPoint;
+import com.dedicatedcode.reitti.model.geo.RawLocationPoint;
+import com.dedicatedcode.reitti.model.geo.StayPoint;
+import com.dedicatedcode.reitti.model.processing.DetectionParameter;
+import com.dedicatedcode.reitti.model.processing.RecalculationState;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the detection over every GPX fixture with the low, medium and high sensitivity presets and compares the stay
+ * points with a golden file. The golden file was recorded with the detection before it moved to primitive columns, so
+ * any change in the output, down to the last bit of a coordinate, fails here.
+ */
+class SlidingWindowStayPointDetectorTest {
+
+    private static final Map<String, DetectionParameter> SENSITIVITIES = Map.of(
+            "low", parameter(600, 250),
+            "medium", parameter(300, 150),
+            "high", parameter(150, 50));
+
+    @Test
+    void shouldMatchGoldenStayPointsForAllGpxFixtures() throws Exception {
+        Path fixtureDirectory = Path.of(getClass().getResource("/data/gpx").toURI());
+        List<String> actual = new ArrayList<>();
+        actual.add("sensitivity,file,arrival,departure,latitude,longitude,points");
+        List<Path> fixtures;
+        try (Stream<Path> files = Files.walk(fixtureDirectory)) {
+            fixtures = files.filter(file -> file.toString().endsWith(".gpx")).sorted().toList();
+        }
+        for (String sensitivity : List.of("low", "medium", "high")) {
+            for (Path fixture : fixtures) {
+                String name = fixtureDirectory.relativize(fixture).toString().replace('\\', '/');
+                for (StayPoint stayPoint : SlidingWindowStayPointDetector.detect(readGpx(fixture), SENSITIVITIES.get(sensitivity))) {
+                    actual.add(String.join(",", sensitivity, name,
+                                           stayPoint.getArrivalTime().toString(),
+                                           stayPoint.getDepartureTime().toString(),
+                                           Double.toString(stayPoint.getLatitude()),
+                                           Double.toString(stayPoint.getLongitude()),
+                                           Integer.toString(stayPoint.getPoints().size())));
+                }
+            }
+        }
+
+        List<String> expected = Files.readAllLines(Path.of(getClass().getResource("/data/golden/sliding-window-stay-points.csv").toURI()), StandardCharsets.UTF_8);
+        assertEquals(String.join("\n", expected), String.join("\n", actual));
+    }
+
+    private static DetectionParameter parameter(long seconds, long radiusMeters) {
+        return new DetectionParameter(null,
+                                      new DetectionParameter.VisitDetection(seconds, seconds),
+                                      new DetectionParameter.VisitMerging(48, seconds, radiusMeters),
+                                      new DetectionParameter.LocationDensity(50, 720),
+                                      null,
+                                      RecalculationState.DONE);
+    }
+
+    private static List<RawLocationPoint> readGpx(Path file) throws Exception {
+        List<RawLocationPoint> points = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            boolean inPoint = false;
+            double latitude = 0;
+            double longitude = 0;
+            Instant timestamp = null;
+            Double accuracy = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "trkpt" -> {
+                            inPoint = true;
+                            latitude = Double.parseDouble(reader.getAttributeValue(null, "lat"));
+                            longitude = Double.parseDouble(reader.getAttributeValue(null, "lon"));
+                            timestamp = null;
+                            accuracy = null;
+                        }
+                        case "time" -> {
+                            if (inPoint) {
+                                timestamp = Instant.parse(reader.getElementText().trim());
+                            }
+                        }
+                        case "accuracy" -> {
+                            if (inPoint) {
+                                accuracy = Double.parseDouble(reader.getElementText().trim());
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "trkpt".equals(reader.getLocalName())) {
+                    inPoint = false;
+                    if (timestamp != null) {
+                        points.add(new RawLocationPoint(timestamp, new GeoPoint(latitude, longitude), accuracy));
+                    }
+                }
+            }
+            reader.close();
+        }
+        points.sort(Comparator.comparing(RawLocationPoint::getTimestamp));
+        return points;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.processing.DetectionParameter;
+import com.dedicatedcode.reitti.model.processing.RecalculationState;
+import com.dedicatedcode.reitti.model.processing.StayCandidate;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StayPointDetectorTest {
+
+    private static final Instant START = Instant.parse("2025-06-02T07:00:00Z");
+    private static final DetectionParameter PARAMETER = new DetectionParameter(
+            1L,
+            new DetectionParameter.VisitDetection(300, 300),
+            new DetectionParameter.VisitMerging(24, 300, 50),
+            new DetectionParameter.LocationDensity(50, 720),
+            null,
+            RecalculationState.DONE);
+
+    private record Point(Instant timestamp, double latitude, double longitude) {
+    }
+
+    @Test
+    void shouldCloseStayWhenLeavingAndKeepOngoingStayOpen() {
+        List<Point> points = homeTransitWork();
+        StayPointDetector detector = new StayPointDetector(PARAMETER, null, null);
+        points.forEach(point -> detector.advance(point.timestamp(), point.latitude(), point.longitude()));
+
+        List<StayPointDetector.Stay> stays = detector.stays();
+        assertEquals(2, stays.size());
+
+        assertEquals(START, stays.get(0).start());
+        assertEquals(START.plusSeconds(20 * 60), stays.get(0).end());
+        assertEquals(53.5500, stays.get(0).latitude(), 0.0001);
+
+        assertEquals(START.plusSeconds(25 * 60), stays.get(1).start());
+        assertEquals(points.getLast().timestamp(), stays.get(1).end());
+        assertEquals(53.5600, stays.get(1).latitude(), 0.0001);
+        assertEquals(stays.get(1).start(), detector.current().start());
+    }
+
+    @Test
+    void shouldDetectTheSameStaysWhenPointsArriveInBatches() {
+        List<Point> points = homeTransitWork();
+        StayPointDetector single = new StayPointDetector(PARAMETER, null, null);
+        points.forEach(point -> single.advance(point.timestamp(), point.latitude(), point.longitude()));
+
+        for (int batchSize : new int[]{1, 7, 25}) {
+            // every run reports the stays it closed and the open one, a later report of the same stay amends it
+            Map<Instant, StayPointDetector.Stay> reported = new LinkedHashMap<>();
+            StayCandidate current = null;
+            StayCandidate pending = null;
+            for (int i = 0; i < points.size(); i += batchSize) {
+                StayPointDetector detector = new StayPointDetector(PARAMETER, current, pending);
+                for (Point point : points.subList(i, Math.min(points.size(), i + batchSize))) {
+                    detector.advance(point.timestamp(), point.latitude(), point.longitude());
+                }
+                detector.stays().forEach(stay -> reported.put(stay.start(), stay));
+                current = detector.current();
+                pending = detector.pending();
+            }
+            assertEquals(single.stays(), List.copyOf(reported.values()), "batch size " + batchSize);
+        }
+    }
+
+    @Test
+    void shouldNotReportStayForTransitOnly() {
+        StayPointDetector detector = new StayPointDetector(PARAMETER, null, null);
+        for (int i = 0; i < 60; i++) {
+            detector.advance(START.plusSeconds(i * 30L), 53.55 + i * 0.001, 9.99);
+        }
+        assertTrue(detector.stays().isEmpty());
+    }
+
+    /**
+     * 20 minutes at home, 5 minutes of transit and 20 minutes at work, one point every 30 seconds.
+     */
+    private static List<Point> homeTransitWork() {
+        List<Point> points = new ArrayList<>();
+        int step = 0;
+        for (int i = 0; i <= 40; i++, step++) {
+            points.add(new Point(START.plusSeconds(step * 30L), 53.5500 + jitter(i), 9.9900 + jitter(i + 1)));
+        }
+        for (int i = 1; i < 10; i++, step++) {
+            points.add(new Point(START.plusSeconds(step * 30L), 53.5500 + i * 0.001, 9.9900));
+        }
+        for (int i = 0; i <= 40; i++, step++) {
+            points.add(new Point(START.plusSeconds(step * 30L), 53.5600 + jitter(i), 9.9900 + jitter(i + 1)));
+        }
+        return points;
+    }
+
+    private static double jitter(int i) {
+        return ((i * 7) % 5 - 2) * 0.00003;
+    }
+}
@@ -0,0 +1,141 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import com.dedicatedcode.reitti.model.geo.ProcessedVisit;
+import com.dedicatedcode.reitti.model.geo.SignificantPlace;
+import com.dedicatedcode.reitti.model.geo.TransportMode;
+import com.dedicatedcode.reitti.model.geo.Trip;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimelineReconciliationTest {
+
+    private static final Instant DAY = Instant.parse("2025-06-02T00:00:00Z");
+    private static final SignificantPlace HOME = SignificantPlace.create(53.863319, 10.701122).withId(1L);
+    private static final SignificantPlace WORK = SignificantPlace.create(53.870000, 10.690000).withId(2L);
+    private static final SignificantPlace BAKERY = SignificantPlace.create(53.866000, 10.701122).withId(3L);
+
+    @Test
+    void shouldKeepIdenticalVisitsUntouched() {
+        List<ProcessedVisit> stored = List.of(stored(10, HOME, 0, 8), stored(11, WORK, 9, 17));
+        List<ProcessedVisit> computed = List.of(computed(HOME, 0, 8), computed(WORK, 9, 17));
+
+        TimelineReconciliation.Plan<ProcessedVisit> plan = plan(stored, computed);
+
+        assertEquals(List.of(10L, 11L), plan.unchanged().stream().map(ProcessedVisit::getId).toList());
+        assertTrue(plan.updated().isEmpty());
+        assertTrue(plan.inserted().isEmpty());
+        assertTrue(plan.deleted().isEmpty());
+        assertTrue(plan.changes().isEmpty());
+    }
+
+    @Test
+    void shouldUpdateExtendedVisitAndInsertNewOne() {
+        List<ProcessedVisit> stored = List.of(stored(10, HOME, 0, 8), stored(11, WORK, 9, 12));
+        List<ProcessedVisit> computed = List.of(computed(HOME, 0, 8), computed(WORK, 9, 17), computed(BAKERY, 18, 19));
+
+        TimelineReconciliation.Plan<ProcessedVisit> plan = plan(stored, computed);
+
+        assertEquals(1, plan.updated().size());
+        assertEquals(11L, plan.updated().getFirst().stored().getId());
+        assertEquals(DAY.plusSeconds(17 * 3600), plan.updated().getFirst().computed().getEndTime());
+        assertEquals(List.of(BAKERY.getId()), plan.inserted().stream().map(visit -> visit.getPlace().getId()).toList());
+        assertTrue(plan.deleted().isEmpty());
+        assertEquals(3, plan.changes().size());
+    }
+
+    @Test
+    void shouldReplaceVisitThatMovedToAnotherPlace() {
+        List<ProcessedVisit> stored = List.of(stored(10, HOME, 0, 8), stored(11, WORK, 9, 17), stored(12, HOME, 18, 23));
+        // the work visit turned out to be two visits, the first one at the bakery
+        List<ProcessedVisit> computed = List.of(computed(HOME, 0, 8), computed(BAKERY, 9, 10), computed(WORK, 11, 17));
+
+        TimelineReconciliation.Plan<ProcessedVisit> plan = plan(stored, computed);
+
+        assertEquals(List.of(10L), plan.unchanged().stream().map(ProcessedVisit::getId).toList());
+        assertEquals(11L, plan.updated().getFirst().stored().getId());
+        assertEquals(DAY.plusSeconds(11 * 3600), plan.updated().getFirst().computed().getStartTime());
+        assertEquals(List.of(BAKERY.getId()), plan.inserted().stream().map(visit -> visit.getPlace().getId()).toList());
+        assertEquals(List.of(12L), plan.deleted().stream().map(ProcessedVisit::getId).toList());
+    }
+
+    @Test
+    void shouldUpdateVisitWhoseMetadataChanged() {
+        ProcessedVisit stored = stored(10, HOME, 0, 8).withMetadata(Map.of("source", "import"));
+
+        assertTrue(TimelineReconciliation.isSameVisit(stored, computed(HOME, 0, 8)));
+        assertFalse(TimelineReconciliation.isUnchangedVisit(stored, computed(HOME, 0, 8)));
+        assertFalse(TimelineReconciliation.isSameVisit(stored, computed(WORK, 0, 8)));
+    }
+
+    @Test
+    void shouldKeepIdenticalTripsUntouched() {
+        ProcessedVisit home = stored(10, HOME, 0, 8);
+        ProcessedVisit work = stored(11, WORK, 9, 17);
+
+        TimelineReconciliation.Plan<Trip> plan = TimelineReconciliation.planTrips(List.of(trip(home, work).withId(20L)), List.of(trip(home, work)));
+
+        assertEquals(List.of(20L), plan.unchanged().stream().map(Trip::getId).toList());
+        assertTrue(plan.changes().isEmpty());
+    }
+
+    @Test
+    void shouldUpdateTripWhoseVisitWasReplacedAtTheSamePlace() {
+        ProcessedVisit home = stored(10, HOME, 0, 8);
+        ProcessedVisit work = stored(11, WORK, 9, 17);
+        // the work visit was deleted and inserted again, e.g. because it was split
+        ProcessedVisit newWork = stored(12, WORK, 9, 17);
+
+        TimelineReconciliation.Plan<Trip> plan = TimelineReconciliation.planTrips(List.of(trip(home, work).withId(20L)), List.of(trip(home, newWork)));
+
+        assertEquals(1, plan.updated().size());
+        assertEquals(20L, plan.updated().getFirst().stored().getId());
+        assertEquals(12L, plan.updated().getFirst().computed().getEndVisit().getId());
+        assertTrue(plan.inserted().isEmpty());
+        assertTrue(plan.deleted().isEmpty());
+    }
+
+    @Test
+    void shouldReplaceTripsToAnotherPlaceOrWithoutVisits() {
+        ProcessedVisit home = stored(10, HOME, 0, 8);
+        ProcessedVisit work = stored(11, WORK, 9, 17);
+        ProcessedVisit bakery = stored(12, BAKERY, 9, 17);
+        Trip toWork = trip(home, work).withId(20L);
+        Trip orphaned = new Trip(21L, DAY.plusSeconds(17 * 3600L), DAY.plusSeconds(18 * 3600L), 3600L, 1000.0, 1200.0, TransportMode.WALKING,
+                                 null, null, null, 1L);
+
+        TimelineReconciliation.Plan<Trip> plan = TimelineReconciliation.planTrips(
+                List.of(toWork, orphaned),
+                List.of(trip(home, bakery), trip(work, stored(13, HOME, 18, 23))));
+
+        assertTrue(plan.unchanged().isEmpty());
+        assertTrue(plan.updated().isEmpty());
+        assertEquals(List.of(20L, 21L), plan.deleted().stream().map(Trip::getId).toList());
+        assertEquals(2, plan.inserted().size());
+    }
+
+    private static TimelineReconciliation.Plan<ProcessedVisit> plan(List<ProcessedVisit> stored, List<ProcessedVisit> computed) {
+        return TimelineReconciliation.planVisits(stored, computed);
+    }
+
+    private static Trip trip(ProcessedVisit from, ProcessedVisit to) {
+        long duration = to.getStartTime().getEpochSecond() - from.getEndTime().getEpochSecond();
+        return new Trip(from.getEndTime(), to.getStartTime(), duration, 1000.0, 1200.0, TransportMode.WALKING, from, to, null);
+    }
+
+    private static ProcessedVisit stored(long id, SignificantPlace place, int startHour, int endHour) {
+        return computed(place, startHour, endHour).withId(id).withVersion(1);
+    }
+
+    private static ProcessedVisit computed(SignificantPlace place, int startHour, int endHour) {
+        Instant start = DAY.plusSeconds(startHour * 3600L);
+        Instant end = DAY.plusSeconds(endHour * 3600L);
+        return new ProcessedVisit(place, start, end, end.getEpochSecond() - start.getEpochSecond(), null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.dedicatedcode.reitti.service.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimestampBloomFilterTest {
+
+    private static final long START = 1_740_823_200_000_000L;
+
+    @Test
+    void shouldContainEveryAddedTimestampAndFewOthers() {
+        TimestampBloomFilter filter = new TimestampBloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(START + i * 1_000_000L);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(START + i * 1_000_000L));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(START + i * 1_000_000L + 500_000L)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertFalse(filter.isSaturated());
+        filter.put(START - 1);
+        assertTrue(filter.isSaturated());
+    }
+
+    @Test
+    void shouldSurviveSerialization() throws IOException {
+        TimestampBloomFilter filter = new TimestampBloomFilter(1_000);
+        for (int i = 0; i < 500; i++) {
+            filter.put(START + i);
+        }
+        filter.setCoveredId(4711);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        TimestampBloomFilter restored = TimestampBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(4711, restored.getCoveredId());
+        assertEquals(1_000, restored.getCapacity());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(restored.mightContain(START + i));
+        }
+    }
+}